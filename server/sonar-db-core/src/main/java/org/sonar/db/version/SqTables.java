@@ -53,6 +53,7 @@ public final class SqTables {
     "ce_queue",
     "ce_task_input",
     "ce_scanner_context",
+    "ce_task_steps",
     "duplications_index",
     "events",
     "file_sources",
@@ -68,6 +69,7 @@ public final class SqTables {
     "notifications",
     "organizations",
     "organization_members",
+    "permission_index_queue",
     "permission_templates",
     "perm_templates_users",
     "perm_templates_groups",
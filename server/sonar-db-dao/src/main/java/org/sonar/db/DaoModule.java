@@ -26,6 +26,7 @@ import org.sonar.db.ce.CeActivityDao;
 import org.sonar.db.ce.CeQueueDao;
 import org.sonar.db.ce.CeScannerContextDao;
 import org.sonar.db.ce.CeTaskInputDao;
+import org.sonar.db.ce.CeTaskStepDao;
 import org.sonar.db.component.ComponentDao;
 import org.sonar.db.component.ComponentKeyUpdaterDao;
 import org.sonar.db.component.ComponentLinkDao;
@@ -44,6 +45,7 @@ import org.sonar.db.organization.OrganizationDao;
 import org.sonar.db.organization.OrganizationMemberDao;
 import org.sonar.db.permission.AuthorizationDao;
 import org.sonar.db.permission.GroupPermissionDao;
+import org.sonar.db.permission.PermissionIndexQueueDao;
 import org.sonar.db.permission.UserPermissionDao;
 import org.sonar.db.permission.template.PermissionTemplateCharacteristicDao;
 import org.sonar.db.permission.template.PermissionTemplateDao;
@@ -81,6 +83,7 @@ public class DaoModule extends Module {
     CeQueueDao.class,
     CeScannerContextDao.class,
     CeTaskInputDao.class,
+    CeTaskStepDao.class,
     ComponentDao.class,
     ComponentKeyUpdaterDao.class,
     ComponentLinkDao.class,
@@ -100,6 +103,7 @@ public class DaoModule extends Module {
     NotificationQueueDao.class,
     OrganizationDao.class,
     OrganizationMemberDao.class,
+    PermissionIndexQueueDao.class,
     PermissionTemplateCharacteristicDao.class,
     PermissionTemplateDao.class,
     ProjectQgateAssociationDao.class,
@@ -25,6 +25,7 @@ import org.sonar.db.ce.CeActivityDao;
 import org.sonar.db.ce.CeQueueDao;
 import org.sonar.db.ce.CeScannerContextDao;
 import org.sonar.db.ce.CeTaskInputDao;
+import org.sonar.db.ce.CeTaskStepDao;
 import org.sonar.db.component.ComponentDao;
 import org.sonar.db.component.ComponentKeyUpdaterDao;
 import org.sonar.db.component.ComponentLinkDao;
@@ -43,6 +44,7 @@ import org.sonar.db.organization.OrganizationDao;
 import org.sonar.db.organization.OrganizationMemberDao;
 import org.sonar.db.permission.AuthorizationDao;
 import org.sonar.db.permission.GroupPermissionDao;
+import org.sonar.db.permission.PermissionIndexQueueDao;
 import org.sonar.db.permission.UserPermissionDao;
 import org.sonar.db.permission.template.PermissionTemplateCharacteristicDao;
 import org.sonar.db.permission.template.PermissionTemplateDao;
@@ -91,6 +93,7 @@ public class DbClient {
   private final GroupMembershipDao groupMembershipDao;
   private final RoleDao roleDao;
   private final GroupPermissionDao groupPermissionDao;
+  private final PermissionIndexQueueDao permissionIndexQueueDao;
   private final PermissionTemplateDao permissionTemplateDao;
   private final PermissionTemplateCharacteristicDao permissionTemplateCharacteristicDao;
   private final IssueDao issueDao;
@@ -99,6 +102,7 @@ public class DbClient {
   private final CeQueueDao ceQueueDao;
   private final CeTaskInputDao ceTaskInputDao;
   private final CeScannerContextDao ceScannerContextDao;
+  private final CeTaskStepDao ceTaskStepDao;
   private final FileSourceDao fileSourceDao;
   private final AuthorDao authorDao;
   private final ComponentLinkDao componentLinkDao;
@@ -146,6 +150,7 @@ public class DbClient {
     groupMembershipDao = getDao(map, GroupMembershipDao.class);
     roleDao = getDao(map, RoleDao.class);
     groupPermissionDao = getDao(map, GroupPermissionDao.class);
+    permissionIndexQueueDao = getDao(map, PermissionIndexQueueDao.class);
     permissionTemplateDao = getDao(map, PermissionTemplateDao.class);
     permissionTemplateCharacteristicDao = getDao(map, PermissionTemplateCharacteristicDao.class);
     issueDao = getDao(map, IssueDao.class);
@@ -154,6 +159,7 @@ public class DbClient {
     ceQueueDao = getDao(map, CeQueueDao.class);
     ceTaskInputDao = getDao(map, CeTaskInputDao.class);
     ceScannerContextDao = getDao(map, CeScannerContextDao.class);
+    ceTaskStepDao = getDao(map, CeTaskStepDao.class);
     fileSourceDao = getDao(map, FileSourceDao.class);
     authorDao = getDao(map, AuthorDao.class);
     componentLinkDao = getDao(map, ComponentLinkDao.class);
@@ -267,6 +273,10 @@ public class DbClient {
     return groupPermissionDao;
   }
 
+  public PermissionIndexQueueDao permissionIndexQueueDao() {
+    return permissionIndexQueueDao;
+  }
+
   public PermissionTemplateDao permissionTemplateDao() {
     return permissionTemplateDao;
   }
@@ -291,6 +301,10 @@ public class DbClient {
     return ceScannerContextDao;
   }
 
+  public CeTaskStepDao ceTaskStepDao() {
+    return ceTaskStepDao;
+  }
+
   public FileSourceDao fileSourceDao() {
     return fileSourceDao;
   }
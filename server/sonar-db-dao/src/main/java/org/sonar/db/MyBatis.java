@@ -33,6 +33,7 @@ import org.sonar.db.ce.CeActivityMapper;
 import org.sonar.db.ce.CeQueueMapper;
 import org.sonar.db.ce.CeScannerContextMapper;
 import org.sonar.db.ce.CeTaskInputMapper;
+import org.sonar.db.ce.CeTaskStepMapper;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentDtoWithSnapshotId;
 import org.sonar.db.component.ComponentKeyUpdaterMapper;
@@ -62,6 +63,8 @@ import org.sonar.db.measure.MeasureMapper;
 import org.sonar.db.measure.custom.CustomMeasureDto;
 import org.sonar.db.measure.custom.CustomMeasureMapper;
 import org.sonar.db.metric.MetricMapper;
+import org.sonar.db.monitoring.SqlStatementStatistics;
+import org.sonar.db.monitoring.SqlStatementStatisticsInterceptor;
 import org.sonar.db.notification.NotificationQueueDto;
 import org.sonar.db.notification.NotificationQueueMapper;
 import org.sonar.db.organization.OrganizationDto;
@@ -71,6 +74,7 @@ import org.sonar.db.organization.OrganizationMemberMapper;
 import org.sonar.db.permission.AuthorizationMapper;
 import org.sonar.db.permission.GroupPermissionDto;
 import org.sonar.db.permission.GroupPermissionMapper;
+import org.sonar.db.permission.PermissionIndexQueueMapper;
 import org.sonar.db.permission.UserPermissionDto;
 import org.sonar.db.permission.UserPermissionMapper;
 import org.sonar.db.permission.template.PermissionTemplateCharacteristicDto;
@@ -124,6 +128,7 @@ import org.sonar.db.webhook.WebhookDeliveryMapper;
 public class MyBatis implements Startable {
 
   private final Database database;
+  private final SqlStatementStatistics statementStatistics = new SqlStatementStatistics();
   private SqlSessionFactory sessionFactory;
 
   public MyBatis(Database database) {
@@ -135,6 +140,7 @@ public class MyBatis implements Startable {
     LogFactory.useSlf4jLogging();
 
     MyBatisConfBuilder confBuilder = new MyBatisConfBuilder(database);
+    confBuilder.addInterceptor(new SqlStatementStatisticsInterceptor(statementStatistics));
 
     // DTO aliases, keep them sorted alphabetically
     confBuilder.loadAlias("ActiveRule", ActiveRuleDto.class);
@@ -196,6 +202,7 @@ public class MyBatis implements Startable {
       CeQueueMapper.class,
       CeScannerContextMapper.class,
       CeTaskInputMapper.class,
+      CeTaskStepMapper.class,
       ComponentKeyUpdaterMapper.class,
       ComponentLinkMapper.class,
       ComponentMapper.class,
@@ -216,6 +223,7 @@ public class MyBatis implements Startable {
       NotificationQueueMapper.class,
       OrganizationMapper.class,
       OrganizationMemberMapper.class,
+      PermissionIndexQueueMapper.class,
       PermissionTemplateCharacteristicMapper.class,
       PermissionTemplateMapper.class,
       ProjectQgateAssociationMapper.class,
@@ -251,6 +259,13 @@ public class MyBatis implements Startable {
     return sessionFactory;
   }
 
+  /**
+   * Latency and row statistics of the statements executed through MyBatis since startup
+   */
+  public SqlStatementStatistics getStatementStatistics() {
+    return statementStatistics;
+  }
+
   public DbSession openSession(boolean batch) {
     if (batch) {
       SqlSession session = sessionFactory.openSession(ExecutorType.BATCH);
@@ -23,6 +23,7 @@ import com.google.common.io.Closeables;
 import java.io.InputStream;
 import org.apache.ibatis.builder.xml.XMLMapperBuilder;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
@@ -51,6 +52,10 @@ public final class MyBatisConfBuilder {
     this.conf.setLocalCacheScope(LocalCacheScope.STATEMENT);
   }
 
+  public void addInterceptor(Interceptor interceptor) {
+    conf.addInterceptor(interceptor);
+  }
+
   public void loadAlias(String alias, Class dtoClass) {
     conf.getTypeAliasRegistry().registerAlias(alias, dtoClass);
   }
@@ -20,6 +20,7 @@
 package org.sonar.db.ce;
 
 import com.google.common.base.Optional;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -29,6 +30,7 @@ import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.Pagination;
 
+import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 import static org.sonar.db.DatabaseUtils.executeLargeUpdates;
 
 public class CeActivityDao implements Dao {
@@ -59,6 +61,14 @@ public class CeActivityDao implements Dao {
     return mapper(dbSession).selectOlderThan(beforeDate);
   }
 
+  /**
+   * Last activities of the given {@link CeActivityDto#getIsLastKey() "is last" keys}, that is the last activity of
+   * each pair of task type and component.
+   */
+  public List<CeActivityDto> selectLastByIsLastKeys(DbSession dbSession, Collection<String> isLastKeys) {
+    return executeLargeInputs(isLastKeys, mapper(dbSession)::selectLastByIsLastKeys);
+  }
+
   public void deleteByUuids(DbSession dbSession, Set<String> uuids) {
     executeLargeUpdates(uuids, mapper(dbSession)::deleteByUuids);
   }
@@ -34,6 +34,8 @@ public interface CeActivityMapper {
 
   List<CeActivityDto> selectByQuery(@Param("query") CeTaskQuery query, @Param("pagination") Pagination pagination);
 
+  List<CeActivityDto> selectLastByIsLastKeys(@Param("isLastKeys") List<String> isLastKeys);
+
   List<CeActivityDto> selectOlderThan(@Param("beforeDate") long beforeDate);
 
   int countLastByStatusAndComponentUuid(@Param("status") CeActivityDto.Status status, @Nullable @Param("componentUuid") String componentUuid);
@@ -33,8 +33,6 @@ import static org.sonar.db.ce.CeQueueDto.Status.PENDING;
 
 public class CeQueueDao implements Dao {
 
-  private static final RowBounds ONE_ROW_LIMIT = new RowBounds(0, 1);
-
   private final System2 system2;
 
   public CeQueueDao(System2 system2) {
@@ -109,16 +107,28 @@ public class CeQueueDao implements Dao {
   }
 
   public Optional<CeQueueDto> peek(DbSession session) {
-    List<String> taskUuids = mapper(session).selectEligibleForPeek(ONE_ROW_LIMIT);
-    if (taskUuids.isEmpty()) {
+    List<CeQueueDto> tasks = selectEligibleForPeek(session, 1);
+    if (tasks.isEmpty()) {
       return Optional.absent();
     }
 
-    String taskUuid = taskUuids.get(0);
-    return tryToPeek(session, taskUuid);
+    return tryToPeek(session, tasks.get(0).getUuid());
   }
 
-  private Optional<CeQueueDto> tryToPeek(DbSession session, String taskUuid) {
+  /**
+   * The oldest pending tasks which can be started, ordered from oldest to newest. At most one task
+   * is returned per component, so that any of them can be started without breaking the order of the tasks
+   * of a given component.
+   */
+  public List<CeQueueDto> selectEligibleForPeek(DbSession session, int maxResults) {
+    return mapper(session).selectEligibleForPeek(new RowBounds(0, maxResults));
+  }
+
+  /**
+   * Changes the status of the task to IN_PROGRESS and commits, if the task is still PENDING. Returns
+   * {@link Optional#absent()} if the task has been started in the meantime by another worker.
+   */
+  public Optional<CeQueueDto> tryToPeek(DbSession session, String taskUuid) {
     int touchedRows = mapper(session).updateIfStatus(taskUuid, IN_PROGRESS, system2.now(), system2.now(), PENDING);
     if (touchedRows != 1) {
       return Optional.absent();
@@ -0,0 +1,56 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.ce;
+
+import java.util.Collection;
+import java.util.List;
+import org.sonar.api.utils.System2;
+import org.sonar.db.Dao;
+import org.sonar.db.DatabaseUtils;
+import org.sonar.db.DbSession;
+
+public class CeTaskStepDao implements Dao {
+
+  private final System2 system;
+
+  public CeTaskStepDao(System2 system) {
+    this.system = system;
+  }
+
+  public void insert(DbSession dbSession, CeTaskStepDto dto) {
+    dto.setCreatedAt(system.now());
+    mapper(dbSession).insert(dto);
+  }
+
+  /**
+   * Steps of the task, sorted by execution order
+   */
+  public List<CeTaskStepDto> selectByTaskUuid(DbSession dbSession, String taskUuid) {
+    return mapper(dbSession).selectByTaskUuid(taskUuid);
+  }
+
+  public void deleteByTaskUuids(DbSession dbSession, Collection<String> taskUuids) {
+    DatabaseUtils.executeLargeUpdates(taskUuids, mapper(dbSession)::deleteByTaskUuids);
+  }
+
+  private static CeTaskStepMapper mapper(DbSession dbSession) {
+    return dbSession.getMapper(CeTaskStepMapper.class);
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.ce;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Resources consumed by one step of a Compute Engine task
+ */
+public class CeTaskStepDto {
+  private String taskUuid;
+  /** Position of the step in the task, starting from 0 */
+  private int stepIndex;
+  private String name;
+  private long wallTimeMs;
+  /** Null if thread CPU time measurement is not supported by the JVM */
+  private Long cpuTimeMs;
+  /** Null if thread allocated memory measurement is not supported by the JVM */
+  private Long allocatedBytes;
+  private long sqlStatements;
+  private long sqlRows;
+  private long createdAt;
+
+  public String getTaskUuid() {
+    return taskUuid;
+  }
+
+  public CeTaskStepDto setTaskUuid(String s) {
+    this.taskUuid = s;
+    return this;
+  }
+
+  public int getStepIndex() {
+    return stepIndex;
+  }
+
+  public CeTaskStepDto setStepIndex(int i) {
+    this.stepIndex = i;
+    return this;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public CeTaskStepDto setName(String s) {
+    this.name = s;
+    return this;
+  }
+
+  public long getWallTimeMs() {
+    return wallTimeMs;
+  }
+
+  public CeTaskStepDto setWallTimeMs(long l) {
+    this.wallTimeMs = l;
+    return this;
+  }
+
+  @CheckForNull
+  public Long getCpuTimeMs() {
+    return cpuTimeMs;
+  }
+
+  public CeTaskStepDto setCpuTimeMs(@Nullable Long l) {
+    this.cpuTimeMs = l;
+    return this;
+  }
+
+  @CheckForNull
+  public Long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public CeTaskStepDto setAllocatedBytes(@Nullable Long l) {
+    this.allocatedBytes = l;
+    return this;
+  }
+
+  public long getSqlStatements() {
+    return sqlStatements;
+  }
+
+  public CeTaskStepDto setSqlStatements(long l) {
+    this.sqlStatements = l;
+    return this;
+  }
+
+  public long getSqlRows() {
+    return sqlRows;
+  }
+
+  public CeTaskStepDto setSqlRows(long l) {
+    this.sqlRows = l;
+    return this;
+  }
+
+  public long getCreatedAt() {
+    return createdAt;
+  }
+
+  public CeTaskStepDto setCreatedAt(long l) {
+    this.createdAt = l;
+    return this;
+  }
+}
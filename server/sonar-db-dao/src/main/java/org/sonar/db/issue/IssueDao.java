@@ -28,12 +28,18 @@ import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.apache.ibatis.session.ResultHandler;
+import org.sonar.api.resources.Scopes;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.RowNotFoundException;
+import org.sonar.db.component.ComponentDto;
 
 import static com.google.common.collect.FluentIterable.from;
+import static org.sonar.db.DaoDatabaseUtils.buildLikeValue;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
+import static org.sonar.db.WildcardPosition.AFTER;
 
 public class IssueDao implements Dao {
 
@@ -86,6 +92,52 @@ public class IssueDao implements Dao {
     }
   }
 
+  /**
+   * Scrolls the non-closed issues of the specified components, in partitions of at most
+   * {@link org.sonar.db.DatabaseUtils#PARTITION_SIZE_FOR_ORACLE} components per query. Issues of a same component
+   * are returned consecutively.
+   */
+  public void scrollNonClosedByComponentUuids(DbSession session, Collection<String> componentUuids, ResultHandler handler) {
+    executeLargeInputsWithoutOutput(componentUuids, partition -> mapper(session).scrollNonClosedByComponentUuids(partition, handler));
+  }
+
+  /**
+   * Scrolls the non-closed issues of a project, of a module (including its sub-modules) or of a file. Other kinds of
+   * components are not allowed. Only the fields required by scanners in issues mode are loaded. Issues of a same
+   * component are returned consecutively.
+   *
+   * @param paths if not empty, only the issues of the files of {@code component} with these paths are returned. Paths
+   *              are relative to the module {@code component} (or to the module of the file {@code component}).
+   * @throws IllegalStateException if {@code component} is neither a project, a module nor a file
+   */
+  public void scrollNonClosedForScanner(DbSession session, ComponentDto component, Collection<String> paths, ResultHandler handler) {
+    IssueMapper mapper = mapper(session);
+    String projectUuid = component.projectUuid();
+    String componentUuid;
+    String moduleUuidPathLike;
+    String moduleUuid;
+    switch (component.scope()) {
+      case Scopes.PROJECT:
+        componentUuid = null;
+        moduleUuidPathLike = component.isRootProject() ? null : buildLikeValue(component.moduleUuidPath(), AFTER);
+        moduleUuid = component.uuid();
+        break;
+      case Scopes.FILE:
+        componentUuid = component.uuid();
+        moduleUuidPathLike = null;
+        moduleUuid = component.moduleUuid();
+        break;
+      default:
+        throw new IllegalStateException(String.format("Component of scope '%s' is not allowed", component.scope()));
+    }
+    if (paths.isEmpty()) {
+      mapper.scrollNonClosedForScanner(projectUuid, moduleUuidPathLike, componentUuid, null, null, handler);
+    } else {
+      executeLargeInputsWithoutOutput(paths,
+        partition -> mapper.scrollNonClosedForScanner(projectUuid, moduleUuidPathLike, componentUuid, moduleUuid, partition, handler));
+    }
+  }
+
   public Set<String> selectComponentUuidsOfOpenIssuesForProjectUuid(DbSession session, String projectUuid) {
     return mapper(session).selectComponentUuidsOfOpenIssuesForProjectUuid(projectUuid);
   }
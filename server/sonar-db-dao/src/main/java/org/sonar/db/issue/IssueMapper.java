@@ -19,8 +19,10 @@
  */
 package org.sonar.db.issue;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import javax.annotation.Nullable;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.session.ResultHandler;
 
@@ -30,6 +32,12 @@ public interface IssueMapper {
 
   void selectNonClosedByComponentUuid(@Param("componentUuid") String componentUuid, ResultHandler resultHandler);
 
+  void scrollNonClosedByComponentUuids(@Param("componentUuids") Collection<String> componentUuids, ResultHandler resultHandler);
+
+  void scrollNonClosedForScanner(@Param("projectUuid") String projectUuid, @Nullable @Param("moduleUuidPathLike") String moduleUuidPathLike,
+    @Nullable @Param("componentUuid") String componentUuid, @Nullable @Param("moduleUuid") String moduleUuid, @Nullable @Param("paths") Collection<String> paths,
+    ResultHandler resultHandler);
+
   Set<String> selectComponentUuidsOfOpenIssuesForProjectUuid(String projectUuid);
 
   List<IssueDto> selectByKeys(List<String> keys);
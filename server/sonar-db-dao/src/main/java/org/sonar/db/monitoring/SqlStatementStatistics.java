@@ -0,0 +1,119 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.monitoring;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import static java.util.Objects.requireNonNull;
+import static org.sonar.core.util.stream.Collectors.toList;
+
+/**
+ * Aggregates latency and row counts of MyBatis statements, by statement id. Statements
+ * slower than a threshold are logged, at most once per statement id and per sampling period,
+ * without their bind parameters.
+ */
+public class SqlStatementStatistics {
+
+  static final long DEFAULT_SLOW_THRESHOLD_MS = 2_000L;
+  static final long SLOW_LOG_SAMPLING_PERIOD_MS = 60_000L;
+  private static final long MICROS_PER_MS = 1_000L;
+  private static final Logger LOG = Loggers.get("sql.slow");
+
+  private final ConcurrentMap<String, SqlStatementStats> statsById = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Long> lastSlowLogById = new ConcurrentHashMap<>();
+  // number of executions and of rows of the statements executed by each thread
+  private final ThreadLocal<long[]> threadCounters = ThreadLocal.withInitial(() -> new long[2]);
+  private final System2 system2;
+  private final long slowThresholdMicros;
+
+  public SqlStatementStatistics() {
+    this(System2.INSTANCE, DEFAULT_SLOW_THRESHOLD_MS);
+  }
+
+  SqlStatementStatistics(System2 system2, long slowThresholdMs) {
+    this.system2 = system2;
+    this.slowThresholdMicros = slowThresholdMs * MICROS_PER_MS;
+  }
+
+  /**
+   * @param sql supplier of the SQL statement, with placeholders instead of the values of bind parameters. It is
+   *            called only when the statement is slow.
+   * @param durationMicros duration in microseconds. Milliseconds would round the executions of fast statements to zero.
+   */
+  public void record(String statementId, Supplier<String> sql, long durationMicros, long rows) {
+    requireNonNull(statementId, "Statement id can't be null");
+    long positiveRows = Math.max(0L, rows);
+    statsById.computeIfAbsent(statementId, SqlStatementStats::new).record(durationMicros, positiveRows);
+    long[] counters = threadCounters.get();
+    counters[0]++;
+    counters[1] += positiveRows;
+    if (durationMicros >= slowThresholdMicros) {
+      sampleSlowStatement(statementId, sql, durationMicros / MICROS_PER_MS);
+    }
+  }
+
+  private void sampleSlowStatement(String statementId, Supplier<String> sql, long durationMs) {
+    long now = system2.now();
+    Long previous = lastSlowLogById.get(statementId);
+    boolean sampled = previous == null
+      ? lastSlowLogById.putIfAbsent(statementId, now) == null
+      : (now - previous >= SLOW_LOG_SAMPLING_PERIOD_MS && lastSlowLogById.replace(statementId, previous, now));
+    if (sampled) {
+      LOG.warn("Slow SQL statement {} ({} ms): {}", statementId, durationMs, sql.get().replaceAll("\\s+", " ").trim());
+    }
+  }
+
+  /**
+   * Number of statements executed by the current thread since its start. The difference between two calls
+   * measures the statements executed by a unit of work, whatever the activity of the other threads.
+   */
+  public long getCurrentThreadExecutions() {
+    return threadCounters.get()[0];
+  }
+
+  /**
+   * Number of rows returned or updated by the statements executed by the current thread since its start
+   */
+  public long getCurrentThreadRows() {
+    return threadCounters.get()[1];
+  }
+
+  public List<SqlStatementStats> getAll() {
+    return statsById.values().stream().collect(toList(statsById.size()));
+  }
+
+  /**
+   * Statements sorted by decreasing total duration
+   */
+  public List<SqlStatementStats> getTopByTotalDuration(int max) {
+    return statsById.values().stream()
+      .sorted(Comparator.comparingLong(SqlStatementStats::getTotalDurationMicros).reversed()
+        .thenComparing(SqlStatementStats::getStatementId))
+      .limit(max)
+      .collect(toList());
+  }
+}
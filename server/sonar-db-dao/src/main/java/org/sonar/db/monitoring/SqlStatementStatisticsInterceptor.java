@@ -0,0 +1,131 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.monitoring;
+
+import java.util.Collection;
+import java.util.Properties;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * MyBatis plugin feeding {@link SqlStatementStatistics} with the duration and the number of rows
+ * of each execution of mapped statements.
+ * <p>
+ * When a select is executed with a {@link ResultHandler}, rows are counted as they are handled and the time spent
+ * in the handler (for example to write a response) is excluded from the duration of the statement.
+ * </p>
+ */
+@Intercepts({
+  @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+  @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+  @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class,
+    BoundSql.class})
+})
+public class SqlStatementStatisticsInterceptor implements Interceptor {
+
+  private static final int RESULT_HANDLER_ARG = 3;
+  private static final long NANOS_PER_MICRO = 1_000L;
+
+  private final SqlStatementStatistics statistics;
+
+  public SqlStatementStatisticsInterceptor(SqlStatementStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    Object[] args = invocation.getArgs();
+    MappedStatement statement = (MappedStatement) args[0];
+    MeasuredResultHandler measuredHandler = null;
+    if (args.length > RESULT_HANDLER_ARG && args[RESULT_HANDLER_ARG] instanceof ResultHandler) {
+      measuredHandler = new MeasuredResultHandler((ResultHandler) args[RESULT_HANDLER_ARG]);
+      args[RESULT_HANDLER_ARG] = measuredHandler;
+    }
+
+    long start = System.nanoTime();
+    Object result = invocation.proceed();
+    long durationNs = System.nanoTime() - start;
+
+    long rows;
+    if (measuredHandler == null) {
+      rows = rowsOf(result);
+    } else {
+      durationNs -= measuredHandler.handlerNs;
+      rows = measuredHandler.rows;
+    }
+    statistics.record(statement.getId(), () -> statement.getBoundSql(args[1]).getSql(), durationNs / NANOS_PER_MICRO, rows);
+    return result;
+  }
+
+  private static long rowsOf(Object result) {
+    if (result instanceof Collection) {
+      return ((Collection) result).size();
+    }
+    if (result instanceof Integer) {
+      // batch executor returns a negative constant instead of the number of updated rows
+      return Math.max(0, (Integer) result);
+    }
+    return 0L;
+  }
+
+  /**
+   * Counts the rows passed to the wrapped handler and the time it spends handling them
+   */
+  private static class MeasuredResultHandler implements ResultHandler {
+    private final ResultHandler delegate;
+    private long rows = 0L;
+    private long handlerNs = 0L;
+
+    private MeasuredResultHandler(ResultHandler delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void handleResult(ResultContext context) {
+      rows++;
+      long start = System.nanoTime();
+      try {
+        delegate.handleResult(context);
+      } finally {
+        handlerNs += System.nanoTime() - start;
+      }
+    }
+  }
+
+  @Override
+  public Object plugin(Object target) {
+    return Plugin.wrap(target, this);
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    // no properties
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.monitoring;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+/**
+ * Lock-free counters and histograms of the executions of a single MyBatis statement.
+ * Durations are recorded in microseconds, so that the many executions of fast statements add up
+ * instead of being truncated to zero milliseconds. They are converted to milliseconds for display.
+ * Histograms use power-of-two buckets: bucket 0 counts values lower than 1, bucket {@code i}
+ * counts values in range [2^(i-1), 2^i[, and the last bucket counts all the greater values.
+ */
+public class SqlStatementStats {
+
+  static final int BUCKETS = 32;
+  private static final long MICROS_PER_MS = 1_000L;
+
+  private final String statementId;
+  private final LongAdder executions = new LongAdder();
+  private final LongAdder totalDurationMicros = new LongAdder();
+  private final LongAdder totalRows = new LongAdder();
+  private final AtomicLong maxDurationMicros = new AtomicLong();
+  private final AtomicLongArray durationBuckets = new AtomicLongArray(BUCKETS);
+  private final AtomicLongArray rowsBuckets = new AtomicLongArray(BUCKETS);
+
+  SqlStatementStats(String statementId) {
+    this.statementId = statementId;
+  }
+
+  void record(long durationMicros, long rows) {
+    executions.increment();
+    totalDurationMicros.add(durationMicros);
+    totalRows.add(rows);
+    maxDurationMicros.accumulateAndGet(durationMicros, Math::max);
+    durationBuckets.incrementAndGet(bucketOf(durationMicros));
+    rowsBuckets.incrementAndGet(bucketOf(rows));
+  }
+
+  public String getStatementId() {
+    return statementId;
+  }
+
+  public long getExecutions() {
+    return executions.sum();
+  }
+
+  public long getTotalDurationMicros() {
+    return totalDurationMicros.sum();
+  }
+
+  public long getTotalDurationMs() {
+    return getTotalDurationMicros() / MICROS_PER_MS;
+  }
+
+  public long getMaxDurationMicros() {
+    return maxDurationMicros.get();
+  }
+
+  public long getMaxDurationMs() {
+    return getMaxDurationMicros() / MICROS_PER_MS;
+  }
+
+  public long getTotalRows() {
+    return totalRows.sum();
+  }
+
+  /**
+   * Upper bound, in microseconds, of the histogram bucket containing the given percentile
+   * of durations. For example {@code getDurationPercentileMicros(99)} returns the duration that
+   * 99% of executions did not exceed, approximated by the upper bound of its bucket.
+   */
+  public long getDurationPercentileMicros(int percentile) {
+    return percentile(durationBuckets, percentile);
+  }
+
+  /**
+   * Same as {@link #getDurationPercentileMicros(int)} for the number of rows returned or updated
+   */
+  public long getRowsPercentile(int percentile) {
+    return percentile(rowsBuckets, percentile);
+  }
+
+  /**
+   * Human-readable summary, used by system info
+   */
+  public String summary() {
+    return format(Locale.ENGLISH, "%d calls, total %.3f ms, p50 <= %.3f ms, p99 <= %.3f ms, max %.3f ms, p99 <= %d rows",
+      getExecutions(), toMs(getTotalDurationMicros()), toMs(getDurationPercentileMicros(50)), toMs(getDurationPercentileMicros(99)),
+      toMs(getMaxDurationMicros()), getRowsPercentile(99));
+  }
+
+  private static double toMs(long micros) {
+    return (double) micros / MICROS_PER_MS;
+  }
+
+  static int bucketOf(long value) {
+    if (value <= 0) {
+      return 0;
+    }
+    int bucket = 64 - Long.numberOfLeadingZeros(value);
+    return Math.min(bucket, BUCKETS - 1);
+  }
+
+  private static long percentile(AtomicLongArray buckets, int percentile) {
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long threshold = (long) Math.ceil(total * percentile / 100.0);
+    long cumulated = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      cumulated += counts[i];
+      if (cumulated >= threshold) {
+        return upperBoundOf(i);
+      }
+    }
+    return upperBoundOf(BUCKETS - 1);
+  }
+
+  private static long upperBoundOf(int bucket) {
+    return bucket == 0 ? 0 : ((1L << bucket) - 1);
+  }
+}
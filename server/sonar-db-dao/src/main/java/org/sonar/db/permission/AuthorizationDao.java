@@ -21,6 +21,7 @@ package org.sonar.db.permission;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -71,6 +72,22 @@ public class AuthorizationDao implements Dao {
     return mapper(dbSession).selectProjectPermissionsOfAnonymous(projectUuid);
   }
 
+  /**
+   * Loads in a single request (per partition of large inputs) the permissions granted to logged-in
+   * user, or to anonymous if {@code userId} is {@code null}, on the specified projects.
+   * Projects on which user has no permissions are not returned.
+   */
+  public List<ProjectPermission> selectProjectPermissions(DbSession dbSession, Collection<String> projectUuids, @Nullable Integer userId) {
+    return executeLargeInputs(
+      projectUuids,
+      partition -> {
+        if (userId == null) {
+          return mapper(dbSession).selectProjectPermissionsOfAnonymousByProjectUuids(partition);
+        }
+        return mapper(dbSession).selectProjectPermissionsByProjectUuids(partition, userId);
+      });
+  }
+
   /**
    * The number of users who will still have the permission if the group {@code excludedGroupId}
    * is deleted. The anyone virtual group is not taken into account.
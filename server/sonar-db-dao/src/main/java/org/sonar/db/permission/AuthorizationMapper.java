@@ -56,4 +56,8 @@ public interface AuthorizationMapper {
   Set<String> selectProjectPermissions(@Param("projectUuid") String projectUuid, @Param("userId") long userId);
 
   Set<String> selectProjectPermissionsOfAnonymous(@Param("projectUuid") String projectUuid);
+
+  List<ProjectPermission> selectProjectPermissionsByProjectUuids(@Param("projectUuids") Collection<String> projectUuids, @Param("userId") long userId);
+
+  List<ProjectPermission> selectProjectPermissionsOfAnonymousByProjectUuids(@Param("projectUuids") Collection<String> projectUuids);
 }
@@ -0,0 +1,75 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.permission;
+
+import java.util.Collection;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import org.apache.ibatis.session.RowBounds;
+import org.sonar.api.utils.System2;
+import org.sonar.db.Dao;
+import org.sonar.db.DatabaseUtils;
+import org.sonar.db.DbSession;
+
+/**
+ * Queue of the projects and views whose permissions must be indexed again. The same project can be
+ * queued several times.
+ */
+public class PermissionIndexQueueDao implements Dao {
+
+  private final System2 system;
+
+  public PermissionIndexQueueDao(System2 system) {
+    this.system = system;
+  }
+
+  public void insert(DbSession dbSession, Collection<String> projectUuids) {
+    long now = system.now();
+    PermissionIndexQueueMapper mapper = mapper(dbSession);
+    projectUuids.forEach(projectUuid -> mapper.insert(new PermissionIndexQueueDto().setProjectUuid(projectUuid).setCreatedAt(now)));
+  }
+
+  /**
+   * Oldest items of the queue, sorted by insertion order
+   */
+  public List<PermissionIndexQueueDto> selectOldest(DbSession dbSession, int limit) {
+    return mapper(dbSession).selectOldest(new RowBounds(0, limit));
+  }
+
+  public long count(DbSession dbSession) {
+    return mapper(dbSession).count();
+  }
+
+  /**
+   * Date of insertion of the oldest item of the queue, or {@code null} if the queue is empty
+   */
+  @CheckForNull
+  public Long selectOldestCreatedAt(DbSession dbSession) {
+    return mapper(dbSession).selectOldestCreatedAt();
+  }
+
+  public void deleteByIds(DbSession dbSession, Collection<Long> ids) {
+    DatabaseUtils.executeLargeUpdates(ids, mapper(dbSession)::deleteByIds);
+  }
+
+  private static PermissionIndexQueueMapper mapper(DbSession dbSession) {
+    return dbSession.getMapper(PermissionIndexQueueMapper.class);
+  }
+}
@@ -22,7 +22,9 @@ package org.sonar.db.purge;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import java.util.List;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import org.apache.ibatis.executor.BatchResult;
 import org.sonar.db.DbSession;
 
 import static com.google.common.collect.FluentIterable.from;
@@ -70,53 +72,43 @@ class PurgeCommands {
     // possible missing optimization: filter requests according to resource scope
 
     profiler.start("deleteResourceLinks (project_links)");
-    componentUuidsPartitions.forEach(purgeMapper::deleteComponentLinks);
-    session.commit();
+    forEachPartition(componentUuidsPartitions, purgeMapper::deleteComponentLinks);
     profiler.stop();
 
     profiler.start("deleteResourceProperties (properties)");
-    componentIdPartitions.forEach(purgeMapper::deleteComponentProperties);
-    session.commit();
+    forEachPartition(componentIdPartitions, purgeMapper::deleteComponentProperties);
     profiler.stop();
 
     profiler.start("deleteResourceGroupRoles (group_roles)");
-    componentIdPartitions.forEach(purgeMapper::deleteComponentGroupRoles);
-    session.commit();
+    forEachPartition(componentIdPartitions, purgeMapper::deleteComponentGroupRoles);
     profiler.stop();
 
     profiler.start("deleteResourceUserRoles (user_roles)");
-    componentIdPartitions.forEach(purgeMapper::deleteComponentUserRoles);
-    session.commit();
+    forEachPartition(componentIdPartitions, purgeMapper::deleteComponentUserRoles);
     profiler.stop();
 
     profiler.start("deleteResourceManualMeasures (manual_measures)");
-    componentUuidsPartitions.forEach(purgeMapper::deleteComponentManualMeasures);
-    session.commit();
+    forEachPartition(componentUuidsPartitions, purgeMapper::deleteComponentManualMeasures);
     profiler.stop();
 
     profiler.start("deleteComponentIssueChanges (issue_changes)");
-    componentUuidsPartitions.forEach(purgeMapper::deleteComponentIssueChanges);
-    session.commit();
+    forEachPartition(componentUuidsPartitions, purgeMapper::deleteComponentIssueChanges);
     profiler.stop();
 
     profiler.start("deleteComponentIssues (issues)");
-    componentUuidsPartitions.forEach(purgeMapper::deleteComponentIssues);
-    session.commit();
+    forEachPartition(componentUuidsPartitions, purgeMapper::deleteComponentIssues);
     profiler.stop();
 
     profiler.start("deleteComponentEvents (events)");
-    componentUuidsPartitions.forEach(purgeMapper::deleteComponentEvents);
-    session.commit();
+    forEachPartition(componentUuidsPartitions, purgeMapper::deleteComponentEvents);
     profiler.stop();
 
     profiler.start("deleteResource (projects)");
-    componentUuidsPartitions.forEach(purgeMapper::deleteComponents);
-    session.commit();
+    forEachPartition(componentUuidsPartitions, purgeMapper::deleteComponents);
     profiler.stop();
 
     profiler.start("deleteAuthors (authors)");
-    componentIdPartitions.forEach(purgeMapper::deleteAuthors);
-    session.commit();
+    forEachPartition(componentIdPartitions, purgeMapper::deleteAuthors);
     profiler.stop();
   }
 
@@ -130,11 +122,8 @@ class PurgeCommands {
 
     profiler.start("deleteComponentMeasures");
     for (List<String> analysisUuidsPartition : analysisUuidsPartitions) {
-      for (List<String> componentUuidsPartition : componentUuidsPartitions) {
-        purgeMapper.deleteComponentMeasures(analysisUuidsPartition, componentUuidsPartition);
-      }
+      forEachPartition(componentUuidsPartitions, componentUuidsPartition -> purgeMapper.deleteComponentMeasures(analysisUuidsPartition, componentUuidsPartition));
     }
-    session.commit();
     profiler.stop();
   }
 
@@ -152,18 +141,15 @@ class PurgeCommands {
     deleteAnalysisDuplications(analysisUuidsPartitions);
 
     profiler.start("deleteAnalyses (events)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisEvents);
-    session.commit();
+    forEachPartition(analysisUuidsPartitions, purgeMapper::deleteAnalysisEvents);
     profiler.stop();
 
     profiler.start("deleteAnalyses (project_measures)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisMeasures);
-    session.commit();
+    forEachPartition(analysisUuidsPartitions, purgeMapper::deleteAnalysisMeasures);
     profiler.stop();
 
     profiler.start("deleteAnalyses (snapshots)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalyses);
-    session.commit();
+    forEachPartition(analysisUuidsPartitions, purgeMapper::deleteAnalyses);
     profiler.stop();
   }
 
@@ -174,21 +160,29 @@ class PurgeCommands {
 
     profiler.start("deleteSnapshotWastedMeasures (project_measures)");
     List<Long> metricIdsWithoutHistoricalData = purgeMapper.selectMetricIdsWithoutHistoricalData();
-    analysisUuidsPartitions.stream()
-      .forEach(analysisUuidsPartition -> purgeMapper.deleteAnalysisWastedMeasures(analysisUuidsPartition, metricIdsWithoutHistoricalData));
-    session.commit();
+    forEachPartition(analysisUuidsPartitions, analysisUuidsPartition -> purgeMapper.deleteAnalysisWastedMeasures(analysisUuidsPartition, metricIdsWithoutHistoricalData));
     profiler.stop();
 
     profiler.start("updatePurgeStatusToOne (snapshots)");
-    analysisUuidsPartitions.forEach(purgeMapper::updatePurgeStatusToOne);
-    session.commit();
+    forEachPartition(analysisUuidsPartitions, purgeMapper::updatePurgeStatusToOne);
     profiler.stop();
   }
 
   private void deleteAnalysisDuplications(List<List<String>> snapshotUuidsPartitions) {
     profiler.start("deleteAnalysisDuplications (duplications_index)");
-    snapshotUuidsPartitions.forEach(purgeMapper::deleteAnalysisDuplications);
-    session.commit();
+    forEachPartition(snapshotUuidsPartitions, purgeMapper::deleteAnalysisDuplications);
+    profiler.stop();
+  }
+
+  void deleteIssues(List<String> issueKeys) {
+    List<List<String>> issueKeysPartitions = Lists.partition(issueKeys, MAX_RESOURCES_PER_QUERY);
+
+    profiler.start("deleteIssues (issue_changes)");
+    forEachPartition(issueKeysPartitions, purgeMapper::deleteIssueChangesFromIssueKeys);
+    profiler.stop();
+
+    profiler.start("deleteIssues (issues)");
+    forEachPartition(issueKeysPartitions, purgeMapper::deleteIssuesFromKeys);
     profiler.stop();
   }
 
@@ -219,4 +213,39 @@ class PurgeCommands {
     session.commit();
     profiler.stop();
   }
+
+  /**
+   * Deletes partitions one after the other and commits each of them, then counts the deleted rows in {@link PurgeProfiler}.
+   * When the rate limit of the profiler is exceeded, the wait happens between two transactions, so that locks are not held
+   * while throttling.
+   */
+  private <T> void forEachPartition(List<List<T>> partitions, ToIntFunction<List<T>> deletion) {
+    for (List<T> partition : partitions) {
+      int result = deletion.applyAsInt(partition);
+      List<BatchResult> batchResults = session.flushStatements();
+      session.commit();
+      profiler.countRows(affectedRows(partition, result, batchResults));
+    }
+  }
+
+  /**
+   * Rows affected by the deletion of a partition: the count returned by the mapper, or the update counts of the JDBC
+   * batch when the session is in batch mode. Falls back to the size of the partition when the driver does not report
+   * the counts.
+   */
+  private static int affectedRows(List<?> partition, int result, List<BatchResult> batchResults) {
+    if (batchResults.isEmpty()) {
+      return result >= 0 ? result : partition.size();
+    }
+    int rows = 0;
+    for (BatchResult batchResult : batchResults) {
+      for (int updateCount : batchResult.getUpdateCounts()) {
+        if (updateCount < 0) {
+          return partition.size();
+        }
+        rows += updateCount;
+      }
+    }
+    return rows;
+  }
 }
@@ -32,53 +32,53 @@ public interface PurgeMapper {
    */
   List<IdUuidPair> selectComponentsByProjectUuid(String projectUuid);
 
-  void deleteAnalyses(@Param("analysisUuids") List<String> analysisUuids);
+  int deleteAnalyses(@Param("analysisUuids") List<String> analysisUuids);
 
-  void deleteAnalysisDuplications(@Param("analysisUuids") List<String> analysisUuids);
+  int deleteAnalysisDuplications(@Param("analysisUuids") List<String> analysisUuids);
 
-  void deleteAnalysisEvents(@Param("analysisUuids") List<String> analysisUuids);
+  int deleteAnalysisEvents(@Param("analysisUuids") List<String> analysisUuids);
 
-  void deleteAnalysisMeasures(@Param("analysisUuids") List<String> analysisUuids);
+  int deleteAnalysisMeasures(@Param("analysisUuids") List<String> analysisUuids);
 
-  void deleteComponentMeasures(@Param("analysisUuids") List<String> analysisUuids, @Param("componentUuids") List<String> componentUuids);
+  int deleteComponentMeasures(@Param("analysisUuids") List<String> analysisUuids, @Param("componentUuids") List<String> componentUuids);
 
   List<Long> selectMetricIdsWithoutHistoricalData();
 
-  void deleteAnalysisWastedMeasures(@Param("analysisUuids") List<String> analysisUuids, @Param("metricIds") List<Long> metricIds);
+  int deleteAnalysisWastedMeasures(@Param("analysisUuids") List<String> analysisUuids, @Param("metricIds") List<Long> metricIds);
 
-  void updatePurgeStatusToOne(@Param("analysisUuids") List<String> analysisUuid);
+  int updatePurgeStatusToOne(@Param("analysisUuids") List<String> analysisUuid);
 
   void resolveComponentIssuesNotAlreadyResolved(@Param("componentUuids") List<String> componentUuids, @Param("dateAsLong") Long dateAsLong);
 
-  void deleteComponentLinks(@Param("componentUuids") List<String> componentUuids);
+  int deleteComponentLinks(@Param("componentUuids") List<String> componentUuids);
 
-  void deleteComponentProperties(@Param("componentIds") List<Long> componentIds);
+  int deleteComponentProperties(@Param("componentIds") List<Long> componentIds);
 
-  void deleteComponents(@Param("componentUuids") List<String> componentUuids);
+  int deleteComponents(@Param("componentUuids") List<String> componentUuids);
 
-  void deleteComponentGroupRoles(@Param("componentIds") List<Long> componentIds);
+  int deleteComponentGroupRoles(@Param("componentIds") List<Long> componentIds);
 
-  void deleteComponentUserRoles(@Param("componentIds") List<Long> componentIds);
+  int deleteComponentUserRoles(@Param("componentIds") List<Long> componentIds);
 
-  void deleteComponentManualMeasures(@Param("componentUuids") List<String> componentUuids);
+  int deleteComponentManualMeasures(@Param("componentUuids") List<String> componentUuids);
 
-  void deleteComponentEvents(@Param("componentUuids") List<String> componentUuids);
+  int deleteComponentEvents(@Param("componentUuids") List<String> componentUuids);
 
-  void deleteAuthors(@Param("resourceIds") List<Long> resourceIds);
+  int deleteAuthors(@Param("resourceIds") List<Long> resourceIds);
 
   List<PurgeableAnalysisDto> selectPurgeableAnalysesWithEvents(@Param("componentUuid") String componentUuid);
 
   List<PurgeableAnalysisDto> selectPurgeableAnalysesWithoutEvents(@Param("componentUuid") String componentUuid);
 
-  void deleteComponentIssueChanges(@Param("componentUuids") List<String> componentUuids);
+  int deleteComponentIssueChanges(@Param("componentUuids") List<String> componentUuids);
 
-  void deleteComponentIssues(@Param("componentUuids") List<String> componentUuids);
+  int deleteComponentIssues(@Param("componentUuids") List<String> componentUuids);
 
   List<String> selectOldClosedIssueKeys(@Param("projectUuid") String projectUuid, @Nullable @Param("toDate") Long toDate);
 
-  void deleteIssuesFromKeys(@Param("keys") List<String> keys);
+  int deleteIssuesFromKeys(@Param("keys") List<String> keys);
 
-  void deleteIssueChangesFromIssueKeys(@Param("issueKeys") List<String> issueKeys);
+  int deleteIssueChangesFromIssueKeys(@Param("issueKeys") List<String> issueKeys);
 
   void deleteFileSourcesByProjectUuid(String rootProjectUuid);
 
@@ -20,21 +20,26 @@
 package org.sonar.db.purge;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.RateLimiter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import javax.annotation.CheckForNull;
 import org.sonar.api.utils.TimeUtils;
 import org.sonar.api.utils.log.Logger;
 
 public class PurgeProfiler {
 
   private Map<String, Long> durations = new HashMap<>();
+  private Map<String, Long> rows = new HashMap<>();
   private long startTime;
   private String currentTable;
   private final Clock clock;
+  @CheckForNull
+  private RateLimiter rateLimiter;
 
   public PurgeProfiler() {
     this(new Clock());
@@ -47,6 +52,14 @@ public class PurgeProfiler {
 
   public void reset() {
     durations.clear();
+    rows.clear();
+  }
+
+  /**
+   * Limits the number of rows purged per second, until next call. Zero or negative value disables the limit.
+   */
+  public void setMaxRowsPerSecond(int maxRowsPerSecond) {
+    this.rateLimiter = maxRowsPerSecond > 0 ? RateLimiter.create(maxRowsPerSecond) : null;
   }
 
   void start(String table) {
@@ -64,6 +77,20 @@ public class PurgeProfiler {
     durations.put(currentTable, cumulatedDuration + (clock.now() - startTime));
   }
 
+  /**
+   * Counts the rows just purged from the current table. Blocks if the rate set by {@link #setMaxRowsPerSecond(int)}
+   * is exceeded by the rows counted so far, so that callers must not hold an open transaction when calling it.
+   */
+  void countRows(int count) {
+    if (count <= 0) {
+      return;
+    }
+    if (rateLimiter != null) {
+      rateLimiter.acquire(count);
+    }
+    rows.merge(currentTable, (long) count, Long::sum);
+  }
+
   public void dump(long totalTime, Logger logger) {
     List<Entry<String, Long>> data = new ArrayList<>(durations.entrySet());
     Collections.sort(data, (o1, o2) -> o2.getValue().compareTo(o1.getValue()));
@@ -72,6 +99,10 @@ public class PurgeProfiler {
       StringBuilder sb = new StringBuilder();
       sb.append("   o ").append(entry.getKey()).append(": ").append(TimeUtils.formatDuration(entry.getValue()))
         .append(" (").append((int) (entry.getValue() / percent)).append("%)");
+      Long tableRows = rows.get(entry.getKey());
+      if (tableRows != null) {
+        sb.append(", ").append(tableRows).append(" rows (").append(tableRows * 1000 / entry.getValue()).append(" rows/s)");
+      }
       logger.info(sb.toString());
     }
   }
@@ -19,12 +19,16 @@
  */
 package org.sonar.db.rule;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
 public class RuleRepositoryDto {
 
   // do not rename "key" as MyBatis maps it with the db column "kee"
   private String kee;
   private String language;
   private String name;
+  private String fingerprint;
 
   public RuleRepositoryDto() {
     // used by MyBatis
@@ -48,6 +52,15 @@ public class RuleRepositoryDto {
     return name;
   }
 
+  /**
+   * Fingerprint of the definitions of the rules of the repository, as registered at last startup.
+   * {@code null} if the rules have not been registered, for example because the language is not installed.
+   */
+  @CheckForNull
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
   public RuleRepositoryDto setKey(String s) {
     this.kee = s;
     return this;
@@ -62,4 +75,9 @@ public class RuleRepositoryDto {
     this.name = s;
     return this;
   }
+
+  public RuleRepositoryDto setFingerprint(@Nullable String s) {
+    this.fingerprint = s;
+    return this;
+  }
 }
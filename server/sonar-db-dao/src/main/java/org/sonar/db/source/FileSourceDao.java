@@ -25,16 +25,20 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
 import javax.annotation.CheckForNull;
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
+
 public class FileSourceDao implements Dao {
 
   private static final Splitter END_OF_LINE_SPLITTER = Splitter.on('\n');
@@ -49,6 +53,26 @@ public class FileSourceDao implements Dao {
     return mapper(dbSession).select(fileUuid, Type.TEST);
   }
 
+  /**
+   * Streams the source of the specified files, in partitions of at most {@link org.sonar.db.DatabaseUtils#PARTITION_SIZE_FOR_ORACLE}
+   * files per query. Each row is a {@link FileSourceDto} with only id, project uuid, file uuid, source hash and binary data
+   * being set. SCM data can then be read with {@link FileSourceDto#getScmData()} without decoding whole source lines.
+   */
+  public void scrollScmDataByFileUuids(DbSession dbSession, Collection<String> fileUuids, ResultHandler resultHandler) {
+    executeLargeInputsWithoutOutput(fileUuids, partition -> mapper(dbSession).scrollScmDataByFileUuids(partition, Type.SOURCE, resultHandler));
+  }
+
+  /**
+   * Streams the line hashes of the specified files, in partitions of at most {@link org.sonar.db.DatabaseUtils#PARTITION_SIZE_FOR_ORACLE}
+   * files per query. Each row is a {@link FileSourceDto} with only file uuid and line hashes being set. Files
+   * without source are not returned.
+   *
+   * @see #selectLineHashes(DbSession, String)
+   */
+  public void scrollLineHashesByFileUuids(DbSession dbSession, Collection<String> fileUuids, ResultHandler resultHandler) {
+    executeLargeInputsWithoutOutput(fileUuids, partition -> mapper(dbSession).scrollLineHashesByFileUuids(partition, Type.SOURCE, resultHandler));
+  }
+
   @CheckForNull
   public List<String> selectLineHashes(DbSession dbSession, String fileUuid) {
     Connection connection = dbSession.getConnection();
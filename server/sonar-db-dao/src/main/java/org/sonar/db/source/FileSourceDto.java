@@ -21,6 +21,7 @@ package org.sonar.db.source;
 
 import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -40,6 +41,11 @@ public class FileSourceDto {
 
   private static final String SIZE_LIMIT_EXCEEDED_EXCEPTION_MESSAGE = "Protocol message was too large.  May be malicious.  " +
     "Use CodedInputStream.setSizeLimit() to increase the size limit.";
+  private static final int DATA_LINES_TAG = makeTag(DbFileSources.Data.LINES_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+  private static final int LINE_TAG = makeTag(DbFileSources.Line.LINE_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+  private static final int SCM_REVISION_TAG = makeTag(DbFileSources.Line.SCM_REVISION_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+  private static final int SCM_AUTHOR_TAG = makeTag(DbFileSources.Line.SCM_AUTHOR_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+  private static final int SCM_DATE_TAG = makeTag(DbFileSources.Line.SCM_DATE_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
 
   private Long id;
   private String projectUuid;
@@ -122,6 +128,65 @@ public class FileSourceDto {
     }
   }
 
+  /**
+   * Decompress the content of column BINARY_DATA but deserialize only the line number and the SCM fields
+   * (revision, author and date) of each {@link org.sonar.db.protobuf.DbFileSources.Line}. All the other fields
+   * (source, highlighting, symbols, coverage, duplications...) are skipped without being decoded.
+   */
+  public List<DbFileSources.Line> decodeScmData(byte[] binaryData) {
+    try {
+      return decodeRegularScmData(binaryData);
+    } catch (IOException e) {
+      throw new IllegalStateException(
+        format("Fail to decompress and deserialize SCM data [id=%s,fileUuid=%s,projectUuid=%s]", id, fileUuid, projectUuid),
+        e);
+    }
+  }
+
+  private static List<DbFileSources.Line> decodeRegularScmData(byte[] binaryData) throws IOException {
+    try (LZ4BlockInputStream lz4Input = new LZ4BlockInputStream(new ByteArrayInputStream(binaryData))) {
+      CodedInputStream input = CodedInputStream.newInstance(lz4Input);
+      input.setSizeLimit(Integer.MAX_VALUE);
+      List<DbFileSources.Line> lines = new ArrayList<>();
+      DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
+      int tag = input.readTag();
+      while (tag != 0) {
+        if (tag == DATA_LINES_TAG) {
+          int oldLimit = input.pushLimit(input.readRawVarint32());
+          lines.add(readScmLine(input, lineBuilder.clear()));
+          input.popLimit(oldLimit);
+        } else {
+          input.skipField(tag);
+        }
+        tag = input.readTag();
+      }
+      return lines;
+    }
+  }
+
+  private static DbFileSources.Line readScmLine(CodedInputStream input, DbFileSources.Line.Builder lineBuilder) throws IOException {
+    int tag = input.readTag();
+    while (tag != 0) {
+      if (tag == LINE_TAG) {
+        lineBuilder.setLine(input.readInt32());
+      } else if (tag == SCM_REVISION_TAG) {
+        lineBuilder.setScmRevision(input.readString());
+      } else if (tag == SCM_AUTHOR_TAG) {
+        lineBuilder.setScmAuthor(input.readString());
+      } else if (tag == SCM_DATE_TAG) {
+        lineBuilder.setScmDate(input.readInt64());
+      } else {
+        input.skipField(tag);
+      }
+      tag = input.readTag();
+    }
+    return lineBuilder.build();
+  }
+
+  private static int makeTag(int fieldNumber, int wireType) {
+    return (fieldNumber << 3) | wireType;
+  }
+
   /**
    * Serialize and compress protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data}
    * in the column BINARY_DATA.
@@ -212,6 +277,16 @@ public class FileSourceDto {
     return decodeSourceData(binaryData);
   }
 
+  /**
+   * Lines of the protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data} with only line number and SCM
+   * fields being set.
+   *
+   * @see #decodeScmData(byte[])
+   */
+  public List<DbFileSources.Line> getScmData() {
+    return decodeScmData(binaryData);
+  }
+
   public FileSourceDto setSourceData(DbFileSources.Data data) {
     this.dataType = Type.SOURCE;
     this.binaryData = encodeSourceData(data);
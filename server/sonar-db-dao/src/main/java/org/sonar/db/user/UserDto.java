@@ -47,6 +47,7 @@ public class UserDto {
   private String externalIdentityProvider;
   private String cryptedPassword;
   private String salt;
+  private String hashMethod;
   private Long createdAt;
   private Long updatedAt;
   private boolean local = true;
@@ -184,6 +185,20 @@ public class UserDto {
     return this;
   }
 
+  /**
+   * Algorithm used to hash the password. {@code null} for the passwords
+   * hashed with the legacy salted SHA1 of {@link #encryptPassword(String, String)}.
+   */
+  @CheckForNull
+  public String getHashMethod() {
+    return hashMethod;
+  }
+
+  public UserDto setHashMethod(@Nullable String hashMethod) {
+    this.hashMethod = hashMethod;
+    return this;
+  }
+
   public Long getCreatedAt() {
     return createdAt;
   }
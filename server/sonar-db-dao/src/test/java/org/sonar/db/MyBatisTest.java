@@ -25,6 +25,7 @@ import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.sonar.db.monitoring.SqlStatementStatisticsInterceptor;
 import org.sonar.db.rule.RuleMapper;
 
 import static org.hamcrest.Matchers.notNullValue;
@@ -58,6 +59,7 @@ public class MyBatisTest {
     Configuration conf = underTest.getSessionFactory().getConfiguration();
     assertThat(conf.isUseGeneratedKeys(), Is.is(true));
     assertThat(conf.hasMapper(RuleMapper.class), Is.is(true));
+    assertThat(conf.getInterceptors().get(0) instanceof SqlStatementStatisticsInterceptor, Is.is(true));
     assertThat(conf.isLazyLoadingEnabled(), Is.is(false));
   }
 
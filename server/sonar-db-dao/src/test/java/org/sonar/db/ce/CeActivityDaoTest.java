@@ -35,6 +35,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.Pagination;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -146,6 +147,20 @@ public class CeActivityDaoTest {
     assertThat(underTest.selectByUuid(db.getSession(), "TASK_4").get().getIsLast()).isFalse();
   }
 
+  @Test
+  public void selectLastByIsLastKeys() {
+    insert("TASK_1", REPORT, "PROJECT_1", CeActivityDto.Status.SUCCESS);
+    insert("TASK_2", REPORT, "PROJECT_1", FAILED);
+    insert("TASK_3", REPORT, "PROJECT_2", CeActivityDto.Status.SUCCESS);
+    insert("TASK_4", REPORT, "PROJECT_3", CeActivityDto.Status.SUCCESS);
+    db.commit();
+
+    assertThat(underTest.selectLastByIsLastKeys(db.getSession(), asList(REPORT + "PROJECT_1", REPORT + "PROJECT_2", REPORT + "UNKNOWN")))
+      .extracting(CeActivityDto::getUuid)
+      .containsOnly("TASK_2", "TASK_3");
+    assertThat(underTest.selectLastByIsLastKeys(db.getSession(), Collections.emptyList())).isEmpty();
+  }
+
   @Test
   public void test_selectByQuery() {
     insert("TASK_1", REPORT, "PROJECT_1", CeActivityDto.Status.SUCCESS);
@@ -182,6 +182,30 @@ public class CeQueueDaoTest {
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
   }
 
+  @Test
+  public void selectEligibleForPeek_returns_oldest_pending_task_of_each_component() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 1_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 2_000);
+    insert(TASK_UUID_3, COMPONENT_UUID_2, PENDING);
+
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 10)).extracting(CeQueueDto::getUuid).containsExactly(TASK_UUID_1, TASK_UUID_3);
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 1)).extracting(CeQueueDto::getUuid).containsExactly(TASK_UUID_1);
+  }
+
+  @Test
+  public void tryToPeek_fails_if_task_is_not_pending_anymore() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, PENDING);
+    insert(TASK_UUID_2, COMPONENT_UUID_2, PENDING);
+
+    assertThat(underTest.tryToPeek(db.getSession(), TASK_UUID_2).get().getStatus()).isEqualTo(IN_PROGRESS);
+    assertThat(underTest.tryToPeek(db.getSession(), TASK_UUID_2).isPresent()).isFalse();
+    db.getSession().commit();
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 10)).extracting(CeQueueDto::getUuid).containsExactly(TASK_UUID_1);
+    verifyCeQueueStatuses(TASK_UUID_1, PENDING, TASK_UUID_2, IN_PROGRESS);
+  }
+
   @Test
   public void select_by_query() {
     // task status not in query
@@ -0,0 +1,96 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.ce;
+
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CeTaskStepDaoTest {
+
+  private static final long NOW = 1_500_000_000L;
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  private System2 system = mock(System2.class);
+  private DbSession dbSession = dbTester.getSession();
+
+  private CeTaskStepDao underTest = new CeTaskStepDao(system);
+
+  @Test
+  public void insert_and_select_steps_sorted_by_index() {
+    when(system.now()).thenReturn(NOW);
+    underTest.insert(dbSession, newStep("TASK_1", 1).setCpuTimeMs(null).setAllocatedBytes(null));
+    underTest.insert(dbSession, newStep("TASK_1", 0));
+    underTest.insert(dbSession, newStep("TASK_2", 0));
+    dbSession.commit();
+
+    assertThat(underTest.selectByTaskUuid(dbSession, "TASK_1"))
+      .extracting(CeTaskStepDto::getTaskUuid, CeTaskStepDto::getStepIndex, CeTaskStepDto::getName, CeTaskStepDto::getCpuTimeMs, CeTaskStepDto::getCreatedAt)
+      .containsExactly(
+        tuple("TASK_1", 0, "Step 0", 8L, NOW),
+        tuple("TASK_1", 1, "Step 1", null, NOW));
+    CeTaskStepDto step = underTest.selectByTaskUuid(dbSession, "TASK_2").get(0);
+    assertThat(step.getWallTimeMs()).isEqualTo(10L);
+    assertThat(step.getAllocatedBytes()).isEqualTo(1_024L);
+    assertThat(step.getSqlStatements()).isEqualTo(5L);
+    assertThat(step.getSqlRows()).isEqualTo(50L);
+    assertThat(underTest.selectByTaskUuid(dbSession, "TASK_3")).isEmpty();
+  }
+
+  @Test
+  public void deleteByTaskUuids() {
+    underTest.insert(dbSession, newStep("TASK_1", 0));
+    underTest.insert(dbSession, newStep("TASK_1", 1));
+    underTest.insert(dbSession, newStep("TASK_2", 0));
+    underTest.insert(dbSession, newStep("TASK_3", 0));
+    dbSession.commit();
+
+    underTest.deleteByTaskUuids(dbSession, Arrays.asList("TASK_1", "TASK_3", "MISSING"));
+    dbSession.commit();
+
+    assertThat(dbTester.countRowsOfTable(dbSession, "ce_task_steps")).isEqualTo(1);
+    assertThat(underTest.selectByTaskUuid(dbSession, "TASK_2")).hasSize(1);
+    underTest.deleteByTaskUuids(dbSession, singletonList("TASK_2"));
+    assertThat(underTest.selectByTaskUuid(dbSession, "TASK_2")).isEmpty();
+  }
+
+  private static CeTaskStepDto newStep(String taskUuid, int index) {
+    return new CeTaskStepDto()
+      .setTaskUuid(taskUuid)
+      .setStepIndex(index)
+      .setName("Step " + index)
+      .setWallTimeMs(10L)
+      .setCpuTimeMs(8L)
+      .setAllocatedBytes(1_024L)
+      .setSqlStatements(5L)
+      .setSqlRows(50L);
+  }
+}
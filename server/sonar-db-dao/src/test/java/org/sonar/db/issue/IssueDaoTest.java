@@ -19,6 +19,8 @@
  */
 package org.sonar.db.issue;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
@@ -34,6 +36,7 @@ import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class IssueDaoTest {
@@ -122,6 +125,136 @@ public class IssueDaoTest {
     assertThat(issues).extracting("key").containsExactly("I2", "I1");
   }
 
+  @Test
+  public void scrollNonClosedByComponentUuids() {
+    RuleDto rule = dbTester.rules().insertRule(RuleTesting.newRuleDto());
+    ComponentDto project = dbTester.components().insertProject();
+    ComponentDto file1 = dbTester.components().insertComponent(ComponentTesting.newFileDto(project, null));
+    ComponentDto file2 = dbTester.components().insertComponent(ComponentTesting.newFileDto(project, null));
+    ComponentDto file3 = dbTester.components().insertComponent(ComponentTesting.newFileDto(project, null));
+    IssueDto onFile1 = dbTester.issues().insertIssue(IssueTesting.newDto(rule, file1, project).setStatus("OPEN"));
+    IssueDto onFile2 = dbTester.issues().insertIssue(IssueTesting.newDto(rule, file2, project).setStatus("OPEN"));
+    IssueDto otherOnFile1 = dbTester.issues().insertIssue(IssueTesting.newDto(rule, file1, project).setStatus("CONFIRMED"));
+    dbTester.issues().insertIssue(IssueTesting.newDto(rule, file1, project).setStatus("CLOSED").setResolution("FIXED"));
+    dbTester.issues().insertIssue(IssueTesting.newDto(rule, file3, project).setStatus("OPEN"));
+
+    List<IssueDto> issues = new ArrayList<>();
+    underTest.scrollNonClosedByComponentUuids(dbTester.getSession(), asList(file1.uuid(), file2.uuid(), "unknown"),
+      context -> issues.add((IssueDto) context.getResultObject()));
+
+    assertThat(issues).extracting(IssueDto::getKey).containsOnly(onFile1.getKey(), otherOnFile1.getKey(), onFile2.getKey());
+    // issues of a same component are consecutive
+    assertThat(issues).extracting(IssueDto::getComponentUuid).isSorted();
+    IssueDto loaded = issues.stream().filter(i -> i.getKey().equals(onFile2.getKey())).findFirst().get();
+    assertThat(loaded.getRuleKey()).isEqualTo(rule.getKey());
+    assertThat(loaded.getProjectKey()).isEqualTo(project.getKey());
+    assertThat(loaded.getComponentKey()).isEqualTo(file2.getKey());
+  }
+
+  @Test
+  public void scrollNonClosedByComponentUuids_does_nothing_when_no_uuids() {
+    RuleDto rule = dbTester.rules().insertRule(RuleTesting.newRuleDto());
+    ComponentDto project = dbTester.components().insertProject();
+    dbTester.issues().insertIssue(IssueTesting.newDto(rule, project, project));
+
+    List<IssueDto> issues = new ArrayList<>();
+    underTest.scrollNonClosedByComponentUuids(dbTester.getSession(), Collections.emptyList(), context -> issues.add((IssueDto) context.getResultObject()));
+
+    assertThat(issues).isEmpty();
+  }
+
+  @Test
+  public void scrollNonClosedForScanner_on_project_module_and_file() {
+    RuleDto rule = dbTester.rules().insertRule(RuleTesting.newRuleDto());
+    ComponentDto project = dbTester.components().insertProject();
+    ComponentDto module = dbTester.components().insertComponent(ComponentTesting.newModuleDto(project));
+    ComponentDto file = dbTester.components().insertComponent(ComponentTesting.newFileDto(module, null).setPath("src/Foo.java"));
+    ComponentDto otherFile = dbTester.components().insertComponent(ComponentTesting.newFileDto(project, null).setPath("src/Bar.java"));
+    IssueDto onProject = dbTester.issues().insertIssue(IssueTesting.newDto(rule, project, project));
+    IssueDto onFile = dbTester.issues().insertIssue(IssueTesting.newDto(rule, file, project).setStatus("OPEN").setChecksum("abc").setLine(12));
+    IssueDto onOtherFile = dbTester.issues().insertIssue(IssueTesting.newDto(rule, otherFile, project).setStatus("CONFIRMED"));
+    dbTester.issues().insertIssue(IssueTesting.newDto(rule, file, project).setStatus("CLOSED").setResolution("FIXED"));
+
+    assertThat(scrollNonClosedForScanner(project)).extracting(IssueDto::getKey).containsOnly(onProject.getKey(), onFile.getKey(), onOtherFile.getKey());
+    assertThat(scrollNonClosedForScanner(module)).extracting(IssueDto::getKey).containsOnly(onFile.getKey());
+    assertThat(scrollNonClosedForScanner(otherFile)).extracting(IssueDto::getKey).containsOnly(onOtherFile.getKey());
+
+    IssueDto loaded = scrollNonClosedForScanner(file).get(0);
+    assertThat(loaded.getKey()).isEqualTo(onFile.getKey());
+    assertThat(loaded.getRuleKey()).isEqualTo(rule.getKey());
+    assertThat(loaded.getModuleUuid()).isEqualTo(module.uuid());
+    assertThat(loaded.getFilePath()).isEqualTo("src/Foo.java");
+    assertThat(loaded.getChecksum()).isEqualTo("abc");
+    assertThat(loaded.getLine()).isEqualTo(12);
+    assertThat(loaded.getStatus()).isEqualTo("OPEN");
+    assertThat(loaded.getIssueCreationTime()).isEqualTo(onFile.getIssueCreationTime());
+    // heavy fields are not loaded
+    assertThat(loaded.getLocations()).isNull();
+    assertThat(loaded.getIssueAttributes()).isNull();
+
+    IssueDto loadedOnProject = scrollNonClosedForScanner(project).stream().filter(i -> i.getKey().equals(onProject.getKey())).findFirst().get();
+    assertThat(loadedOnProject.getModuleUuid()).isEqualTo(project.uuid());
+    assertThat(loadedOnProject.getFilePath()).isNull();
+  }
+
+  @Test
+  public void scrollNonClosedForScanner_filters_on_paths() {
+    RuleDto rule = dbTester.rules().insertRule(RuleTesting.newRuleDto());
+    ComponentDto project = dbTester.components().insertProject();
+    ComponentDto file1 = dbTester.components().insertComponent(ComponentTesting.newFileDto(project, null).setPath("src/Foo.java"));
+    ComponentDto file2 = dbTester.components().insertComponent(ComponentTesting.newFileDto(project, null).setPath("src/Bar.java"));
+    IssueDto issue1 = dbTester.issues().insertIssue(IssueTesting.newDto(rule, file1, project));
+    IssueDto issue2 = dbTester.issues().insertIssue(IssueTesting.newDto(rule, file1, project));
+    dbTester.issues().insertIssue(IssueTesting.newDto(rule, file2, project));
+    dbTester.issues().insertIssue(IssueTesting.newDto(rule, project, project));
+
+    List<IssueDto> issues = new ArrayList<>();
+    underTest.scrollNonClosedForScanner(dbTester.getSession(), project, asList("src/Foo.java", "src/Unknown.java"),
+      context -> issues.add((IssueDto) context.getResultObject()));
+
+    assertThat(issues).extracting(IssueDto::getKey).containsOnly(issue1.getKey(), issue2.getKey());
+  }
+
+  @Test
+  public void scrollNonClosedForScanner_filters_on_paths_of_the_requested_module_only() {
+    RuleDto rule = dbTester.rules().insertRule(RuleTesting.newRuleDto());
+    ComponentDto project = dbTester.components().insertProject();
+    ComponentDto module = dbTester.components().insertComponent(ComponentTesting.newModuleDto(project));
+    ComponentDto fileOfProject = dbTester.components().insertComponent(ComponentTesting.newFileDto(project, null).setPath("src/Foo.java"));
+    ComponentDto fileOfModule = dbTester.components().insertComponent(ComponentTesting.newFileDto(module, null).setPath("src/Foo.java"));
+    IssueDto onFileOfProject = dbTester.issues().insertIssue(IssueTesting.newDto(rule, fileOfProject, project));
+    IssueDto onFileOfModule = dbTester.issues().insertIssue(IssueTesting.newDto(rule, fileOfModule, project));
+
+    List<IssueDto> issues = new ArrayList<>();
+    underTest.scrollNonClosedForScanner(dbTester.getSession(), project, singletonList("src/Foo.java"),
+      context -> issues.add((IssueDto) context.getResultObject()));
+    assertThat(issues).extracting(IssueDto::getKey).containsOnly(onFileOfProject.getKey());
+
+    issues.clear();
+    underTest.scrollNonClosedForScanner(dbTester.getSession(), module, singletonList("src/Foo.java"),
+      context -> issues.add((IssueDto) context.getResultObject()));
+    assertThat(issues).extracting(IssueDto::getKey).containsOnly(onFileOfModule.getKey());
+  }
+
+  @Test
+  public void scrollNonClosedForScanner_fails_on_directory() {
+    ComponentDto project = dbTester.components().insertProject();
+    ComponentDto module = dbTester.components().insertComponent(ComponentTesting.newModuleDto(project));
+    ComponentDto directory = dbTester.components().insertComponent(ComponentTesting.newDirectory(module, "src"));
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Component of scope 'DIR' is not allowed");
+
+    scrollNonClosedForScanner(directory);
+  }
+
+  private List<IssueDto> scrollNonClosedForScanner(ComponentDto component) {
+    List<IssueDto> issues = new ArrayList<>();
+    underTest.scrollNonClosedForScanner(dbTester.getSession(), component, Collections.emptyList(),
+      context -> issues.add((IssueDto) context.getResultObject()));
+    return issues;
+  }
+
   private static IssueDto newIssueDto(String key) {
     IssueDto dto = new IssueDto();
     dto.setComponent(new ComponentDto().setKey("struts:Action").setId(123L).setUuid("component-uuid"));
@@ -0,0 +1,106 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.monitoring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SqlStatementStatisticsInterceptorTest {
+
+  private static final long HANDLER_DURATION_MS = 200L;
+
+  private Configuration configuration = new Configuration();
+  private MappedStatement statement = new MappedStatement.Builder(configuration, "foo.select", new StaticSqlSource(configuration, "select * from foo"),
+    SqlCommandType.SELECT).build();
+  private Executor executor = mock(Executor.class);
+  private SqlStatementStatistics statistics = new SqlStatementStatistics(System2.INSTANCE, HANDLER_DURATION_MS);
+  private SqlStatementStatisticsInterceptor underTest = new SqlStatementStatisticsInterceptor(statistics);
+
+  @Test
+  public void count_rows_of_select_returning_a_list() throws Throwable {
+    when(executor.query(any(MappedStatement.class), any(), any(RowBounds.class), any(ResultHandler.class))).thenReturn(Arrays.asList("a", "b"));
+
+    Object result = underTest.intercept(queryInvocation(null));
+
+    assertThat(result).isEqualTo(Arrays.asList("a", "b"));
+    SqlStatementStats stats = statistics.getAll().get(0);
+    assertThat(stats.getStatementId()).isEqualTo("foo.select");
+    assertThat(stats.getExecutions()).isEqualTo(1L);
+    assertThat(stats.getTotalRows()).isEqualTo(2L);
+    assertThat(statistics.getCurrentThreadRows()).isEqualTo(2L);
+  }
+
+  @Test
+  public void count_rows_passed_to_result_handler_and_exclude_the_time_spent_to_handle_them() throws Throwable {
+    when(executor.query(any(MappedStatement.class), any(), any(RowBounds.class), any(ResultHandler.class))).thenAnswer(invocation -> {
+      ResultHandler handler = (ResultHandler) invocation.getArguments()[3];
+      DefaultResultContext context = new DefaultResultContext();
+      for (String row : Arrays.asList("a", "b", "c")) {
+        context.nextResultObject(row);
+        handler.handleResult(context);
+      }
+      return new ArrayList<>();
+    });
+    List<Object> handled = new ArrayList<>();
+    ResultHandler slowHandler = context -> {
+      handled.add(context.getResultObject());
+      sleep(HANDLER_DURATION_MS / 2);
+    };
+
+    underTest.intercept(queryInvocation(slowHandler));
+
+    assertThat(handled).containsExactly("a", "b", "c");
+    SqlStatementStats stats = statistics.getAll().get(0);
+    assertThat(stats.getTotalRows()).isEqualTo(3L);
+    assertThat(stats.getTotalDurationMs()).isLessThan(HANDLER_DURATION_MS);
+    assertThat(statistics.getCurrentThreadRows()).isEqualTo(3L);
+  }
+
+  private Invocation queryInvocation(ResultHandler handler) throws NoSuchMethodException {
+    return new Invocation(executor, Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class),
+      new Object[] {statement, null, RowBounds.DEFAULT, handler});
+  }
+
+  private static void sleep(long ms) {
+    try {
+      Thread.sleep(ms);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+}
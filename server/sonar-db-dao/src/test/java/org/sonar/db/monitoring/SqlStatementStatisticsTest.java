@@ -0,0 +1,122 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.monitoring;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SqlStatementStatisticsTest {
+
+  private static final long THRESHOLD = 100L;
+  private static final long THRESHOLD_MICROS = THRESHOLD * 1_000L;
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private System2 system2 = mock(System2.class);
+  private SqlStatementStatistics underTest = new SqlStatementStatistics(system2, THRESHOLD);
+
+  @Test
+  public void aggregate_executions_by_statement_id() {
+    underTest.record("foo", () -> "select 1", 10_000L, 3L);
+    underTest.record("foo", () -> "select 1", 20_000L, 5L);
+    underTest.record("bar", () -> "select 2", 1_000L, 0L);
+
+    assertThat(underTest.getAll()).extracting(SqlStatementStats::getStatementId).containsOnly("foo", "bar");
+    SqlStatementStats foo = underTest.getTopByTotalDuration(1).get(0);
+    assertThat(foo.getStatementId()).isEqualTo("foo");
+    assertThat(foo.getExecutions()).isEqualTo(2L);
+    assertThat(foo.getTotalDurationMs()).isEqualTo(30L);
+    assertThat(foo.getMaxDurationMs()).isEqualTo(20L);
+    assertThat(foo.getTotalRows()).isEqualTo(8L);
+  }
+
+  @Test
+  public void sort_statements_by_decreasing_total_duration() {
+    underTest.record("short", () -> "select 1", 1L, 0L);
+    underTest.record("long", () -> "select 2", 50L, 0L);
+    underTest.record("medium", () -> "select 3", 5L, 0L);
+    underTest.record("medium", () -> "select 3", 5L, 0L);
+
+    assertThat(underTest.getTopByTotalDuration(10)).extracting(SqlStatementStats::getStatementId).containsExactly("long", "medium", "short");
+    assertThat(underTest.getTopByTotalDuration(2)).extracting(SqlStatementStats::getStatementId).containsExactly("long", "medium");
+  }
+
+  @Test
+  public void frequent_sub_millisecond_statements_rank_above_slower_statement() {
+    for (int i = 0; i < 100_000; i++) {
+      underTest.record("frequent", () -> "select 1", 800L, 1L);
+    }
+    underTest.record("slower", () -> "select 2", 50_000L, 1L);
+
+    assertThat(underTest.getTopByTotalDuration(10)).extracting(SqlStatementStats::getStatementId).containsExactly("frequent", "slower");
+    assertThat(underTest.getTopByTotalDuration(1).get(0).getTotalDurationMs()).isEqualTo(80_000L);
+  }
+
+  @Test
+  public void log_slow_statements_without_bind_parameters() {
+    underTest.record("fast", () -> "select * from foo", THRESHOLD_MICROS - 1, 0L);
+    assertThat(logTester.logs(LoggerLevel.WARN)).isEmpty();
+
+    underTest.record("slow", () -> "select *\n  from foo where id = ?", THRESHOLD_MICROS, 0L);
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly("Slow SQL statement slow (100 ms): select * from foo where id = ?");
+  }
+
+  @Test
+  public void sample_logs_of_slow_statements() {
+    when(system2.now()).thenReturn(1_000L);
+    underTest.record("slow", () -> "select 1", THRESHOLD_MICROS, 0L);
+    underTest.record("slow", () -> "select 1", THRESHOLD_MICROS, 0L);
+    underTest.record("other", () -> "select 2", THRESHOLD_MICROS, 0L);
+    assertThat(logTester.logs(LoggerLevel.WARN)).hasSize(2);
+
+    when(system2.now()).thenReturn(1_000L + SqlStatementStatistics.SLOW_LOG_SAMPLING_PERIOD_MS);
+    underTest.record("slow", () -> "select 1", THRESHOLD_MICROS, 0L);
+    assertThat(logTester.logs(LoggerLevel.WARN)).hasSize(3);
+    assertThat(underTest.getTopByTotalDuration(1).get(0).getExecutions()).isEqualTo(3L);
+  }
+
+  @Test
+  public void ignore_negative_number_of_rows() {
+    underTest.record("batch", () -> "update foo", 1L, -2147482646L);
+
+    assertThat(underTest.getAll().get(0).getTotalRows()).isZero();
+  }
+
+  @Test
+  public void count_statements_of_current_thread() throws InterruptedException {
+    underTest.record("foo", () -> "select 1", 1L, 3L);
+    underTest.record("bar", () -> "select 2", 1L, 4L);
+    Thread otherThread = new Thread(() -> underTest.record("foo", () -> "select 1", 1L, 10L));
+    otherThread.start();
+    otherThread.join();
+
+    assertThat(underTest.getCurrentThreadExecutions()).isEqualTo(2L);
+    assertThat(underTest.getCurrentThreadRows()).isEqualTo(7L);
+    assertThat(underTest.getAll()).extracting(SqlStatementStats::getExecutions).containsOnly(1L, 2L);
+  }
+}
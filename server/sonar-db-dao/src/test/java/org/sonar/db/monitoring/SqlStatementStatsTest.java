@@ -0,0 +1,88 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.monitoring;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlStatementStatsTest {
+
+  private SqlStatementStats underTest = new SqlStatementStats("foo");
+
+  @Test
+  public void bucket_of_value() {
+    assertThat(SqlStatementStats.bucketOf(-1L)).isEqualTo(0);
+    assertThat(SqlStatementStats.bucketOf(0L)).isEqualTo(0);
+    assertThat(SqlStatementStats.bucketOf(1L)).isEqualTo(1);
+    assertThat(SqlStatementStats.bucketOf(2L)).isEqualTo(2);
+    assertThat(SqlStatementStats.bucketOf(3L)).isEqualTo(2);
+    assertThat(SqlStatementStats.bucketOf(4L)).isEqualTo(3);
+    assertThat(SqlStatementStats.bucketOf(Long.MAX_VALUE)).isEqualTo(SqlStatementStats.BUCKETS - 1);
+  }
+
+  @Test
+  public void percentiles_are_zero_when_no_executions() {
+    assertThat(underTest.getDurationPercentileMicros(50)).isZero();
+    assertThat(underTest.getRowsPercentile(99)).isZero();
+  }
+
+  @Test
+  public void percentiles_are_upper_bounds_of_buckets() {
+    for (int i = 0; i < 98; i++) {
+      underTest.record(3L, 1L);
+    }
+    underTest.record(100L, 1_000L);
+    underTest.record(100L, 1_000L);
+
+    assertThat(underTest.getDurationPercentileMicros(50)).isEqualTo(3L);
+    assertThat(underTest.getDurationPercentileMicros(98)).isEqualTo(3L);
+    assertThat(underTest.getDurationPercentileMicros(99)).isEqualTo(127L);
+    assertThat(underTest.getRowsPercentile(50)).isEqualTo(1L);
+    assertThat(underTest.getRowsPercentile(100)).isEqualTo(1023L);
+    assertThat(underTest.getMaxDurationMicros()).isEqualTo(100L);
+  }
+
+  @Test
+  public void durations_are_recorded_in_microseconds() {
+    for (int i = 0; i < 1_000; i++) {
+      underTest.record(800L, 1L);
+    }
+
+    assertThat(underTest.getTotalDurationMicros()).isEqualTo(800_000L);
+    assertThat(underTest.getTotalDurationMs()).isEqualTo(800L);
+    assertThat(underTest.getMaxDurationMs()).isZero();
+  }
+
+  @Test
+  public void summary() {
+    underTest.record(3_000L, 1L);
+
+    assertThat(underTest.summary()).isEqualTo("1 calls, total 3.000 ms, p50 <= 4.095 ms, p99 <= 4.095 ms, max 3.000 ms, p99 <= 1 rows");
+  }
+
+  @Test
+  public void summary_of_sub_millisecond_executions() {
+    underTest.record(800L, 1L);
+    underTest.record(400L, 1L);
+
+    assertThat(underTest.summary()).isEqualTo("2 calls, total 1.200 ms, p50 <= 0.511 ms, p99 <= 1.023 ms, max 0.800 ms, p99 <= 1 rows");
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.permission;
+
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.core.util.stream.Collectors.toList;
+
+public class PermissionIndexQueueDaoTest {
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  private System2 system = mock(System2.class);
+  private DbSession dbSession = dbTester.getSession();
+
+  private PermissionIndexQueueDao underTest = new PermissionIndexQueueDao(system);
+
+  @Test
+  public void insert_and_select_oldest_items() {
+    when(system.now()).thenReturn(1_000L, 2_000L);
+    underTest.insert(dbSession, asList("P1", "P2"));
+    underTest.insert(dbSession, asList("P1", "P3"));
+    dbSession.commit();
+
+    assertThat(underTest.count(dbSession)).isEqualTo(4);
+    assertThat(underTest.selectOldest(dbSession, 3))
+      .extracting(PermissionIndexQueueDto::getProjectUuid, PermissionIndexQueueDto::getCreatedAt)
+      .containsExactly(
+        tuple("P1", 1_000L),
+        tuple("P2", 1_000L),
+        tuple("P1", 2_000L));
+    assertThat(underTest.selectOldest(dbSession, 10)).hasSize(4);
+  }
+
+  @Test
+  public void selectOldestCreatedAt() {
+    assertThat(underTest.selectOldestCreatedAt(dbSession)).isNull();
+
+    when(system.now()).thenReturn(1_000L, 2_000L);
+    underTest.insert(dbSession, singletonList("P1"));
+    underTest.insert(dbSession, singletonList("P2"));
+    dbSession.commit();
+
+    assertThat(underTest.selectOldestCreatedAt(dbSession)).isEqualTo(1_000L);
+  }
+
+  @Test
+  public void deleteByIds() {
+    when(system.now()).thenReturn(1_000L);
+    underTest.insert(dbSession, asList("P1", "P2", "P3"));
+    dbSession.commit();
+    List<Long> oldestIds = underTest.selectOldest(dbSession, 2).stream().map(PermissionIndexQueueDto::getId).collect(toList());
+
+    underTest.deleteByIds(dbSession, oldestIds);
+    dbSession.commit();
+
+    assertThat(underTest.selectOldest(dbSession, 10)).extracting(PermissionIndexQueueDto::getProjectUuid).containsExactly("P3");
+  }
+}
@@ -19,15 +19,28 @@
  */
 package org.sonar.db.purge;
 
+import java.sql.Statement;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResult;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 
 public class PurgeCommandsTest {
@@ -76,6 +89,46 @@ public class PurgeCommandsTest {
     // The goal of this test is only to check that the query do no fail, not to check result
   }
 
+  @Test
+  public void commit_each_partition_before_counting_its_deleted_rows() {
+    DbSession session = mock(DbSession.class);
+    PurgeMapper mapper = mock(PurgeMapper.class);
+    PurgeProfiler profiler = mock(PurgeProfiler.class);
+    when(mapper.deleteIssuesFromKeys(anyListOf(String.class))).thenReturn(3);
+    List<String> issueKeys = IntStream.range(0, 1_500).mapToObj(i -> "issue_" + i).collect(Collectors.toList());
+
+    new PurgeCommands(session, mapper, profiler).deleteIssues(issueKeys);
+
+    InOrder inOrder = inOrder(mapper, session, profiler);
+    inOrder.verify(mapper).deleteIssuesFromKeys(anyListOf(String.class));
+    inOrder.verify(session).commit();
+    inOrder.verify(profiler).countRows(3);
+    inOrder.verify(mapper).deleteIssuesFromKeys(anyListOf(String.class));
+    inOrder.verify(session).commit();
+    inOrder.verify(profiler).countRows(3);
+  }
+
+  @Test
+  public void count_update_counts_of_jdbc_batch() {
+    DbSession session = mock(DbSession.class);
+    PurgeMapper mapper = mock(PurgeMapper.class);
+    PurgeProfiler profiler = mock(PurgeProfiler.class);
+    when(mapper.deleteIssuesFromKeys(anyListOf(String.class))).thenReturn(BatchExecutor.BATCH_UPDATE_RETURN_VALUE);
+    when(session.flushStatements()).thenReturn(singletonList(newBatchResult(4, 1)), singletonList(newBatchResult(Statement.SUCCESS_NO_INFO)));
+
+    new PurgeCommands(session, mapper, profiler).deleteIssues(asList("issue_1", "issue_2"));
+
+    verify(profiler).countRows(5);
+    // the driver does not give the number of deleted rows
+    verify(profiler).countRows(2);
+  }
+
+  private static BatchResult newBatchResult(int... updateCounts) {
+    BatchResult batchResult = new BatchResult(null, "delete");
+    batchResult.setUpdateCounts(updateCounts);
+    return batchResult;
+  }
+
   @Test
   public void shouldDeleteComponentsAndChildrenTables() {
     dbTester.prepareDbUnit(getClass(), "shouldDeleteResource.xml");
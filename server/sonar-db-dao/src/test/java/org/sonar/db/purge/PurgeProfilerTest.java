@@ -23,6 +23,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.utils.log.Logger;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.contains;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -80,6 +81,37 @@ public class PurgeProfilerTest {
     verify(logger).info(contains("bar: 5ms"));
   }
 
+  @Test
+  public void shouldProfilePurgedRows() {
+    profiler.start("foo");
+    profiler.countRows(1000);
+    profiler.countRows(500);
+    clock.sleep(300);
+    profiler.stop();
+
+    profiler.start("bar");
+    clock.sleep(5);
+    profiler.stop();
+
+    profiler.dump(305, logger);
+    verify(logger).info(contains("foo: 300ms (98%), 1500 rows (5000 rows/s)"));
+    verify(logger).info(contains("bar: 5ms (1%)"));
+  }
+
+  @Test
+  public void shouldLimitPurgedRowsPerSecond() {
+    profiler.setMaxRowsPerSecond(200);
+    profiler.start("foo");
+    long start = System.currentTimeMillis();
+    profiler.countRows(100);
+    profiler.countRows(100);
+    profiler.countRows(100);
+    profiler.stop();
+
+    // the 2 last calls wait for the rows of the previous ones
+    assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(900L);
+  }
+
   private class MockedClock extends PurgeProfiler.Clock {
     private long now = 0;
 
@@ -51,6 +51,16 @@ public class RuleRepositoryDaoTest {
     assertThat(row.getKey()).isEqualTo("findbugs");
     assertThat(row.getName()).isEqualTo("Findbugs");
     assertThat(row.getLanguage()).isEqualTo("java");
+    assertThat(row.getFingerprint()).isNull();
+  }
+
+  @Test
+  public void insert_and_select_fingerprint() {
+    DbSession dbSession = dbTester.getSession();
+    RuleRepositoryDto dto = new RuleRepositoryDto("findbugs", "java", "Findbugs").setFingerprint("abcd");
+    underTest.insert(dbSession, asList(dto));
+
+    assertThat(underTest.selectByKey(dbSession, "findbugs").get().getFingerprint()).isEqualTo("abcd");
   }
 
   @Test
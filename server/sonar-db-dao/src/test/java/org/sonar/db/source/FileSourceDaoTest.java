@@ -21,6 +21,9 @@ package org.sonar.db.source;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.Function;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
@@ -29,6 +32,7 @@ import org.junit.Test;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto.Type;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -59,6 +63,52 @@ public class FileSourceDaoTest {
     assertThat(fileSourceDto.getRevision()).isEqualTo("123456789");
   }
 
+  @Test
+  public void scrollScmDataByFileUuids() {
+    insertSourceWithScm("FILE1_UUID", "rev1");
+    insertSourceWithScm("FILE2_UUID", "rev2");
+    insertSourceWithScm("FILE3_UUID", "rev3");
+    underTest.insert(session, new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid("FILE2_UUID")
+      .setTestData(Arrays.asList(DbFileSources.Test.newBuilder().setName("test").build()))
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000000L));
+    session.commit();
+
+    List<FileSourceDto> dtos = new ArrayList<>();
+    underTest.scrollScmDataByFileUuids(session, Arrays.asList("FILE1_UUID", "FILE2_UUID", "unknown"), context -> dtos.add((FileSourceDto) context.getResultObject()));
+
+    assertThat(dtos).extracting(FileSourceDto::getFileUuid).containsOnly("FILE1_UUID", "FILE2_UUID");
+    assertThat(dtos).extracting(FileSourceDto::getSrcHash).containsOnly("FILE1_UUID_HASH", "FILE2_UUID_HASH");
+    assertThat(dtos).extracting(FileSourceDto::getDataType).containsOnly(Type.SOURCE);
+    assertThat(dtos).extracting(dto -> dto.getScmData().get(0).getScmRevision()).containsOnly("rev1", "rev2");
+  }
+
+  @Test
+  public void scrollScmDataByFileUuids_does_nothing_when_no_uuids() {
+    insertSourceWithScm("FILE1_UUID", "rev1");
+
+    List<FileSourceDto> dtos = new ArrayList<>();
+    underTest.scrollScmDataByFileUuids(session, new ArrayList<>(), context -> dtos.add((FileSourceDto) context.getResultObject()));
+
+    assertThat(dtos).isEmpty();
+  }
+
+  @Test
+  public void scrollLineHashesByFileUuids() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    insertSourceWithScm("FILE2_UUID", "rev2");
+    insertSourceWithScm("FILE3_UUID", "rev3");
+
+    List<FileSourceDto> dtos = new ArrayList<>();
+    underTest.scrollLineHashesByFileUuids(session, Arrays.asList("FILE1_UUID", "FILE2_UUID", "unknown"), context -> dtos.add((FileSourceDto) context.getResultObject()));
+
+    assertThat(dtos).extracting(FileSourceDto::getFileUuid).containsOnly("FILE1_UUID", "FILE2_UUID");
+    assertThat(dtos).extracting(FileSourceDto::getLineHashes).containsOnly("ABC\\nDEF\\nGHI", null);
+    assertThat(dtos).extracting(FileSourceDto::getBinaryData).containsOnly(null, null);
+  }
+
   @Test
   public void select_line_hashes() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
@@ -179,6 +229,24 @@ public class FileSourceDaoTest {
       "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision");
   }
 
+  private void insertSourceWithScm(String fileUuid, String revision) {
+    DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
+    dataBuilder.addLinesBuilder()
+      .setLine(1)
+      .setSource("source")
+      .setScmRevision(revision)
+      .setScmAuthor("author")
+      .setScmDate(1500000000000L);
+    underTest.insert(session, new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid(fileUuid)
+      .setSourceData(dataBuilder.build())
+      .setSrcHash(fileUuid + "_HASH")
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000000L));
+    session.commit();
+  }
+
   private static class ReaderToStringFunction implements Function<Reader, String> {
 
     String result = null;
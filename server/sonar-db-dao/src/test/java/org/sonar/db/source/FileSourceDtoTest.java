@@ -80,6 +80,59 @@ public class FileSourceDtoTest {
     assertThat(data.getLinesCount()).isEqualTo(build.getLinesCount());
   }
 
+  @Test
+  public void getScmData_reads_only_line_and_scm_fields() {
+    DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
+    dataBuilder.addLinesBuilder()
+      .setLine(1)
+      .setSource(LOREM_IPSUM)
+      .setScmRevision("rev1")
+      .setScmAuthor("john")
+      .setScmDate(123456789L)
+      .setHighlighting("0,10,k")
+      .setSymbols("1,2,3")
+      .addDuplication(2)
+      .setLineHits(3);
+    dataBuilder.addLinesBuilder()
+      .setLine(2)
+      .setSource(LOREM_IPSUM)
+      .setScmRevision("rev2")
+      .setScmDate(987654321L);
+    dataBuilder.addLinesBuilder()
+      .setLine(3)
+      .setSource(LOREM_IPSUM);
+
+    List<DbFileSources.Line> lines = new FileSourceDto().setSourceData(dataBuilder.build()).getScmData();
+
+    assertThat(lines).containsExactly(
+      DbFileSources.Line.newBuilder().setLine(1).setScmRevision("rev1").setScmAuthor("john").setScmDate(123456789L).build(),
+      DbFileSources.Line.newBuilder().setLine(2).setScmRevision("rev2").setScmDate(987654321L).build(),
+      DbFileSources.Line.newBuilder().setLine(3).build());
+  }
+
+  @Test
+  public void getScmData_reads_Data_object_bigger_than_default_size_limit() {
+    DbFileSources.Data build = createOver64MBDataStructure();
+    byte[] bytes = FileSourceDto.encodeSourceData(build);
+
+    List<DbFileSources.Line> lines = new FileSourceDto().decodeScmData(bytes);
+    assertThat(lines).hasSize(build.getLinesCount());
+  }
+
+  @Test
+  public void getScmData_throws_ISE_with_id_fileUuid_and_projectUuid_in_message_when_data_cant_be_read() {
+    FileSourceDto underTest = new FileSourceDto()
+      .setBinaryData(new byte[] {1, 2, 3, 4, 5})
+      .setId(12L)
+      .setFileUuid("file uuid")
+      .setProjectUuid("project uuid");
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to decompress and deserialize SCM data [id=12,fileUuid=file uuid,projectUuid=project uuid]");
+
+    underTest.getScmData();
+  }
+
   private static DbFileSources.Data createOver64MBDataStructure() {
     DbFileSources.Data.Builder dataBuilder = DbFileSources.Data.newBuilder();
     DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
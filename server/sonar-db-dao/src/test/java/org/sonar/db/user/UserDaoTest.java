@@ -315,6 +315,7 @@ public class UserDaoTest {
       .setActive(true)
       .setSalt("1234")
       .setCryptedPassword("abcd")
+      .setHashMethod("PBKDF2")
       .setExternalIdentity("johngithub")
       .setExternalIdentityProvider("github")
       .setLocal(true)
@@ -333,6 +334,7 @@ public class UserDaoTest {
     assertThat(user.getScmAccounts()).isEqualTo(",jo.hn,john2,");
     assertThat(user.getSalt()).isEqualTo("1234");
     assertThat(user.getCryptedPassword()).isEqualTo("abcd");
+    assertThat(user.getHashMethod()).isEqualTo("PBKDF2");
     assertThat(user.getExternalIdentity()).isEqualTo("johngithub");
     assertThat(user.getExternalIdentityProvider()).isEqualTo("github");
     assertThat(user.isLocal()).isTrue();
@@ -363,6 +365,7 @@ public class UserDaoTest {
       .setActive(false)
       .setSalt("12345")
       .setCryptedPassword("abcde")
+      .setHashMethod("PBKDF2")
       .setExternalIdentity("johngithub")
       .setExternalIdentityProvider("github")
       .setLocal(false)
@@ -380,6 +383,7 @@ public class UserDaoTest {
     assertThat(user.getScmAccounts()).isEqualTo(",jo.hn,john2,johndoo,");
     assertThat(user.getSalt()).isEqualTo("12345");
     assertThat(user.getCryptedPassword()).isEqualTo("abcde");
+    assertThat(user.getHashMethod()).isEqualTo("PBKDF2");
     assertThat(user.getExternalIdentity()).isEqualTo("johngithub");
     assertThat(user.getExternalIdentityProvider()).isEqualTo("github");
     assertThat(user.isLocal()).isFalse();
@@ -408,6 +412,7 @@ public class UserDaoTest {
     assertThat(userReloaded.getScmAccounts()).isNull();
     assertThat(userReloaded.getSalt()).isNull();
     assertThat(userReloaded.getCryptedPassword()).isNull();
+    assertThat(userReloaded.getHashMethod()).isNull();
     assertThat(userReloaded.getExternalIdentity()).isNull();
     assertThat(userReloaded.getExternalIdentityProvider()).isNull();
     assertThat(userReloaded.isRoot()).isFalse();
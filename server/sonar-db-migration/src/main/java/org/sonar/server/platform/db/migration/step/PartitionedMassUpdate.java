@@ -0,0 +1,226 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.db.migration.step;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.ProgressLogger;
+import org.sonar.db.Database;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+
+/**
+ * Same as {@link MassUpdate}, but the rows are split into ranges of values of a numeric key column, for
+ * example the technical id, and the ranges are processed concurrently, each one with its own read
+ * and write connections.
+ * <p/>
+ * The SELECT request must restrict the key column to the range with two parameters, the inclusive lower bound
+ * then the exclusive upper bound, for example {@code select id, kee from issues where id >= ? and id < ?}.
+ * <p/>
+ * Handlers are called concurrently, so they must be thread-safe. Each range is committed independently of
+ * the others, so the handlers must only update the rows which still need to be migrated, in order to be
+ * able to execute the migration again after a failure.
+ */
+public class PartitionedMassUpdate {
+
+  public static final int DEFAULT_PARTITIONS = 4;
+
+  private static final Logger LOG = Loggers.get(PartitionedMassUpdate.class);
+
+  private final Database db;
+  private final String table;
+  private final String keyColumn;
+  private final AtomicLong counter = new AtomicLong(0L);
+  private final ProgressLogger progress = ProgressLogger.create(getClass(), counter);
+
+  private String selectSql;
+  private final List<String> updateSqls = new ArrayList<>(1);
+  private int partitions = DEFAULT_PARTITIONS;
+
+  PartitionedMassUpdate(Database db, String table, String keyColumn) {
+    this.db = db;
+    this.table = table;
+    this.keyColumn = keyColumn;
+  }
+
+  public PartitionedMassUpdate select(String sql) {
+    this.selectSql = sql;
+    return this;
+  }
+
+  public PartitionedMassUpdate update(String sql) {
+    this.updateSqls.add(sql);
+    return this;
+  }
+
+  public PartitionedMassUpdate rowPluralName(String s) {
+    this.progress.setPluralLabel(s);
+    return this;
+  }
+
+  /**
+   * Maximum number of ranges processed concurrently. Each of them uses two connections of the pool. Default
+   * is {@link #DEFAULT_PARTITIONS}.
+   */
+  public PartitionedMassUpdate partitions(int i) {
+    checkArgument(i > 0, "Number of partitions must be strictly positive");
+    this.partitions = i;
+    return this;
+  }
+
+  public void execute(MassUpdate.Handler handler) throws SQLException {
+    checkState(selectSql != null && !updateSqls.isEmpty(), "SELECT or UPDATE requests are not defined");
+    checkState(updateSqls.size() == 1, "There should be only one update when using a " + MassUpdate.Handler.class.getName());
+
+    execute((row, update, updateIndex) -> handler.handle(row, update));
+  }
+
+  public void execute(MassUpdate.MultiHandler handler) throws SQLException {
+    checkState(selectSql != null && !updateSqls.isEmpty(), "SELECT or UPDATE(s) requests are not defined");
+
+    List<Range> ranges = splitIntoRanges();
+    if (ranges.isEmpty()) {
+      return;
+    }
+    progress.start();
+    ExecutorService executor = Executors.newFixedThreadPool(ranges.size(),
+      new ThreadFactoryBuilder().setNameFormat("PartitionedMassUpdate-%d").setDaemon(true).build());
+    try {
+      List<Future<Void>> futures = new ArrayList<>(ranges.size());
+      for (Range range : ranges) {
+        futures.add(executor.submit(() -> {
+          execute(range, handler);
+          return null;
+        }));
+      }
+      waitFor(futures);
+
+      // log the total number of processed rows
+      progress.log();
+    } finally {
+      executor.shutdownNow();
+      progress.stop();
+    }
+  }
+
+  private List<Range> splitIntoRanges() throws SQLException {
+    List<Range> ranges = new ArrayList<>(partitions);
+    try (Connection connection = DataChange.createReadUncommittedConnection(db)) {
+      long[] bounds = SelectImpl.create(db, connection, format("select min(%s), max(%s) from %s", keyColumn, keyColumn, table))
+        .get(row -> {
+          Long min = row.getNullableLong(1);
+          Long max = row.getNullableLong(2);
+          return min == null || max == null ? null : new long[] {min, max};
+        });
+      if (bounds == null) {
+        // empty table
+        return ranges;
+      }
+      long min = bounds[0];
+      long end = bounds[1] + 1;
+      long rangeSize = Math.max(1L, (end - min + partitions - 1) / partitions);
+      for (long start = min; start < end; start += rangeSize) {
+        ranges.add(new Range(start, Math.min(start + rangeSize, end)));
+      }
+    }
+    return ranges;
+  }
+
+  private void execute(Range range, MassUpdate.MultiHandler handler) throws SQLException {
+    try (Connection readConnection = DataChange.createReadUncommittedConnection(db);
+      Connection writeConnection = DataChange.createDdlConnection(db)) {
+      List<UpsertImpl> updates = new ArrayList<>(updateSqls.size());
+      for (String updateSql : updateSqls) {
+        updates.add(UpsertImpl.create(writeConnection, updateSql));
+      }
+      SelectImpl.create(db, readConnection, selectSql)
+        .setLong(1, range.start)
+        .setLong(2, range.end)
+        .scroll(row -> {
+          int updateIndex = 0;
+          for (UpsertImpl update : updates) {
+            if (handler.handle(row, update, updateIndex)) {
+              update.addBatch();
+            }
+            updateIndex++;
+          }
+          counter.getAndIncrement();
+        });
+      for (UpsertImpl update : updates) {
+        if (update.getBatchCount() > 0L) {
+          update.execute().commit();
+        }
+        update.close();
+      }
+    }
+    LOG.debug("Range [{}, {}[ of {}.{} is migrated", range.start, range.end, table, keyColumn);
+  }
+
+  /**
+   * Waits for the completion of all the ranges, even if some of them fail, so that no connection is
+   * still in use when the migration step ends. The first failure is then re-thrown.
+   */
+  private static void waitFor(List<Future<Void>> futures) throws SQLException {
+    Throwable failure = null;
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for the migration of rows", e);
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      }
+    }
+    if (failure instanceof SQLException) {
+      throw (SQLException) failure;
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    if (failure != null) {
+      throw new IllegalStateException(failure);
+    }
+  }
+
+  private static class Range {
+    private final long start;
+    private final long end;
+
+    private Range(long start, long end) {
+      this.start = start;
+      this.end = end;
+    }
+  }
+}
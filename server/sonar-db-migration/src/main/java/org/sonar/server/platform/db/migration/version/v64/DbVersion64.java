@@ -44,6 +44,11 @@ public class DbVersion64 implements DbVersion {
       .add(1614, "Upgrade loaded template entries for quality profiles", UpgradeQualityTemplateLoadedTemplates.class)
       .add(1615, "Create table RULES_METADATA", CreateRulesMetadata.class)
       .add(1616, "Populate table RULES_METADATA", PopulateRulesMetadata.class)
-      .add(1617, "Drop metadata columns from RULES", DropMetadataColumnsFromRules.class);
+      .add(1617, "Drop metadata columns from RULES", DropMetadataColumnsFromRules.class)
+      .add(1618, "Add USERS.HASH_METHOD", AddHashMethodToUsers.class)
+      .add(1619, "Extend size of column USERS.CRYPTED_PASSWORD", ExtendCryptedPasswordOfUsers.class)
+      .add(1620, "Add RULE_REPOSITORIES.FINGERPRINT", AddFingerprintToRuleRepositories.class)
+      .add(1621, "Create table CE_TASK_STEPS", CreateTableCeTaskSteps.class)
+      .add(1622, "Create table PERMISSION_INDEX_QUEUE", CreateTablePermissionIndexQueue.class);
   }
 }
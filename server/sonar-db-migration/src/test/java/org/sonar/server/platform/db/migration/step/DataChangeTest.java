@@ -400,6 +400,95 @@ public class DataChangeTest {
     db.assertDbUnit(getClass(), "persons.xml", "persons");
   }
 
+  @Test
+  public void partitioned_mass_update() throws Exception {
+    db.prepareDbUnit(getClass(), "persons.xml");
+
+    new DataChange(db.database()) {
+      @Override
+      public void execute(Context context) throws SQLException {
+        context.preparePartitionedMassUpdate("persons", "id")
+          .partitions(2)
+          .select("select id from persons where id>=2 and id>=? and id<?")
+          .update("update persons set login=?, age=? where id=?")
+          .execute((row, update) -> {
+            long id = row.getNullableLong(1);
+            update
+              .setString(1, "login" + id)
+              .setInt(2, 10 + (int) id)
+              .setLong(3, id);
+            return true;
+          });
+      }
+    }.execute();
+
+    db.assertDbUnit(getClass(), "mass-update-result.xml", "persons");
+  }
+
+  @Test
+  public void partitioned_mass_update_of_many_rows() throws Exception {
+    for (int i = 0; i < 1_000; i++) {
+      db.executeInsert("persons", "LOGIN", "login" + i, "AGE", 10);
+    }
+
+    new DataChange(db.database()) {
+      @Override
+      public void execute(Context context) throws SQLException {
+        context.preparePartitionedMassUpdate("persons", "id")
+          .partitions(3)
+          .select("select id from persons where id>=? and id<?")
+          .update("update persons set age=? where id=?")
+          .execute((row, update) -> {
+            update.setInt(1, 20).setLong(2, row.getLong(1));
+            return true;
+          });
+      }
+    }.execute();
+
+    assertThat(db.countSql("select count(1) from persons where age=20")).isEqualTo(1_000);
+  }
+
+  @Test
+  public void partitioned_mass_update_of_empty_table() throws Exception {
+    new DataChange(db.database()) {
+      @Override
+      public void execute(Context context) throws SQLException {
+        context.preparePartitionedMassUpdate("persons", "id")
+          .select("select id from persons where id>=? and id<?")
+          .update("update persons set age=? where id=?")
+          .execute((row, update) -> {
+            throw new IllegalStateException("No rows to handle");
+          });
+      }
+    }.execute();
+
+    assertThat(db.countRowsOfTable("persons")).isEqualTo(0);
+  }
+
+  @Test
+  public void display_current_row_details_if_error_during_partitioned_mass_update() throws Exception {
+    db.prepareDbUnit(getClass(), "persons.xml");
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Error during processing of row: [id=2]");
+
+    new DataChange(db.database()) {
+      @Override
+      public void execute(Context context) throws SQLException {
+        context.preparePartitionedMassUpdate("persons", "id")
+          .partitions(3)
+          .select("select id from persons where id>=? and id<?")
+          .update("update persons set login=?, age=? where id=?")
+          .execute((row, update) -> {
+            if (row.getLong(1) == 2L) {
+              throw new IllegalStateException("Unexpected error");
+            }
+            return false;
+          });
+      }
+    }.execute();
+  }
+
   @Test
   public void bad_mass_update() throws Exception {
     db.prepareDbUnit(getClass(), "persons.xml");
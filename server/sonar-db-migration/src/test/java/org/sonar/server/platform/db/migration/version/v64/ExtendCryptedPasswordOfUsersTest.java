@@ -0,0 +1,56 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.db.migration.version.v64;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.db.CoreDbTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExtendCryptedPasswordOfUsersTest {
+
+  @Rule
+  public final CoreDbTester db = CoreDbTester.createForSchema(ExtendCryptedPasswordOfUsersTest.class, "users.sql");
+
+  private ExtendCryptedPasswordOfUsers underTest = new ExtendCryptedPasswordOfUsers(db.database());
+
+  @Test
+  public void extend_column_crypted_password() throws SQLException {
+    underTest.execute();
+
+    db.assertColumnDefinition("users", "crypted_password", Types.VARCHAR, 100, true);
+  }
+
+  @Test
+  public void keep_existing_passwords() throws SQLException {
+    db.executeInsert("users",
+      "LOGIN", "john",
+      "CRYPTED_PASSWORD", "a373a0e667abb2604c1fd571eb4ad47fe8cc0878",
+      "SALT", "48bc4b0d93179b5103fd3885ea9119498e9d161b",
+      "IS_ROOT", false);
+
+    underTest.execute();
+
+    assertThat(db.selectFirst("select crypted_password as \"p\" from users").get("p")).isEqualTo("a373a0e667abb2604c1fd571eb4ad47fe8cc0878");
+  }
+}
@@ -61,6 +61,15 @@ public interface CEQueueStatus {
    */
   long addError(long processingTime);
 
+  /**
+   * Adds 1 to the count of attempts to start a pending task and, if {@code success} is {@code true}, to the count of
+   * successful attempts. An attempt fails when the task has been started by another worker in the meantime.
+   *
+   * @see #getPeekAttemptCount()
+   * @see #getPeekSuccessCount()
+   */
+  void addPeekAttempt(boolean success);
+
   /**
    * Count of batch reports waiting for processing since startup, including reports received before instance startup.
    */
@@ -85,4 +94,14 @@ public interface CEQueueStatus {
    * Time spent processing batch reports since startup, in milliseconds.
    */
   long getProcessingTime();
+
+  /**
+   * Count of attempts to start a pending task since instance startup.
+   */
+  long getPeekAttemptCount();
+
+  /**
+   * Count of successful attempts to start a pending task since instance startup.
+   */
+  long getPeekSuccessCount();
 }
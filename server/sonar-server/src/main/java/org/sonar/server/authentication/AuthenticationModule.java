@@ -46,6 +46,8 @@ public class AuthenticationModule extends Module {
       LoginAction.class,
       LogoutAction.class,
       CredentialsAuthenticator.class,
+      CredentialsLocalAuthentication.class,
+      CredentialsCache.class,
       RealmAuthenticator.class,
       BasicAuthenticator.class,
       ValidateAction.class,
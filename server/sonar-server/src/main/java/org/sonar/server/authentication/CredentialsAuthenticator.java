@@ -20,8 +20,6 @@
 package org.sonar.server.authentication;
 
 import java.util.Optional;
-import javax.annotation.CheckForNull;
-import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -29,7 +27,6 @@ import org.sonar.db.user.UserDto;
 import org.sonar.server.authentication.event.AuthenticationEvent;
 import org.sonar.server.authentication.event.AuthenticationException;
 
-import static org.sonar.db.user.UserDto.encryptPassword;
 import static org.sonar.server.authentication.event.AuthenticationEvent.Method;
 import static org.sonar.server.authentication.event.AuthenticationEvent.Source;
 
@@ -38,11 +35,14 @@ public class CredentialsAuthenticator {
   private final DbClient dbClient;
   private final RealmAuthenticator externalAuthenticator;
   private final AuthenticationEvent authenticationEvent;
+  private final CredentialsLocalAuthentication localAuthentication;
 
-  public CredentialsAuthenticator(DbClient dbClient, RealmAuthenticator externalAuthenticator, AuthenticationEvent authenticationEvent) {
+  public CredentialsAuthenticator(DbClient dbClient, RealmAuthenticator externalAuthenticator, AuthenticationEvent authenticationEvent,
+    CredentialsLocalAuthentication localAuthentication) {
     this.dbClient = dbClient;
     this.externalAuthenticator = externalAuthenticator;
     this.authenticationEvent = authenticationEvent;
+    this.localAuthentication = localAuthentication;
   }
 
   public UserDto authenticate(String userLogin, String userPassword, HttpServletRequest request, Method method) {
@@ -54,9 +54,9 @@ public class CredentialsAuthenticator {
   private UserDto authenticate(DbSession dbSession, String userLogin, String userPassword, HttpServletRequest request, Method method) {
     UserDto localUser = dbClient.userDao().selectActiveUserByLogin(dbSession, userLogin);
     if (localUser != null && localUser.isLocal()) {
-      UserDto userDto = authenticateFromDb(localUser, userPassword, method);
+      localAuthentication.authenticate(dbSession, localUser, userPassword, method);
       authenticationEvent.loginSuccess(request, userLogin, Source.local(method));
-      return userDto;
+      return localUser;
     }
     Optional<UserDto> externalUser = externalAuthenticator.authenticate(userLogin, userPassword, request, method);
     if (externalUser.isPresent()) {
@@ -68,30 +68,4 @@ public class CredentialsAuthenticator {
       .setMessage(localUser != null && !localUser.isLocal() ? "User is not local" : "No active user for login")
       .build();
   }
-
-  private static UserDto authenticateFromDb(UserDto userDto, String userPassword, Method method) {
-    String cryptedPassword = userDto.getCryptedPassword();
-    String salt = userDto.getSalt();
-    String failureCause = checkPassword(cryptedPassword, salt, userPassword);
-    if (failureCause == null) {
-      return userDto;
-    }
-    throw AuthenticationException.newBuilder()
-      .setSource(Source.local(method))
-      .setLogin(userDto.getLogin())
-      .setMessage(failureCause)
-      .build();
-  }
-
-  @CheckForNull
-  private static String checkPassword(@Nullable String cryptedPassword, @Nullable String salt, String userPassword) {
-    if (cryptedPassword == null) {
-      return "null password in DB";
-    } else if (salt == null) {
-      return "null salt";
-    } else if (!cryptedPassword.equals(encryptPassword(userPassword, salt))) {
-      return "wrong password";
-    }
-    return null;
-  }
 }
@@ -0,0 +1,133 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.authentication;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.sonar.api.server.ServerSide;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Short-lived and memory-bounded cache of the successful verifications of passwords and of user tokens, so that
+ * the clients authenticating each request (scanners, CI scripts calling web services) do not pay each time the
+ * cost of password hashing.
+ * <p>
+ * Credentials are never stored. Keys are HMAC-SHA256 digests computed with a secret key generated randomly
+ * at startup, so they can't be reversed even if the memory is dumped.
+ * </p>
+ * <p>
+ * A verified password is associated to the hash stored in database when it was verified. It is not
+ * valid anymore as soon as the password of the user is changed. Tokens must be invalidated with
+ * {@link #invalidate(String)} when they are revoked.
+ * </p>
+ */
+@ServerSide
+public class CredentialsCache {
+
+  private static final long EXPIRATION_IN_SECONDS = 5 * 60L;
+  private static final long MAX_SIZE = 10_000L;
+  private static final String HMAC_ALGORITHM = "HmacSHA256";
+  private static final char SEPARATOR = '\0';
+
+  private final SecretKeySpec secretKey;
+  private final Cache<String, Entry> entriesByDigest;
+
+  public CredentialsCache() {
+    this(EXPIRATION_IN_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @VisibleForTesting
+  CredentialsCache(long expiration, TimeUnit expirationUnit) {
+    byte[] key = new byte[32];
+    new SecureRandom().nextBytes(key);
+    this.secretKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+    this.entriesByDigest = CacheBuilder.newBuilder()
+      .maximumSize(MAX_SIZE)
+      .expireAfterWrite(expiration, expirationUnit)
+      .build();
+  }
+
+  /**
+   * Whether the password of the user has already been verified against the hash {@code cryptedPassword}.
+   */
+  public boolean isPasswordVerified(String login, String password, @Nullable String cryptedPassword) {
+    Entry entry = entriesByDigest.getIfPresent(digest("password", login, password));
+    return entry != null && cryptedPassword != null && cryptedPassword.equals(entry.cryptedPassword);
+  }
+
+  public void putVerifiedPassword(String login, String password, String cryptedPassword) {
+    entriesByDigest.put(digest("password", login, password), new Entry(login, cryptedPassword));
+  }
+
+  /**
+   * Login of the user owning the token, if the token has already been verified.
+   */
+  public Optional<String> getLoginOfToken(String token) {
+    Entry entry = entriesByDigest.getIfPresent(digest("token", token));
+    return entry == null ? Optional.empty() : Optional.of(entry.login);
+  }
+
+  public void putVerifiedToken(String token, String login) {
+    entriesByDigest.put(digest("token", token), new Entry(login, null));
+  }
+
+  /**
+   * Removes all the verified passwords and tokens of the user
+   */
+  public void invalidate(String login) {
+    entriesByDigest.asMap().values().removeIf(entry -> entry.login.equals(login));
+  }
+
+  private String digest(String... parts) {
+    try {
+      Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+      mac.init(secretKey);
+      for (String part : parts) {
+        mac.update(part.getBytes(UTF_8));
+        mac.update((byte) SEPARATOR);
+      }
+      return Base64.getEncoder().encodeToString(mac.doFinal());
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Fail to compute " + HMAC_ALGORITHM, e);
+    }
+  }
+
+  private static final class Entry {
+    private final String login;
+    @CheckForNull
+    private final String cryptedPassword;
+
+    private Entry(String login, @Nullable String cryptedPassword) {
+      this.login = login;
+      this.cryptedPassword = cryptedPassword;
+    }
+  }
+}
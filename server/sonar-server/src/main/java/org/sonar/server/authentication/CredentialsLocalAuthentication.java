@@ -0,0 +1,189 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.authentication;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Base64;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.config.Settings;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.user.UserDto;
+import org.sonar.server.authentication.event.AuthenticationEvent.Method;
+import org.sonar.server.authentication.event.AuthenticationEvent.Source;
+import org.sonar.server.authentication.event.AuthenticationException;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.sonar.db.user.UserDto.encryptPassword;
+
+/**
+ * Hash and verification of the passwords of local users.
+ * <p>
+ * New passwords are hashed with PBKDF2 (HMAC-SHA512). The number of iterations is defined by the property
+ * {@link #PBKDF2_ITERATIONS_PROPERTY} and is stored along with the hash, so that it can be increased without
+ * breaking existing passwords. Passwords hashed with the legacy salted SHA1, or with another number of iterations,
+ * are transparently re-hashed on the next successful authentication.
+ * </p>
+ * <p>
+ * As PBKDF2 is expensive on purpose, successful verifications are kept in {@link CredentialsCache}, so that
+ * the web services called with login and password on each request (scanners, CI scripts) do not pay
+ * the cost each time.
+ * </p>
+ */
+@ServerSide
+public class CredentialsLocalAuthentication {
+
+  public static final String PBKDF2_ITERATIONS_PROPERTY = "sonar.auth.pbkdf2.iterations";
+  /**
+   * Minimum recommended by NIST SP 800-63B
+   */
+  static final int DEFAULT_PBKDF2_ITERATIONS = 10_000;
+
+  private static final Logger LOG = Loggers.get(CredentialsLocalAuthentication.class);
+  private static final String PBKDF2_ALGORITHM = "PBKDF2WithHmacSHA512";
+  private static final int PBKDF2_KEY_LENGTH_IN_BITS = 512;
+  private static final char ITERATIONS_SEPARATOR = '$';
+  private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+  public enum HashMethod {
+    SHA1, PBKDF2
+  }
+
+  private final DbClient dbClient;
+  private final CredentialsCache credentialsCache;
+  private final int iterations;
+
+  public CredentialsLocalAuthentication(DbClient dbClient, CredentialsCache credentialsCache, Settings settings) {
+    this.dbClient = dbClient;
+    this.credentialsCache = credentialsCache;
+    int configuredIterations = settings.getInt(PBKDF2_ITERATIONS_PROPERTY);
+    this.iterations = configuredIterations > 0 ? configuredIterations : DEFAULT_PBKDF2_ITERATIONS;
+  }
+
+  /**
+   * Verifies the password of a local user. The password is re-hashed with the current hash method if needed.
+   *
+   * @throws AuthenticationException if password is not valid
+   */
+  public void authenticate(DbSession dbSession, UserDto user, String password, Method method) {
+    if (credentialsCache.isPasswordVerified(user.getLogin(), password, user.getCryptedPassword())) {
+      return;
+    }
+    String failureCause = checkPassword(user, password);
+    if (failureCause != null) {
+      throw AuthenticationException.newBuilder()
+        .setSource(Source.local(method))
+        .setLogin(user.getLogin())
+        .setMessage(failureCause)
+        .build();
+    }
+    if (!isHashedWithCurrentMethod(user)) {
+      storeHashPassword(user, password);
+      dbClient.userDao().update(dbSession, user);
+      dbSession.commit();
+      LOG.debug("Password of user {} has been re-hashed with {}", user.getLogin(), HashMethod.PBKDF2);
+    }
+    credentialsCache.putVerifiedPassword(user.getLogin(), password, user.getCryptedPassword());
+  }
+
+  /**
+   * Sets the salt, the hash method and the hash of the password on {@code user}. The DTO is not persisted.
+   */
+  public void storeHashPassword(UserDto user, String password) {
+    byte[] saltBytes = new byte[32];
+    SECURE_RANDOM.nextBytes(saltBytes);
+    String salt = DigestUtils.sha1Hex(saltBytes);
+    user.setHashMethod(HashMethod.PBKDF2.name())
+      .setSalt(salt)
+      .setCryptedPassword(iterations + String.valueOf(ITERATIONS_SEPARATOR) + hashPbkdf2(password, salt, iterations));
+  }
+
+  @CheckForNull
+  private static String checkPassword(UserDto user, String password) {
+    String cryptedPassword = user.getCryptedPassword();
+    String salt = user.getSalt();
+    if (cryptedPassword == null) {
+      return "null password in DB";
+    } else if (salt == null) {
+      return "null salt";
+    }
+    HashMethod hashMethod = getHashMethod(user);
+    boolean valid = hashMethod == HashMethod.PBKDF2 ? isValidPbkdf2(cryptedPassword, salt, password) : isValidSha1(cryptedPassword, salt, password);
+    return valid ? null : "wrong password";
+  }
+
+  private static HashMethod getHashMethod(UserDto user) {
+    String hashMethod = user.getHashMethod();
+    return hashMethod == null ? HashMethod.SHA1 : HashMethod.valueOf(hashMethod);
+  }
+
+  private boolean isHashedWithCurrentMethod(UserDto user) {
+    return getHashMethod(user) == HashMethod.PBKDF2 && parseIterations(user.getCryptedPassword()) == iterations;
+  }
+
+  private static boolean isValidSha1(String cryptedPassword, String salt, String password) {
+    return MessageDigest.isEqual(cryptedPassword.getBytes(UTF_8), encryptPassword(password, salt).getBytes(UTF_8));
+  }
+
+  private static boolean isValidPbkdf2(String cryptedPassword, String salt, String password) {
+    int storedIterations = parseIterations(cryptedPassword);
+    if (storedIterations <= 0) {
+      return false;
+    }
+    String storedHash = cryptedPassword.substring(cryptedPassword.indexOf(ITERATIONS_SEPARATOR) + 1);
+    String hash = hashPbkdf2(password, salt, storedIterations);
+    return MessageDigest.isEqual(storedHash.getBytes(UTF_8), hash.getBytes(UTF_8));
+  }
+
+  private static int parseIterations(@Nullable String cryptedPassword) {
+    if (cryptedPassword == null) {
+      return -1;
+    }
+    int separatorIndex = cryptedPassword.indexOf(ITERATIONS_SEPARATOR);
+    try {
+      return separatorIndex <= 0 ? -1 : Integer.parseInt(cryptedPassword.substring(0, separatorIndex));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static String hashPbkdf2(String password, String salt, int iterations) {
+    PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt.getBytes(UTF_8), iterations, PBKDF2_KEY_LENGTH_IN_BITS);
+    try {
+      byte[] hash = SecretKeyFactory.getInstance(PBKDF2_ALGORITHM).generateSecret(spec).getEncoded();
+      return Base64.getEncoder().encodeToString(hash);
+    } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+      throw new IllegalStateException(format("Fail to hash password with %s", PBKDF2_ALGORITHM), e);
+    } finally {
+      spec.clearPassword();
+    }
+  }
+}
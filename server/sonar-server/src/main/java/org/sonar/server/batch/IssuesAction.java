@@ -21,9 +21,11 @@ package org.sonar.server.batch;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
@@ -31,10 +33,9 @@ import org.sonar.api.server.ws.WebService;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.issue.IssueDto;
 import org.sonar.scanner.protocol.input.ScannerInput;
 import org.sonar.server.component.ComponentFinder;
-import org.sonar.server.issue.index.IssueDoc;
-import org.sonar.server.issue.index.IssueIndex;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.MediaTypes;
 
@@ -45,15 +46,14 @@ import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
 public class IssuesAction implements BatchWsAction {
 
   private static final String PARAM_KEY = "key";
+  private static final String PARAM_PATHS = "paths";
 
   private final DbClient dbClient;
-  private final IssueIndex issueIndex;
   private final UserSession userSession;
   private final ComponentFinder componentFinder;
 
-  public IssuesAction(DbClient dbClient, IssueIndex issueIndex, UserSession userSession, ComponentFinder componentFinder) {
+  public IssuesAction(DbClient dbClient, UserSession userSession, ComponentFinder componentFinder) {
     this.dbClient = dbClient;
-    this.issueIndex = issueIndex;
     this.userSession = userSession;
     this.componentFinder = componentFinder;
   }
@@ -72,6 +72,13 @@ public class IssuesAction implements BatchWsAction {
       .setRequired(true)
       .setDescription("Project, module or file key")
       .setExampleValue(KEY_PROJECT_EXAMPLE_001);
+
+    action
+      .createParam(PARAM_PATHS)
+      .setDescription("Comma-separated list of file paths, relative to the requested module (or to the module of the requested file). " +
+        "If set, only the issues of these files are returned.")
+      .setExampleValue("src/main/java/Foo.java,src/main/java/Bar.java")
+      .setSince("6.4");
   }
 
   @Override
@@ -82,55 +89,74 @@ public class IssuesAction implements BatchWsAction {
       String componentKey = request.mandatoryParam(PARAM_KEY);
       ComponentDto component = componentFinder.getByKey(session, componentKey);
       userSession.checkComponentPermission(USER, component);
+      List<String> paths = request.hasParam(PARAM_PATHS) ? request.paramAsStrings(PARAM_PATHS) : Collections.emptyList();
 
       Map<String, String> keysByUUid = keysByUUid(session, component);
-
-      ScannerInput.ServerIssue.Builder issueBuilder = ScannerInput.ServerIssue.newBuilder();
-      for (Iterator<IssueDoc> issueDocIterator = issueIndex.selectIssuesForBatch(component); issueDocIterator.hasNext();) {
-        handleIssue(issueDocIterator.next(), issueBuilder, keysByUUid, response.stream().output());
-      }
+      dbClient.issueDao().scrollNonClosedForScanner(session, component, paths, new IssueWriter(keysByUUid, response.stream().output()));
     }
   }
 
-  private static void handleIssue(IssueDoc issue, ScannerInput.ServerIssue.Builder issueBuilder, Map<String, String> keysByUUid, OutputStream out) {
-    issueBuilder.setKey(issue.key());
-    issueBuilder.setModuleKey(keysByUUid.get(issue.moduleUuid()));
-    String path = issue.filePath();
-    if (path != null) {
-      issueBuilder.setPath(path);
-    }
-    issueBuilder.setRuleRepository(issue.ruleKey().repository());
-    issueBuilder.setRuleKey(issue.ruleKey().rule());
-    String checksum = issue.checksum();
-    if (checksum != null) {
-      issueBuilder.setChecksum(checksum);
-    }
-    String assigneeLogin = issue.assignee();
-    if (assigneeLogin != null) {
-      issueBuilder.setAssigneeLogin(assigneeLogin);
-    }
-    Integer line = issue.line();
-    if (line != null) {
-      issueBuilder.setLine(line);
-    }
-    String message = issue.message();
-    if (message != null) {
-      issueBuilder.setMsg(message);
+  /**
+   * Writes issues to the response as soon as they are read from database, so that issues are never all loaded in memory.
+   */
+  private static class IssueWriter implements ResultHandler {
+    private final ScannerInput.ServerIssue.Builder issueBuilder = ScannerInput.ServerIssue.newBuilder();
+    private final Map<String, String> keysByUUid;
+    private final OutputStream out;
+
+    private IssueWriter(Map<String, String> keysByUUid, OutputStream out) {
+      this.keysByUUid = keysByUUid;
+      this.out = out;
     }
-    issueBuilder.setSeverity(org.sonar.scanner.protocol.Constants.Severity.valueOf(issue.severity()));
-    issueBuilder.setManualSeverity(issue.isManualSeverity());
-    issueBuilder.setStatus(issue.status());
-    String resolution = issue.resolution();
-    if (resolution != null) {
-      issueBuilder.setResolution(resolution);
+
+    @Override
+    public void handleResult(ResultContext context) {
+      handleIssue((IssueDto) context.getResultObject());
     }
-    issueBuilder.setCreationDate(issue.creationDate().getTime());
-    try {
-      issueBuilder.build().writeDelimitedTo(out);
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to serialize issue", e);
+
+    private void handleIssue(IssueDto issue) {
+      issueBuilder.setKey(issue.getKey());
+      issueBuilder.setModuleKey(keysByUUid.get(issue.getModuleUuid()));
+      String path = issue.getFilePath();
+      if (path != null) {
+        issueBuilder.setPath(path);
+      }
+      issueBuilder.setRuleRepository(issue.getRuleRepo());
+      issueBuilder.setRuleKey(issue.getRule());
+      String checksum = issue.getChecksum();
+      if (checksum != null) {
+        issueBuilder.setChecksum(checksum);
+      }
+      String assigneeLogin = issue.getAssignee();
+      if (assigneeLogin != null) {
+        issueBuilder.setAssigneeLogin(assigneeLogin);
+      }
+      Integer line = issue.getLine();
+      if (line != null) {
+        issueBuilder.setLine(line);
+      }
+      String message = issue.getMessage();
+      if (message != null) {
+        issueBuilder.setMsg(message);
+      }
+      issueBuilder.setSeverity(org.sonar.scanner.protocol.Constants.Severity.valueOf(issue.getSeverity()));
+      issueBuilder.setManualSeverity(issue.isManualSeverity());
+      issueBuilder.setStatus(issue.getStatus());
+      String resolution = issue.getResolution();
+      if (resolution != null) {
+        issueBuilder.setResolution(resolution);
+      }
+      Long creationTime = issue.getIssueCreationTime();
+      if (creationTime != null) {
+        issueBuilder.setCreationDate(creationTime);
+      }
+      try {
+        issueBuilder.build().writeDelimitedTo(out);
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to serialize issue", e);
+      }
+      issueBuilder.clear();
     }
-    issueBuilder.clear();
   }
 
   private Map<String, String> keysByUUid(DbSession session, ComponentDto component) {
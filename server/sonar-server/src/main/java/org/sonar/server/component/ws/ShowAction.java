@@ -35,6 +35,8 @@ import org.sonar.db.organization.OrganizationDto;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.component.ComponentFinder.ParamNames;
 import org.sonar.server.user.UserSession;
+import org.sonar.server.ws.CacheableWsAction;
+import org.sonar.server.ws.WsResponseCache;
 import org.sonarqube.ws.WsComponents.ShowWsResponse;
 import org.sonarqube.ws.client.component.ShowWsRequest;
 
@@ -47,7 +49,7 @@ import static org.sonarqube.ws.client.component.ComponentsWsParameters.ACTION_SH
 import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_COMPONENT;
 import static org.sonarqube.ws.client.component.ComponentsWsParameters.PARAM_COMPONENT_ID;
 
-public class ShowAction implements ComponentsWsAction {
+public class ShowAction implements ComponentsWsAction, CacheableWsAction {
   private final UserSession userSession;
   private final DbClient dbClient;
   private final ComponentFinder componentFinder;
@@ -93,6 +95,11 @@ public class ShowAction implements ComponentsWsAction {
     writeProtobuf(showWsResponse, request, response);
   }
 
+  @Override
+  public Optional<ComponentDto> selectCachedComponent(DbSession dbSession, Request request) {
+    return WsResponseCache.selectByUuidOrKey(dbClient, dbSession, request.param(PARAM_COMPONENT_ID), request.param(PARAM_COMPONENT));
+  }
+
   private ShowWsResponse doHandle(ShowWsRequest request) {
     try (DbSession dbSession = dbClient.openSession(false)) {
       ComponentDto component = getComponentByUuidOrKey(dbSession, request);
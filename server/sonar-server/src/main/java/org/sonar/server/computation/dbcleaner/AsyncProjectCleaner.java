@@ -0,0 +1,275 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.MessageException;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.config.PurgeConstants;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.purge.IdUuidPair;
+
+import static java.lang.String.format;
+
+/**
+ * Cleans the history of projects in a background thread of low priority, so that analyses do not wait for the purge
+ * and do not hold database locks during it.
+ * <p>
+ * Purges of a same project are coalesced: a project submitted again before being purged is purged only once, with the
+ * settings of the last analysis. Projects are purged only during the time window defined by
+ * {@link PurgeConstants#TIME_WINDOW}, if any.
+ * </p>
+ * <p>
+ * A project is never purged while it is analyzed by a worker of the Compute Engine, as the purge would delete the
+ * snapshot of the analysis which is not processed yet. Workers declare their analyses with {@link #startAnalysis(String)}
+ * and {@link #endAnalysis(String)}. An analysis starting while its project is purged waits for the end of the purge,
+ * without time limit: the purge commits its deletions table by table, so it can't be interrupted without leaving the
+ * history partially purged. When the purge is throttled with {@link PurgeConstants#MAX_ROWS_PER_SECOND}, this wait
+ * can occupy a worker for the whole duration of the purge. It is logged.
+ * </p>
+ * <p>
+ * Pending purges are kept in memory only, so they are lost when the Compute Engine stops. The history of these
+ * projects is cleaned after their next analysis, which submits them again.
+ * </p>
+ */
+@ComputeEngineSide
+public class AsyncProjectCleaner implements Startable {
+  private static final Logger LOG = Loggers.get(AsyncProjectCleaner.class);
+  private static final long DELAY_BETWEEN_POLLS_IN_SECONDS = 10L;
+
+  private final ProjectCleaner projectCleaner;
+  private final DbClient dbClient;
+  private final Settings settings;
+  private final System2 system2;
+
+  // purges waiting to be executed, by uuid of project, in order of submission. Also guards the following fields.
+  private final Map<String, PurgeRequest> pendingRequests = new LinkedHashMap<>();
+  // number of analyses in progress, by uuid of project
+  private final Map<String, Integer> analysesInProgress = new HashMap<>();
+  @CheckForNull
+  private String projectBeingPurged;
+
+  @CheckForNull
+  private ScheduledExecutorService executorService;
+
+  public AsyncProjectCleaner(ProjectCleaner projectCleaner, DbClient dbClient, Settings settings, System2 system2) {
+    this.projectCleaner = projectCleaner;
+    this.dbClient = dbClient;
+    this.settings = settings;
+    this.system2 = system2;
+  }
+
+  @Override
+  public void start() {
+    executorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("ce-purge-%d")
+      .setPriority(Thread.MIN_PRIORITY)
+      .setDaemon(true)
+      .build());
+    executorService.scheduleWithFixedDelay(this::processPendingRequests, DELAY_BETWEEN_POLLS_IN_SECONDS, DELAY_BETWEEN_POLLS_IN_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public void stop() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+    int droppedRequests = countPendingRequests();
+    if (droppedRequests > 0) {
+      LOG.info("Purges of {} projects are dropped. They will be requested again by the next analyses of these projects.", droppedRequests);
+    }
+  }
+
+  /**
+   * Requests the purge of the history of the specified project. Returns immediately.
+   */
+  public void submit(IdUuidPair idUuidPair, Settings projectSettings) {
+    synchronized (pendingRequests) {
+      if (pendingRequests.put(idUuidPair.getUuid(), new PurgeRequest(idUuidPair, projectSettings)) != null) {
+        LOG.debug("Purge of project {} is already pending", idUuidPair.getUuid());
+      }
+    }
+  }
+
+  /**
+   * Declares that the specified project is being analyzed, so that it is not purged until {@link #endAnalysis(String)}
+   * is called. Waits, without time limit, for the end of the purge of the project if it is in progress.
+   */
+  public void startAnalysis(String projectUuid) {
+    synchronized (pendingRequests) {
+      if (projectUuid.equals(projectBeingPurged)) {
+        LOG.info("Analysis of project {} waits for the end of the purge of its history", projectUuid);
+      }
+      while (projectUuid.equals(projectBeingPurged)) {
+        try {
+          pendingRequests.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while waiting for the end of the purge of project " + projectUuid, e);
+        }
+      }
+      analysesInProgress.merge(projectUuid, 1, Integer::sum);
+    }
+  }
+
+  public void endAnalysis(String projectUuid) {
+    synchronized (pendingRequests) {
+      analysesInProgress.computeIfPresent(projectUuid, (uuid, count) -> count == 1 ? null : (count - 1));
+    }
+  }
+
+  @VisibleForTesting
+  int countPendingRequests() {
+    synchronized (pendingRequests) {
+      return pendingRequests.size();
+    }
+  }
+
+  /**
+   * Purges the pending projects as long as the time window is open.
+   */
+  @VisibleForTesting
+  void processPendingRequests() {
+    try {
+      PurgeRequest request = nextRequest();
+      while (request != null) {
+        purge(request);
+        request = nextRequest();
+      }
+    } catch (Exception e) {
+      // the thread of the scheduler must not be interrupted
+      LOG.error("Fail to purge projects", e);
+    }
+  }
+
+  /**
+   * The oldest request of a project which is not being analyzed. Purging the project during an analysis would
+   * delete its unprocessed snapshot. The project is marked as being purged in the same critical section, so that
+   * an analysis starting in the meantime waits for the end of the purge.
+   */
+  @CheckForNull
+  private PurgeRequest nextRequest() {
+    if (Thread.currentThread().isInterrupted() || !isInTimeWindow()) {
+      return null;
+    }
+    synchronized (pendingRequests) {
+      Iterator<Map.Entry<String, PurgeRequest>> it = pendingRequests.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<String, PurgeRequest> entry = it.next();
+        if (!analysesInProgress.containsKey(entry.getKey())) {
+          it.remove();
+          projectBeingPurged = entry.getKey();
+          return entry.getValue();
+        }
+      }
+    }
+    return null;
+  }
+
+  private void purge(PurgeRequest request) {
+    try (DbSession dbSession = dbClient.openSession(true)) {
+      projectCleaner.purgeHistory(dbSession, request.idUuidPair, request.projectSettings);
+      dbSession.commit();
+    } finally {
+      synchronized (pendingRequests) {
+        projectBeingPurged = null;
+        pendingRequests.notifyAll();
+      }
+    }
+  }
+
+  private boolean isInTimeWindow() {
+    String value = settings.getString(PurgeConstants.TIME_WINDOW);
+    try {
+      TimeWindow window = parseTimeWindow(value);
+      return window == null || window.contains(LocalTime.from(Instant.ofEpochMilli(system2.now()).atZone(ZoneId.systemDefault())));
+    } catch (MessageException e) {
+      LOG.warn(e.getMessage() + " It is ignored.");
+      return true;
+    }
+  }
+
+  @CheckForNull
+  private static TimeWindow parseTimeWindow(@CheckForNull String value) {
+    if (value == null || value.trim().isEmpty()) {
+      return null;
+    }
+    String[] bounds = value.trim().split("-");
+    if (bounds.length != 2) {
+      throw invalidTimeWindow(value);
+    }
+    try {
+      return new TimeWindow(LocalTime.parse(bounds[0].trim()), LocalTime.parse(bounds[1].trim()));
+    } catch (DateTimeParseException e) {
+      throw invalidTimeWindow(value);
+    }
+  }
+
+  private static MessageException invalidTimeWindow(String value) {
+    return MessageException.of(format("Value '%s' of property %s is invalid. It must be a time window such as '22:00-06:00'.", value, PurgeConstants.TIME_WINDOW));
+  }
+
+  private static final class TimeWindow {
+    private final LocalTime start;
+    private final LocalTime end;
+
+    private TimeWindow(LocalTime start, LocalTime end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    boolean contains(LocalTime time) {
+      if (start.isAfter(end)) {
+        // window over midnight
+        return !time.isBefore(start) || time.isBefore(end);
+      }
+      return !time.isBefore(start) && time.isBefore(end);
+    }
+  }
+
+  private static final class PurgeRequest {
+    private final IdUuidPair idUuidPair;
+    private final Settings projectSettings;
+
+    private PurgeRequest(IdUuidPair idUuidPair, Settings projectSettings) {
+      this.idUuidPair = idUuidPair;
+      this.projectSettings = projectSettings;
+    }
+  }
+}
@@ -20,6 +20,7 @@
 package org.sonar.server.computation.dbcleaner;
 
 import java.util.Collection;
+import java.util.Collections;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.config.Settings;
@@ -27,6 +28,7 @@ import org.sonar.api.server.ServerSide;
 import org.sonar.api.utils.TimeUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.config.PurgeConstants;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
 import org.sonar.db.purge.PurgeConfiguration;
@@ -54,11 +56,16 @@ public class ProjectCleaner {
     this.purgeListener = purgeListener;
   }
 
-  public ProjectCleaner purge(DbSession session, IdUuidPair idUuidPair, Settings projectSettings, Collection<String> disabledComponentUuids) {
+  /**
+   * Cleans the history of the project. This is the expensive part of the purge, which does not need to be
+   * executed right after the analysis. See {@link AsyncProjectCleaner}.
+   */
+  public ProjectCleaner purgeHistory(DbSession session, IdUuidPair idUuidPair, Settings projectSettings) {
     long start = System.currentTimeMillis();
     profiler.reset();
+    profiler.setMaxRowsPerSecond(projectSettings.getInt(PurgeConstants.MAX_ROWS_PER_SECOND));
 
-    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair, disabledComponentUuids);
+    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair, Collections.emptyList());
 
     cleanHistoricalData(session, configuration.rootProjectIdUuid().getUuid(), projectSettings);
     doPurge(session, configuration);
@@ -68,6 +75,20 @@ public class ProjectCleaner {
     return this;
   }
 
+  /**
+   * Removes the data of the components which have been disabled by the analysis.
+   */
+  public ProjectCleaner purgeDisabledComponents(DbSession session, IdUuidPair idUuidPair, Settings projectSettings, Collection<String> disabledComponentUuids) {
+    PurgeConfiguration configuration = newDefaultPurgeConfiguration(projectSettings, idUuidPair, disabledComponentUuids);
+    try {
+      purgeDao.purgeDisabledComponents(session, configuration, purgeListener);
+    } catch (Exception e) {
+      // purge errors must no fail the report analysis
+      LOG.error("Fail to purge disabled components [id=" + idUuidPair.getId() + "]", e);
+    }
+    return this;
+  }
+
   private void logProfiling(long start, Settings settings) {
     if (settings.getBoolean(CoreProperties.PROFILING_LOG_PROPERTY)) {
       long duration = System.currentTimeMillis() - start;
@@ -88,7 +109,7 @@ public class ProjectCleaner {
 
   private void doPurge(DbSession session, PurgeConfiguration configuration) {
     try {
-      purgeDao.purge(session, configuration, purgeListener, profiler);
+      purgeDao.purgeHistory(session, configuration, purgeListener, profiler);
     } catch (Exception e) {
       // purge errors must no fail the report analysis
       LOG.error("Fail to purge data [id=" + configuration.rootProjectIdUuid().getId() + "]", e);
@@ -34,6 +34,8 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   private final AtomicLong error = new AtomicLong(0);
   private final AtomicLong success = new AtomicLong(0);
   private final AtomicLong processingTime = new AtomicLong(0);
+  private final AtomicLong peekAttempts = new AtomicLong(0);
+  private final AtomicLong peekSuccesses = new AtomicLong(0);
 
   public CEQueueStatusImpl(DbClient dbClient) {
     this.dbClient = dbClient;
@@ -58,6 +60,14 @@ public class CEQueueStatusImpl implements CEQueueStatus {
     return success.incrementAndGet();
   }
 
+  @Override
+  public void addPeekAttempt(boolean success) {
+    peekAttempts.incrementAndGet();
+    if (success) {
+      peekSuccesses.incrementAndGet();
+    }
+  }
+
   private void addProcessingTime(long ms) {
     checkArgument(ms >= 0, "Processing time can not be < 0");
     processingTime.addAndGet(ms);
@@ -89,4 +99,14 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   public long getProcessingTime() {
     return processingTime.get();
   }
+
+  @Override
+  public long getPeekAttemptCount() {
+    return peekAttempts.get();
+  }
+
+  @Override
+  public long getPeekSuccessCount() {
+    return peekSuccesses.get();
+  }
 }
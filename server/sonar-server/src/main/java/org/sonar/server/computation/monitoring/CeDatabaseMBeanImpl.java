@@ -22,11 +22,14 @@ package org.sonar.server.computation.monitoring;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.picocontainer.Startable;
 import org.sonar.db.DbClient;
+import org.sonar.db.monitoring.SqlStatementStats;
 import org.sonar.process.Jmx;
 import org.sonar.process.systeminfo.SystemInfoSection;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 
 public class CeDatabaseMBeanImpl implements CeDatabaseMBean, Startable, SystemInfoSection {
+  static final int MAX_REPORTED_STATEMENTS = 10;
+
   private final DbClient dbClient;
 
   public CeDatabaseMBeanImpl(DbClient dbClient) {
@@ -108,6 +111,9 @@ public class CeDatabaseMBeanImpl implements CeDatabaseMBean, Startable, SystemIn
     builder.addAttributesBuilder().setKey("Pool Max Wait (ms)").setLongValue(getPoolMaxWaitMillis()).build();
     builder.addAttributesBuilder().setKey("Pool Remove Abandoned").setBooleanValue(getPoolRemoveAbandoned()).build();
     builder.addAttributesBuilder().setKey("Pool Remove Abandoned Timeout (sec)").setLongValue(getPoolRemoveAbandonedTimeoutSeconds()).build();
+    for (SqlStatementStats stats : dbClient.getMyBatis().getStatementStatistics().getTopByTotalDuration(MAX_REPORTED_STATEMENTS)) {
+      builder.addAttributesBuilder().setKey("Statement " + stats.getStatementId()).setStringValue(stats.summary()).build();
+    }
     return builder.build();
   }
 }
@@ -48,6 +48,17 @@ public interface CeTasksMBean {
    */
   long getProcessingTime();
 
+  /**
+   * Count of attempts to start a pending task since instance startup.
+   */
+  long getPeekAttemptCount();
+
+  /**
+   * Count of successful attempts to start a pending task since instance startup. The ratio with
+   * {@link #getPeekAttemptCount()} shows the contention between workers on the queue.
+   */
+  long getPeekSuccessCount();
+
   /**
    * Configured number of Workers.
    */
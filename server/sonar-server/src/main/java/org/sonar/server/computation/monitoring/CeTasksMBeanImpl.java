@@ -73,6 +73,16 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     return queueStatus.getProcessingTime();
   }
 
+  @Override
+  public long getPeekAttemptCount() {
+    return queueStatus.getPeekAttemptCount();
+  }
+
+  @Override
+  public long getPeekSuccessCount() {
+    return queueStatus.getPeekSuccessCount();
+  }
+
   @Override
   public int getWorkerCount() {
     return ceConfiguration.getWorkerCount();
@@ -87,6 +97,8 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     builder.addAttributesBuilder().setKey("Processed With Error").setLongValue(getErrorCount()).build();
     builder.addAttributesBuilder().setKey("Processed With Success").setLongValue(getSuccessCount()).build();
     builder.addAttributesBuilder().setKey("Processing Time (ms)").setLongValue(getProcessingTime()).build();
+    builder.addAttributesBuilder().setKey("Peek Attempts").setLongValue(getPeekAttemptCount()).build();
+    builder.addAttributesBuilder().setKey("Successful Peeks").setLongValue(getPeekSuccessCount()).build();
     builder.addAttributesBuilder().setKey("Worker Count").setLongValue(getWorkerCount()).build();
     return builder.build();
   }
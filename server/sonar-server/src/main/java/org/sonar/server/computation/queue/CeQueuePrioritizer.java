@@ -0,0 +1,92 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import com.google.common.base.Strings;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import org.sonar.api.utils.System2;
+import org.sonar.core.util.stream.Collectors;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeActivityDto;
+import org.sonar.db.ce.CeQueueDto;
+
+import static java.lang.Math.max;
+import static java.lang.String.format;
+
+/**
+ * Orders the pending tasks which can be started, so that the tasks of small projects are not stuck behind a long
+ * series of expensive tasks, while expensive tasks are not postponed forever.
+ * <p/>
+ * Tasks are sorted by decreasing response ratio, that is {@code (waiting time + expected duration) / expected duration}
+ * ("highest response ratio next"). The expected duration of a task is the execution time of the last task of the
+ * same type on the same component. When all the expected durations are equal, tasks are sorted from oldest to newest.
+ */
+class CeQueuePrioritizer {
+
+  /**
+   * Expected duration of the tasks which have never been executed yet
+   */
+  static final long DEFAULT_EXPECTED_DURATION_MS = 60_000L;
+
+  /**
+   * Lower bound of expected durations, so that the response ratio of very short tasks is not infinite
+   */
+  static final long MIN_EXPECTED_DURATION_MS = 1_000L;
+
+  private final DbClient dbClient;
+  private final System2 system2;
+
+  CeQueuePrioritizer(DbClient dbClient, System2 system2) {
+    this.dbClient = dbClient;
+    this.system2 = system2;
+  }
+
+  List<CeQueueDto> sort(DbSession dbSession, List<CeQueueDto> tasks) {
+    if (tasks.size() < 2) {
+      return tasks;
+    }
+    List<String> isLastKeys = tasks.stream().map(CeQueuePrioritizer::isLastKeyOf).collect(Collectors.toList(tasks.size()));
+    Map<String, Long> durationsByIsLastKey = dbClient.ceActivityDao().selectLastByIsLastKeys(dbSession, isLastKeys).stream()
+      .filter(activity -> activity.getExecutionTimeMs() != null)
+      .collect(Collectors.uniqueIndex(CeActivityDto::getIsLastKey, CeActivityDto::getExecutionTimeMs));
+
+    long now = system2.now();
+    Comparator<CeQueueDto> byDecreasingResponseRatio = Comparator.comparingDouble(
+      task -> -responseRatio(task, durationsByIsLastKey.getOrDefault(isLastKeyOf(task), DEFAULT_EXPECTED_DURATION_MS), now));
+    // the sort is stable, so ties keep the order of submission
+    return tasks.stream().sorted(byDecreasingResponseRatio).collect(Collectors.toList(tasks.size()));
+  }
+
+  private static double responseRatio(CeQueueDto task, long expectedDurationMs, long now) {
+    long expectedDuration = max(expectedDurationMs, MIN_EXPECTED_DURATION_MS);
+    long waitingTime = max(now - task.getCreatedAt(), 0L);
+    return (waitingTime + expectedDuration) / (double) expectedDuration;
+  }
+
+  /**
+   * Same as {@link CeActivityDto#getIsLastKey()}
+   */
+  private static String isLastKeyOf(CeQueueDto task) {
+    return format("%s%s", task.getTaskType(), Strings.nullToEmpty(task.getComponentUuid()));
+  }
+}
@@ -24,7 +24,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.log4j.Logger;
@@ -47,12 +49,20 @@ import static com.google.common.base.Preconditions.checkState;
 @ComputeEngineSide
 public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue {
 
+  /**
+   * Maximum number of the oldest pending tasks among which the task to start is chosen. They are prioritized
+   * by {@link CeQueuePrioritizer}, then tried in turn as long as they are started by other workers.
+   */
+  private static final int MAX_PEEK_CANDIDATES = 100;
+
   private final System2 system2;
   private final DbClient dbClient;
   private final CEQueueStatus queueStatus;
+  private final CeQueuePrioritizer prioritizer;
 
   // state
   private AtomicBoolean peekPaused = new AtomicBoolean(false);
+  private final AtomicInteger concurrentPeeks = new AtomicInteger(0);
 
   public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
     DefaultOrganizationProvider defaultOrganizationProvider) {
@@ -60,6 +70,7 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     this.system2 = system2;
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
+    this.prioritizer = new CeQueuePrioritizer(dbClient, system2);
   }
 
   @Override
@@ -67,15 +78,24 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     if (peekPaused.get()) {
       return Optional.absent();
     }
+    // workers peeking concurrently start from different candidates, so that they do not all compete for
+    // the same task. A single worker always starts from the candidate with the highest priority.
+    int offset = concurrentPeeks.getAndIncrement();
     try (DbSession dbSession = dbClient.openSession(false)) {
-      Optional<CeQueueDto> dto = dbClient.ceQueueDao().peek(dbSession);
-      CeTask task = null;
-      if (dto.isPresent()) {
-        task = loadTask(dbSession, dto.get());
-        queueStatus.addInProgress();
+      List<CeQueueDto> candidates = prioritizer.sort(dbSession, dbClient.ceQueueDao().selectEligibleForPeek(dbSession, MAX_PEEK_CANDIDATES));
+      for (int i = 0; i < candidates.size(); i++) {
+        CeQueueDto candidate = candidates.get((offset + i) % candidates.size());
+        Optional<CeQueueDto> dto = dbClient.ceQueueDao().tryToPeek(dbSession, candidate.getUuid());
+        queueStatus.addPeekAttempt(dto.isPresent());
+        if (dto.isPresent()) {
+          CeTask task = loadTask(dbSession, dto.get());
+          queueStatus.addInProgress();
+          return Optional.of(task);
+        }
       }
-      return Optional.fromNullable(task);
-
+      return Optional.absent();
+    } finally {
+      concurrentPeeks.decrementAndGet();
     }
   }
 
@@ -45,6 +45,7 @@ import org.sonar.server.computation.task.projectanalysis.filemove.FileSimilarity
 import org.sonar.server.computation.task.projectanalysis.filemove.MutableMovedFilesRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.filemove.SourceSimilarityImpl;
 import org.sonar.server.computation.task.projectanalysis.filesystem.ComputationTempFolderProvider;
+import org.sonar.server.computation.task.projectanalysis.issue.BaseInputPrefetcher;
 import org.sonar.server.computation.task.projectanalysis.issue.BaseIssuesLoader;
 import org.sonar.server.computation.task.projectanalysis.issue.CloseIssuesOnRemovedComponentsVisitor;
 import org.sonar.server.computation.task.projectanalysis.issue.ComponentIssuesRepositoryImpl;
@@ -63,6 +64,7 @@ import org.sonar.server.computation.task.projectanalysis.issue.LoadComponentUuid
 import org.sonar.server.computation.task.projectanalysis.issue.MovedIssueVisitor;
 import org.sonar.server.computation.task.projectanalysis.issue.NewEffortAggregator;
 import org.sonar.server.computation.task.projectanalysis.issue.NewEffortCalculator;
+import org.sonar.server.computation.task.projectanalysis.issue.NewIssuesStatisticsVisitor;
 import org.sonar.server.computation.task.projectanalysis.issue.RuleRepositoryImpl;
 import org.sonar.server.computation.task.projectanalysis.issue.RuleTagsCopier;
 import org.sonar.server.computation.task.projectanalysis.issue.RuleTypeCopier;
@@ -105,6 +107,7 @@ import org.sonar.server.computation.task.projectanalysis.step.ReportComputationS
 import org.sonar.server.computation.task.projectanalysis.webhook.WebhookModule;
 import org.sonar.server.computation.task.step.ComputationStepExecutor;
 import org.sonar.server.computation.task.step.ComputationSteps;
+import org.sonar.server.computation.task.step.ComputationStepsProfile;
 import org.sonar.server.computation.taskprocessor.MutableTaskResultHolderImpl;
 import org.sonar.server.view.index.ViewIndex;
 
@@ -141,6 +144,7 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
     return Arrays.asList(
       PostProjectAnalysisTasksExecutor.class,
       ComputationStepExecutor.class,
+      ComputationStepsProfile.class,
 
       // File System
       new ComputationTempFolderProvider(),
@@ -209,6 +213,7 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
       IssueAssigner.class,
       IssueCounter.class,
       MovedIssueVisitor.class,
+      NewIssuesStatisticsVisitor.class,
 
       // visitors : order is important, measure computers must be executed at the end in order to access to every measures / issues
       LoadComponentUuidsHavingOpenIssuesVisitor.class,
@@ -223,6 +228,7 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
 
       UpdateConflictResolver.class,
       TrackerBaseInputFactory.class,
+      BaseInputPrefetcher.class,
       TrackerRawInputFactory.class,
       Tracker.class,
       TrackerExecution.class,
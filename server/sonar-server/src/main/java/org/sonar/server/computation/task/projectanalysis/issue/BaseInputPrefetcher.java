@@ -0,0 +1,179 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.source.FileSourceDto;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
+import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository.OriginalFile;
+
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
+
+/**
+ * Loads the base issues and line hashes required by {@link TrackerBaseInputFactory} ahead of {@link IntegrateIssuesVisitor}.
+ * <p>
+ * The components having open issues are known before issues are integrated, and so is the order in which the crawler
+ * visits them. Instead of two queries per component, the issues and line hashes of the next {@link #DEFAULT_BATCH_SIZE}
+ * components having open issues are loaded by two queries. Only a single batch is kept in memory. Components without
+ * open issues do not require any query, as their line hashes are useless to track raw issues.
+ * </p>
+ */
+public class BaseInputPrefetcher {
+
+  static final int DEFAULT_BATCH_SIZE = 100;
+
+  private static final Splitter END_OF_LINE_SPLITTER = Splitter.on('\n');
+
+  private final TreeRootHolder treeRootHolder;
+  private final ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues;
+  private final MovedFilesRepository movedFilesRepository;
+  private final BaseIssuesLoader baseIssuesLoader;
+  private final DbClient dbClient;
+  private final int batchSize;
+
+  /**
+   * Effective uuids of the components having open issues, in the order they are visited by the crawler. Lazy-loaded.
+   */
+  @CheckForNull
+  private List<String> visitedUuids;
+  private final Map<String, Integer> indexByUuid = new HashMap<>();
+  private final Set<String> fileUuids = new HashSet<>();
+
+  private final Set<String> batchUuids = new HashSet<>();
+  private final Map<String, List<DefaultIssue>> issuesByUuid = new HashMap<>();
+  private final Map<String, List<String>> lineHashesByUuid = new HashMap<>();
+
+  public BaseInputPrefetcher(TreeRootHolder treeRootHolder, ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues,
+    MovedFilesRepository movedFilesRepository, BaseIssuesLoader baseIssuesLoader, DbClient dbClient) {
+    this(treeRootHolder, componentsWithUnprocessedIssues, movedFilesRepository, baseIssuesLoader, dbClient, DEFAULT_BATCH_SIZE);
+  }
+
+  BaseInputPrefetcher(TreeRootHolder treeRootHolder, ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues,
+    MovedFilesRepository movedFilesRepository, BaseIssuesLoader baseIssuesLoader, DbClient dbClient, int batchSize) {
+    this.treeRootHolder = treeRootHolder;
+    this.componentsWithUnprocessedIssues = componentsWithUnprocessedIssues;
+    this.movedFilesRepository = movedFilesRepository;
+    this.baseIssuesLoader = baseIssuesLoader;
+    this.dbClient = dbClient;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Open issues of the component with the specified effective uuid, which is the uuid of the original file when the
+   * file has been moved.
+   */
+  public List<DefaultIssue> getIssues(String effectiveUuid) {
+    if (!prepareBatch(effectiveUuid)) {
+      return Collections.emptyList();
+    }
+    List<DefaultIssue> issues = issuesByUuid.remove(effectiveUuid);
+    return issues == null ? Collections.emptyList() : issues;
+  }
+
+  /**
+   * Line hashes of the file with the specified effective uuid. Empty if the file has no open issues or no source.
+   */
+  public List<String> getLineHashes(String effectiveUuid) {
+    if (!prepareBatch(effectiveUuid)) {
+      return Collections.emptyList();
+    }
+    List<String> lineHashes = lineHashesByUuid.remove(effectiveUuid);
+    return lineHashes == null ? Collections.emptyList() : lineHashes;
+  }
+
+  /**
+   * @return false if the component has no open issues, else its data are loaded in the current batch
+   */
+  private boolean prepareBatch(String effectiveUuid) {
+    List<String> uuids = loadVisitedUuids();
+    Integer index = indexByUuid.get(effectiveUuid);
+    if (index == null) {
+      return false;
+    }
+    if (!batchUuids.contains(effectiveUuid)) {
+      loadBatch(uuids.subList(index, Math.min(index + batchSize, uuids.size())));
+    }
+    return true;
+  }
+
+  private void loadBatch(List<String> uuids) {
+    batchUuids.clear();
+    issuesByUuid.clear();
+    lineHashesByUuid.clear();
+    batchUuids.addAll(uuids);
+
+    issuesByUuid.putAll(baseIssuesLoader.loadForComponentUuids(uuids));
+    List<String> batchFileUuids = new ArrayList<>();
+    for (String uuid : uuids) {
+      if (fileUuids.contains(uuid)) {
+        batchFileUuids.add(uuid);
+      }
+    }
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbClient.fileSourceDao().scrollLineHashesByFileUuids(dbSession, batchFileUuids, resultContext -> {
+        FileSourceDto dto = (FileSourceDto) resultContext.getResultObject();
+        String lineHashes = dto.getLineHashes();
+        if (lineHashes != null) {
+          lineHashesByUuid.put(dto.getFileUuid(), END_OF_LINE_SPLITTER.splitToList(lineHashes));
+        }
+      });
+    }
+  }
+
+  private List<String> loadVisitedUuids() {
+    if (visitedUuids == null) {
+      Set<String> uuidsWithOpenIssues = new HashSet<>(componentsWithUnprocessedIssues.getUuids());
+      List<String> uuids = new ArrayList<>();
+      new DepthTraversalTypeAwareCrawler(new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, POST_ORDER) {
+        @Override
+        public void visitAny(Component component) {
+          Optional<OriginalFile> originalFile = movedFilesRepository.getOriginalFile(component);
+          String effectiveUuid = originalFile.isPresent() ? originalFile.get().getUuid() : component.getUuid();
+          if (uuidsWithOpenIssues.contains(effectiveUuid) && !indexByUuid.containsKey(effectiveUuid)) {
+            indexByUuid.put(effectiveUuid, uuids.size());
+            uuids.add(effectiveUuid);
+            if (component.getType() == Component.Type.FILE) {
+              fileUuids.add(effectiveUuid);
+            }
+          }
+        }
+      }).visit(treeRootHolder.getRoot());
+      visitedUuids = uuids;
+    }
+    return visitedUuids;
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.issue.notification.NewIssuesStatistics;
+
+/**
+ * Computes the statistics of the new issues, globally and per assignee, while issues are integrated, so that
+ * notifications can be sent without reading again all the issues of the analysis.
+ * It must be executed after the visitors which change the assignee of issues.
+ */
+public class NewIssuesStatisticsVisitor extends IssueVisitor {
+
+  private final NewIssuesStatistics statistics = new NewIssuesStatistics();
+  private boolean hasIssueChangesToNotify = false;
+
+  @Override
+  public void onIssue(Component component, DefaultIssue issue) {
+    if (issue.isNew() && issue.resolution() == null) {
+      statistics.add(issue);
+    } else if (issue.isChanged() && issue.mustSendNotifications()) {
+      hasIssueChangesToNotify = true;
+    }
+  }
+
+  public NewIssuesStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Whether at least one of the visited existing issues has changes to be notified.
+   */
+  public boolean hasIssueChangesToNotify() {
+    return hasIssueChangesToNotify;
+  }
+}
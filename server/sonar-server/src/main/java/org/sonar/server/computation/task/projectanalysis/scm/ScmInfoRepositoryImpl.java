@@ -20,8 +20,11 @@
 package org.sonar.server.computation.task.projectanalysis.scm;
 
 import com.google.common.base.Optional;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import javax.annotation.CheckForNull;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbClient;
@@ -31,26 +34,59 @@ import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepository;
 
+import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
-
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
+
+/**
+ * SCM info of files is read from the report, or copied from the previous analysis when the scanner requested it.
+ * <p>
+ * Files are requested in the order they are visited by the crawler. When the SCM info of a file is requested for
+ * the first time, the one of the next {@link #DEFAULT_BATCH_SIZE} files of the tree is read too, so that the SCM info
+ * to be copied from the previous analysis is loaded by a single query per batch. The changesets of the report are read
+ * only once per file.
+ * </p>
+ */
 public class ScmInfoRepositoryImpl implements ScmInfoRepository {
 
+  static final int DEFAULT_BATCH_SIZE = 100;
+
   private static final Logger LOGGER = Loggers.get(ScmInfoRepositoryImpl.class);
 
+  private final TreeRootHolder treeRootHolder;
   private final BatchReportReader batchReportReader;
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final DbClient dbClient;
   private final SourceHashRepository sourceHashRepository;
+  private final int batchSize;
 
   private final Map<Component, ScmInfo> scmInfoCache = new HashMap<>();
+  /**
+   * Files of the tree, in the order they are visited by the crawler. Lazy-loaded.
+   */
+  @CheckForNull
+  private List<Component> files;
+  private final Map<Component, Integer> indexByFile = new HashMap<>();
 
-  public ScmInfoRepositoryImpl(BatchReportReader batchReportReader, AnalysisMetadataHolder analysisMetadataHolder, DbClient dbClient, SourceHashRepository sourceHashRepository) {
+  public ScmInfoRepositoryImpl(TreeRootHolder treeRootHolder, BatchReportReader batchReportReader, AnalysisMetadataHolder analysisMetadataHolder, DbClient dbClient,
+    SourceHashRepository sourceHashRepository) {
+    this(treeRootHolder, batchReportReader, analysisMetadataHolder, dbClient, sourceHashRepository, DEFAULT_BATCH_SIZE);
+  }
+
+  ScmInfoRepositoryImpl(TreeRootHolder treeRootHolder, BatchReportReader batchReportReader, AnalysisMetadataHolder analysisMetadataHolder, DbClient dbClient,
+    SourceHashRepository sourceHashRepository, int batchSize) {
+    this.treeRootHolder = treeRootHolder;
     this.batchReportReader = batchReportReader;
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.dbClient = dbClient;
     this.sourceHashRepository = sourceHashRepository;
+    this.batchSize = batchSize;
   }
 
   @Override
@@ -68,9 +104,8 @@ public class ScmInfoRepositoryImpl implements ScmInfoRepository {
       return optionalOf(scmInfo);
     }
 
-    scmInfo = getScmInfoForComponent(component);
-    scmInfoCache.put(component, scmInfo);
-    return optionalOf(scmInfo);
+    loadBatch(getBatch(component));
+    return optionalOf(scmInfoCache.get(component));
   }
 
   private static Optional<ScmInfo> optionalOf(ScmInfo scmInfo) {
@@ -80,38 +115,96 @@ public class ScmInfoRepositoryImpl implements ScmInfoRepository {
     return Optional.of(scmInfo);
   }
 
-  private ScmInfo getScmInfoForComponent(Component component) {
-    ScannerReport.Changesets changesets = batchReportReader.readChangesets(component.getReportAttributes().getRef());
-    if (changesets == null) {
-      LOGGER.trace("No SCM info for file '{}'", component.getKey());
-      return NoScmInfo.INSTANCE;
-    }
-    if (changesets.getCopyFromPrevious()) {
-      return getScmInfoFromDb(component);
+  /**
+   * The specified file followed by the next files of the tree, or only the specified file if it is not part of the tree
+   */
+  private List<Component> getBatch(Component file) {
+    List<Component> treeFiles = loadFiles();
+    Integer index = indexByFile.get(file);
+    if (index == null) {
+      return singletonList(file);
     }
-    return getScmInfoFromReport(component, changesets);
+    return treeFiles.subList(index, Math.min(index + batchSize, treeFiles.size()));
   }
 
-  private ScmInfo getScmInfoFromDb(Component file) {
-    if (analysisMetadataHolder.isFirstAnalysis()) {
-      return NoScmInfo.INSTANCE;
+  private List<Component> loadFiles() {
+    if (files == null) {
+      List<Component> treeFiles = new ArrayList<>();
+      new DepthTraversalTypeAwareCrawler(
+        new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, PRE_ORDER) {
+          @Override
+          public void visitFile(Component file) {
+            indexByFile.put(file, treeFiles.size());
+            treeFiles.add(file);
+          }
+        }).visit(treeRootHolder.getRoot());
+      files = treeFiles;
     }
+    return files;
+  }
 
-    LOGGER.trace("Reading SCM info from db for file '{}'", file.getKey());
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, file.getUuid());
-      if (dto == null || !sourceHashRepository.getRawSourceHash(file).equals(dto.getSrcHash())) {
-        return NoScmInfo.INSTANCE;
+  /**
+   * Reads the SCM info of the specified files which are not in cache yet. The changesets of each file are read once
+   * from the report, then the SCM info of all the files which must copy it from the previous analysis is loaded by
+   * as few queries as possible.
+   */
+  private void loadBatch(List<Component> batch) {
+    Map<String, Component> filesToCopyFromPrevious = new HashMap<>();
+    for (Component file : batch) {
+      if (!scmInfoCache.containsKey(file)) {
+        ScmInfo scmInfo = getScmInfoFromReport(file);
+        if (scmInfo == null) {
+          filesToCopyFromPrevious.put(file.getUuid(), file);
+        } else {
+          scmInfoCache.put(file, scmInfo);
+        }
       }
-      return DbScmInfo.create(file, dto.getSourceData().getLinesList()).or(NoScmInfo.INSTANCE);
+    }
+    if (!filesToCopyFromPrevious.isEmpty()) {
+      loadScmInfoFromDb(filesToCopyFromPrevious);
     }
   }
 
-  private static ScmInfo getScmInfoFromReport(Component file, ScannerReport.Changesets changesets) {
+  /**
+   * @return {@code null} if the SCM info must be copied from the previous analysis
+   */
+  @CheckForNull
+  private ScmInfo getScmInfoFromReport(Component file) {
+    ScannerReport.Changesets changesets = batchReportReader.readChangesets(file.getReportAttributes().getRef());
+    if (changesets == null) {
+      LOGGER.trace("No SCM info for file '{}'", file.getKey());
+      return NoScmInfo.INSTANCE;
+    }
+    if (changesets.getCopyFromPrevious()) {
+      return analysisMetadataHolder.isFirstAnalysis() ? NoScmInfo.INSTANCE : null;
+    }
     LOGGER.trace("Reading SCM info from report for file '{}'", file.getKey());
     return new ReportScmInfo(changesets);
   }
 
+  /**
+   * Loads SCM info of the specified files with as few queries as possible, decoding only the SCM fields of the lines,
+   * and puts it in cache.
+   */
+  private void loadScmInfoFromDb(Map<String, Component> filesByUuid) {
+    filesByUuid.values().forEach(file -> LOGGER.trace("Reading SCM info from db for file '{}'", file.getKey()));
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbClient.fileSourceDao().scrollScmDataByFileUuids(dbSession, filesByUuid.keySet(), resultContext -> {
+        FileSourceDto dto = (FileSourceDto) resultContext.getResultObject();
+        Component file = filesByUuid.get(dto.getFileUuid());
+        scmInfoCache.put(file, toScmInfo(file, dto));
+      });
+    }
+    filesByUuid.values().forEach(file -> scmInfoCache.putIfAbsent(file, NoScmInfo.INSTANCE));
+  }
+
+  private ScmInfo toScmInfo(Component file, FileSourceDto dto) {
+    if (!sourceHashRepository.getRawSourceHash(file).equals(dto.getSrcHash())) {
+      return NoScmInfo.INSTANCE;
+    }
+    return DbScmInfo.create(file, dto.getScmData()).or(NoScmInfo.INSTANCE);
+  }
+
   /**
    * Internally used to populate cache when no ScmInfo exist.
    */
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import org.sonar.api.config.Settings;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.purge.IdUuidPair;
@@ -29,6 +30,7 @@ import org.sonar.server.computation.task.projectanalysis.component.DisabledCompo
 import org.sonar.server.computation.task.projectanalysis.component.SettingsRepository;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.server.computation.dbcleaner.AsyncProjectCleaner;
 import org.sonar.server.computation.dbcleaner.ProjectCleaner;
 import org.sonar.server.computation.task.step.ComputationStep;
 
@@ -40,15 +42,17 @@ import static org.sonar.server.computation.task.projectanalysis.component.Crawle
 public class PurgeDatastoresStep implements ComputationStep {
 
   private final ProjectCleaner projectCleaner;
+  private final AsyncProjectCleaner asyncProjectCleaner;
   private final DbClient dbClient;
   private final DbIdsRepository dbIdsRepository;
   private final TreeRootHolder treeRootHolder;
   private final SettingsRepository settingsRepository;
   private final DisabledComponentsHolder disabledComponentsHolder;
 
-  public PurgeDatastoresStep(DbClient dbClient, ProjectCleaner projectCleaner, DbIdsRepository dbIdsRepository, TreeRootHolder treeRootHolder,
-    SettingsRepository settingsRepository, DisabledComponentsHolder disabledComponentsHolder) {
+  public PurgeDatastoresStep(DbClient dbClient, ProjectCleaner projectCleaner, AsyncProjectCleaner asyncProjectCleaner, DbIdsRepository dbIdsRepository,
+    TreeRootHolder treeRootHolder, SettingsRepository settingsRepository, DisabledComponentsHolder disabledComponentsHolder) {
     this.projectCleaner = projectCleaner;
+    this.asyncProjectCleaner = asyncProjectCleaner;
     this.dbClient = dbClient;
     this.dbIdsRepository = dbIdsRepository;
     this.treeRootHolder = treeRootHolder;
@@ -73,11 +77,14 @@ public class PurgeDatastoresStep implements ComputationStep {
   }
 
   private void execute(Component root) {
+    IdUuidPair idUuidPair = new IdUuidPair(dbIdsRepository.getComponentId(root), root.getUuid());
+    Settings settings = settingsRepository.getSettings(root);
     try (DbSession dbSession = dbClient.openSession(true)) {
-      IdUuidPair idUuidPair = new IdUuidPair(dbIdsRepository.getComponentId(root), root.getUuid());
-      projectCleaner.purge(dbSession, idUuidPair, settingsRepository.getSettings(root), disabledComponentsHolder.getUuids());
+      projectCleaner.purgeDisabledComponents(dbSession, idUuidPair, settings, disabledComponentsHolder.getUuids());
       dbSession.commit();
     }
+    // history is cleaned outside the analysis
+    asyncProjectCleaner.submit(idUuidPair, settings);
   }
 
   @Override
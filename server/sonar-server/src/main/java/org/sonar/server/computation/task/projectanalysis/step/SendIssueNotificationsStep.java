@@ -28,7 +28,9 @@ import org.sonar.core.util.CloseableIterator;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.issue.ComponentsWithUnprocessedIssues;
 import org.sonar.server.computation.task.projectanalysis.issue.IssueCache;
+import org.sonar.server.computation.task.projectanalysis.issue.NewIssuesStatisticsVisitor;
 import org.sonar.server.computation.task.projectanalysis.issue.RuleRepository;
 import org.sonar.server.computation.task.step.ComputationStep;
 import org.sonar.server.issue.notification.IssueChangeNotification;
@@ -39,9 +41,12 @@ import org.sonar.server.issue.notification.NewIssuesStatistics;
 import org.sonar.server.notification.NotificationService;
 
 /**
- * Reads issues from disk cache and send related notifications. For performance reasons,
+ * Sends the notifications related to the issues of the analysis. For performance reasons,
  * the standard notification DB queue is not used as a temporary storage. Notifications
  * are directly processed by {@link NotificationService}.
+ * <p>
+ * Statistics of new issues are computed by {@link NewIssuesStatisticsVisitor}. The disk cache of
+ * issues is read only when some existing issues have changes to be notified.
  */
 public class SendIssueNotificationsStep implements ComputationStep {
   /**
@@ -50,16 +55,21 @@ public class SendIssueNotificationsStep implements ComputationStep {
   static final Set<String> NOTIF_TYPES = ImmutableSet.of(IssueChangeNotification.TYPE, NewIssuesNotification.TYPE, MyNewIssuesNotification.MY_NEW_ISSUES_NOTIF_TYPE);
 
   private final IssueCache issueCache;
+  private final NewIssuesStatisticsVisitor newIssuesStatisticsVisitor;
+  private final ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues;
   private final RuleRepository rules;
   private final TreeRootHolder treeRootHolder;
   private final NotificationService service;
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private NewIssuesNotificationFactory newIssuesNotificationFactory;
 
-  public SendIssueNotificationsStep(IssueCache issueCache, RuleRepository rules, TreeRootHolder treeRootHolder,
+  public SendIssueNotificationsStep(IssueCache issueCache, NewIssuesStatisticsVisitor newIssuesStatisticsVisitor,
+    ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues, RuleRepository rules, TreeRootHolder treeRootHolder,
     NotificationService service, AnalysisMetadataHolder analysisMetadataHolder,
     NewIssuesNotificationFactory newIssuesNotificationFactory) {
     this.issueCache = issueCache;
+    this.newIssuesStatisticsVisitor = newIssuesStatisticsVisitor;
+    this.componentsWithUnprocessedIssues = componentsWithUnprocessedIssues;
     this.rules = rules;
     this.treeRootHolder = treeRootHolder;
     this.service = service;
@@ -76,13 +86,12 @@ public class SendIssueNotificationsStep implements ComputationStep {
   }
 
   private void doExecute(Component project) {
-    NewIssuesStatistics newIssuesStats = new NewIssuesStatistics();
-    CloseableIterator<DefaultIssue> issues = issueCache.traverse();
-    try {
-      processIssues(newIssuesStats, issues, project);
-    } finally {
-      issues.close();
+    if (hasIssueChangesToNotify()) {
+      try (CloseableIterator<DefaultIssue> issues = issueCache.traverse()) {
+        processIssueChanges(issues, project);
+      }
     }
+    NewIssuesStatistics newIssuesStats = newIssuesStatisticsVisitor.getStatistics();
     if (newIssuesStats.hasIssues()) {
       long analysisDate = analysisMetadataHolder.getAnalysisDate();
       sendNewIssuesNotification(newIssuesStats, project, analysisDate);
@@ -90,12 +99,18 @@ public class SendIssueNotificationsStep implements ComputationStep {
     }
   }
 
-  private void processIssues(NewIssuesStatistics newIssuesStats, CloseableIterator<DefaultIssue> issues, Component project) {
+  /**
+   * Issues of removed components are closed without being visited by {@link NewIssuesStatisticsVisitor}.
+   */
+  private boolean hasIssueChangesToNotify() {
+    return newIssuesStatisticsVisitor.hasIssueChangesToNotify() || !componentsWithUnprocessedIssues.getUuids().isEmpty();
+  }
+
+  private void processIssueChanges(CloseableIterator<DefaultIssue> issues, Component project) {
     while (issues.hasNext()) {
       DefaultIssue issue = issues.next();
-      if (issue.isNew() && issue.resolution() == null) {
-        newIssuesStats.add(issue);
-      } else if (issue.isChanged() && issue.mustSendNotifications()) {
+      boolean isNewOpenIssue = issue.isNew() && issue.resolution() == null;
+      if (!isNewOpenIssue && issue.isChanged() && issue.mustSendNotifications()) {
         sendIssueChangeNotification(issue, project);
       }
     }
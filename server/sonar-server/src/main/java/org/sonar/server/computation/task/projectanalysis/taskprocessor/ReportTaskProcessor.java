@@ -22,6 +22,8 @@ package org.sonar.server.computation.task.projectanalysis.taskprocessor;
 import java.util.Collections;
 import java.util.Set;
 import javax.annotation.CheckForNull;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.queue.CeTask;
 import org.sonar.ce.queue.CeTaskResult;
 import org.sonar.ce.settings.SettingsLoader;
@@ -29,36 +31,43 @@ import org.sonar.ce.taskprocessor.CeTaskProcessor;
 import org.sonar.core.platform.ComponentContainer;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.plugin.ce.ReportAnalysisComponentProvider;
+import org.sonar.server.computation.dbcleaner.AsyncProjectCleaner;
 import org.sonar.server.computation.task.container.TaskContainer;
 import org.sonar.server.computation.task.projectanalysis.container.ContainerFactory;
 import org.sonar.server.computation.task.step.ComputationStepExecutor;
+import org.sonar.server.computation.task.step.ComputationStepsProfile;
 import org.sonar.server.computation.taskprocessor.TaskResultHolder;
 import org.sonar.server.setting.ThreadLocalSettings;
 
 public class ReportTaskProcessor implements CeTaskProcessor {
 
+  private static final Logger LOGGER = Loggers.get(ReportTaskProcessor.class);
   private static final Set<String> HANDLED_TYPES = Collections.singleton(CeTaskTypes.REPORT);
 
   private final ContainerFactory containerFactory;
   private final ComponentContainer serverContainer;
+  private final AsyncProjectCleaner asyncProjectCleaner;
   @CheckForNull
   private final ReportAnalysisComponentProvider[] componentProviders;
 
   /**
    * Used when at least one Privileged plugin is installed
    */
-  public ReportTaskProcessor(ContainerFactory containerFactory, ComponentContainer serverContainer, ReportAnalysisComponentProvider[] componentProviders) {
+  public ReportTaskProcessor(ContainerFactory containerFactory, ComponentContainer serverContainer, AsyncProjectCleaner asyncProjectCleaner,
+    ReportAnalysisComponentProvider[] componentProviders) {
     this.containerFactory = containerFactory;
     this.serverContainer = serverContainer;
+    this.asyncProjectCleaner = asyncProjectCleaner;
     this.componentProviders = componentProviders;
   }
 
   /**
    * Used when no privileged plugin is installed
    */
-  public ReportTaskProcessor(ContainerFactory containerFactory, ComponentContainer serverContainer) {
+  public ReportTaskProcessor(ContainerFactory containerFactory, ComponentContainer serverContainer, AsyncProjectCleaner asyncProjectCleaner) {
     this.containerFactory = containerFactory;
     this.serverContainer = serverContainer;
+    this.asyncProjectCleaner = asyncProjectCleaner;
     this.componentProviders = null;
   }
 
@@ -69,18 +78,44 @@ public class ReportTaskProcessor implements CeTaskProcessor {
 
   @Override
   public CeTaskResult process(CeTask task) {
+    String projectUuid = task.getComponentUuid();
+    if (projectUuid == null) {
+      return execute(task);
+    }
+    // the history of the project must not be purged while its snapshots are being processed
+    asyncProjectCleaner.startAnalysis(projectUuid);
+    try {
+      return execute(task);
+    } finally {
+      asyncProjectCleaner.endAnalysis(projectUuid);
+    }
+  }
+
+  private CeTaskResult execute(CeTask task) {
     TaskContainer ceContainer = containerFactory.create(serverContainer, task, componentProviders);
 
     try {
       ceContainer.getComponentByType(ComputationStepExecutor.class).execute();
       return ceContainer.getComponentByType(TaskResultHolder.class).getResult();
     } finally {
+      persistStepsProfile(ceContainer);
       ensureThreadLocalIsClean(ceContainer);
 
       ceContainer.cleanup();
     }
   }
 
+  /**
+   * Measures are persisted even if a step failed. Failure to persist them must not hide the outcome of the task.
+   */
+  private static void persistStepsProfile(TaskContainer ceContainer) {
+    try {
+      ceContainer.getComponentByType(ComputationStepsProfile.class).persist();
+    } catch (RuntimeException e) {
+      LOGGER.error("Failed to persist profile of computation steps", e);
+    }
+  }
+
   /** safety call to clear ThreadLocal even if Pico container fails to call {@link SettingsLoader#stop()}) */
   private static void ensureThreadLocalIsClean(TaskContainer ceContainer) {
     ceContainer.getComponentByType(ThreadLocalSettings.class).unload();
@@ -0,0 +1,115 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.webhook;
+
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Sends webhooks out of the Compute Engine workers, so that the duration of tasks does not depend on the
+ * latency of the remote servers. Webhooks are sent in parallel. Deliveries that fail because of a network
+ * error or of a server error (HTTP 5xx) are retried with an exponential backoff. Each attempt is persisted
+ * by {@link WebhookDeliveryStorage}.
+ * <p>
+ * Pending deliveries are kept in memory. When more than {@link #MAX_PENDING_DELIVERIES} are pending, webhooks
+ * are sent synchronously by the caller thread, without retry. The same applies when the executor service rejects
+ * the delivery, for example during shutdown.
+ */
+@ComputeEngineSide
+public class WebhookDeliveryDispatcher {
+
+  static final int MAX_PENDING_DELIVERIES = 100;
+  static final int MAX_ATTEMPTS = 3;
+  static final long INITIAL_RETRY_DELAY_MS = 10_000L;
+
+  private static final Logger LOGGER = Loggers.get(WebhookDeliveryDispatcher.class);
+
+  private final WebhookCaller caller;
+  private final WebhookDeliveryStorage deliveryStorage;
+  private final WebhookDeliveryExecutorService executorService;
+  private final AtomicInteger pendingDeliveries = new AtomicInteger();
+
+  public WebhookDeliveryDispatcher(WebhookCaller caller, WebhookDeliveryStorage deliveryStorage, WebhookDeliveryExecutorService executorService) {
+    this.caller = caller;
+    this.deliveryStorage = deliveryStorage;
+    this.executorService = executorService;
+  }
+
+  public void dispatch(Webhook webhook, WebhookPayload payload) {
+    if (pendingDeliveries.incrementAndGet() > MAX_PENDING_DELIVERIES) {
+      pendingDeliveries.decrementAndGet();
+      LOGGER.debug("Too many pending webhooks, sending webhook '{}' synchronously", webhook.getName());
+      send(webhook, payload);
+      return;
+    }
+    try {
+      executorService.execute(() -> sendAsync(webhook, payload, 1));
+    } catch (RejectedExecutionException e) {
+      pendingDeliveries.decrementAndGet();
+      LOGGER.debug("Webhook '{}' rejected by executor service, sending it synchronously", webhook.getName());
+      send(webhook, payload);
+    }
+  }
+
+  int countPendingDeliveries() {
+    return pendingDeliveries.get();
+  }
+
+  private void sendAsync(Webhook webhook, WebhookPayload payload, int attempt) {
+    try {
+      WebhookDelivery delivery = send(webhook, payload);
+      if (attempt < MAX_ATTEMPTS && isRetriable(delivery)) {
+        long delayMs = INITIAL_RETRY_DELAY_MS << (attempt - 1);
+        executorService.schedule(() -> sendAsync(webhook, payload, attempt + 1), delayMs, TimeUnit.MILLISECONDS);
+        return;
+      }
+    } catch (RuntimeException e) {
+      LOGGER.error("Failed to deliver webhook '{}' | url={}", webhook.getName(), webhook.getUrl(), e);
+    }
+    pendingDeliveries.decrementAndGet();
+  }
+
+  private WebhookDelivery send(Webhook webhook, WebhookPayload payload) {
+    WebhookDelivery delivery = caller.call(webhook, payload);
+    log(delivery);
+    deliveryStorage.persist(delivery);
+    return delivery;
+  }
+
+  private static boolean isRetriable(WebhookDelivery delivery) {
+    return delivery.getError().isPresent() || delivery.getHttpStatus().filter(status -> status >= 500).isPresent();
+  }
+
+  private static void log(WebhookDelivery delivery) {
+    Optional<String> error = delivery.getErrorMessage();
+    if (error.isPresent()) {
+      LOGGER.debug("Failed to send webhook '{}' | url={} | message={}",
+        delivery.getWebhook().getName(), delivery.getWebhook().getUrl(), error.get());
+    } else {
+      LOGGER.debug("Sent webhook '{}' | url={} | time={}ms | status={}",
+        delivery.getWebhook().getName(), delivery.getWebhook().getUrl(), delivery.getDurationInMs().orElse(-1), delivery.getHttpStatus().orElse(-1));
+    }
+  }
+}
@@ -30,6 +30,8 @@ public final class ComputationStepExecutor {
 
   private final ComputationSteps steps;
   @CheckForNull
+  private final ComputationStepsProfile profile;
+  @CheckForNull
   private final Listener listener;
 
   /**
@@ -41,7 +43,12 @@ public final class ComputationStepExecutor {
   }
 
   public ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener) {
+    this(steps, null, listener);
+  }
+
+  public ComputationStepExecutor(ComputationSteps steps, @Nullable ComputationStepsProfile profile, @Nullable Listener listener) {
     this.steps = steps;
+    this.profile = profile;
     this.listener = listener;
   }
 
@@ -61,8 +68,16 @@ public final class ComputationStepExecutor {
   private void executeSteps(Profiler stepProfiler) {
     for (ComputationStep step : steps.instances()) {
       stepProfiler.start();
-      step.execute();
-      stepProfiler.stopDebug(step.getDescription());
+      ComputationStepsProfile.Measure measure = profile == null ? null : profile.start();
+      try {
+        step.execute();
+        stepProfiler.stopDebug(step.getDescription());
+      } finally {
+        if (measure != null) {
+          // a failing step is measured too, as it is the one to be investigated
+          measure.stop(step.getDescription());
+        }
+      }
     }
   }
 
@@ -0,0 +1,193 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeTaskStepDto;
+import org.sonar.db.monitoring.SqlStatementStatistics;
+
+import static java.util.Collections.singleton;
+
+/**
+ * Resources consumed by each {@link ComputationStep} of the current task: wall time, CPU time, memory allocated
+ * and SQL statements executed by the thread running the step. Measures are persisted in table CE_TASK_STEPS,
+ * keyed by the UUID of the task.
+ */
+public class ComputationStepsProfile {
+
+  private static final long NANOS_PER_MS = 1_000_000L;
+
+  private final DbClient dbClient;
+  private final CeTask ceTask;
+  private final SqlStatementStatistics sqlStatistics;
+  private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+  private final List<StepProfile> steps = new ArrayList<>();
+
+  public ComputationStepsProfile(DbClient dbClient, CeTask ceTask) {
+    this.dbClient = dbClient;
+    this.ceTask = ceTask;
+    this.sqlStatistics = dbClient.getMyBatis().getStatementStatistics();
+  }
+
+  /**
+   * Starts measuring the resources consumed by the current thread. Measure is recorded by {@link Measure#stop(String)}.
+   */
+  public Measure start() {
+    return new Measure();
+  }
+
+  public List<StepProfile> getSteps() {
+    return Collections.unmodifiableList(steps);
+  }
+
+  /**
+   * Replaces the measures persisted for the task, if any (task may have been restarted)
+   */
+  public void persist() {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbClient.ceTaskStepDao().deleteByTaskUuids(dbSession, singleton(ceTask.getUuid()));
+      for (int i = 0; i < steps.size(); i++) {
+        StepProfile step = steps.get(i);
+        dbClient.ceTaskStepDao().insert(dbSession, new CeTaskStepDto()
+          .setTaskUuid(ceTask.getUuid())
+          .setStepIndex(i)
+          .setName(step.getName())
+          .setWallTimeMs(step.getWallTimeMs())
+          .setCpuTimeMs(step.getCpuTimeMs())
+          .setAllocatedBytes(step.getAllocatedBytes())
+          .setSqlStatements(step.getSqlStatements())
+          .setSqlRows(step.getSqlRows()));
+      }
+      dbSession.commit();
+    }
+  }
+
+  @CheckForNull
+  private Long currentThreadCpuTimeNs() {
+    if (threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled()) {
+      return threadMXBean.getCurrentThreadCpuTime();
+    }
+    return null;
+  }
+
+  @CheckForNull
+  private Long currentThreadAllocatedBytes() {
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+      if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+        return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return null;
+  }
+
+  @CheckForNull
+  private static Long delta(@Nullable Long start, @Nullable Long end, long divisor) {
+    if (start == null || end == null) {
+      return null;
+    }
+    return (end - start) / divisor;
+  }
+
+  public class Measure {
+    private final long startNs = System.nanoTime();
+    private final Long startCpuTimeNs = currentThreadCpuTimeNs();
+    private final Long startAllocatedBytes = currentThreadAllocatedBytes();
+    private final long startSqlStatements = sqlStatistics.getCurrentThreadExecutions();
+    private final long startSqlRows = sqlStatistics.getCurrentThreadRows();
+
+    private Measure() {
+      // created by ComputationStepsProfile#start()
+    }
+
+    public void stop(String stepName) {
+      steps.add(new StepProfile(
+        stepName,
+        (System.nanoTime() - startNs) / NANOS_PER_MS,
+        delta(startCpuTimeNs, currentThreadCpuTimeNs(), NANOS_PER_MS),
+        delta(startAllocatedBytes, currentThreadAllocatedBytes(), 1L),
+        sqlStatistics.getCurrentThreadExecutions() - startSqlStatements,
+        sqlStatistics.getCurrentThreadRows() - startSqlRows));
+    }
+  }
+
+  @Immutable
+  public static final class StepProfile {
+    private final String name;
+    private final long wallTimeMs;
+    @CheckForNull
+    private final Long cpuTimeMs;
+    @CheckForNull
+    private final Long allocatedBytes;
+    private final long sqlStatements;
+    private final long sqlRows;
+
+    StepProfile(String name, long wallTimeMs, @Nullable Long cpuTimeMs, @Nullable Long allocatedBytes, long sqlStatements, long sqlRows) {
+      this.name = name;
+      this.wallTimeMs = wallTimeMs;
+      this.cpuTimeMs = cpuTimeMs;
+      this.allocatedBytes = allocatedBytes;
+      this.sqlStatements = sqlStatements;
+      this.sqlRows = sqlRows;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getWallTimeMs() {
+      return wallTimeMs;
+    }
+
+    /**
+     * @return null if measurement of thread CPU time is not supported or disabled in the JVM
+     */
+    @CheckForNull
+    public Long getCpuTimeMs() {
+      return cpuTimeMs;
+    }
+
+    /**
+     * @return null if measurement of thread memory allocation is not supported or disabled in the JVM
+     */
+    @CheckForNull
+    public Long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+
+    public long getSqlStatements() {
+      return sqlStatements;
+    }
+
+    public long getSqlRows() {
+      return sqlRows;
+    }
+  }
+}
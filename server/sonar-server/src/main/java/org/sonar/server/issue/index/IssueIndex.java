@@ -29,7 +29,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -43,8 +42,6 @@ import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.StringUtils;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.action.search.SearchType;
-import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
@@ -61,12 +58,10 @@ import org.elasticsearch.search.aggregations.metrics.min.Min;
 import org.elasticsearch.search.aggregations.metrics.sum.SumBuilder;
 import org.joda.time.Duration;
 import org.sonar.api.issue.Issue;
-import org.sonar.api.resources.Scopes;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.NonNullInputFunction;
 import org.sonar.core.util.stream.Collectors;
-import org.sonar.db.component.ComponentDto;
 import org.sonar.server.es.BaseIndex;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsUtils;
@@ -221,12 +216,18 @@ public class IssueIndex extends BaseIndex {
    * Optimization - do not send ES request to all shards when scope is restricted
    * to a set of projects. Because project UUID is used for routing, the request
    * can be sent to only the shards containing the specified projects.
-   * Note that sticky facets may involve all projects, so this optimization must be
-   * disabled when facets are enabled.
+   * Note that the sticky facet on projects involves all projects, so this optimization must be
+   * disabled when this facet is enabled. The other facets keep the filter on projects.
    */
   private static void configureRouting(IssueQuery query, SearchOptions options, SearchRequestBuilder requestBuilder) {
+    if (!options.getFacets().contains(PARAM_PROJECT_UUIDS)) {
+      configureRouting(query, requestBuilder);
+    }
+  }
+
+  private static void configureRouting(IssueQuery query, SearchRequestBuilder requestBuilder) {
     Collection<String> uuids = query.projectUuids();
-    if (!uuids.isEmpty() && options.getFacets().isEmpty()) {
+    if (!uuids.isEmpty()) {
       requestBuilder.setRouting(uuids.toArray(new String[uuids.size()]));
     }
   }
@@ -438,7 +439,7 @@ public class IssueIndex extends BaseIndex {
     long startTime;
     Date createdAfter = query.createdAfter();
     if (createdAfter == null) {
-      Optional<Long> minDate = getMinCreatedAt(filters, esQuery);
+      Optional<Long> minDate = getMinCreatedAt(query, filters, esQuery);
       if (!minDate.isPresent()) {
         return Optional.empty();
       }
@@ -475,11 +476,12 @@ public class IssueIndex extends BaseIndex {
     return Optional.of(dateHistogram);
   }
 
-  private Optional<Long> getMinCreatedAt(Map<String, QueryBuilder> filters, QueryBuilder esQuery) {
+  private Optional<Long> getMinCreatedAt(IssueQuery query, Map<String, QueryBuilder> filters, QueryBuilder esQuery) {
     String facetNameAndField = IssueIndexDefinition.FIELD_ISSUE_FUNC_CREATED_AT;
     SearchRequestBuilder esRequest = getClient()
       .prepareSearch(IssueIndexDefinition.INDEX_TYPE_ISSUE)
       .setSize(0);
+    configureRouting(query, esRequest);
     BoolQueryBuilder esFilter = boolQuery();
     filters.values().stream().filter(Objects::nonNull).forEach(esFilter::must);
     if (esFilter.hasClauses()) {
@@ -640,6 +642,7 @@ public class IssueIndex extends BaseIndex {
       .prepareSearch(IssueIndexDefinition.INDEX_TYPE_ISSUE)
       // Avoids returning search hits
       .setSize(0);
+    configureRouting(query, requestBuilder);
 
     requestBuilder.setQuery(boolQuery().must(QueryBuilders.matchAllQuery()).filter(createBoolFilter(query)));
 
@@ -665,42 +668,4 @@ public class IssueIndex extends BaseIndex {
     }
     return boolQuery;
   }
-
-  /**
-   * Return non closed issues for a given project, module, or file. Other kind of components are not allowed.
-   * Only fields needed for the batch are returned.
-   */
-  public Iterator<IssueDoc> selectIssuesForBatch(ComponentDto component) {
-    BoolQueryBuilder filter = boolQuery()
-      .must(createAuthorizationFilter(true))
-      .mustNot(termsQuery(IssueIndexDefinition.FIELD_ISSUE_STATUS, Issue.STATUS_CLOSED));
-
-    switch (component.scope()) {
-      case Scopes.PROJECT:
-        filter.must(termsQuery(IssueIndexDefinition.FIELD_ISSUE_MODULE_PATH, component.uuid()));
-        break;
-      case Scopes.FILE:
-        filter.must(termsQuery(IssueIndexDefinition.FIELD_ISSUE_COMPONENT_UUID, component.uuid()));
-        break;
-      default:
-        throw new IllegalStateException(format("Component of scope '%s' is not allowed", component.scope()));
-    }
-
-    SearchRequestBuilder requestBuilder = getClient()
-      .prepareSearch(IssueIndexDefinition.INDEX_TYPE_ISSUE)
-      .setSearchType(SearchType.SCAN)
-      .setScroll(TimeValue.timeValueMinutes(EsUtils.SCROLL_TIME_IN_MINUTES))
-      .setSize(10_000)
-      .setFetchSource(
-        new String[] {IssueIndexDefinition.FIELD_ISSUE_KEY, IssueIndexDefinition.FIELD_ISSUE_RULE_KEY, IssueIndexDefinition.FIELD_ISSUE_MODULE_UUID,
-          IssueIndexDefinition.FIELD_ISSUE_FILE_PATH, IssueIndexDefinition.FIELD_ISSUE_SEVERITY, IssueIndexDefinition.FIELD_ISSUE_MANUAL_SEVERITY,
-          IssueIndexDefinition.FIELD_ISSUE_RESOLUTION, IssueIndexDefinition.FIELD_ISSUE_STATUS, IssueIndexDefinition.FIELD_ISSUE_ASSIGNEE,
-          IssueIndexDefinition.FIELD_ISSUE_LINE, IssueIndexDefinition.FIELD_ISSUE_MESSAGE, IssueIndexDefinition.FIELD_ISSUE_CHECKSUM,
-          IssueIndexDefinition.FIELD_ISSUE_FUNC_CREATED_AT},
-        null)
-      .setQuery(boolQuery().must(matchAllQuery()).filter(filter));
-    SearchResponse response = requestBuilder.get();
-
-    return EsUtils.scroll(getClient(), response.getScrollId(), DOC_CONVERTER);
-  }
 }
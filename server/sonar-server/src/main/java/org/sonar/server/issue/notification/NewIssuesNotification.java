@@ -21,18 +21,20 @@ package org.sonar.server.issue.notification;
 
 import com.google.common.collect.Multiset;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.Severity;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.Duration;
 import org.sonar.api.utils.Durations;
+import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
-import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.server.issue.notification.NewIssuesStatistics.Metric;
-import org.sonar.server.user.index.UserDoc;
 import org.sonar.server.user.index.UserIndex;
 
 import static org.sonar.server.issue.notification.NewIssuesEmailTemplate.FIELD_PROJECT_DATE;
@@ -48,6 +50,7 @@ public class NewIssuesNotification extends Notification {
   private static final String COUNT = ".count";
   private static final String LABEL = ".label";
   private static final String DOT = ".";
+  private static final int MAX_ITEMS_PER_METRIC = 5;
 
   private final transient UserIndex userIndex;
   private final transient DbClient dbClient;
@@ -92,31 +95,32 @@ public class NewIssuesNotification extends Notification {
 
   protected void setRuleStatistics(DbSession dbSession, NewIssuesStatistics.Stats stats) {
     Metric metric = Metric.RULE;
-    List<Multiset.Entry<String>> metricStats = stats.statsForMetric(metric);
-    for (int i = 0; i < 5 && i < metricStats.size(); i++) {
-      String ruleKey = metricStats.get(i).getElement();
-      RuleDefinitionDto rule = dbClient.ruleDao().selectOrFailDefinitionByKey(dbSession, RuleKey.parse(ruleKey));
-      String name = rule.getName() + " (" + rule.getLanguage() + ")";
-      setFieldValue(metric + DOT + (i + 1) + LABEL, name);
-      setFieldValue(metric + DOT + (i + 1) + COUNT, String.valueOf(metricStats.get(i).getCount()));
+    List<Multiset.Entry<String>> metricStats = topStats(stats, metric);
+    if (metricStats.isEmpty()) {
+      return;
     }
+    List<RuleKey> ruleKeys = metricStats.stream().map(e -> RuleKey.parse(e.getElement())).collect(Collectors.toList(metricStats.size()));
+    Map<String, String> namesByKey = dbClient.ruleDao().selectDefinitionByKeys(dbSession, ruleKeys).stream()
+      .collect(Collectors.uniqueIndex(rule -> rule.getKey().toString(), rule -> rule.getName() + " (" + rule.getLanguage() + ")"));
+    setLabelsAndCounts(metric, metricStats, namesByKey);
   }
 
   protected void setComponentsStatistics(DbSession dbSession, NewIssuesStatistics.Stats stats) {
     Metric metric = Metric.COMPONENT;
-    List<Multiset.Entry<String>> componentStats = stats.statsForMetric(metric);
-    for (int i = 0; i < 5 && i < componentStats.size(); i++) {
-      String uuid = componentStats.get(i).getElement();
-      String componentName = dbClient.componentDao().selectOrFailByUuid(dbSession, uuid).name();
-      setFieldValue(metric + DOT + (i + 1) + LABEL, componentName);
-      setFieldValue(metric + DOT + (i + 1) + COUNT, String.valueOf(componentStats.get(i).getCount()));
+    List<Multiset.Entry<String>> componentStats = topStats(stats, metric);
+    if (componentStats.isEmpty()) {
+      return;
     }
+    List<String> uuids = componentStats.stream().map(Multiset.Entry::getElement).collect(Collectors.toList(componentStats.size()));
+    Map<String, String> namesByUuid = dbClient.componentDao().selectByUuids(dbSession, uuids).stream()
+      .collect(Collectors.uniqueIndex(ComponentDto::uuid, ComponentDto::name));
+    setLabelsAndCounts(metric, componentStats, namesByUuid);
   }
 
   protected void setTagsStatistics(NewIssuesStatistics.Stats stats) {
     Metric metric = Metric.TAG;
-    List<Multiset.Entry<String>> metricStats = stats.statsForMetric(metric);
-    for (int i = 0; i < 5 && i < metricStats.size(); i++) {
+    List<Multiset.Entry<String>> metricStats = topStats(stats, metric);
+    for (int i = 0; i < metricStats.size(); i++) {
       setFieldValue(metric + DOT + (i + 1) + COUNT, String.valueOf(metricStats.get(i).getCount()));
       setFieldValue(metric + DOT + (i + 1) + ".label", metricStats.get(i).getElement());
     }
@@ -124,12 +128,28 @@ public class NewIssuesNotification extends Notification {
 
   protected void setAssigneesStatistics(NewIssuesStatistics.Stats stats) {
     Metric metric = Metric.ASSIGNEE;
+    List<Multiset.Entry<String>> metricStats = topStats(stats, metric);
+    if (metricStats.isEmpty()) {
+      return;
+    }
+    List<String> logins = metricStats.stream().map(Multiset.Entry::getElement).collect(Collectors.toList(metricStats.size()));
+    Map<String, String> namesByLogin = new HashMap<>();
+    userIndex.getByLogins(logins).forEach(user -> namesByLogin.put(user.login(), user.name()));
+    setLabelsAndCounts(metric, metricStats, namesByLogin);
+  }
+
+  private static List<Multiset.Entry<String>> topStats(NewIssuesStatistics.Stats stats, Metric metric) {
     List<Multiset.Entry<String>> metricStats = stats.statsForMetric(metric);
-    for (int i = 0; i < 5 && i < metricStats.size(); i++) {
-      String login = metricStats.get(i).getElement();
-      UserDoc user = userIndex.getNullableByLogin(login);
-      String name = user == null ? login : user.name();
-      setFieldValue(metric + DOT + (i + 1) + LABEL, name);
+    return metricStats.subList(0, Math.min(MAX_ITEMS_PER_METRIC, metricStats.size()));
+  }
+
+  /**
+   * Elements which are not found in {@code labelsByElement} are labeled by themselves.
+   */
+  private void setLabelsAndCounts(Metric metric, List<Multiset.Entry<String>> metricStats, Map<String, String> labelsByElement) {
+    for (int i = 0; i < metricStats.size(); i++) {
+      String element = metricStats.get(i).getElement();
+      setFieldValue(metric + DOT + (i + 1) + LABEL, labelsByElement.getOrDefault(element, element));
       setFieldValue(metric + DOT + (i + 1) + COUNT, String.valueOf(metricStats.get(i).getCount()));
     }
   }
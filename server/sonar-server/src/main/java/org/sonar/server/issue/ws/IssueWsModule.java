@@ -48,6 +48,7 @@ public class IssueWsModule extends Module {
       IssueQueryService.class,
       IssuesWs.class,
       AvatarFactoryImpl.class,
+      SearchReferenceCache.class,
       SearchResponseLoader.class,
       SearchResponseFormat.class,
       OperationResponseWriter.class,
@@ -80,6 +80,7 @@ import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_BEF
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_IN_LAST;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_DIRECTORIES;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_FILE_UUIDS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_INDEXED_FIELDS_ONLY;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_ISSUES;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_LANGUAGES;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_MODULE_UUIDS;
@@ -149,6 +150,13 @@ public class SearchAction implements IssuesWsAction {
       .setDescription("Comma-separated list of the optional fields to be returned in response. Action plans are dropped in 5.5, it is not returned in the response.")
       .setPossibleValues(SearchAdditionalField.possibleValues());
     addComponentRelatedParams(action);
+    action.createParam(PARAM_INDEXED_FIELDS_ONLY)
+      .setSince("6.4")
+      .setDescription("If true, issues are built from the fields stored in the search index, without loading them from database. " +
+        "Response fields 'textRange' and 'flows' are not returned. " +
+        "Rules, users, components and organizations can be up to one minute out of date.")
+      .setBooleanPossibleValues()
+      .setDefaultValue(false);
     action.createParam(PARAM_ISSUES)
       .setDescription("Comma-separated list of issue keys")
       .setExampleValue("5bccd6e8-f525-43a2-8d76-fcb13dde79ef");
@@ -316,7 +324,9 @@ public class SearchAction implements IssuesWsAction {
       completeFacets(facets, request, wsRequest);
       collectFacets(collector, facets);
     }
-    SearchResponseData data = searchResponseLoader.load(collector, facets);
+    SearchResponseData data = wsRequest.mandatoryParamAsBoolean(PARAM_INDEXED_FIELDS_ONLY)
+      ? searchResponseLoader.loadFromIndex(collector, result.getDocs(), facets)
+      : searchResponseLoader.load(collector, facets);
 
     // format response
 
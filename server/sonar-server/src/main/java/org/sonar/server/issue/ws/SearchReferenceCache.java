@@ -0,0 +1,118 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.server.ServerSide;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.user.UserDto;
+
+/**
+ * In-process cache of the rules, users, components and organizations referenced by the responses of
+ * api/issues/search when issues are loaded from the search index only
+ * (see {@link SearchResponseLoader#loadFromIndex(SearchResponseLoader.Collector, List, org.sonar.server.es.Facets)}).
+ * <p>
+ * Entries are evicted one minute after being loaded, so changes are visible after at most one minute.
+ * This is the same kind of staleness as the one of the search index, which is refreshed asynchronously.
+ * Keys that do not exist in database are not cached.
+ * </p>
+ */
+@ServerSide
+public class SearchReferenceCache {
+
+  private static final long EXPIRATION_IN_SECONDS = 60L;
+  private static final long MAX_SIZE = 10_000L;
+
+  private final DbClient dbClient;
+  private final Cache<RuleKey, RuleDefinitionDto> rulesByKey;
+  private final Cache<String, UserDto> usersByLogin;
+  private final Cache<String, ComponentDto> componentsByUuid;
+  private final Cache<String, OrganizationDto> organizationsByUuid;
+
+  public SearchReferenceCache(DbClient dbClient) {
+    this(dbClient, EXPIRATION_IN_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @VisibleForTesting
+  SearchReferenceCache(DbClient dbClient, long expiration, TimeUnit expirationUnit) {
+    this.dbClient = dbClient;
+    this.rulesByKey = newCache(expiration, expirationUnit);
+    this.usersByLogin = newCache(expiration, expirationUnit);
+    this.componentsByUuid = newCache(expiration, expirationUnit);
+    this.organizationsByUuid = newCache(expiration, expirationUnit);
+  }
+
+  private static <K, V> Cache<K, V> newCache(long expiration, TimeUnit expirationUnit) {
+    return CacheBuilder.newBuilder()
+      .maximumSize(MAX_SIZE)
+      .expireAfterWrite(expiration, expirationUnit)
+      .build();
+  }
+
+  public List<RuleDefinitionDto> getRules(DbSession dbSession, Collection<RuleKey> keys) {
+    return get(rulesByKey, keys, missing -> dbClient.ruleDao().selectDefinitionByKeys(dbSession, missing), RuleDefinitionDto::getKey);
+  }
+
+  public List<UserDto> getUsers(DbSession dbSession, Collection<String> logins) {
+    return get(usersByLogin, logins, missing -> dbClient.userDao().selectByLogins(dbSession, missing), UserDto::getLogin);
+  }
+
+  public List<ComponentDto> getComponents(DbSession dbSession, Collection<String> uuids) {
+    return get(componentsByUuid, uuids, missing -> dbClient.componentDao().selectByUuids(dbSession, missing), ComponentDto::uuid);
+  }
+
+  public List<OrganizationDto> getOrganizations(DbSession dbSession, Collection<String> uuids) {
+    return get(organizationsByUuid, uuids, missing -> dbClient.organizationDao().selectByUuids(dbSession, missing), OrganizationDto::getUuid);
+  }
+
+  private static <K, V> List<V> get(Cache<K, V> cache, Collection<K> keys, Function<Set<K>, List<V>> loader, Function<V, K> keyFunction) {
+    List<V> result = new ArrayList<>(keys.size());
+    Set<K> missingKeys = new HashSet<>();
+    for (K key : keys) {
+      V value = cache.getIfPresent(key);
+      if (value == null) {
+        missingKeys.add(key);
+      } else {
+        result.add(value);
+      }
+    }
+    if (!missingKeys.isEmpty()) {
+      for (V value : loader.apply(missingKeys)) {
+        cache.put(keyFunction.apply(value), value);
+        result.add(value);
+      }
+    }
+    return result;
+  }
+}
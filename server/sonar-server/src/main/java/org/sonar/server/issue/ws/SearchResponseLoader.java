@@ -28,6 +28,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
+import org.sonar.api.resources.Scopes;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.DbClient;
@@ -39,6 +42,7 @@ import org.sonar.db.protobuf.DbIssues;
 import org.sonar.server.es.Facets;
 import org.sonar.server.issue.ActionFinder;
 import org.sonar.server.issue.TransitionService;
+import org.sonar.server.issue.index.IssueDoc;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.client.issue.IssuesWsParameters;
 
@@ -58,12 +62,15 @@ public class SearchResponseLoader {
   private final DbClient dbClient;
   private final ActionFinder actionService;
   private final TransitionService transitionService;
+  private final SearchReferenceCache referenceCache;
 
-  public SearchResponseLoader(UserSession userSession, DbClient dbClient, ActionFinder actionService, TransitionService transitionService) {
+  public SearchResponseLoader(UserSession userSession, DbClient dbClient, ActionFinder actionService, TransitionService transitionService,
+    SearchReferenceCache referenceCache) {
     this.userSession = userSession;
     this.dbClient = dbClient;
     this.actionService = actionService;
     this.transitionService = transitionService;
+    this.referenceCache = referenceCache;
   }
 
   /**
@@ -87,6 +94,82 @@ public class SearchResponseLoader {
     }
   }
 
+  /**
+   * Same as {@link #load(Collector, Facets)}, except that issues are not loaded from database but
+   * built from the documents returned by Elasticsearch. Text ranges and flows of issues are not
+   * available. Rules, users, components and organizations are loaded through {@link SearchReferenceCache}.
+   * Comments, when requested, are still loaded from database.
+   */
+  public SearchResponseData loadFromIndex(Collector collector, List<IssueDoc> issueDocs, @Nullable Facets facets) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      SearchResponseData result = new SearchResponseData(issueDocs.stream().map(SearchResponseLoader::toIssueDto).collect(Collectors.toList()));
+      collector.collect(result.getIssues());
+
+      if (collector.contains(RULES)) {
+        result.setRules(referenceCache.getRules(dbSession, collector.get(RULES)));
+      }
+      // order is important - loading of comments complete the list of users
+      loadComments(collector, dbSession, result);
+      if (collector.contains(USERS)) {
+        result.setUsers(referenceCache.getUsers(dbSession, collector.get(USERS)));
+      }
+      loadComponentsFromCache(collector, dbSession, result);
+      Collection<ComponentDto> components = result.getComponents();
+      if (components != null) {
+        referenceCache.getOrganizations(dbSession, components.stream().map(ComponentDto::getOrganizationUuid).collect(Collectors.toSet()))
+          .forEach(result::addOrganization);
+      }
+      loadActionsAndTransitions(collector, result);
+      completeTotalEffortFromFacet(facets, result);
+      return result;
+    }
+  }
+
+  private static IssueDto toIssueDto(IssueDoc doc) {
+    Duration effort = doc.effort();
+    IssueDto dto = new IssueDto()
+      .setKee(doc.key())
+      .setComponentUuid(doc.componentUuid())
+      .setModuleUuid(doc.moduleUuid())
+      .setProjectUuid(doc.projectUuid())
+      .setRuleKey(doc.ruleKey().repository(), doc.ruleKey().rule())
+      .setLanguage(doc.language())
+      .setSeverity(doc.severity())
+      .setManualSeverity(doc.isManualSeverity())
+      .setMessage(doc.message())
+      .setLine(doc.line())
+      .setGap(doc.gap())
+      .setEffort(effort == null ? null : effort.toMinutes())
+      .setStatus(doc.status())
+      .setResolution(doc.resolution())
+      .setChecksum(doc.checksum())
+      .setAssignee(doc.assignee())
+      .setAuthorLogin(doc.authorLogin())
+      .setTags(doc.tags())
+      .setIssueCreationDate(doc.creationDate())
+      .setIssueUpdateDate(doc.updateDate())
+      .setIssueCloseDate(doc.closeDate());
+    RuleType type = doc.type();
+    if (type != null) {
+      dto.setType(type);
+    }
+    return dto;
+  }
+
+  private void loadComponentsFromCache(Collector collector, DbSession dbSession, SearchResponseData result) {
+    List<ComponentDto> components = referenceCache.getComponents(dbSession, collector.getComponentUuids());
+    result.addComponents(components);
+    // same as ComponentDao#selectSubProjectsByComponentUuids()
+    Set<String> rootUuids = components.stream().filter(ComponentDto::isEnabled).map(ComponentDto::getRootUuid).collect(Collectors.toSet());
+    result.addComponents(referenceCache.getComponents(dbSession, rootUuids).stream()
+      .filter(root -> root.isEnabled() && Scopes.PROJECT.equals(root.scope()))
+      .collect(Collectors.toList()));
+    for (ComponentDto component : result.getComponents()) {
+      collector.addProjectUuid(component.projectUuid());
+    }
+    result.addComponents(referenceCache.getComponents(dbSession, collector.getProjectUuids()));
+  }
+
   private void loadUsers(Collector collector, DbSession dbSession, SearchResponseData result) {
     if (collector.contains(USERS)) {
       result.setUsers(dbClient.userDao().selectByLogins(dbSession, collector.<String>get(USERS)));
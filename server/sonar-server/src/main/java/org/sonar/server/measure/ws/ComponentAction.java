@@ -50,6 +50,8 @@ import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.measure.ws.MetricDtoWithBestValue.MetricDtoToMetricDtoWithBestValueFunction;
 import org.sonar.server.user.UserSession;
+import org.sonar.server.ws.CacheableWsAction;
+import org.sonar.server.ws.WsResponseCache;
 import org.sonarqube.ws.WsMeasures;
 import org.sonarqube.ws.WsMeasures.ComponentWsResponse;
 import org.sonarqube.ws.client.measure.ComponentWsRequest;
@@ -80,7 +82,7 @@ import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_DEVELOP
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_DEVELOPER_KEY;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_METRIC_KEYS;
 
-public class ComponentAction implements MeasuresWsAction {
+public class ComponentAction implements MeasuresWsAction, CacheableWsAction {
   private static final Set<String> QUALIFIERS_ELIGIBLE_FOR_BEST_VALUE = ImmutableSortedSet.of(Qualifiers.FILE, Qualifiers.UNIT_TEST_FILE);
 
   private final DbClient dbClient;
@@ -122,6 +124,11 @@ public class ComponentAction implements MeasuresWsAction {
     writeProtobuf(componentWsResponse, request, response);
   }
 
+  @Override
+  public java.util.Optional<ComponentDto> selectCachedComponent(DbSession dbSession, Request request) {
+    return WsResponseCache.selectByUuidOrKey(dbClient, dbSession, request.param(PARAM_COMPONENT_ID), request.param(PARAM_COMPONENT_KEY));
+  }
+
   private ComponentWsResponse doHandle(ComponentWsRequest request) {
     try (DbSession dbSession = dbClient.openSession(false)) {
       ComponentDto component = componentFinder.getByUuidOrKey(dbSession, request.getComponentId(), request.getComponentKey(), COMPONENT_ID_AND_KEY);
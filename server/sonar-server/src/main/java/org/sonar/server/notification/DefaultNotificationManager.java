@@ -21,19 +21,27 @@ package org.sonar.server.notification;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
 import java.io.IOException;
 import java.io.InvalidClassException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.api.utils.SonarException;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.notification.NotificationQueueDao;
 import org.sonar.db.notification.NotificationQueueDto;
 import org.sonar.db.property.PropertiesDao;
@@ -48,6 +56,8 @@ public class DefaultNotificationManager implements NotificationManager {
   private NotificationQueueDao notificationQueueDao;
   private PropertiesDao propertiesDao;
 
+  private final ThreadLocal<Map<String, Multimap<String, NotificationChannel>>> recipientsCache = new ThreadLocal<>();
+
   private boolean alreadyLoggedDeserializationIssue = false;
 
   /**
@@ -83,21 +93,45 @@ public class DefaultNotificationManager implements NotificationManager {
   /**
    * Give the notification queue so that it can be processed
    */
+  @CheckForNull
   public Notification getFromQueue() {
-    int batchSize = 1;
+    List<Notification> notifications = getFromQueue(1);
+    return notifications.isEmpty() ? null : notifications.get(0);
+  }
+
+  /**
+   * Remove at most {@code batchSize} of the oldest notifications from the queue, so that they can be processed.
+   * Notifications that can't be read are ignored.
+   */
+  public List<Notification> getFromQueue(int batchSize) {
     List<NotificationQueueDto> notificationDtos = notificationQueueDao.selectOldest(batchSize);
     if (notificationDtos.isEmpty()) {
-      return null;
+      return Collections.emptyList();
     }
     notificationQueueDao.delete(notificationDtos);
 
-    return convertToNotification(notificationDtos);
+    return notificationDtos.stream()
+      .map(this::convertToNotification)
+      .filter(Objects::nonNull)
+      .collect(Collectors.toList(notificationDtos.size()));
+  }
+
+  /**
+   * Recipients found by the current thread are cached until {@link #stopCachingRecipients()} is called, so that
+   * a batch of notifications about the same projects does not request the same subscriptions again.
+   */
+  public void startCachingRecipients() {
+    recipientsCache.set(new HashMap<>());
   }
 
-  private Notification convertToNotification(List<NotificationQueueDto> notifications) {
+  public void stopCachingRecipients() {
+    recipientsCache.remove();
+  }
+
+  @CheckForNull
+  private Notification convertToNotification(NotificationQueueDto notification) {
     try {
-      // If batchSize is increased then we should return a list instead of a single element
-      return notifications.get(0).toNotification();
+      return notification.toNotification();
     } catch (InvalidClassException e) {
       // SONAR-4739
       if (!alreadyLoggedDeserializationIssue) {
@@ -125,6 +159,10 @@ public class DefaultNotificationManager implements NotificationManager {
   @Override
   public Multimap<String, NotificationChannel> findSubscribedRecipientsForDispatcher(NotificationDispatcher dispatcher,
     @Nullable String projectUuid) {
+    return cached("recipients|" + dispatcher.getKey() + "|" + projectUuid, () -> findSubscribedRecipientsForDispatcherImpl(dispatcher, projectUuid));
+  }
+
+  private Multimap<String, NotificationChannel> findSubscribedRecipientsForDispatcherImpl(NotificationDispatcher dispatcher, @Nullable String projectUuid) {
     String dispatcherKey = dispatcher.getKey();
 
     SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
@@ -145,6 +183,10 @@ public class DefaultNotificationManager implements NotificationManager {
 
   @Override
   public Multimap<String, NotificationChannel> findNotificationSubscribers(NotificationDispatcher dispatcher, @Nullable String componentKey) {
+    return cached("subscribers|" + dispatcher.getKey() + "|" + componentKey, () -> findNotificationSubscribersImpl(dispatcher, componentKey));
+  }
+
+  private Multimap<String, NotificationChannel> findNotificationSubscribersImpl(NotificationDispatcher dispatcher, @Nullable String componentKey) {
     String dispatcherKey = dispatcher.getKey();
 
     SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
@@ -155,6 +197,14 @@ public class DefaultNotificationManager implements NotificationManager {
     return recipients;
   }
 
+  private Multimap<String, NotificationChannel> cached(String cacheKey, Supplier<Multimap<String, NotificationChannel>> loader) {
+    Map<String, Multimap<String, NotificationChannel>> cache = recipientsCache.get();
+    if (cache == null) {
+      return loader.get();
+    }
+    return cache.computeIfAbsent(cacheKey, k -> ImmutableSetMultimap.copyOf(loader.get()));
+  }
+
   @VisibleForTesting
   protected List<NotificationChannel> getChannels() {
     return Arrays.asList(notificationChannels);
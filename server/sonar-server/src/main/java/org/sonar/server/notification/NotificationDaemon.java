@@ -21,6 +21,7 @@ package org.sonar.server.notification;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -48,6 +49,7 @@ import org.sonar.api.utils.log.Loggers;
 @ServerSide
 public class NotificationDaemon implements Startable {
   private static final String THREAD_NAME_PREFIX = "sq-notification-service-";
+  static final int BATCH_SIZE = 100;
 
   private static final Logger LOG = Loggers.get(NotificationDaemon.class);
 
@@ -105,10 +107,9 @@ public class NotificationDaemon implements Startable {
     long lastLog = start;
     long notifSentCount = 0;
 
-    Notification notifToSend = manager.getFromQueue();
-    while (notifToSend != null) {
-      service.deliver(notifToSend);
-      notifSentCount++;
+    List<Notification> batch = manager.getFromQueue(BATCH_SIZE);
+    while (!batch.isEmpty()) {
+      notifSentCount += deliver(batch);
       if (stopping) {
         break;
       }
@@ -119,7 +120,29 @@ public class NotificationDaemon implements Startable {
         long spentTimeInMinutes = (now - start) / (60 * 1000);
         log(notifSentCount, remainingNotifCount, spentTimeInMinutes);
       }
-      notifToSend = manager.getFromQueue();
+      batch = manager.getFromQueue(BATCH_SIZE);
+    }
+  }
+
+  /**
+   * Recipients are cached during the delivery of a batch. Notifications that are not delivered because
+   * the daemon is stopping are put back in the queue.
+   *
+   * @return the number of delivered notifications
+   */
+  private int deliver(List<Notification> batch) {
+    manager.startCachingRecipients();
+    try {
+      for (int i = 0; i < batch.size(); i++) {
+        if (stopping) {
+          manager.scheduleForSending(batch.subList(i, batch.size()));
+          return i;
+        }
+        service.deliver(batch.get(i));
+      }
+      return batch.size();
+    } finally {
+      manager.stopCachingRecipients();
     }
   }
 
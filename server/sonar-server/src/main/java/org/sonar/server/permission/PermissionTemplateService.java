@@ -44,8 +44,10 @@ import org.sonar.db.permission.template.PermissionTemplateDto;
 import org.sonar.db.permission.template.PermissionTemplateGroupDto;
 import org.sonar.db.permission.template.PermissionTemplateUserDto;
 import org.sonar.server.permission.index.PermissionIndexer;
+import org.sonar.server.permission.index.PermissionIndexingQueue;
 import org.sonar.server.permission.ws.template.DefaultTemplatesResolver;
 import org.sonar.server.permission.ws.template.DefaultTemplatesResolverImpl;
+import org.sonar.server.user.ProjectPermissionsCache;
 import org.sonar.server.user.UserSession;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -58,16 +60,20 @@ import static org.sonar.api.security.DefaultGroups.isAnyone;
 public class PermissionTemplateService {
 
   private final DbClient dbClient;
+  private final PermissionIndexingQueue permissionIndexingQueue;
   private final PermissionIndexer permissionIndexer;
   private final UserSession userSession;
   private final DefaultTemplatesResolver defaultTemplatesResolver;
+  private final ProjectPermissionsCache projectPermissionsCache;
 
-  public PermissionTemplateService(DbClient dbClient, PermissionIndexer permissionIndexer, UserSession userSession,
-    DefaultTemplatesResolver defaultTemplatesResolver) {
+  public PermissionTemplateService(DbClient dbClient, PermissionIndexingQueue permissionIndexingQueue, PermissionIndexer permissionIndexer,
+    UserSession userSession, DefaultTemplatesResolver defaultTemplatesResolver, ProjectPermissionsCache projectPermissionsCache) {
     this.dbClient = dbClient;
+    this.permissionIndexingQueue = permissionIndexingQueue;
     this.permissionIndexer = permissionIndexer;
     this.userSession = userSession;
     this.defaultTemplatesResolver = defaultTemplatesResolver;
+    this.projectPermissionsCache = projectPermissionsCache;
   }
   
   public boolean wouldUserHaveScanPermissionWithDefaultTemplate(DbSession dbSession,
@@ -92,7 +98,7 @@ public class PermissionTemplateService {
   /**
    * Apply a permission template to a set of projects. Authorization to administrate these projects
    * is not verified. The projects must exist, so the "project creator" permissions defined in the
-   * template are ignored.
+   * template are ignored. Permissions are indexed in background by {@link PermissionIndexingQueue}.
    */
   public void apply(DbSession dbSession, PermissionTemplateDto template, Collection<ComponentDto> projects) {
     if (projects.isEmpty()) {
@@ -102,21 +108,28 @@ public class PermissionTemplateService {
     for (ComponentDto project : projects) {
       copyPermissions(dbSession, template, project, null);
     }
+    List<String> projectUuids = projects.stream().map(ComponentDto::uuid).collect(Collectors.toList());
+    permissionIndexingQueue.add(dbSession, projectUuids);
     dbSession.commit();
-    indexProjectPermissions(dbSession, projects.stream().map(ComponentDto::uuid).collect(Collectors.toList()));
+    projectPermissionsCache.invalidateProjects(projectUuids);
   }
 
   /**
    * Apply the default permission template to project. The project can already exist (so it has permissions) or
    * can be provisioned (so has no permissions yet).
    * @param projectCreatorUserId id of the user who creates the project, only if project is provisioned. He will
+   * <p>
+   * Permissions of this single project are indexed synchronously, so that a project is visible in the searches
+   * filtered on authorization as soon as it is created.
+   * </p>
    */
   public void applyDefault(DbSession dbSession, String organizationUuid, ComponentDto component, @Nullable Integer projectCreatorUserId) {
     PermissionTemplateDto template = findTemplate(dbSession, organizationUuid, component);
     checkArgument(template != null, "Cannot retrieve default permission template");
     copyPermissions(dbSession, template, component, projectCreatorUserId);
     dbSession.commit();
-    indexProjectPermissions(dbSession, asList(component.uuid()));
+    projectPermissionsCache.invalidateProjects(asList(component.uuid()));
+    permissionIndexer.indexProjectsByUuids(dbSession, asList(component.uuid()));
   }
 
   public boolean hasDefaultTemplateWithPermissionOnProjectCreator(DbSession dbSession, String organizationUuid, ComponentDto component) {
@@ -129,10 +142,6 @@ public class PermissionTemplateService {
       .anyMatch(PermissionTemplateCharacteristicDto::getWithProjectCreator);
   }
 
-  private void indexProjectPermissions(DbSession dbSession, List<String> projectOrViewUuids) {
-    permissionIndexer.indexProjectsByUuids(dbSession, projectOrViewUuids);
-  }
-
   private void copyPermissions(DbSession dbSession, PermissionTemplateDto template, ComponentDto project, @Nullable Integer projectCreatorUserId) {
     dbClient.resourceDao().updateAuthorizationDate(project.getId(), dbSession);
     dbClient.groupPermissionDao().deleteByRootComponentId(dbSession, project.getId());
@@ -27,7 +27,8 @@ import java.util.Optional;
 import java.util.Set;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
-import org.sonar.server.permission.index.PermissionIndexer;
+import org.sonar.server.permission.index.PermissionIndexingQueue;
+import org.sonar.server.user.ProjectPermissionsCache;
 
 /**
  * Add or remove global/project permissions to a group. This class
@@ -37,16 +38,19 @@ import org.sonar.server.permission.index.PermissionIndexer;
 public class PermissionUpdater {
 
   private final DbClient dbClient;
-  private final PermissionIndexer permissionIndexer;
+  private final PermissionIndexingQueue permissionIndexingQueue;
   private final UserPermissionChanger userPermissionChanger;
   private final GroupPermissionChanger groupPermissionChanger;
+  private final ProjectPermissionsCache projectPermissionsCache;
 
-  public PermissionUpdater(DbClient dbClient, PermissionIndexer permissionIndexer,
-                           UserPermissionChanger userPermissionChanger, GroupPermissionChanger groupPermissionChanger) {
+  public PermissionUpdater(DbClient dbClient, PermissionIndexingQueue permissionIndexingQueue,
+                           UserPermissionChanger userPermissionChanger, GroupPermissionChanger groupPermissionChanger,
+                           ProjectPermissionsCache projectPermissionsCache) {
     this.dbClient = dbClient;
-    this.permissionIndexer = permissionIndexer;
+    this.permissionIndexingQueue = permissionIndexingQueue;
     this.userPermissionChanger = userPermissionChanger;
     this.groupPermissionChanger = groupPermissionChanger;
+    this.projectPermissionsCache = projectPermissionsCache;
   }
 
   public void apply(DbSession dbSession, Collection<PermissionChange> changes) {
@@ -63,10 +67,11 @@ public class PermissionUpdater {
     for (Long projectId : projectIds) {
       dbClient.resourceDao().updateAuthorizationDate(projectId, dbSession);
     }
+    permissionIndexingQueue.add(dbSession, projectOrViewUuids);
     dbSession.commit();
 
     if (!projectIds.isEmpty()) {
-      permissionIndexer.indexProjectsByUuids(dbSession, projectOrViewUuids);
+      projectPermissionsCache.invalidateProjects(projectOrViewUuids);
     }
   }
 
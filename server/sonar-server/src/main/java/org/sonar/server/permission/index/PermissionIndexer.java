@@ -108,8 +108,8 @@ public class PermissionIndexer implements ProjectIndexer, StartupIndexer {
   public void indexProject(String projectUuid, Cause cause) {
     switch (cause) {
       case PROJECT_CREATION:
-        // nothing to do, permissions are indexed explicitly
-        // when permission template is applied after project creation
+        // nothing to do, permissions are indexed synchronously
+        // when the default permission template is applied after project creation
       case NEW_ANALYSIS:
         // nothing to do, permissions don't change during an analysis
       case PROJECT_KEY_UPDATE:
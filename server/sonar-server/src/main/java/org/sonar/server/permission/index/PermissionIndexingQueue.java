@@ -0,0 +1,143 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.permission.index;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.picocontainer.Startable;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.stream.Collectors;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.permission.PermissionIndexQueueDto;
+
+/**
+ * Indexes permissions in background. Projects and views whose permissions change are added to
+ * a queue stored in database, in the same transaction as the change. The queue is regularly read by
+ * batches, and each project of a batch is indexed only once, whatever the number of its changes.
+ */
+@ServerSide
+public class PermissionIndexingQueue implements Startable {
+
+  private static final Logger LOG = Loggers.get(PermissionIndexingQueue.class);
+  private static final String THREAD_NAME_PREFIX = "sq-permission-indexing-";
+  private static final long DELAY_IN_MS = 1_000L;
+
+  @VisibleForTesting
+  static final int BATCH_SIZE = 10_000;
+
+  private final DbClient dbClient;
+  private final PermissionIndexer permissionIndexer;
+  private final System2 system;
+  private ScheduledExecutorService executorService;
+
+  public PermissionIndexingQueue(DbClient dbClient, PermissionIndexer permissionIndexer, System2 system) {
+    this.dbClient = dbClient;
+    this.permissionIndexer = permissionIndexer;
+    this.system = system;
+  }
+
+  @Override
+  public void start() {
+    executorService = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder()
+        .setNameFormat(THREAD_NAME_PREFIX + "%d")
+        .setDaemon(true)
+        .build());
+    executorService.scheduleWithFixedDelay(() -> {
+      try {
+        indexPending();
+      } catch (Exception e) {
+        LOG.error("Fail to index permissions", e);
+      }
+    }, 0, DELAY_IN_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void stop() {
+    try {
+      executorService.shutdown();
+      executorService.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      LOG.error("Error during stop of permission indexing", e);
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Adds projects or views to the queue. Changes are visible to the indexing thread only
+   * when the session is committed.
+   */
+  public void add(DbSession dbSession, Collection<String> projectOrViewUuids) {
+    if (!projectOrViewUuids.isEmpty()) {
+      dbClient.permissionIndexQueueDao().insert(dbSession, projectOrViewUuids);
+    }
+  }
+
+  /**
+   * Indexes all the projects of the queue. Items are removed from the queue only once their
+   * projects are indexed, so that they are processed again if indexing fails.
+   */
+  @VisibleForTesting
+  synchronized void indexPending() {
+    boolean hasMore = true;
+    while (hasMore) {
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        List<PermissionIndexQueueDto> items = dbClient.permissionIndexQueueDao().selectOldest(dbSession, BATCH_SIZE);
+        if (items.isEmpty()) {
+          return;
+        }
+        List<String> projectUuids = items.stream().map(PermissionIndexQueueDto::getProjectUuid).distinct().collect(Collectors.toList());
+        permissionIndexer.indexProjectsByUuids(dbSession, projectUuids);
+        dbClient.permissionIndexQueueDao().deleteByIds(dbSession, items.stream().map(PermissionIndexQueueDto::getId).collect(Collectors.toList(items.size())));
+        dbSession.commit();
+        LOG.debug("{} permission changes indexed on {} projects", items.size(), projectUuids.size());
+        hasMore = items.size() == BATCH_SIZE;
+      }
+    }
+  }
+
+  /**
+   * Number of permission changes that are not indexed yet
+   */
+  public long countPending() {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return dbClient.permissionIndexQueueDao().count(dbSession);
+    }
+  }
+
+  /**
+   * Age in milliseconds of the oldest permission change that is not indexed yet, or zero if all changes are indexed
+   */
+  public long getLagMs() {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      Long oldestCreatedAt = dbClient.permissionIndexQueueDao().selectOldestCreatedAt(dbSession);
+      return oldestCreatedAt == null ? 0L : Math.max(0L, system.now() - oldestCreatedAt);
+    }
+  }
+}
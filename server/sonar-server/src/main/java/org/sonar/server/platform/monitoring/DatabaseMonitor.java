@@ -27,6 +27,7 @@ import java.util.Map;
 import org.apache.commons.dbcp.BasicDataSource;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.monitoring.SqlStatementStats;
 import org.sonar.server.platform.db.migration.version.DatabaseVersion;
 
 /**
@@ -34,6 +35,8 @@ import org.sonar.server.platform.db.migration.version.DatabaseVersion;
  */
 public class DatabaseMonitor extends BaseMonitorMBean implements DatabaseMonitorMBean {
 
+  static final int MAX_REPORTED_STATEMENTS = 10;
+
   private final DatabaseVersion dbVersion;
   private final DbClient dbClient;
 
@@ -102,9 +105,16 @@ public class DatabaseMonitor extends BaseMonitorMBean implements DatabaseMonitor
     Map<String, Object> attributes = new LinkedHashMap<>();
     completeDbAttributes(attributes);
     completePoolAttributes(attributes);
+    completeStatementAttributes(attributes);
     return attributes;
   }
 
+  private void completeStatementAttributes(Map<String, Object> attributes) {
+    for (SqlStatementStats stats : dbClient.getMyBatis().getStatementStatistics().getTopByTotalDuration(MAX_REPORTED_STATEMENTS)) {
+      attributes.put("Statement " + stats.getStatementId(), stats.summary());
+    }
+  }
+
   private void completePoolAttributes(Map<String, Object> attributes) {
     attributes.put("Pool Active Connections", getPoolActiveConnections());
     attributes.put("Pool Max Connections", getPoolMaxActiveConnections());
@@ -32,15 +32,18 @@ import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.permission.index.PermissionIndexingQueue;
 
 import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
 
 public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
 
   private final EsClient esClient;
+  private final PermissionIndexingQueue permissionIndexingQueue;
 
-  public EsMonitor(EsClient esClient) {
+  public EsMonitor(EsClient esClient, PermissionIndexingQueue permissionIndexingQueue) {
     this.esClient = esClient;
+    this.permissionIndexingQueue = permissionIndexingQueue;
   }
 
   @Override
@@ -66,6 +69,16 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
     return clusterStats().getNodesStats().getCounts().getTotal();
   }
 
+  @Override
+  public long getPendingPermissionChanges() {
+    return permissionIndexingQueue.countPending();
+  }
+
+  @Override
+  public long getPermissionIndexingLagMs() {
+    return permissionIndexingQueue.getLagMs();
+  }
+
   @Override
   public Map<String, Object> attributes() {
     try {
@@ -74,6 +87,8 @@ public class EsMonitor extends BaseMonitorMBean implements EsMonitorMBean {
       attributes.put("Indices", indexAttributes());
       attributes.put("Number of Nodes", getNumberOfNodes());
       attributes.put("Nodes", nodeAttributes());
+      attributes.put("Pending Permission Changes", getPendingPermissionChanges());
+      attributes.put("Permission Indexing Lag (ms)", getPermissionIndexingLagMs());
       return attributes;
     } catch (Exception es) {
       Loggers.get(EsMonitor.class).warn("Failed to retrieve ES attributes. There will be only a single \"state\" attribute.", es);
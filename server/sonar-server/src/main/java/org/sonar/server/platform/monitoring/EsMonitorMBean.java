@@ -26,4 +26,14 @@ package org.sonar.server.platform.monitoring;
 public interface EsMonitorMBean {
   String getState();
   int getNumberOfNodes();
+
+  /**
+   * Number of permission changes waiting to be indexed
+   */
+  long getPendingPermissionChanges();
+
+  /**
+   * Age of the oldest permission change waiting to be indexed
+   */
+  long getPermissionIndexingLagMs();
 }
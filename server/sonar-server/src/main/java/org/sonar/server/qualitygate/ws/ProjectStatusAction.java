@@ -40,7 +40,9 @@ import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.component.ComponentFinder.ParamNames;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.user.UserSession;
+import org.sonar.server.ws.CacheableWsAction;
 import org.sonar.server.ws.KeyExamples;
+import org.sonar.server.ws.WsResponseCache;
 import org.sonarqube.ws.WsQualityGates.ProjectStatusWsResponse;
 import org.sonarqube.ws.client.qualitygate.ProjectStatusWsRequest;
 
@@ -55,7 +57,7 @@ import static org.sonarqube.ws.client.qualitygate.QualityGatesWsParameters.PARAM
 import static org.sonarqube.ws.client.qualitygate.QualityGatesWsParameters.PARAM_PROJECT_ID;
 import static org.sonarqube.ws.client.qualitygate.QualityGatesWsParameters.PARAM_PROJECT_KEY;
 
-public class ProjectStatusAction implements QualityGatesWsAction {
+public class ProjectStatusAction implements QualityGatesWsAction, CacheableWsAction {
   private static final String QG_STATUSES_ONE_LINE = Arrays.stream(ProjectStatusWsResponse.Status.values())
     .map(Enum::toString)
     .collect(Collectors.joining(", "));
@@ -110,6 +112,14 @@ public class ProjectStatusAction implements QualityGatesWsAction {
     writeProtobuf(projectStatusWsResponse, request, response);
   }
 
+  @Override
+  public java.util.Optional<ComponentDto> selectCachedComponent(DbSession dbSession, Request request) {
+    if (request.param(PARAM_ANALYSIS_ID) != null) {
+      return java.util.Optional.empty();
+    }
+    return WsResponseCache.selectByUuidOrKey(dbClient, dbSession, request.param(PARAM_PROJECT_ID), request.param(PARAM_PROJECT_KEY));
+  }
+
   private ProjectStatusWsResponse doHandle(ProjectStatusWsRequest request) {
     try (DbSession dbSession = dbClient.openSession(false)) {
       ProjectAndSnapshot projectAndSnapshot = getProjectAndSnapshot(dbSession, request);
@@ -22,11 +22,12 @@ package org.sonar.server.qualityprofile;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -41,7 +42,11 @@ import org.codehaus.staxmate.in.SMHierarchicCursor;
 import org.codehaus.staxmate.in.SMInputCursor;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.api.utils.log.Profiler;
 import org.sonar.api.utils.text.XmlWriter;
+import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.organization.OrganizationDto;
@@ -50,10 +55,13 @@ import org.sonar.db.qualityprofile.ActiveRuleParamDto;
 import org.sonar.db.qualityprofile.QualityProfileDto;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
 
 @ServerSide
 public class QProfileBackuperImpl implements QProfileBackuper {
 
+  private static final Logger LOGGER = Loggers.get(QProfileBackuperImpl.class);
+  private static final int PARAMS_PARTITION_SIZE = 1_000;
   private static final Joiner RULE_KEY_JOINER = Joiner.on(", ").skipNulls();
 
   private static final String ATTRIBUTE_PROFILE = "profile";
@@ -85,35 +93,51 @@ public class QProfileBackuperImpl implements QProfileBackuper {
   public void backup(DbSession dbSession, QualityProfileDto profileDto, Writer writer) {
     List<ActiveRuleDto> activeRules = db.activeRuleDao().selectByProfileKey(dbSession, profileDto.getKey());
     activeRules.sort(BackupActiveRuleComparator.INSTANCE);
-    writeXml(dbSession, writer, profileDto, activeRules.iterator());
+    writeXml(dbSession, writer, profileDto, activeRules);
   }
 
-  private void writeXml(DbSession dbSession, Writer writer, QualityProfileDto profile, Iterator<ActiveRuleDto> activeRules) {
+  /**
+   * Rules are written as soon as their parameters are loaded, by partitions of {@link #PARAMS_PARTITION_SIZE}
+   * active rules, so that neither one request per rule nor all the parameters of a large profile are needed.
+   */
+  private void writeXml(DbSession dbSession, Writer writer, QualityProfileDto profile, List<ActiveRuleDto> activeRules) {
     XmlWriter xml = XmlWriter.of(writer).declaration();
     xml.begin(ATTRIBUTE_PROFILE);
     xml.prop(ATTRIBUTE_NAME, profile.getName());
     xml.prop(ATTRIBUTE_LANGUAGE, profile.getLanguage());
     xml.begin(ATTRIBUTE_RULES);
-    while (activeRules.hasNext()) {
-      ActiveRuleDto activeRule = activeRules.next();
-      xml.begin(ATTRIBUTE_RULE);
-      xml.prop(ATTRIBUTE_REPOSITORY_KEY, activeRule.getKey().ruleKey().repository());
-      xml.prop(ATTRIBUTE_KEY, activeRule.getKey().ruleKey().rule());
-      xml.prop(ATTRIBUTE_PRIORITY, activeRule.getSeverityString());
-      xml.begin(ATTRIBUTE_PARAMETERS);
-      for (ActiveRuleParamDto param : db.activeRuleDao().selectParamsByActiveRuleId(dbSession, activeRule.getId())) {
-        xml
-          .begin(ATTRIBUTE_PARAMETER)
-          .prop(ATTRIBUTE_PARAMETER_KEY, param.getKey())
-          .prop(ATTRIBUTE_PARAMETER_VALUE, param.getValue())
-          .end();
+    for (List<ActiveRuleDto> partition : Lists.partition(activeRules, PARAMS_PARTITION_SIZE)) {
+      Multimap<Integer, ActiveRuleParamDto> paramsByActiveRuleId = loadParams(dbSession, partition);
+      for (ActiveRuleDto activeRule : partition) {
+        writeRule(xml, activeRule, paramsByActiveRuleId.get(activeRule.getId()));
       }
-      xml.end(ATTRIBUTE_PARAMETERS);
-      xml.end(ATTRIBUTE_RULE);
     }
     xml.end(ATTRIBUTE_RULES).end(ATTRIBUTE_PROFILE).close();
   }
 
+  private Multimap<Integer, ActiveRuleParamDto> loadParams(DbSession dbSession, List<ActiveRuleDto> activeRules) {
+    List<Integer> activeRuleIds = activeRules.stream().map(ActiveRuleDto::getId).collect(Collectors.toList(activeRules.size()));
+    return db.activeRuleDao().selectParamsByActiveRuleIds(dbSession, activeRuleIds).stream()
+      .collect(Collectors.index(ActiveRuleParamDto::getActiveRuleId));
+  }
+
+  private static void writeRule(XmlWriter xml, ActiveRuleDto activeRule, Collection<ActiveRuleParamDto> params) {
+    xml.begin(ATTRIBUTE_RULE);
+    xml.prop(ATTRIBUTE_REPOSITORY_KEY, activeRule.getKey().ruleKey().repository());
+    xml.prop(ATTRIBUTE_KEY, activeRule.getKey().ruleKey().rule());
+    xml.prop(ATTRIBUTE_PRIORITY, activeRule.getSeverityString());
+    xml.begin(ATTRIBUTE_PARAMETERS);
+    for (ActiveRuleParamDto param : params) {
+      xml
+        .begin(ATTRIBUTE_PARAMETER)
+        .prop(ATTRIBUTE_PARAMETER_KEY, param.getKey())
+        .prop(ATTRIBUTE_PARAMETER_VALUE, param.getValue())
+        .end();
+    }
+    xml.end(ATTRIBUTE_PARAMETERS);
+    xml.end(ATTRIBUTE_RULE);
+  }
+
   @Override
   public QProfileRestoreSummary restore(DbSession dbSession, Reader backup, OrganizationDto organization, @Nullable String overriddenProfileName) {
     return restore(dbSession, backup, nameInBackup -> {
@@ -135,6 +159,7 @@ public class QProfileBackuperImpl implements QProfileBackuper {
   }
 
   private QProfileRestoreSummary restore(DbSession dbSession, Reader backup, Function<QProfileName, QualityProfileDto> profileLoader) {
+    Profiler profiler = Profiler.create(LOGGER).startDebug("Restore quality profile");
     try {
       String profileLang = null;
       String profileName = null;
@@ -163,6 +188,7 @@ public class QProfileBackuperImpl implements QProfileBackuper {
       QProfileName targetName = new QProfileName(profileLang, profileName);
       QualityProfileDto targetProfile = profileLoader.apply(targetName);
       BulkChangeResult changes = profileReset.reset(dbSession, targetProfile, ruleActivations);
+      profiler.stopDebug(format("Restored quality profile %s: %d rules activated, %d failed", targetProfile.getKey(), changes.countSucceeded(), changes.countFailed()));
       return new QProfileRestoreSummary(targetProfile, changes);
     } catch (XMLStreamException e) {
       throw new IllegalStateException("Fail to restore Quality profile backup", e);
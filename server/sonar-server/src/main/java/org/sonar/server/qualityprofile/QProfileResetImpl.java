@@ -30,6 +30,7 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rules.ActiveRule;
 import org.sonar.api.rules.ActiveRuleParam;
 import org.sonar.api.server.ServerSide;
+import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.organization.OrganizationDto;
@@ -98,18 +99,22 @@ public class QProfileResetImpl implements QProfileReset {
   public BulkChangeResult reset(DbSession dbSession, QualityProfileDto profile, Collection<RuleActivation> activations) {
     requireNonNull(profile.getId(), "Quality profile must be persisted");
     BulkChangeResult result = new BulkChangeResult();
+    RuleActivatorBatch batch = new RuleActivatorBatch(db, dbSession);
+    batch.addProfile(profile);
     Set<RuleKey> ruleToBeDeactivated = Sets.newHashSet();
     // Keep reference to all the activated rules before backup restore
-    for (ActiveRuleDto activeRuleDto : db.activeRuleDao().selectByProfileKey(dbSession, profile.getKee())) {
+    for (ActiveRuleDto activeRuleDto : batch.getActiveRules(profile.getKee())) {
       if (activeRuleDto.getInheritance() == null) {
         // inherited rules can't be deactivated
         ruleToBeDeactivated.add(activeRuleDto.getKey().ruleKey());
       }
     }
+    batch.loadRules(activations.stream().map(RuleActivation::getRuleKey).collect(Collectors.toList(activations.size())));
+    batch.loadRules(ruleToBeDeactivated);
 
     for (RuleActivation activation : activations) {
       try {
-        List<ActiveRuleChange> changes = activator.activate(dbSession, activation, profile.getKey());
+        List<ActiveRuleChange> changes = activator.activate(dbSession, activation, profile, batch);
         ruleToBeDeactivated.remove(activation.getRuleKey());
         result.incrementSucceeded();
         result.addChanges(changes);
@@ -123,11 +128,12 @@ public class QProfileResetImpl implements QProfileReset {
     changes.addAll(result.getChanges());
     for (RuleKey ruleKey : ruleToBeDeactivated) {
       try {
-        changes.addAll(activator.deactivate(dbSession, ActiveRuleKey.of(profile.getKee(), ruleKey)));
+        changes.addAll(activator.deactivate(dbSession, ActiveRuleKey.of(profile.getKee(), ruleKey), batch));
       } catch (BadRequestException e) {
         // ignore, probably a rule inherited from parent that can't be deactivated
       }
     }
+    activator.updateProfiles(dbSession, batch);
     dbSession.commit();
     activeRuleIndexer.index(changes);
     return result;
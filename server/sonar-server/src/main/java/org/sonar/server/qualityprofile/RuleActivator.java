@@ -23,7 +23,6 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.CheckForNull;
@@ -32,6 +31,7 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.server.ServerSide;
 import org.sonar.api.server.rule.RuleParamType;
 import org.sonar.api.utils.System2;
+import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.qualityprofile.ActiveRuleDao;
@@ -79,15 +79,19 @@ public class RuleActivator {
 
   public List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, String profileKey) {
     RuleActivatorContext context = contextFactory.create(profileKey, activation.getRuleKey(), dbSession);
-    return doActivate(dbSession, activation, context);
+    return doActivate(dbSession, activation, context, null);
   }
 
   public List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, QualityProfileDto profileDto) {
-    RuleActivatorContext context = contextFactory.create(profileDto, activation.getRuleKey(), dbSession);
-    return doActivate(dbSession, activation, context);
+    return activate(dbSession, activation, profileDto, null);
   }
 
-  private List<ActiveRuleChange> doActivate(DbSession dbSession, RuleActivation activation, RuleActivatorContext context) {
+  List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, QualityProfileDto profileDto, @Nullable RuleActivatorBatch batch) {
+    RuleActivatorContext context = batch == null ? contextFactory.create(profileDto, activation.getRuleKey(), dbSession) : batch.createContext(profileDto, activation.getRuleKey());
+    return doActivate(dbSession, activation, context, batch);
+  }
+
+  private List<ActiveRuleChange> doActivate(DbSession dbSession, RuleActivation activation, RuleActivatorContext context, @Nullable RuleActivatorBatch batch) {
     context.verifyForActivation();
     List<ActiveRuleChange> changes = Lists.newArrayList();
     ActiveRuleChange change;
@@ -132,26 +136,42 @@ public class RuleActivator {
 
     if (change != null) {
       changes.add(change);
-      persist(change, context, dbSession);
+      persist(change, context, dbSession, batch);
     }
 
     if (!stopPropagation) {
-      changes.addAll(cascadeActivation(dbSession, activation, context.profile()));
+      changes.addAll(cascadeActivation(dbSession, activation, context.profile(), batch));
     }
 
     if (!changes.isEmpty()) {
-      updateProfileDates(dbSession, context);
+      updateProfileDates(dbSession, context, batch);
     }
     return changes;
   }
 
-  private void updateProfileDates(DbSession dbSession, RuleActivatorContext context) {
+  /**
+   * In case of bulk change, the profile is updated only once at the end, by {@link #updateProfiles(DbSession, RuleActivatorBatch)}
+   */
+  private void updateProfileDates(DbSession dbSession, RuleActivatorContext context, @Nullable RuleActivatorBatch batch) {
     QualityProfileDto profile = context.profile();
     profile.setRulesUpdatedAtAsDate(context.getInitDate());
     if (userSession.isLoggedIn()) {
       profile.setUserUpdatedAt(context.getInitDate().getTime());
     }
-    db.qualityProfileDao().update(dbSession, profile);
+    if (batch == null) {
+      db.qualityProfileDao().update(dbSession, profile);
+    } else {
+      batch.onProfileUpdated(profile);
+    }
+  }
+
+  /**
+   * Updates the dates of the profiles changed during the bulk change, WITHOUT committing db session
+   */
+  void updateProfiles(DbSession dbSession, RuleActivatorBatch batch) {
+    for (QualityProfileDto profile : batch.getUpdatedProfiles()) {
+      db.qualityProfileDao().update(dbSession, profile);
+    }
   }
 
   /**
@@ -224,40 +244,48 @@ public class RuleActivator {
     return null;
   }
 
-  private List<ActiveRuleChange> cascadeActivation(DbSession session, RuleActivation activation, QualityProfileDto qualityProfileDto) {
+  private List<ActiveRuleChange> cascadeActivation(DbSession session, RuleActivation activation, QualityProfileDto qualityProfileDto,
+    @Nullable RuleActivatorBatch batch) {
     List<ActiveRuleChange> changes = Lists.newArrayList();
 
     // get all inherited profiles
     String qualityProfileKey = qualityProfileDto.getKey();
-    List<QualityProfileDto> children = getChildren(session, qualityProfileKey);
+    List<QualityProfileDto> children = getChildren(session, qualityProfileKey, batch);
     for (QualityProfileDto child : children) {
       RuleActivation childActivation = new RuleActivation(activation).setCascade(true);
-      changes.addAll(activate(session, childActivation, child));
+      changes.addAll(activate(session, childActivation, child, batch));
     }
     return changes;
   }
 
+  private List<QualityProfileDto> getChildren(DbSession session, String qualityProfileKey, @Nullable RuleActivatorBatch batch) {
+    return batch == null ? getChildren(session, qualityProfileKey) : batch.getChildren(qualityProfileKey);
+  }
+
   protected List<QualityProfileDto> getChildren(DbSession session, String qualityProfileKey) {
     return db.qualityProfileDao().selectChildren(session, qualityProfileKey);
   }
 
-  private ActiveRuleDto persist(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession) {
+  private ActiveRuleDto persist(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession, @Nullable RuleActivatorBatch batch) {
     ActiveRuleDto activeRule = null;
     if (change.getType() == ActiveRuleChange.Type.ACTIVATED) {
-      activeRule = doInsert(change, context, dbSession);
+      activeRule = doInsert(change, context, dbSession, batch);
     } else if (change.getType() == ActiveRuleChange.Type.DEACTIVATED) {
       ActiveRuleDao dao = db.activeRuleDao();
       dao.delete(dbSession, change.getKey());
+      if (batch != null) {
+        batch.onDeactivated(change.getKey());
+      }
 
     } else if (change.getType() == ActiveRuleChange.Type.UPDATED) {
-      activeRule = doUpdate(change, context, dbSession);
+      activeRule = doUpdate(change, context, dbSession, batch);
     }
 
     db.qProfileChangeDao().insert(dbSession, change.toDto(userSession.getLogin()));
     return activeRule;
   }
 
-  private ActiveRuleDto doInsert(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession) {
+  private ActiveRuleDto doInsert(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession, @Nullable RuleActivatorBatch batch) {
     ActiveRuleDto activeRule;
     ActiveRuleDao dao = db.activeRuleDao();
     activeRule = ActiveRuleDto.createFor(context.profile(), context.rule());
@@ -272,17 +300,22 @@ public class RuleActivator {
     activeRule.setUpdatedAt(system2.now());
     activeRule.setCreatedAt(system2.now());
     dao.insert(dbSession, activeRule);
+    List<ActiveRuleParamDto> params = new ArrayList<>();
     for (Map.Entry<String, String> param : change.getParameters().entrySet()) {
       if (param.getValue() != null) {
         ActiveRuleParamDto paramDto = ActiveRuleParamDto.createFor(context.ruleParamsByKeys().get(param.getKey()));
         paramDto.setValue(param.getValue());
         dao.insertParam(dbSession, activeRule, paramDto);
+        params.add(paramDto);
       }
     }
+    if (batch != null) {
+      batch.onActivated(change.getKey(), activeRule, params);
+    }
     return activeRule;
   }
 
-  private ActiveRuleDto doUpdate(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession) {
+  private ActiveRuleDto doUpdate(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession, @Nullable RuleActivatorBatch batch) {
     ActiveRuleDao dao = db.activeRuleDao();
     ActiveRuleDto activeRule = context.activeRule();
     if (activeRule != null) {
@@ -297,6 +330,7 @@ public class RuleActivator {
       activeRule.setUpdatedAt(system2.now());
       dao.update(dbSession, activeRule);
 
+      List<ActiveRuleParamDto> params = new ArrayList<>(context.activeRuleParamsAsMap().values());
       for (Map.Entry<String, String> param : change.getParameters().entrySet()) {
         ActiveRuleParamDto activeRuleParamDto = context.activeRuleParamsAsMap().get(param.getKey());
         if (activeRuleParamDto == null) {
@@ -305,6 +339,7 @@ public class RuleActivator {
             activeRuleParamDto = ActiveRuleParamDto.createFor(context.ruleParamsByKeys().get(param.getKey()));
             activeRuleParamDto.setValue(param.getValue());
             dao.insertParam(dbSession, activeRule, activeRuleParamDto);
+            params.add(activeRuleParamDto);
           }
         } else {
           if (param.getValue() != null) {
@@ -312,9 +347,13 @@ public class RuleActivator {
             dao.updateParam(dbSession, activeRule, activeRuleParamDto);
           } else {
             dao.deleteParam(dbSession, activeRule, activeRuleParamDto);
+            params.remove(activeRuleParamDto);
           }
         }
       }
+      if (batch != null) {
+        batch.onUpdated(activeRule, params);
+      }
     }
     return activeRule;
   }
@@ -353,12 +392,19 @@ public class RuleActivator {
    * @param force if true then inherited rules are deactivated
    */
   public List<ActiveRuleChange> deactivate(DbSession dbSession, ActiveRuleKey key, boolean force) {
-    return cascadeDeactivation(key, dbSession, false, force);
+    return cascadeDeactivation(key, dbSession, false, force, null);
+  }
+
+  /**
+   * Deactivate a rule on a Quality profile as part of a bulk change, WITHOUT committing db session and WITHOUT checking permissions
+   */
+  List<ActiveRuleChange> deactivate(DbSession dbSession, ActiveRuleKey key, RuleActivatorBatch batch) {
+    return cascadeDeactivation(key, dbSession, false, false, batch);
   }
 
-  private List<ActiveRuleChange> cascadeDeactivation(ActiveRuleKey key, DbSession dbSession, boolean isCascade, boolean force) {
+  private List<ActiveRuleChange> cascadeDeactivation(ActiveRuleKey key, DbSession dbSession, boolean isCascade, boolean force, @Nullable RuleActivatorBatch batch) {
     List<ActiveRuleChange> changes = Lists.newArrayList();
-    RuleActivatorContext context = contextFactory.create(key.qProfile(), key.ruleKey(), dbSession);
+    RuleActivatorContext context = batch == null ? contextFactory.create(key.qProfile(), key.ruleKey(), dbSession) : batch.createContext(key.qProfile(), key.ruleKey());
     ActiveRuleChange change;
     ActiveRuleDto activeRuleDto = context.activeRule();
     if (activeRuleDto == null) {
@@ -367,18 +413,18 @@ public class RuleActivator {
     checkRequest(force || isCascade || activeRuleDto.getInheritance() == null, "Cannot deactivate inherited rule '%s'", key.ruleKey());
     change = ActiveRuleChange.createFor(ActiveRuleChange.Type.DEACTIVATED, key);
     changes.add(change);
-    persist(change, context, dbSession);
+    persist(change, context, dbSession, batch);
 
     // get all inherited profiles
-    List<QualityProfileDto> profiles = getChildren(dbSession, key.qProfile());
+    List<QualityProfileDto> profiles = getChildren(dbSession, key.qProfile(), batch);
 
     for (QualityProfileDto profile : profiles) {
       ActiveRuleKey activeRuleKey = ActiveRuleKey.of(profile.getKey(), key.ruleKey());
-      changes.addAll(cascadeDeactivation(activeRuleKey, dbSession, true, force));
+      changes.addAll(cascadeDeactivation(activeRuleKey, dbSession, true, force, batch));
     }
 
     if (!changes.isEmpty()) {
-      updateProfileDates(dbSession, context);
+      updateProfileDates(dbSession, context, batch);
     }
 
     return changes;
@@ -402,13 +448,14 @@ public class RuleActivator {
     DbSession dbSession = db.openSession(false);
     BulkChangeResult result = new BulkChangeResult();
     try {
-      Iterator<RuleKey> rules = ruleIndex.searchAll(ruleQuery);
-      while (rules.hasNext()) {
-        RuleKey ruleKey = rules.next();
+      List<RuleKey> ruleKeys = newArrayList(ruleIndex.searchAll(ruleQuery));
+      RuleActivatorBatch batch = new RuleActivatorBatch(db, dbSession);
+      batch.loadRules(ruleKeys);
+      for (RuleKey ruleKey : ruleKeys) {
         try {
           RuleActivation activation = new RuleActivation(ruleKey);
           activation.setSeverity(severity);
-          List<ActiveRuleChange> changes = activate(dbSession, activation, profileKey);
+          List<ActiveRuleChange> changes = doActivate(dbSession, activation, batch.createContext(profileKey, ruleKey), batch);
           result.addChanges(changes);
           if (!changes.isEmpty()) {
             result.incrementSucceeded();
@@ -420,6 +467,7 @@ public class RuleActivator {
           result.getErrors().addAll(e.errors());
         }
       }
+      updateProfiles(dbSession, batch);
       dbSession.commit();
       activeRuleIndexer.index(result.getChanges());
     } finally {
@@ -432,12 +480,13 @@ public class RuleActivator {
     DbSession dbSession = db.openSession(false);
     BulkChangeResult result = new BulkChangeResult();
     try {
-      Iterator<RuleKey> rules = ruleIndex.searchAll(ruleQuery);
-      while (rules.hasNext()) {
+      List<RuleKey> ruleKeys = newArrayList(ruleIndex.searchAll(ruleQuery));
+      RuleActivatorBatch batch = new RuleActivatorBatch(db, dbSession);
+      batch.loadRules(ruleKeys);
+      for (RuleKey ruleKey : ruleKeys) {
         try {
-          RuleKey ruleKey = rules.next();
           ActiveRuleKey key = ActiveRuleKey.of(profile, ruleKey);
-          List<ActiveRuleChange> changes = deactivate(dbSession, key);
+          List<ActiveRuleChange> changes = cascadeDeactivation(key, dbSession, false, false, batch);
           result.addChanges(changes);
           if (!changes.isEmpty()) {
             result.incrementSucceeded();
@@ -448,6 +497,7 @@ public class RuleActivator {
           result.getErrors().addAll(e.errors());
         }
       }
+      updateProfiles(dbSession, batch);
       dbSession.commit();
       activeRuleIndexer.index(result.getChanges());
       return result;
@@ -458,29 +508,34 @@ public class RuleActivator {
 
   public List<ActiveRuleChange> setParent(DbSession dbSession, String profileKey, @Nullable String parentKey) {
     QualityProfileDto profile = db.qualityProfileDao().selectOrFailByKey(dbSession, profileKey);
+    RuleActivatorBatch batch = new RuleActivatorBatch(db, dbSession);
+    batch.addProfile(profile);
     List<ActiveRuleChange> changes = new ArrayList<>();
     if (parentKey == null) {
       // unset if parent is defined, else nothing to do
-      changes.addAll(removeParent(dbSession, profile));
+      changes.addAll(removeParent(dbSession, profile, batch));
 
     } else if (profile.getParentKee() == null || !parentKey.equals(profile.getParentKee())) {
       QualityProfileDto parentProfile = db.qualityProfileDao().selectOrFailByKey(dbSession, parentKey);
       checkRequest(!isDescendant(dbSession, profile, parentProfile), "Descendant profile '%s' can not be selected as parent of '%s'", parentKey, profileKey);
-      changes.addAll(removeParent(dbSession, profile));
+      changes.addAll(removeParent(dbSession, profile, batch));
 
       // set new parent
       profile.setParentKee(parentKey);
       db.qualityProfileDao().update(dbSession, profile);
-      for (ActiveRuleDto parentActiveRule : db.activeRuleDao().selectByProfileKey(dbSession, parentKey)) {
+      List<ActiveRuleDto> parentActiveRules = batch.getActiveRules(parentKey);
+      batch.loadRules(parentActiveRules.stream().map(activeRule -> activeRule.getKey().ruleKey()).collect(Collectors.toList()));
+      for (ActiveRuleDto parentActiveRule : parentActiveRules) {
         try {
           RuleActivation activation = new RuleActivation(parentActiveRule.getKey().ruleKey());
-          changes.addAll(activate(dbSession, activation, profileKey));
+          changes.addAll(activate(dbSession, activation, profile, batch));
         } catch (BadRequestException e) {
           // for example because rule status is REMOVED
           // TODO return errors
         }
       }
     }
+    updateProfiles(dbSession, batch);
     dbSession.commit();
     activeRuleIndexer.index(changes);
     return changes;
@@ -489,14 +544,14 @@ public class RuleActivator {
   /**
    * Does not commit
    */
-  private List<ActiveRuleChange> removeParent(DbSession dbSession, QualityProfileDto profileDto) {
+  private List<ActiveRuleChange> removeParent(DbSession dbSession, QualityProfileDto profileDto, RuleActivatorBatch batch) {
     if (profileDto.getParentKee() != null) {
       List<ActiveRuleChange> changes = new ArrayList<>();
       profileDto.setParentKee(null);
       db.qualityProfileDao().update(dbSession, profileDto);
-      for (ActiveRuleDto activeRule : db.activeRuleDao().selectByProfileKey(dbSession, profileDto.getKey())) {
+      for (ActiveRuleDto activeRule : batch.getActiveRules(profileDto.getKey())) {
         if (ActiveRuleDto.INHERITED.equals(activeRule.getInheritance())) {
-          changes.addAll(deactivate(dbSession, activeRule.getKey(), true));
+          changes.addAll(cascadeDeactivation(activeRule.getKey(), dbSession, false, true, batch));
         } else if (ActiveRuleDto.OVERRIDES.equals(activeRule.getInheritance())) {
           activeRule.setInheritance(null);
           activeRule.setUpdatedAt(system2.now());
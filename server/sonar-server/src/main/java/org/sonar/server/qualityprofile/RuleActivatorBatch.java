@@ -0,0 +1,193 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.qualityprofile;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.core.util.stream.Collectors;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.qualityprofile.ActiveRuleDto;
+import org.sonar.db.qualityprofile.ActiveRuleKey;
+import org.sonar.db.qualityprofile.ActiveRuleParamDto;
+import org.sonar.db.qualityprofile.QualityProfileDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.rule.RuleParamDto;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.sonar.server.ws.WsUtils.checkRequest;
+
+/**
+ * State of a bulk change of active rules: bulk activation, bulk deactivation or change of parent profile.
+ * <p/>
+ * Rules, profiles of the inheritance tree and their active rules are loaded by batches, instead of once
+ * per rule and per profile, then are kept up-to-date with the changes persisted during the bulk change. The
+ * profiles which dates must be updated are collected, so that they are updated only once at the end.
+ * <p/>
+ * Not thread-safe. Must be used with a single db session.
+ */
+class RuleActivatorBatch {
+
+  private final DbClient db;
+  private final DbSession dbSession;
+  private final Map<RuleKey, RuleDefinitionDto> rulesByKey = new HashMap<>();
+  private final Map<Integer, List<RuleParamDto>> ruleParamsByRuleId = new HashMap<>();
+  private final Map<String, QualityProfileDto> profilesByKey = new HashMap<>();
+  private final Map<String, List<QualityProfileDto>> childrenByProfileKey = new HashMap<>();
+  private final Set<String> profileKeysWithLoadedActiveRules = new HashSet<>();
+  private final Map<ActiveRuleKey, ActiveRuleDto> activeRulesByKey = new HashMap<>();
+  private final Map<Integer, List<ActiveRuleParamDto>> activeRuleParamsByActiveRuleId = new HashMap<>();
+  private final Map<String, QualityProfileDto> updatedProfilesByKey = new LinkedHashMap<>();
+
+  RuleActivatorBatch(DbClient db, DbSession dbSession) {
+    this.db = db;
+    this.dbSession = dbSession;
+  }
+
+  /**
+   * Loads the rules that are not loaded yet, with their parameters
+   */
+  void loadRules(Collection<RuleKey> ruleKeys) {
+    List<RuleKey> missingKeys = ruleKeys.stream()
+      .filter(key -> !rulesByKey.containsKey(key))
+      .distinct()
+      .collect(Collectors.toList());
+    if (missingKeys.isEmpty()) {
+      return;
+    }
+    List<RuleDefinitionDto> rules = db.ruleDao().selectDefinitionByKeys(dbSession, missingKeys);
+    rules.forEach(rule -> rulesByKey.put(rule.getKey(), rule));
+    List<Integer> ruleIds = rules.stream().map(RuleDefinitionDto::getId).collect(Collectors.toList(rules.size()));
+    db.ruleDao().selectRuleParamsByRuleIds(dbSession, ruleIds)
+      .forEach(param -> ruleParamsByRuleId.computeIfAbsent(param.getRuleId(), id -> new ArrayList<>()).add(param));
+    // rules that do not exist are not loaded again
+    missingKeys.forEach(key -> rulesByKey.putIfAbsent(key, null));
+  }
+
+  /**
+   * Registers a profile loaded by caller, so that the changes done on it are visible by the bulk change.
+   */
+  void addProfile(QualityProfileDto profile) {
+    profilesByKey.put(profile.getKey(), profile);
+  }
+
+  QualityProfileDto getProfile(String profileKey) {
+    QualityProfileDto profile = profilesByKey.computeIfAbsent(profileKey, key -> db.qualityProfileDao().selectByKey(dbSession, key));
+    checkRequest(profile != null, "Quality profile not found: %s", profileKey);
+    return profile;
+  }
+
+  List<QualityProfileDto> getChildren(String profileKey) {
+    return childrenByProfileKey.computeIfAbsent(profileKey, key -> db.qualityProfileDao().selectChildren(dbSession, key).stream()
+      .map(child -> profilesByKey.computeIfAbsent(child.getKey(), k -> child))
+      .collect(Collectors.toList()));
+  }
+
+  RuleActivatorContext createContext(QualityProfileDto profile, RuleKey ruleKey) {
+    loadRules(singletonList(ruleKey));
+    RuleDefinitionDto rule = rulesByKey.get(ruleKey);
+    checkRequest(rule != null, "Rule not found: %s", ruleKey);
+
+    RuleActivatorContext context = new RuleActivatorContext()
+      .setProfile(profile)
+      .setRule(rule)
+      .setRuleParams(ruleParamsByRuleId.getOrDefault(rule.getId(), emptyList()));
+    ActiveRuleDto activeRule = getActiveRule(profile.getKey(), ruleKey);
+    context.setActiveRule(activeRule);
+    context.setActiveRuleParams(activeRule == null ? null : getActiveRuleParams(activeRule));
+    String parentKey = profile.getParentKee();
+    if (parentKey != null) {
+      ActiveRuleDto parentActiveRule = getActiveRule(parentKey, ruleKey);
+      context.setParentActiveRule(parentActiveRule);
+      context.setParentActiveRuleParams(parentActiveRule == null ? null : getActiveRuleParams(parentActiveRule));
+    }
+    return context;
+  }
+
+  RuleActivatorContext createContext(String profileKey, RuleKey ruleKey) {
+    return createContext(getProfile(profileKey), ruleKey);
+  }
+
+  /**
+   * Active rules of the profile, including the changes done during the bulk change
+   */
+  List<ActiveRuleDto> getActiveRules(String profileKey) {
+    loadActiveRules(profileKey);
+    return activeRulesByKey.entrySet().stream()
+      .filter(entry -> entry.getKey().qProfile().equals(profileKey))
+      .map(Map.Entry::getValue)
+      .collect(Collectors.toList());
+  }
+
+  void onActivated(ActiveRuleKey key, ActiveRuleDto activeRule, List<ActiveRuleParamDto> params) {
+    loadActiveRules(key.qProfile());
+    activeRulesByKey.put(key, activeRule);
+    activeRuleParamsByActiveRuleId.put(activeRule.getId(), params);
+  }
+
+  void onUpdated(ActiveRuleDto activeRule, List<ActiveRuleParamDto> params) {
+    activeRuleParamsByActiveRuleId.put(activeRule.getId(), params);
+  }
+
+  void onDeactivated(ActiveRuleKey key) {
+    ActiveRuleDto activeRule = activeRulesByKey.remove(key);
+    if (activeRule != null) {
+      activeRuleParamsByActiveRuleId.remove(activeRule.getId());
+    }
+  }
+
+  void onProfileUpdated(QualityProfileDto profile) {
+    updatedProfilesByKey.put(profile.getKey(), profile);
+  }
+
+  Collection<QualityProfileDto> getUpdatedProfiles() {
+    return updatedProfilesByKey.values();
+  }
+
+  @CheckForNull
+  private ActiveRuleDto getActiveRule(String profileKey, RuleKey ruleKey) {
+    loadActiveRules(profileKey);
+    return activeRulesByKey.get(ActiveRuleKey.of(profileKey, ruleKey));
+  }
+
+  private List<ActiveRuleParamDto> getActiveRuleParams(ActiveRuleDto activeRule) {
+    return activeRuleParamsByActiveRuleId.getOrDefault(activeRule.getId(), emptyList());
+  }
+
+  private void loadActiveRules(String profileKey) {
+    if (!profileKeysWithLoadedActiveRules.add(profileKey)) {
+      return;
+    }
+    List<ActiveRuleDto> activeRules = db.activeRuleDao().selectByProfileKey(dbSession, profileKey);
+    activeRules.forEach(activeRule -> activeRulesByKey.put(activeRule.getKey(), activeRule));
+    List<Integer> activeRuleIds = activeRules.stream().map(ActiveRuleDto::getId).collect(Collectors.toList(activeRules.size()));
+    db.activeRuleDao().selectParamsByActiveRuleIds(dbSession, activeRuleIds)
+      .forEach(param -> activeRuleParamsByActiveRuleId.computeIfAbsent(param.getActiveRuleId(), id -> new ArrayList<>()).add(param));
+  }
+}
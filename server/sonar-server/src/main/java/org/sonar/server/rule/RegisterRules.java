@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -60,7 +61,10 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Lists.newArrayList;
 
 /**
- * Register rules at server startup
+ * Register rules at server startup.
+ * <p/>
+ * The rules of a repository are merged into db only if its definitions changed since the last startup, according
+ * to the fingerprint stored in table RULE_REPOSITORIES.
  */
 public class RegisterRules implements Startable {
 
@@ -91,12 +95,28 @@ public class RegisterRules implements Startable {
     DbSession session = dbClient.openSession(false);
     try {
       Map<RuleKey, RuleDefinitionDto> allRules = loadRules(session);
+      Map<String, String> previousFingerprints = loadFingerprints(session);
 
       RulesDefinition.Context context = defLoader.load();
-      for (RulesDefinition.ExtendedRepository repoDef : getRepositories(context)) {
-        if (languages.get(repoDef.language()) != null) {
-          for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
-            registerRule(ruleDef, allRules, session);
+      Map<String, String> fingerprints = new HashMap<>();
+      for (Map.Entry<String, List<RulesDefinition.ExtendedRepository>> entry : getRepositoriesByKey(context).entrySet()) {
+        String repositoryKey = entry.getKey();
+        List<RulesDefinition.ExtendedRepository> repoDefs = entry.getValue().stream()
+          .filter(repoDef -> languages.get(repoDef.language()) != null)
+          .collect(Collectors.toList());
+        if (repoDefs.isEmpty()) {
+          continue;
+        }
+        String fingerprint = RuleRepositoryFingerprint.compute(repoDefs);
+        fingerprints.put(repositoryKey, fingerprint);
+        if (fingerprint.equals(previousFingerprints.get(repositoryKey))) {
+          LOG.debug("Rules of repository {} are unchanged", repositoryKey);
+          keepUnchangedRules(allRules, repositoryKey);
+        } else {
+          for (RulesDefinition.ExtendedRepository repoDef : repoDefs) {
+            for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
+              registerRule(ruleDef, allRules, session);
+            }
           }
           session.commit();
         }
@@ -105,7 +125,7 @@ public class RegisterRules implements Startable {
       List<ActiveRuleChange> changes = removeActiveRulesOnStillExistingRepositories(session, activeRules, context);
       session.commit();
 
-      persistRepositories(session, context.repositories());
+      persistRepositories(session, context.repositories(), fingerprints);
       ruleIndexer.index();
       activeRuleIndexer.index(changes);
       profiler.stopDebug();
@@ -114,11 +134,11 @@ public class RegisterRules implements Startable {
     }
   }
 
-  private void persistRepositories(DbSession dbSession, List<RulesDefinition.Repository> repositories) {
+  private void persistRepositories(DbSession dbSession, List<RulesDefinition.Repository> repositories, Map<String, String> fingerprints) {
     dbClient.ruleRepositoryDao().truncate(dbSession);
     List<RuleRepositoryDto> dtos = repositories
       .stream()
-      .map(r -> new RuleRepositoryDto(r.key(), r.language(), r.name()))
+      .map(r -> new RuleRepositoryDto(r.key(), r.language(), r.name()).setFingerprint(fingerprints.get(r.key())))
       .collect(Collectors.toList(repositories.size()));
     dbClient.ruleRepositoryDao().insert(dbSession, dtos);
     dbSession.commit();
@@ -163,6 +183,35 @@ public class RegisterRules implements Startable {
     return rules;
   }
 
+  private Map<String, String> loadFingerprints(DbSession session) {
+    Map<String, String> fingerprints = new HashMap<>();
+    for (RuleRepositoryDto repository : dbClient.ruleRepositoryDao().selectAll(session)) {
+      if (repository.getFingerprint() != null) {
+        fingerprints.put(repository.getKey(), repository.getFingerprint());
+      }
+    }
+    return fingerprints;
+  }
+
+  /**
+   * The rules of a repository whose definitions did not change since last startup are already up-to-date in db. They
+   * must not be considered as removed. Custom rules are kept as they depend on the status of their template.
+   */
+  private static void keepUnchangedRules(Map<RuleKey, RuleDefinitionDto> allRules, String repositoryKey) {
+    allRules.values().removeIf(rule -> repositoryKey.equals(rule.getRepositoryKey()) && rule.getTemplateId() == null);
+  }
+
+  /**
+   * Repositories and their extensions, grouped by repository key
+   */
+  private Map<String, List<RulesDefinition.ExtendedRepository>> getRepositoriesByKey(RulesDefinition.Context context) {
+    Map<String, List<RulesDefinition.ExtendedRepository>> repositoriesByKey = new LinkedHashMap<>();
+    for (RulesDefinition.ExtendedRepository repoDef : getRepositories(context)) {
+      repositoriesByKey.computeIfAbsent(repoDef.key(), k -> new ArrayList<>()).add(repoDef);
+    }
+    return repositoriesByKey;
+  }
+
   private List<RulesDefinition.ExtendedRepository> getRepositories(RulesDefinition.Context context) {
     List<RulesDefinition.ExtendedRepository> repositories = new ArrayList<>();
     for (RulesDefinition.Repository repoDef : context.repositories()) {
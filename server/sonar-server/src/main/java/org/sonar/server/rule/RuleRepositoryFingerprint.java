@@ -0,0 +1,113 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.TreeSet;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.server.debt.DebtRemediationFunction;
+import org.sonar.api.server.rule.RulesDefinition;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Fingerprint of the rule definitions provided by plugins for a repository (the repository itself and its
+ * extensions). It covers all the attributes merged into database by {@link RegisterRules}, so that a repository
+ * with an unchanged fingerprint can be skipped at startup.
+ */
+class RuleRepositoryFingerprint {
+
+  /**
+   * To be incremented when the attributes registered by {@link RegisterRules} change, so that all
+   * the repositories are registered again at next startup.
+   */
+  private static final String FORMAT_VERSION = "1";
+  private static final byte SEPARATOR = 0;
+  private static final byte NULL_MARKER = 1;
+
+  private RuleRepositoryFingerprint() {
+    // only static stuff
+  }
+
+  static String compute(Collection<? extends RulesDefinition.ExtendedRepository> repositories) {
+    MessageDigest digest = DigestUtils.getSha1Digest();
+    update(digest, FORMAT_VERSION);
+    for (RulesDefinition.ExtendedRepository repository : repositories) {
+      update(digest, repository.key());
+      update(digest, repository.language());
+      for (RulesDefinition.Rule rule : sortedByKey(repository.rules(), RulesDefinition.Rule::key)) {
+        updateRule(digest, rule);
+      }
+    }
+    return Hex.encodeHexString(digest.digest());
+  }
+
+  private static void updateRule(MessageDigest digest, RulesDefinition.Rule rule) {
+    update(digest, rule.key());
+    update(digest, rule.name());
+    update(digest, rule.htmlDescription());
+    update(digest, rule.markdownDescription());
+    update(digest, rule.internalKey());
+    update(digest, rule.severity());
+    update(digest, String.valueOf(rule.template()));
+    update(digest, rule.status().name());
+    update(digest, rule.type().name());
+    update(digest, rule.gapDescription());
+    DebtRemediationFunction function = rule.debtRemediationFunction();
+    if (function == null) {
+      update(digest, null);
+    } else {
+      update(digest, function.type().name());
+      update(digest, function.gapMultiplier());
+      update(digest, function.baseEffort());
+    }
+    for (String tag : new TreeSet<>(rule.tags())) {
+      update(digest, tag);
+    }
+    update(digest, null);
+    for (RulesDefinition.Param param : sortedByKey(rule.params(), RulesDefinition.Param::key)) {
+      update(digest, param.key());
+      update(digest, param.description());
+      update(digest, param.defaultValue());
+      update(digest, param.type().toString());
+    }
+    update(digest, null);
+  }
+
+  private static <T> Collection<T> sortedByKey(Collection<T> elements, Function<T, String> keyFunction) {
+    TreeSet<T> sorted = new TreeSet<>(Comparator.comparing(keyFunction));
+    sorted.addAll(elements);
+    return sorted;
+  }
+
+  private static void update(MessageDigest digest, @Nullable String value) {
+    if (value == null) {
+      digest.update(NULL_MARKER);
+    } else {
+      digest.update(value.getBytes(UTF_8));
+    }
+    digest.update(SEPARATOR);
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.server.ServerSide;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.permission.ProjectPermission;
+
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * Cache, shared by all the requests of the web server, of the permissions granted to users
+ * (or to anonymous) on projects. It is used by {@link ServerUserSession} when it does not already
+ * know the permissions of the current user on a project.
+ * <p>
+ * Entries are invalidated when permissions of projects, permission templates applied to projects
+ * or group memberships are changed by the web server. Changes made by other processes (for example
+ * Compute Engine applying the default template to a project created by an analysis) are visible
+ * after at most one minute.
+ * </p>
+ */
+@ServerSide
+public class ProjectPermissionsCache {
+
+  private static final long EXPIRATION_IN_SECONDS = 60L;
+  private static final long MAX_SIZE = 50_000L;
+
+  private final DbClient dbClient;
+  private final Cache<Key, Set<String>> permissionsByKey;
+  /**
+   * Incremented on each invalidation, so that permissions loaded concurrently to an invalidation
+   * are not put in cache.
+   */
+  private final AtomicLong generation = new AtomicLong();
+
+  public ProjectPermissionsCache(DbClient dbClient) {
+    this(dbClient, EXPIRATION_IN_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @VisibleForTesting
+  ProjectPermissionsCache(DbClient dbClient, long expiration, TimeUnit expirationUnit) {
+    this.dbClient = dbClient;
+    this.permissionsByKey = CacheBuilder.newBuilder()
+      .maximumSize(MAX_SIZE)
+      .expireAfterWrite(expiration, expirationUnit)
+      .build();
+  }
+
+  /**
+   * Permissions granted to the user, or to anonymous if {@code userId} is {@code null}, on each of the
+   * specified projects. The permissions which are not cached yet are loaded with a single SQL request.
+   * The returned map contains all the requested projects. Permissions are empty if project does not exist.
+   */
+  public Map<String, Set<String>> getPermissions(@Nullable Integer userId, Collection<String> projectUuids) {
+    Map<String, Set<String>> result = new HashMap<>();
+    Set<String> missingProjectUuids = new HashSet<>();
+    for (String projectUuid : projectUuids) {
+      Set<String> permissions = permissionsByKey.getIfPresent(new Key(userId, projectUuid));
+      if (permissions == null) {
+        missingProjectUuids.add(projectUuid);
+      } else {
+        result.put(projectUuid, permissions);
+      }
+    }
+    if (!missingProjectUuids.isEmpty()) {
+      long generationBeforeLoading = generation.get();
+      Map<String, Set<String>> loaded = load(userId, missingProjectUuids);
+      boolean cacheable = generationBeforeLoading == generation.get();
+      loaded.forEach((projectUuid, permissions) -> {
+        if (cacheable) {
+          permissionsByKey.put(new Key(userId, projectUuid), permissions);
+        }
+        result.put(projectUuid, permissions);
+      });
+    }
+    return result;
+  }
+
+  private Map<String, Set<String>> load(@Nullable Integer userId, Set<String> projectUuids) {
+    Map<String, Set<String>> permissionsByProjectUuid = new HashMap<>();
+    projectUuids.forEach(projectUuid -> permissionsByProjectUuid.put(projectUuid, new HashSet<>()));
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      for (ProjectPermission projectPermission : dbClient.authorizationDao().selectProjectPermissions(dbSession, projectUuids, userId)) {
+        permissionsByProjectUuid.get(projectPermission.getProjectUuid()).add(projectPermission.getPermission());
+      }
+    }
+    permissionsByProjectUuid.replaceAll((projectUuid, permissions) -> unmodifiableSet(permissions));
+    return permissionsByProjectUuid;
+  }
+
+  /**
+   * To be called when permissions of users, groups or anonymous are changed on the specified projects.
+   */
+  public void invalidateProjects(Collection<String> projectUuids) {
+    generation.incrementAndGet();
+    Set<String> uuids = new HashSet<>(projectUuids);
+    permissionsByKey.asMap().keySet().removeIf(key -> uuids.contains(key.projectUuid));
+  }
+
+  /**
+   * To be called when the groups of the specified user are changed.
+   */
+  public void invalidateUser(int userId) {
+    generation.incrementAndGet();
+    permissionsByKey.asMap().keySet().removeIf(key -> key.userId != null && key.userId == userId);
+  }
+
+  /**
+   * To be called when the changes can impact any user, for example when a group is deleted.
+   */
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    permissionsByKey.invalidateAll();
+  }
+
+  private static final class Key {
+    @CheckForNull
+    private final Integer userId;
+    private final String projectUuid;
+
+    private Key(@Nullable Integer userId, String projectUuid) {
+      this.userId = userId;
+      this.projectUuid = projectUuid;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return Objects.equals(userId, key.userId) && projectUuid.equals(key.projectUuid);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(userId, projectUuid);
+    }
+  }
+}
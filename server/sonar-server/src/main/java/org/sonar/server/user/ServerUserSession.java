@@ -24,6 +24,7 @@ import com.google.common.base.Suppliers;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -40,6 +41,7 @@ import org.sonar.server.organization.OrganizationFlags;
 import org.sonar.db.permission.OrganizationPermission;
 
 import static com.google.common.collect.Maps.newHashMap;
+import static java.util.Collections.singletonList;
 
 /**
  * Implementation of {@link UserSession} used in web server
@@ -50,6 +52,7 @@ public class ServerUserSession extends AbstractUserSession {
   private final DbClient dbClient;
   private final OrganizationFlags organizationFlags;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final ProjectPermissionsCache projectPermissionsCache;
   private final Supplier<Collection<GroupDto>> groups = Suppliers.memoize(this::loadGroups);
   private final Supplier<Boolean> isSystemAdministratorSupplier = Suppliers.memoize(this::loadIsSystemAdministrator);
   private final Map<String, String> projectUuidByComponentUuid = newHashMap();
@@ -57,10 +60,11 @@ public class ServerUserSession extends AbstractUserSession {
   private Map<String, Set<String>> permissionsByProjectUuid;
 
   ServerUserSession(DbClient dbClient, OrganizationFlags organizationFlags,
-    DefaultOrganizationProvider defaultOrganizationProvider, @Nullable UserDto userDto) {
+    DefaultOrganizationProvider defaultOrganizationProvider, ProjectPermissionsCache projectPermissionsCache, @Nullable UserDto userDto) {
     this.dbClient = dbClient;
     this.organizationFlags = organizationFlags;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.projectPermissionsCache = projectPermissionsCache;
     this.userDto = userDto;
   }
 
@@ -151,17 +155,24 @@ public class ServerUserSession extends AbstractUserSession {
     if (permissionsByProjectUuid == null) {
       permissionsByProjectUuid = new HashMap<>();
     }
-    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid, this::loadProjectPermissions);
+    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid,
+      uuid -> projectPermissionsCache.getPermissions(getUserId(), singletonList(uuid)).get(uuid));
     return permissions.contains(permission);
   }
 
-  private Set<String> loadProjectPermissions(String projectUuid) {
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      if (userDto != null && userDto.getId() != null) {
-        return dbClient.authorizationDao().selectProjectPermissions(dbSession, projectUuid, userDto.getId());
-      }
-      return dbClient.authorizationDao().selectProjectPermissionsOfAnonymous(dbSession, projectUuid);
+  @Override
+  protected List<ComponentDto> doKeepAuthorizedComponents(String permission, Collection<ComponentDto> components) {
+    if (permissionsByProjectUuid == null) {
+      permissionsByProjectUuid = new HashMap<>();
+    }
+    Set<String> missingProjectUuids = components.stream()
+      .map(ComponentDto::projectUuid)
+      .filter(projectUuid -> !permissionsByProjectUuid.containsKey(projectUuid))
+      .collect(Collectors.toSet());
+    if (!missingProjectUuids.isEmpty()) {
+      permissionsByProjectUuid.putAll(projectPermissionsCache.getPermissions(getUserId(), missingProjectUuids));
     }
+    return super.doKeepAuthorizedComponents(permission, components);
   }
 
   @Override
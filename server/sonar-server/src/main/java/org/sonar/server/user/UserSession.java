@@ -20,6 +20,7 @@
 package org.sonar.server.user;
 
 import java.util.Collection;
+import java.util.List;
 import javax.annotation.CheckForNull;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.organization.OrganizationDto;
@@ -114,6 +115,16 @@ public interface UserSession {
    */
   boolean hasComponentUuidPermission(String permission, String componentUuid);
 
+  /**
+   * Return the subset of specified components which have the specified permission.
+   * Contrary to {@link #hasComponentPermission(String, ComponentDto)} called on each component,
+   * the permissions of all the related projects are loaded at once.
+   *
+   * @param permission project permission as defined by {@link org.sonar.core.permission.ProjectPermissions}
+   * @param components non-null components. Order is preserved.
+   */
+  List<ComponentDto> keepAuthorizedComponents(String permission, Collection<ComponentDto> components);
+
   /**
    * Ensures that {@link #hasComponentPermission(String, ComponentDto)} is {@code true},
    * otherwise throws a {@link org.sonar.server.exceptions.ForbiddenException}.
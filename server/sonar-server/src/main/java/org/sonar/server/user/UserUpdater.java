@@ -22,14 +22,11 @@ package org.sonar.server.user;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import java.net.HttpURLConnection;
-import java.security.SecureRandom;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Random;
 import javax.annotation.Nullable;
-import org.apache.commons.codec.digest.DigestUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.config.Settings;
 import org.sonar.api.platform.NewUserHandler;
@@ -42,6 +39,7 @@ import org.sonar.db.organization.OrganizationMemberDto;
 import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.db.user.UserGroupDto;
+import org.sonar.server.authentication.CredentialsLocalAuthentication;
 import org.sonar.server.exceptions.ServerException;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.OrganizationCreation;
@@ -52,7 +50,6 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
-import static org.sonar.db.user.UserDto.encryptPassword;
 import static org.sonar.server.ws.WsUtils.checkFound;
 import static org.sonar.server.ws.WsUtils.checkRequest;
 
@@ -78,9 +75,12 @@ public class UserUpdater {
   private final System2 system2;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
   private final OrganizationCreation organizationCreation;
+  private final CredentialsLocalAuthentication localAuthentication;
+  private final ProjectPermissionsCache projectPermissionsCache;
 
   public UserUpdater(NewUserNotifier newUserNotifier, Settings settings, DbClient dbClient, UserIndexer userIndexer, System2 system2,
-    DefaultOrganizationProvider defaultOrganizationProvider, OrganizationCreation organizationCreation) {
+    DefaultOrganizationProvider defaultOrganizationProvider, OrganizationCreation organizationCreation, CredentialsLocalAuthentication localAuthentication,
+    ProjectPermissionsCache projectPermissionsCache) {
     this.newUserNotifier = newUserNotifier;
     this.settings = settings;
     this.dbClient = dbClient;
@@ -88,6 +88,8 @@ public class UserUpdater {
     this.system2 = system2;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
     this.organizationCreation = organizationCreation;
+    this.localAuthentication = localAuthentication;
+    this.projectPermissionsCache = projectPermissionsCache;
   }
 
   public UserDto create(DbSession dbSession, NewUser newUser) {
@@ -121,6 +123,7 @@ public class UserUpdater {
     addDefaultGroup(dbSession, existingUser);
     addUserToDefaultOrganization(dbSession, existingUser);
     dbSession.commit();
+    projectPermissionsCache.invalidateUser(existingUser.getId());
   }
 
   public void update(DbSession dbSession, UpdateUser updateUser) {
@@ -155,7 +158,7 @@ public class UserUpdater {
 
     String password = newUser.password();
     if (password != null && validatePasswords(password, messages)) {
-      setEncryptedPassWord(password, userDto);
+      localAuthentication.storeHashPassword(userDto, password);
     }
 
     List<String> scmAccounts = sanitizeScmAccounts(newUser.scmAccounts());
@@ -204,15 +207,16 @@ public class UserUpdater {
       setExternalIdentity(userDto, externalIdentity);
       userDto.setSalt(null);
       userDto.setCryptedPassword(null);
+      userDto.setHashMethod(null);
       return true;
     }
     return false;
   }
 
-  private static boolean updatePassword(UpdateUser updateUser, UserDto userDto, List<String> messages) {
+  private boolean updatePassword(UpdateUser updateUser, UserDto userDto, List<String> messages) {
     String password = updateUser.password();
     if (!updateUser.isExternalIdentityChanged() && updateUser.isPasswordChanged() && validatePasswords(password, messages) && checkPasswordChangeAllowed(userDto, messages)) {
-      setEncryptedPassWord(password, userDto);
+      localAuthentication.storeHashPassword(userDto, password);
       return true;
     }
     return false;
@@ -353,6 +357,7 @@ public class UserUpdater {
     addUserToDefaultOrganization(dbSession, userDto);
     organizationCreation.createForUser(dbSession, userDto);
     dbSession.commit();
+    projectPermissionsCache.invalidateUser(userDto.getId());
     userIndexer.index(userDto.getLogin());
     return res;
   }
@@ -365,15 +370,6 @@ public class UserUpdater {
     userIndexer.index(userDto.getLogin());
   }
 
-  private static void setEncryptedPassWord(String password, UserDto userDto) {
-    Random random = new SecureRandom();
-    byte[] salt = new byte[32];
-    random.nextBytes(salt);
-    String saltHex = DigestUtils.sha1Hex(salt);
-    userDto.setSalt(saltHex);
-    userDto.setCryptedPassword(encryptPassword(password, saltHex));
-  }
-
   private void notifyNewUser(String login, String name, String email) {
     newUserNotifier.onNewUser(NewUserHandler.Context.builder()
       .setLogin(login)
@@ -21,6 +21,7 @@ package org.sonar.server.user.index;
 
 import com.google.common.base.Function;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -115,6 +116,25 @@ public class UserIndex {
     return result;
   }
 
+  /**
+   * Login and name of the users with the given logins, in a single request without scroll context. It is intended
+   * for a small number of logins: use {@link #selectUsersForBatch(List)} for large lists.
+   */
+  public List<UserDoc> getByLogins(Collection<String> logins) {
+    List<UserDoc> result = new ArrayList<>();
+    if (logins.isEmpty()) {
+      return result;
+    }
+    SearchRequestBuilder request = esClient.prepareSearch(UserIndexDefinition.INDEX_TYPE_USER)
+      .setQuery(boolQuery().filter(termsQuery(FIELD_LOGIN, logins)))
+      .setFetchSource(new String[] {FIELD_LOGIN, FIELD_NAME}, null)
+      .setSize(logins.size());
+    for (SearchHit hit : request.get().getHits().getHits()) {
+      result.add(DOC_CONVERTER.apply(hit.sourceAsMap()));
+    }
+    return result;
+  }
+
   public Iterator<UserDoc> selectUsersForBatch(List<String> logins) {
     BoolQueryBuilder filter = boolQuery()
       .filter(termsQuery(FIELD_LOGIN, logins));
@@ -28,6 +28,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.db.user.UserGroupDto;
+import org.sonar.server.user.ProjectPermissionsCache;
 import org.sonar.server.user.UserSession;
 
 import static java.lang.String.format;
@@ -45,11 +46,13 @@ public class AddUserAction implements UserGroupsWsAction {
   private final DbClient dbClient;
   private final UserSession userSession;
   private final GroupWsSupport support;
+  private final ProjectPermissionsCache projectPermissionsCache;
 
-  public AddUserAction(DbClient dbClient, UserSession userSession, GroupWsSupport support) {
+  public AddUserAction(DbClient dbClient, UserSession userSession, GroupWsSupport support, ProjectPermissionsCache projectPermissionsCache) {
     this.dbClient = dbClient;
     this.userSession = userSession;
     this.support = support;
+    this.projectPermissionsCache = projectPermissionsCache;
   }
 
   @Override
@@ -83,6 +86,7 @@ public class AddUserAction implements UserGroupsWsAction {
         UserGroupDto membershipDto = new UserGroupDto().setGroupId(groupId.getId()).setUserId(user.getId());
         dbClient.userGroupDao().insert(dbSession, membershipDto);
         dbSession.commit();
+        projectPermissionsCache.invalidateUser(user.getId());
       }
 
       response.noContent();
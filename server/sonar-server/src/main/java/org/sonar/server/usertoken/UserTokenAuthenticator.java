@@ -23,14 +23,17 @@ import com.google.common.base.Optional;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.user.UserTokenDto;
+import org.sonar.server.authentication.CredentialsCache;
 
 public class UserTokenAuthenticator {
   private final TokenGenerator tokenGenerator;
   private final DbClient dbClient;
+  private final CredentialsCache credentialsCache;
 
-  public UserTokenAuthenticator(TokenGenerator tokenGenerator, DbClient dbClient) {
+  public UserTokenAuthenticator(TokenGenerator tokenGenerator, DbClient dbClient, CredentialsCache credentialsCache) {
     this.tokenGenerator = tokenGenerator;
     this.dbClient = dbClient;
+    this.credentialsCache = credentialsCache;
   }
 
   /**
@@ -39,10 +42,15 @@ public class UserTokenAuthenticator {
    * for instance), then the login may not relate to a valid user.
    */
   public java.util.Optional<String> authenticate(String token) {
+    java.util.Optional<String> cachedLogin = credentialsCache.getLoginOfToken(token);
+    if (cachedLogin.isPresent()) {
+      return cachedLogin;
+    }
     String tokenHash = tokenGenerator.hash(token);
     try (DbSession dbSession = dbClient.openSession(false)) {
       Optional<UserTokenDto> userToken = dbClient.userTokenDao().selectByTokenHash(dbSession, tokenHash);
       if (userToken.isPresent()) {
+        credentialsCache.putVerifiedToken(token, userToken.get().getLogin());
         return java.util.Optional.of(userToken.get().getLogin());
       }
       return java.util.Optional.empty();
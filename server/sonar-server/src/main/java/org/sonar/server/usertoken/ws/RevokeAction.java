@@ -24,6 +24,7 @@ import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.server.authentication.CredentialsCache;
 import org.sonar.server.user.UserSession;
 import org.sonarqube.ws.client.usertoken.RevokeWsRequest;
 
@@ -34,10 +35,12 @@ import static org.sonarqube.ws.client.usertoken.UserTokensWsParameters.PARAM_NAM
 public class RevokeAction implements UserTokensWsAction {
   private final DbClient dbClient;
   private final UserSession userSession;
+  private final CredentialsCache credentialsCache;
 
-  public RevokeAction(DbClient dbClient, UserSession userSession) {
+  public RevokeAction(DbClient dbClient, UserSession userSession, CredentialsCache credentialsCache) {
     this.dbClient = dbClient;
     this.userSession = userSession;
+    this.credentialsCache = credentialsCache;
   }
 
   @Override
@@ -71,6 +74,7 @@ public class RevokeAction implements UserTokensWsAction {
     try (DbSession dbSession = dbClient.openSession(false)) {
       dbClient.userTokenDao().deleteByLoginAndName(dbSession, request.getLogin(), request.getName());
       dbSession.commit();
+      credentialsCache.invalidate(request.getLogin());
     }
   }
 
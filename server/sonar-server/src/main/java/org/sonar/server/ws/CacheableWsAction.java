@@ -0,0 +1,41 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import java.util.Optional;
+import org.sonar.api.server.ws.Request;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
+
+/**
+ * Web service action whose successful GET responses can be kept in {@link WsResponseCache}.
+ * A cached response is reused as long as no new analysis of the project of the component is
+ * available, the permissions of the user on this component did not change and the component and
+ * the tags of its project did not change. See {@link WsResponseCache} for the changes which are not detected.
+ */
+public interface CacheableWsAction extends WsAction {
+
+  /**
+   * Component the response is about, or {@link Optional#empty()} if the response must not be cached.
+   * Must not fail: errors are reported by {@link #handle(Request, org.sonar.api.server.ws.Response)}.
+   */
+  Optional<ComponentDto> selectCachedComponent(DbSession dbSession, Request request);
+
+}
@@ -118,6 +118,11 @@ public class ServletRequest extends ValidatingRequest {
     return url.toString();
   }
 
+  @CheckForNull
+  public String header(String name) {
+    return source.getHeader(name);
+  }
+
   @CheckForNull
   private String acceptedContentTypeInResponse() {
     return source.getHeader(HttpHeaders.ACCEPT);
@@ -30,6 +30,7 @@ import org.picocontainer.Startable;
 import org.sonar.api.server.ServerSide;
 import org.sonar.api.server.ws.LocalConnector;
 import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.RequestHandler;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.api.server.ws.internal.ValidatingRequest;
@@ -59,8 +60,18 @@ public class WebServiceEngine implements LocalConnector, Startable {
   private static final Logger LOGGER = Loggers.get(WebServiceEngine.class);
 
   private final WebService.Context context;
+  @CheckForNull
+  private final WsResponseCache responseCache;
 
+  /**
+   * Used when {@link WsResponseCache} is not available, for example in safe mode
+   */
   public WebServiceEngine(WebService[] webServices) {
+    this(webServices, null);
+  }
+
+  public WebServiceEngine(WebService[] webServices, @Nullable WsResponseCache responseCache) {
+    this.responseCache = responseCache;
     context = new WebService.Context();
     for (WebService webService : webServices) {
       webService.define(context);
@@ -100,7 +111,7 @@ public class WebServiceEngine implements LocalConnector, Startable {
       }
       checkActionExtension(actionExtractor.getExtension());
       verifyRequest(action, request);
-      action.handler().handle(request, response);
+      handle(action, request, response);
     } catch (IllegalArgumentException e) {
       sendErrors(response, 400, singletonList(e.getMessage()));
     } catch (BadRequestException e) {
@@ -121,6 +132,15 @@ public class WebServiceEngine implements LocalConnector, Startable {
     }
   }
 
+  private void handle(WebService.Action action, Request request, Response response) throws Exception {
+    RequestHandler handler = action.handler();
+    if (responseCache != null && handler instanceof CacheableWsAction) {
+      responseCache.handle(action, (CacheableWsAction) handler, request, response);
+    } else {
+      handler.handle(request, response);
+    }
+  }
+
   @CheckForNull
   private WebService.Action getAction(ActionExtractor actionExtractor) {
     String controllerPath = actionExtractor.getController();
@@ -0,0 +1,264 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.net.HttpHeaders;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.web.UserRole;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.SnapshotDto;
+import org.sonar.server.user.UserSession;
+
+/**
+ * In-memory cache of the responses of {@link CacheableWsAction}s.
+ * <p>
+ * Responses are keyed by action, request parameters, requested media type, user and permissions
+ * of the user on the requested component. An entry is discarded as soon as a new analysis of the
+ * project is available, even though analyses are processed by the Compute Engine in another JVM, or
+ * as soon as the key, name or description of the requested component, or the tags of its project, are
+ * changed, for example by api/project_tags/set.
+ * </p>
+ * <p>
+ * Other changes made outside of analyses, for example to the ancestors of the requested component,
+ * are not detected. Responses are then served stale until they expire, {@link #EXPIRATION_IN_MINUTES}
+ * minutes after being cached. Actions should not be cacheable if their responses depend on such data.
+ * </p>
+ * <p>
+ * Responses of cacheable actions are sent with an {@code ETag} header, so that clients can
+ * send conditional requests ({@code If-None-Match}) and get a {@code 304 Not Modified}
+ * without body when the response did not change.
+ * </p>
+ */
+@ServerSide
+public class WsResponseCache {
+
+  private static final long DEFAULT_MAX_WEIGHT_IN_BYTES = 50L * 1024 * 1024;
+  private static final long EXPIRATION_IN_MINUTES = 30;
+  private static final String[] PERMISSIONS = {UserRole.USER, UserRole.CODEVIEWER, UserRole.ADMIN};
+
+  private final DbClient dbClient;
+  private final UserSession userSession;
+  private final Cache<String, CachedResponse> cache;
+
+  public WsResponseCache(DbClient dbClient, UserSession userSession) {
+    this(dbClient, userSession, DEFAULT_MAX_WEIGHT_IN_BYTES);
+  }
+
+  @VisibleForTesting
+  WsResponseCache(DbClient dbClient, UserSession userSession, long maxWeightInBytes) {
+    this.dbClient = dbClient;
+    this.userSession = userSession;
+    this.cache = CacheBuilder.newBuilder()
+      .maximumWeight(maxWeightInBytes)
+      .weigher((String key, CachedResponse value) -> key.length() + value.body.length)
+      .expireAfterWrite(EXPIRATION_IN_MINUTES, TimeUnit.MINUTES)
+      .build();
+  }
+
+  public void handle(WebService.Action action, CacheableWsAction handler, Request request, Response response) throws Exception {
+    if (!(request instanceof ServletRequest) || !"GET".equals(request.method())) {
+      handler.handle(request, response);
+      return;
+    }
+    Optional<Scope> scope = loadScope(handler, request);
+    if (!scope.isPresent()) {
+      handler.handle(request, response);
+      return;
+    }
+
+    String key = toKey(action, request, scope.get());
+    CachedResponse cached = cache.getIfPresent(key);
+    if (cached == null || !cached.version.equals(scope.get().version)) {
+      DefaultLocalResponse buffer = new DefaultLocalResponse();
+      handler.handle(request, buffer);
+      if (buffer.getStatus() != HttpURLConnection.HTTP_OK) {
+        write(buffer, response);
+        return;
+      }
+      cached = new CachedResponse(scope.get().version, buffer);
+      cache.put(key, cached);
+    }
+    write(cached, (ServletRequest) request, response);
+  }
+
+  /**
+   * Helper for {@link CacheableWsAction#selectCachedComponent(DbSession, Request)}: the component referenced
+   * by its uuid or by its key, or empty if none or both are set, or if the component does not exist.
+   */
+  public static Optional<ComponentDto> selectByUuidOrKey(DbClient dbClient, DbSession dbSession, @Nullable String uuid, @Nullable String key) {
+    if ((uuid == null) == (key == null)) {
+      return Optional.empty();
+    }
+    com.google.common.base.Optional<ComponentDto> component = uuid == null
+      ? dbClient.componentDao().selectByKey(dbSession, key)
+      : dbClient.componentDao().selectByUuid(dbSession, uuid);
+    return Optional.ofNullable(component.orNull());
+  }
+
+  @VisibleForTesting
+  long size() {
+    return cache.size();
+  }
+
+  private Optional<Scope> loadScope(CacheableWsAction handler, Request request) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return handler.selectCachedComponent(dbSession, request)
+        .map(component -> new Scope(component, permissionsOn(component), versionOf(dbSession, component)));
+    }
+  }
+
+  /**
+   * Changes when a new analysis of the project is available or when the data of the component which are not updated
+   * by analyses are changed
+   */
+  private String versionOf(DbSession dbSession, ComponentDto component) {
+    String analysisUuid = dbClient.snapshotDao()
+      .selectLastAnalysisByRootComponentUuid(dbSession, component.projectUuid())
+      .map(SnapshotDto::getUuid)
+      .orElse(null);
+    // tags of the project are returned with its files and modules, for example as ancestors by api/components/show
+    ComponentDto project = component.uuid().equals(component.projectUuid())
+      ? component
+      : dbClient.componentDao().selectByUuid(dbSession, component.projectUuid()).orNull();
+    String projectTags = project == null ? null : project.getTagsString();
+    return String.join("|", String.valueOf(analysisUuid), component.getKey(), String.valueOf(component.name()), String.valueOf(component.longName()),
+      String.valueOf(component.description()), String.valueOf(projectTags));
+  }
+
+  private String permissionsOn(ComponentDto component) {
+    StringBuilder permissions = new StringBuilder();
+    if (userSession.isRoot()) {
+      permissions.append("root");
+    }
+    for (String permission : PERMISSIONS) {
+      if (userSession.hasComponentPermission(permission, component)) {
+        permissions.append(',').append(permission);
+      }
+    }
+    return permissions.toString();
+  }
+
+  private String toKey(WebService.Action action, Request request, Scope scope) {
+    StringBuilder key = new StringBuilder(action.path());
+    action.params().stream()
+      .sorted(Comparator.comparing(WebService.Param::key))
+      .forEach(param -> {
+        List<String> values = request.multiParam(param.key());
+        if (!values.isEmpty()) {
+          key.append('&').append(param.key()).append('=').append(String.join(",", values));
+        }
+      });
+    return key
+      .append('|').append(request.getMediaType())
+      .append('|').append(userSession.getLogin())
+      .append('|').append(scope.component.uuid())
+      .append('|').append(scope.permissions)
+      .toString();
+  }
+
+  private static void write(CachedResponse cached, ServletRequest request, Response response) throws IOException {
+    cached.headers.forEach(response::setHeader);
+    response.setHeader(HttpHeaders.ETAG, cached.etag);
+    // response can be stored by browser, but must be revalidated before each use
+    response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+    if (matches(request.header(HttpHeaders.IF_NONE_MATCH), cached.etag)) {
+      response.stream().setStatus(HttpURLConnection.HTTP_NOT_MODIFIED);
+      return;
+    }
+    writeBody(cached.mediaType, cached.body, response);
+  }
+
+  private static void write(DefaultLocalResponse buffer, Response response) throws IOException {
+    buffer.getHeaderNames().forEach(name -> response.setHeader(name, buffer.getHeader(name)));
+    response.stream().setStatus(buffer.getStatus());
+    writeBody(buffer.getMediaType(), buffer.getFlushedOutput(), response);
+  }
+
+  private static void writeBody(@Nullable String mediaType, byte[] body, Response response) throws IOException {
+    if (mediaType != null) {
+      response.stream().setMediaType(mediaType);
+    }
+    try (OutputStream output = response.stream().output()) {
+      output.write(body);
+    }
+  }
+
+  private static boolean matches(@Nullable String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : Splitter.on(',').trimResults().omitEmptyStrings().split(ifNoneMatch)) {
+      if ("*".equals(candidate) || etag.equals(candidate) || etag.equals(candidate.replaceFirst("^W/", ""))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static class Scope {
+    private final ComponentDto component;
+    private final String permissions;
+    private final String version;
+
+    private Scope(ComponentDto component, String permissions, String version) {
+      this.component = component;
+      this.permissions = permissions;
+      this.version = version;
+    }
+  }
+
+  private static class CachedResponse {
+    private final String version;
+    @CheckForNull
+    private final String mediaType;
+    private final Map<String, String> headers = new HashMap<>();
+    private final byte[] body;
+    private final String etag;
+
+    private CachedResponse(String version, DefaultLocalResponse response) {
+      this.version = version;
+      this.mediaType = response.getMediaType();
+      response.getHeaderNames().forEach(name -> headers.put(name, response.getHeader(name)));
+      this.body = response.getFlushedOutput();
+      this.etag = '"' + DigestUtils.sha1Hex(body) + '"';
+    }
+  }
+}
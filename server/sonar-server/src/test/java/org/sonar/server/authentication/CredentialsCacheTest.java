@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.authentication;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CredentialsCacheTest {
+
+  private CredentialsCache underTest = new CredentialsCache();
+
+  @Test
+  public void password_is_verified_only_for_the_same_hash() {
+    underTest.putVerifiedPassword("john", "secret", "hash1");
+
+    assertThat(underTest.isPasswordVerified("john", "secret", "hash1")).isTrue();
+    assertThat(underTest.isPasswordVerified("john", "secret", "hash2")).isFalse();
+    assertThat(underTest.isPasswordVerified("john", "secret", null)).isFalse();
+    assertThat(underTest.isPasswordVerified("john", "other", "hash1")).isFalse();
+    assertThat(underTest.isPasswordVerified("jane", "secret", "hash1")).isFalse();
+  }
+
+  @Test
+  public void return_login_of_verified_token() {
+    underTest.putVerifiedToken("token", "john");
+
+    assertThat(underTest.getLoginOfToken("token")).contains("john");
+    assertThat(underTest.getLoginOfToken("unknown")).isEmpty();
+  }
+
+  @Test
+  public void password_and_token_do_not_share_entries() {
+    underTest.putVerifiedToken("secret", "john");
+
+    assertThat(underTest.isPasswordVerified("john", "secret", null)).isFalse();
+    assertThat(underTest.getLoginOfToken("john")).isEmpty();
+  }
+
+  @Test
+  public void invalidate_removes_passwords_and_tokens_of_user() {
+    underTest.putVerifiedPassword("john", "secret", "hash");
+    underTest.putVerifiedToken("token1", "john");
+    underTest.putVerifiedToken("token2", "jane");
+
+    underTest.invalidate("john");
+
+    assertThat(underTest.isPasswordVerified("john", "secret", "hash")).isFalse();
+    assertThat(underTest.getLoginOfToken("token1")).isEmpty();
+    assertThat(underTest.getLoginOfToken("token2")).contains("jane");
+  }
+
+  @Test
+  public void entries_expire() throws Exception {
+    underTest = new CredentialsCache(1, TimeUnit.MILLISECONDS);
+    underTest.putVerifiedToken("token", "john");
+
+    Thread.sleep(10);
+
+    assertThat(underTest.getLoginOfToken("token")).isEmpty();
+  }
+}
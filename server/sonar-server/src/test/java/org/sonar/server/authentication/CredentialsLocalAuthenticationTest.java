@@ -0,0 +1,177 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.authentication;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.user.UserDto;
+import org.sonar.server.authentication.event.AuthenticationEvent.Source;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.user.UserTesting.newUserDto;
+import static org.sonar.server.authentication.CredentialsLocalAuthentication.PBKDF2_ITERATIONS_PROPERTY;
+import static org.sonar.server.authentication.event.AuthenticationEvent.Method.BASIC;
+import static org.sonar.server.authentication.event.AuthenticationExceptionMatcher.authenticationException;
+
+public class CredentialsLocalAuthenticationTest {
+
+  private static final String LOGIN = "LOGIN";
+  private static final String PASSWORD = "PASSWORD";
+  private static final String SHA1_SALT = "0242b0b4c0a93ddfe09dd886de50bc25ba000b51";
+  private static final String SHA1_CRYPTED_PASSWORD = "540e4fc4be4e047db995bc76d18374a5b5db08cc";
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private DbClient dbClient = db.getDbClient();
+  private DbSession dbSession = db.getSession();
+  private Settings settings = new MapSettings().setProperty(PBKDF2_ITERATIONS_PROPERTY, 1_000);
+  private CredentialsCache credentialsCache = new CredentialsCache();
+  private CredentialsLocalAuthentication underTest = new CredentialsLocalAuthentication(dbClient, credentialsCache, settings);
+
+  @Test
+  public void store_hash_password_with_pbkdf2() {
+    UserDto user = newUserDto();
+
+    underTest.storeHashPassword(user, PASSWORD);
+
+    assertThat(user.getHashMethod()).isEqualTo("PBKDF2");
+    assertThat(user.getSalt()).isNotNull();
+    assertThat(user.getCryptedPassword()).startsWith("1000$");
+  }
+
+  @Test
+  public void salt_is_different_each_time() {
+    UserDto user1 = newUserDto();
+    UserDto user2 = newUserDto();
+
+    underTest.storeHashPassword(user1, PASSWORD);
+    underTest.storeHashPassword(user2, PASSWORD);
+
+    assertThat(user1.getSalt()).isNotEqualTo(user2.getSalt());
+    assertThat(user1.getCryptedPassword()).isNotEqualTo(user2.getCryptedPassword());
+  }
+
+  @Test
+  public void authenticate_user_hashed_with_pbkdf2() {
+    UserDto user = newUserDto().setLogin(LOGIN).setLocal(true);
+    underTest.storeHashPassword(user, PASSWORD);
+    db.users().insertUser(user);
+    String cryptedPassword = user.getCryptedPassword();
+
+    underTest.authenticate(dbSession, user, PASSWORD, BASIC);
+
+    assertThat(dbClient.userDao().selectOrFailByLogin(dbSession, LOGIN).getCryptedPassword()).isEqualTo(cryptedPassword);
+  }
+
+  @Test
+  public void rehash_legacy_sha1_password_with_pbkdf2() {
+    UserDto user = db.users().insertUser(newUserDto()
+      .setLogin(LOGIN)
+      .setCryptedPassword(SHA1_CRYPTED_PASSWORD)
+      .setSalt(SHA1_SALT)
+      .setHashMethod(null)
+      .setLocal(true));
+
+    underTest.authenticate(dbSession, user, PASSWORD, BASIC);
+
+    UserDto reloaded = dbClient.userDao().selectOrFailByLogin(dbSession, LOGIN);
+    assertThat(reloaded.getHashMethod()).isEqualTo("PBKDF2");
+    assertThat(reloaded.getCryptedPassword()).startsWith("1000$");
+    assertThat(reloaded.getSalt()).isNotEqualTo(SHA1_SALT);
+
+    // new hash is still valid
+    underTest.authenticate(dbSession, reloaded, PASSWORD, BASIC);
+  }
+
+  @Test
+  public void rehash_password_when_number_of_iterations_changes() {
+    UserDto user = newUserDto().setLogin(LOGIN).setLocal(true);
+    underTest.storeHashPassword(user, PASSWORD);
+    db.users().insertUser(user);
+
+    CredentialsLocalAuthentication moreIterations = new CredentialsLocalAuthentication(dbClient, new CredentialsCache(),
+      new MapSettings().setProperty(PBKDF2_ITERATIONS_PROPERTY, 2_000));
+    moreIterations.authenticate(dbSession, user, PASSWORD, BASIC);
+
+    assertThat(dbClient.userDao().selectOrFailByLogin(dbSession, LOGIN).getCryptedPassword()).startsWith("2000$");
+  }
+
+  @Test
+  public void fail_when_password_is_wrong() {
+    UserDto user = newUserDto().setLogin(LOGIN).setLocal(true);
+    underTest.storeHashPassword(user, PASSWORD);
+    db.users().insertUser(user);
+
+    expectedException.expect(authenticationException().from(Source.local(BASIC)).withLogin(LOGIN).andNoPublicMessage());
+    expectedException.expectMessage("wrong password");
+
+    underTest.authenticate(dbSession, user, "wrong", BASIC);
+  }
+
+  @Test
+  public void fail_when_legacy_sha1_password_is_wrong() {
+    UserDto user = db.users().insertUser(newUserDto()
+      .setLogin(LOGIN)
+      .setCryptedPassword(SHA1_CRYPTED_PASSWORD)
+      .setSalt(SHA1_SALT)
+      .setHashMethod(null)
+      .setLocal(true));
+
+    expectedException.expect(authenticationException().from(Source.local(BASIC)).withLogin(LOGIN).andNoPublicMessage());
+    expectedException.expectMessage("wrong password");
+
+    underTest.authenticate(dbSession, user, "wrong", BASIC);
+  }
+
+  @Test
+  public void successful_verification_is_cached() {
+    UserDto user = newUserDto().setLogin(LOGIN).setLocal(true);
+    underTest.storeHashPassword(user, PASSWORD);
+    db.users().insertUser(user);
+
+    underTest.authenticate(dbSession, user, PASSWORD, BASIC);
+
+    assertThat(credentialsCache.isPasswordVerified(LOGIN, PASSWORD, user.getCryptedPassword())).isTrue();
+  }
+
+  @Test
+  public void cached_verification_is_ignored_when_password_has_changed() {
+    UserDto user = newUserDto().setLogin(LOGIN).setLocal(true);
+    underTest.storeHashPassword(user, PASSWORD);
+    db.users().insertUser(user);
+    underTest.authenticate(dbSession, user, PASSWORD, BASIC);
+
+    underTest.storeHashPassword(user, "new password");
+
+    expectedException.expect(authenticationException().from(Source.local(BASIC)).withLogin(LOGIN).andNoPublicMessage());
+    expectedException.expectMessage("wrong password");
+    underTest.authenticate(dbSession, user, PASSWORD, BASIC);
+  }
+}
@@ -39,12 +39,15 @@ import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.OrganizationCreation;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.user.NewUserNotifier;
+import org.sonar.server.user.ProjectPermissionsCache;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserIndexer;
 
 import static com.google.common.collect.Sets.newHashSet;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.sonar.db.user.UserTesting.newUserDto;
 import static org.sonar.server.authentication.event.AuthenticationEvent.Method;
 import static org.sonar.server.authentication.event.AuthenticationEvent.Source;
@@ -84,8 +87,11 @@ public class UserIdentityAuthenticatorTest {
     mock(UserIndexer.class),
     System2.INSTANCE,
     defaultOrganizationProvider,
-      organizationCreation);
-  private UserIdentityAuthenticator underTest = new UserIdentityAuthenticator(db.getDbClient(), userUpdater, defaultOrganizationProvider);
+    organizationCreation,
+    new CredentialsLocalAuthentication(db.getDbClient(), new CredentialsCache(), settings),
+    mock(ProjectPermissionsCache.class));
+  private ProjectPermissionsCache projectPermissionsCache = mock(ProjectPermissionsCache.class);
+  private UserIdentityAuthenticator underTest = new UserIdentityAuthenticator(db.getDbClient(), userUpdater, defaultOrganizationProvider, projectPermissionsCache);
   private GroupDto defaultGroup;
 
   @Before
@@ -178,6 +184,7 @@ public class UserIdentityAuthenticatorTest {
     authenticate(USER_LOGIN, "group1", "group2", "group3");
 
     assertThat(db.users().selectGroupIdsOfUser(user)).containsOnly(group1.getId(), group2.getId());
+    verify(projectPermissionsCache).invalidateUser(user.getId());
   }
 
   @Test
@@ -194,6 +201,22 @@ public class UserIdentityAuthenticatorTest {
     authenticate(USER_LOGIN, "group1");
 
     assertThat(db.users().selectGroupIdsOfUser(user)).containsOnly(group1.getId());
+    verify(projectPermissionsCache).invalidateUser(user.getId());
+  }
+
+  @Test
+  public void authenticate_existing_user_with_same_groups_does_not_invalidate_permissions() throws Exception {
+    UserDto user = db.users().insertUser(newUserDto()
+      .setLogin(USER_LOGIN)
+      .setActive(true)
+      .setName("John"));
+    GroupDto group1 = db.users().insertGroup(db.getDefaultOrganization(), "group1");
+    db.users().insertMember(group1, user);
+
+    authenticate(USER_LOGIN, "group1");
+
+    assertThat(db.users().selectGroupIdsOfUser(user)).containsOnly(group1.getId());
+    verifyZeroInteractions(projectPermissionsCache);
   }
 
   @Test
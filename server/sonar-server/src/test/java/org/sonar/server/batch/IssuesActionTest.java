@@ -20,39 +20,32 @@
 package org.sonar.server.batch;
 
 import java.io.ByteArrayInputStream;
-import java.util.Arrays;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
-import org.sonar.api.config.MapSettings;
-import org.sonar.api.resources.Qualifiers;
+import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.System2;
 import org.sonar.api.web.UserRole;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.issue.IssueDto;
+import org.sonar.db.issue.IssueTesting;
 import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.rule.RuleTesting;
 import org.sonar.scanner.protocol.Constants.Severity;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.server.component.ComponentFinder;
-import org.sonar.server.es.EsTester;
 import org.sonar.server.exceptions.ForbiddenException;
-import org.sonar.server.issue.IssueDocTesting;
-import org.sonar.server.issue.index.IssueDoc;
-import org.sonar.server.issue.index.IssueIndex;
-import org.sonar.server.issue.index.IssueIndexDefinition;
-import org.sonar.server.issue.index.IssueIndexer;
-import org.sonar.server.issue.index.IssueIteratorFactory;
-import org.sonar.server.permission.index.AuthorizationTypeSupport;
-import org.sonar.server.permission.index.PermissionIndexerDao;
-import org.sonar.server.permission.index.PermissionIndexerTester;
-import org.sonar.server.platform.ServerFileSystem;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.ws.WsTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.mock;
 
 public class IssuesActionTest {
 
@@ -71,21 +64,16 @@ public class IssuesActionTest {
   @Rule
   public DbTester db = DbTester.create(system2);
 
-  @Rule
-  public EsTester es = new EsTester(new IssueIndexDefinition(new MapSettings()));
-
   @Rule
   public UserSessionRule userSessionRule = UserSessionRule.standalone();
 
-  private IssueIndexer issueIndexer = new IssueIndexer(es.client(), new IssueIteratorFactory(db.getDbClient()));
-  private PermissionIndexerTester authorizationIndexerTester = new PermissionIndexerTester(es, issueIndexer);
-  private ServerFileSystem fs = mock(ServerFileSystem.class);
+  private RuleDto rule;
   private WsTester tester;
 
   @Before
   public void before() {
-    IssueIndex issueIndex = new IssueIndex(es.client(), system2, userSessionRule, new AuthorizationTypeSupport(userSessionRule));
-    IssuesAction issuesAction = new IssuesAction(db.getDbClient(), issueIndex, userSessionRule, new ComponentFinder(db.getDbClient()));
+    rule = db.rules().insertRule(RuleTesting.newDto(RuleKey.of("squid", "AvoidCycle")));
+    IssuesAction issuesAction = new IssuesAction(db.getDbClient(), userSessionRule, new ComponentFinder(db.getDbClient()));
     tester = new WsTester(new BatchWs(issuesAction));
   }
 
@@ -97,8 +85,7 @@ public class IssuesActionTest {
     db.getDbClient().componentDao().insert(db.getSession(), project, module, file);
     db.getSession().commit();
 
-    indexIssues(IssueDocTesting.newDoc("EFGH", file)
-      .setRuleKey("squid:AvoidCycle")
+    insertIssues(newIssue(project, file, "EFGH")
       .setSeverity("BLOCKER")
       .setStatus("RESOLVED")
       .setResolution(null)
@@ -136,8 +123,7 @@ public class IssuesActionTest {
     db.getDbClient().componentDao().insert(db.getSession(), project, module, file);
     db.getSession().commit();
 
-    indexIssues(IssueDocTesting.newDoc("EFGH", file)
-      .setRuleKey("squid:AvoidCycle")
+    insertIssues(newIssue(project, file, "EFGH")
       .setSeverity("BLOCKER")
       .setStatus("RESOLVED")
       .setResolution("FALSE-POSITIVE")
@@ -174,8 +160,7 @@ public class IssuesActionTest {
     db.getDbClient().componentDao().insert(db.getSession(), project, module, file);
     db.getSession().commit();
 
-    indexIssues(IssueDocTesting.newDoc("EFGH", file)
-      .setRuleKey("squid:AvoidCycle")
+    insertIssues(newIssue(project, file, "EFGH")
       .setSeverity("BLOCKER")
       .setStatus("RESOLVED")
       .setResolution("FALSE-POSITIVE")
@@ -212,8 +197,7 @@ public class IssuesActionTest {
     db.getDbClient().componentDao().insert(db.getSession(), project, module, file);
     db.getSession().commit();
 
-    indexIssues(IssueDocTesting.newDoc("EFGH", file)
-      .setRuleKey("squid:AvoidCycle")
+    insertIssues(newIssue(project, file, "EFGH")
       .setSeverity("BLOCKER")
       .setStatus("RESOLVED")
       .setResolution("FALSE-POSITIVE")
@@ -250,8 +234,7 @@ public class IssuesActionTest {
     db.getDbClient().componentDao().insert(db.getSession(), project, module);
     db.getSession().commit();
 
-    indexIssues(IssueDocTesting.newDoc("EFGH", module)
-      .setRuleKey("squid:AvoidCycle")
+    insertIssues(newIssue(project, module, "EFGH")
       .setSeverity("BLOCKER")
       .setStatus("RESOLVED")
       .setResolution("FALSE-POSITIVE")
@@ -289,8 +272,7 @@ public class IssuesActionTest {
     db.getDbClient().componentDao().insert(db.getSession(), project, module, file);
     db.getSession().commit();
 
-    indexIssues(IssueDocTesting.newDoc("EFGH", file)
-      .setRuleKey("squid:AvoidCycle")
+    insertIssues(newIssue(project, file, "EFGH")
       .setSeverity("BLOCKER")
       .setStatus("RESOLVED")
       .setResolution("FALSE-POSITIVE")
@@ -309,6 +291,77 @@ public class IssuesActionTest {
     assertThat(serverIssue.getModuleKey()).isEqualTo(MODULE_KEY);
   }
 
+  @Test
+  public void does_not_return_closed_issues() throws Exception {
+    ComponentDto project = db.components().insertProject();
+    ComponentDto file = db.components().insertComponent(ComponentTesting.newFileDto(project));
+    insertIssues(
+      newIssue(project, file, "OPEN_ISSUE").setStatus("OPEN"),
+      newIssue(project, file, "CLOSED_ISSUE").setStatus("CLOSED").setResolution("FIXED"));
+
+    addBrowsePermissionOnComponent(project);
+    WsTester.TestRequest request = tester.newGetRequest("batch", "issues").setParam("key", project.key());
+
+    assertThat(readIssues(request.execute().output())).extracting(ServerIssue::getKey).containsExactly("OPEN_ISSUE");
+  }
+
+  @Test
+  public void return_only_issues_of_requested_paths() throws Exception {
+    ComponentDto project = db.components().insertProject();
+    ComponentDto module = db.components().insertComponent(ComponentTesting.newModuleDto(project));
+    ComponentDto file1 = db.components().insertComponent(ComponentTesting.newFileDto(module, null).setPath("src/Foo.java"));
+    ComponentDto file2 = db.components().insertComponent(ComponentTesting.newFileDto(module, null).setPath("src/Bar.java"));
+    ComponentDto file3 = db.components().insertComponent(ComponentTesting.newFileDto(module, null).setPath("src/Baz.java"));
+    insertIssues(
+      newIssue(project, file1, "ISSUE_1"),
+      newIssue(project, file2, "ISSUE_2"),
+      newIssue(project, file3, "ISSUE_3"),
+      newIssue(project, module, "ISSUE_ON_MODULE"));
+
+    addBrowsePermissionOnComponent(project);
+    WsTester.TestRequest request = tester.newGetRequest("batch", "issues")
+      .setParam("key", module.key())
+      .setParam("paths", "src/Foo.java,src/Baz.java");
+
+    assertThat(readIssues(request.execute().output())).extracting(ServerIssue::getKey).containsOnly("ISSUE_1", "ISSUE_3");
+  }
+
+  @Test
+  public void requested_paths_are_relative_to_the_requested_module() throws Exception {
+    ComponentDto project = db.components().insertProject();
+    ComponentDto module = db.components().insertComponent(ComponentTesting.newModuleDto(project));
+    ComponentDto fileOfProject = db.components().insertComponent(ComponentTesting.newFileDto(project, null).setPath("src/Foo.java"));
+    ComponentDto fileOfModule = db.components().insertComponent(ComponentTesting.newFileDto(module, null).setPath("src/Foo.java"));
+    insertIssues(
+      newIssue(project, fileOfProject, "ISSUE_ON_PROJECT_FILE"),
+      newIssue(project, fileOfModule, "ISSUE_ON_MODULE_FILE"));
+
+    addBrowsePermissionOnComponent(project);
+    WsTester.TestRequest request = tester.newGetRequest("batch", "issues")
+      .setParam("key", project.key())
+      .setParam("paths", "src/Foo.java");
+
+    List<ServerIssue> issues = readIssues(request.execute().output());
+    assertThat(issues).extracting(ServerIssue::getKey).containsOnly("ISSUE_ON_PROJECT_FILE");
+    assertThat(issues).extracting(ServerIssue::getModuleKey).containsOnly(project.key());
+  }
+
+  @Test
+  public void fail_on_directory_of_multi_module_project() throws Exception {
+    ComponentDto project = db.components().insertProject();
+    ComponentDto module = db.components().insertComponent(ComponentTesting.newModuleDto(project));
+    ComponentDto subModule = db.components().insertComponent(ComponentTesting.newModuleDto(module));
+    ComponentDto directory = db.components().insertComponent(ComponentTesting.newDirectory(module, "src"));
+    ComponentDto file = db.components().insertComponent(ComponentTesting.newFileDto(subModule, null).setPath("src/Foo.java"));
+    insertIssues(newIssue(project, file, "ISSUE_ON_SUB_MODULE"));
+    addBrowsePermissionOnComponent(project);
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Component of scope 'DIR' is not allowed");
+
+    tester.newGetRequest("batch", "issues").setParam("key", directory.key()).execute();
+  }
+
   @Test
   public void fail_without_browse_permission_on_file() throws Exception {
     ComponentDto project = db.components().insertProject();
@@ -319,17 +372,26 @@ public class IssuesActionTest {
     tester.newGetRequest("batch", "issues").setParam("key", file.key()).execute();
   }
 
-  private void indexIssues(IssueDoc... issues) {
-    issueIndexer.index(Arrays.asList(issues).iterator());
-    for (IssueDoc issue : issues) {
-      addIssueAuthorization(issue.projectUuid());
+  private IssueDto newIssue(ComponentDto project, ComponentDto component, String key) {
+    return IssueTesting.newDto(rule, component, project).setKee(key);
+  }
+
+  private void insertIssues(IssueDto... issues) {
+    for (IssueDto issue : issues) {
+      db.getDbClient().issueDao().insert(db.getSession(), issue);
     }
+    db.commit();
   }
 
-  private void addIssueAuthorization(String projectUuid) {
-    PermissionIndexerDao.Dto access = new PermissionIndexerDao.Dto(projectUuid, system2.now(), Qualifiers.PROJECT);
-    access.allowAnyone();
-    authorizationIndexerTester.allow(access);
+  private static List<ServerIssue> readIssues(byte[] output) throws IOException {
+    List<ServerIssue> issues = new ArrayList<>();
+    ByteArrayInputStream input = new ByteArrayInputStream(output);
+    ServerIssue issue = ServerIssue.parseDelimitedFrom(input);
+    while (issue != null) {
+      issues.add(issue);
+      issue = ServerIssue.parseDelimitedFrom(input);
+    }
+    return issues;
   }
 
   private void addBrowsePermissionOnComponent(ComponentDto project) {
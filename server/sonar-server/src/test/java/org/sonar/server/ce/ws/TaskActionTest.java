@@ -31,6 +31,7 @@ import org.sonar.core.util.Protobuf;
 import org.sonar.db.DbTester;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskStepDto;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.organization.OrganizationDto;
@@ -43,6 +44,7 @@ import org.sonarqube.ws.WsCe;
 
 import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.db.permission.OrganizationPermission.SCAN;
 import static org.sonarqube.ws.MediaTypes.PROTOBUF;
 
@@ -209,6 +211,44 @@ public class TaskActionTest {
     assertThat(task.hasScannerContext()).isFalse();
   }
 
+  @Test
+  public void return_steps_of_activity_when_additionalField_is_set() {
+    logInAsRoot();
+
+    persist(createActivityDto(SOME_TASK_UUID));
+    persistStep(SOME_TASK_UUID, 1, "Persist measures", 5_000L);
+    persistStep(SOME_TASK_UUID, 0, "Extract report", null);
+
+    TestResponse wsResponse = ws.newRequest()
+      .setMediaType(PROTOBUF)
+      .setParam("id", SOME_TASK_UUID)
+      .setParam("additionalFields", "steps")
+      .execute();
+
+    WsCe.Task task = Protobuf.read(wsResponse.getInputStream(), WsCe.TaskResponse.PARSER).getTask();
+    assertThat(task.getStepsList()).extracting(WsCe.Step::getName, WsCe.Step::getWallTimeMs, WsCe.Step::hasCpuTimeMs, WsCe.Step::getSqlStatements)
+      .containsExactly(
+        tuple("Extract report", 10L, false, 2L),
+        tuple("Persist measures", 10L, true, 2L));
+    assertThat(task.getSteps(1).getCpuTimeMs()).isEqualTo(5_000L);
+  }
+
+  @Test
+  public void do_not_return_steps_of_activity_when_additionalField_is_not_set() {
+    logInAsRoot();
+
+    persist(createActivityDto(SOME_TASK_UUID));
+    persistStep(SOME_TASK_UUID, 0, "Extract report", null);
+
+    TestResponse wsResponse = ws.newRequest()
+      .setMediaType(PROTOBUF)
+      .setParam("id", SOME_TASK_UUID)
+      .execute();
+
+    WsCe.Task task = Protobuf.read(wsResponse.getInputStream(), WsCe.TaskResponse.PARSER).getTask();
+    assertThat(task.getStepsCount()).isZero();
+  }
+
   @Test
   public void do_not_return_stacktrace_of_failed_activity_without_stacktrace() {
     logInAsRoot();
@@ -379,6 +419,18 @@ public class TaskActionTest {
     return activityDto;
   }
 
+  private void persistStep(String taskUuid, int index, String name, @Nullable Long cpuTimeMs) {
+    dbTester.getDbClient().ceTaskStepDao().insert(dbTester.getSession(), new CeTaskStepDto()
+      .setTaskUuid(taskUuid)
+      .setStepIndex(index)
+      .setName(name)
+      .setWallTimeMs(10L)
+      .setCpuTimeMs(cpuTimeMs)
+      .setSqlStatements(2L)
+      .setSqlRows(20L));
+    dbTester.commit();
+  }
+
   private void persistScannerContext(String taskUuid, String scannerContext) {
     dbTester.getDbClient().ceScannerContextDao().insert(dbTester.getSession(), taskUuid, CloseableIterator.from(singleton(scannerContext).iterator()));
     dbTester.commit();
@@ -0,0 +1,237 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.dbcleaner;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.core.config.PurgeConstants;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.purge.IdUuidPair;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncProjectCleanerTest {
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private static final IdUuidPair PROJECT_1 = new IdUuidPair(1L, "P1");
+  private static final IdUuidPair PROJECT_2 = new IdUuidPair(2L, "P2");
+
+  private ProjectCleaner projectCleaner = mock(ProjectCleaner.class);
+  private DbClient dbClient = mock(DbClient.class);
+  private Settings settings = new MapSettings();
+  private System2 system2 = mock(System2.class);
+
+  private AsyncProjectCleaner underTest = new AsyncProjectCleaner(projectCleaner, dbClient, settings, system2);
+
+  @Before
+  public void setUp() {
+    when(dbClient.openSession(anyBoolean())).thenReturn(mock(DbSession.class));
+    setNow(12, 0);
+  }
+
+  @Test
+  public void purge_submitted_projects_in_order_of_submission() {
+    underTest.submit(PROJECT_1, new MapSettings());
+    underTest.submit(PROJECT_2, new MapSettings());
+
+    underTest.processPendingRequests();
+
+    InOrder inOrder = inOrder(projectCleaner);
+    inOrder.verify(projectCleaner).purgeHistory(any(DbSession.class), eq(PROJECT_1), any(Settings.class));
+    inOrder.verify(projectCleaner).purgeHistory(any(DbSession.class), eq(PROJECT_2), any(Settings.class));
+    assertThat(underTest.countPendingRequests()).isZero();
+  }
+
+  @Test
+  public void coalesce_purges_of_same_project_with_settings_of_last_analysis() {
+    Settings lastSettings = new MapSettings();
+    underTest.submit(PROJECT_1, new MapSettings());
+    underTest.submit(PROJECT_1, lastSettings);
+    assertThat(underTest.countPendingRequests()).isEqualTo(1);
+
+    underTest.processPendingRequests();
+
+    ArgumentCaptor<Settings> settingsCaptor = ArgumentCaptor.forClass(Settings.class);
+    verify(projectCleaner).purgeHistory(any(DbSession.class), eq(PROJECT_1), settingsCaptor.capture());
+    assertThat(settingsCaptor.getValue()).isSameAs(lastSettings);
+  }
+
+  @Test
+  public void postpone_purge_of_project_being_analyzed() {
+    underTest.startAnalysis("P1");
+    underTest.submit(PROJECT_1, new MapSettings());
+    underTest.submit(PROJECT_2, new MapSettings());
+
+    underTest.processPendingRequests();
+
+    verify(projectCleaner, never()).purgeHistory(any(DbSession.class), eq(PROJECT_1), any(Settings.class));
+    verify(projectCleaner).purgeHistory(any(DbSession.class), eq(PROJECT_2), any(Settings.class));
+    assertThat(underTest.countPendingRequests()).isEqualTo(1);
+
+    underTest.endAnalysis("P1");
+    underTest.processPendingRequests();
+
+    verify(projectCleaner).purgeHistory(any(DbSession.class), eq(PROJECT_1), any(Settings.class));
+    assertThat(underTest.countPendingRequests()).isZero();
+  }
+
+  @Test
+  public void postpone_purge_until_end_of_all_analyses_of_project() {
+    underTest.startAnalysis("P1");
+    underTest.startAnalysis("P1");
+    underTest.submit(PROJECT_1, new MapSettings());
+
+    underTest.endAnalysis("P1");
+    underTest.processPendingRequests();
+
+    verify(projectCleaner, never()).purgeHistory(any(DbSession.class), eq(PROJECT_1), any(Settings.class));
+
+    underTest.endAnalysis("P1");
+    underTest.processPendingRequests();
+
+    verify(projectCleaner).purgeHistory(any(DbSession.class), eq(PROJECT_1), any(Settings.class));
+  }
+
+  @Test(timeout = 10_000)
+  public void analysis_waits_for_end_of_purge_of_project() throws Exception {
+    CountDownLatch purgeStarted = new CountDownLatch(1);
+    CountDownLatch purgeCanEnd = new CountDownLatch(1);
+    when(projectCleaner.purgeHistory(any(DbSession.class), eq(PROJECT_1), any(Settings.class))).thenAnswer(invocation -> {
+      purgeStarted.countDown();
+      purgeCanEnd.await();
+      return projectCleaner;
+    });
+    underTest.submit(PROJECT_1, new MapSettings());
+    Thread purgeThread = new Thread(underTest::processPendingRequests);
+    purgeThread.start();
+    purgeStarted.await();
+
+    AtomicBoolean analysisStarted = new AtomicBoolean(false);
+    Thread analysisThread = new Thread(() -> {
+      underTest.startAnalysis("P1");
+      analysisStarted.set(true);
+    });
+    analysisThread.start();
+    while (logTester.logs(LoggerLevel.INFO).isEmpty()) {
+      Thread.sleep(10L);
+    }
+    analysisThread.join(200);
+    assertThat(analysisStarted.get()).isFalse();
+    assertThat(logTester.logs(LoggerLevel.INFO)).containsExactly("Analysis of project P1 waits for the end of the purge of its history");
+
+    purgeCanEnd.countDown();
+    analysisThread.join(5_000);
+    purgeThread.join(5_000);
+    assertThat(analysisStarted.get()).isTrue();
+  }
+
+  @Test(timeout = 10_000)
+  public void analysis_of_other_project_does_not_wait_for_purge() throws Exception {
+    CountDownLatch purgeStarted = new CountDownLatch(1);
+    CountDownLatch purgeCanEnd = new CountDownLatch(1);
+    when(projectCleaner.purgeHistory(any(DbSession.class), eq(PROJECT_1), any(Settings.class))).thenAnswer(invocation -> {
+      purgeStarted.countDown();
+      purgeCanEnd.await();
+      return projectCleaner;
+    });
+    underTest.submit(PROJECT_1, new MapSettings());
+    Thread purgeThread = new Thread(underTest::processPendingRequests);
+    purgeThread.start();
+    purgeStarted.await();
+
+    underTest.startAnalysis("P2");
+
+    purgeCanEnd.countDown();
+    purgeThread.join(5_000);
+  }
+
+  @Test
+  public void postpone_purges_outside_time_window() {
+    settings.setProperty(PurgeConstants.TIME_WINDOW, "22:00-06:00");
+    underTest.submit(PROJECT_1, new MapSettings());
+
+    underTest.processPendingRequests();
+
+    verify(projectCleaner, never()).purgeHistory(any(DbSession.class), any(IdUuidPair.class), any(Settings.class));
+    assertThat(underTest.countPendingRequests()).isEqualTo(1);
+
+    setNow(23, 30);
+    underTest.processPendingRequests();
+
+    verify(projectCleaner).purgeHistory(any(DbSession.class), eq(PROJECT_1), any(Settings.class));
+  }
+
+  @Test
+  public void purge_during_time_window_of_same_day() {
+    settings.setProperty(PurgeConstants.TIME_WINDOW, "11:00-13:00");
+    underTest.submit(PROJECT_1, new MapSettings());
+
+    underTest.processPendingRequests();
+
+    verify(projectCleaner).purgeHistory(any(DbSession.class), eq(PROJECT_1), any(Settings.class));
+  }
+
+  @Test
+  public void ignore_invalid_time_window() {
+    settings.setProperty(PurgeConstants.TIME_WINDOW, "tonight");
+    underTest.submit(PROJECT_1, new MapSettings());
+
+    underTest.processPendingRequests();
+
+    verify(projectCleaner).purgeHistory(any(DbSession.class), eq(PROJECT_1), any(Settings.class));
+  }
+
+  @Test
+  public void failure_does_not_propagate() {
+    when(projectCleaner.purgeHistory(any(DbSession.class), eq(PROJECT_1), any(Settings.class))).thenThrow(new IllegalStateException("BOOM"));
+    underTest.submit(PROJECT_1, new MapSettings());
+
+    underTest.processPendingRequests();
+
+    assertThat(underTest.countPendingRequests()).isZero();
+  }
+
+  private void setNow(int hour, int minute) {
+    when(system2.now()).thenReturn(LocalDateTime.of(2017, 3, 1, hour, minute).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+  }
+}
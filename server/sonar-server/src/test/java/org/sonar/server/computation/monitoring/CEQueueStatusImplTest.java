@@ -50,6 +50,19 @@ public class CEQueueStatusImplTest {
     assertThat(underTest.getErrorCount()).isEqualTo(0);
     assertThat(underTest.getSuccessCount()).isEqualTo(0);
     assertThat(underTest.getProcessingTime()).isEqualTo(0);
+    assertThat(underTest.getPeekAttemptCount()).isEqualTo(0);
+    assertThat(underTest.getPeekSuccessCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void addPeekAttempt_increases_PeekSuccess_only_if_successful() {
+    underTest.addPeekAttempt(true);
+    underTest.addPeekAttempt(false);
+    underTest.addPeekAttempt(true);
+
+    assertThat(underTest.getPeekAttemptCount()).isEqualTo(3);
+    assertThat(underTest.getPeekSuccessCount()).isEqualTo(2);
+    assertThat(underTest.getInProgressCount()).isEqualTo(0);
   }
 
   @Test
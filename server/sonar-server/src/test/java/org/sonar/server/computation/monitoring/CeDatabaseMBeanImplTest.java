@@ -54,11 +54,24 @@ public class CeDatabaseMBeanImplTest {
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
     assertThat(section.getName()).isEqualTo("Compute Engine Database Connection");
-    assertThat(section.getAttributesCount()).isEqualTo(9);
+    assertThat(section.getAttributesList()).filteredOn(attribute -> !attribute.getKey().startsWith("Statement ")).hasSize(9);
     assertThat(section.getAttributes(0).getKey()).isEqualTo("Pool Initial Size");
     assertThat(section.getAttributes(0).getLongValue()).isGreaterThanOrEqualTo(0);
   }
 
+  @Test
+  public void export_statistics_of_sql_statements() {
+    dbTester.organizations().insert();
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+
+    assertThat(section.getAttributesList())
+      .filteredOn(attribute -> attribute.getKey().startsWith("Statement "))
+      .hasSize(Math.min(CeDatabaseMBeanImpl.MAX_REPORTED_STATEMENTS, dbTester.getDbClient().getMyBatis().getStatementStatistics().getAll().size()))
+      .extracting(ProtobufSystemInfo.Attribute::getStringValue)
+      .allMatch(summary -> summary.contains(" calls, total "));
+  }
+
   @CheckForNull
   private ObjectInstance getMBean() throws Exception {
     try {
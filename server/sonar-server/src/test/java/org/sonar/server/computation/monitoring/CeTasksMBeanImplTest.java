@@ -37,6 +37,8 @@ public class CeTasksMBeanImplTest {
   private static final long ERROR_COUNT = 10;
   private static final long SUCCESS_COUNT = 13;
   private static final long PROCESSING_TIME = 987;
+  private static final long PEEK_ATTEMPT_COUNT = 20;
+  private static final long PEEK_SUCCESS_COUNT = 17;
   private static final int WORKER_COUNT = 56;
 
   private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration());
@@ -59,6 +61,8 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getErrorCount()).isEqualTo(ERROR_COUNT);
     assertThat(underTest.getSuccessCount()).isEqualTo(SUCCESS_COUNT);
     assertThat(underTest.getProcessingTime()).isEqualTo(PROCESSING_TIME);
+    assertThat(underTest.getPeekAttemptCount()).isEqualTo(PEEK_ATTEMPT_COUNT);
+    assertThat(underTest.getPeekSuccessCount()).isEqualTo(PEEK_SUCCESS_COUNT);
   }
 
   @Test
@@ -70,7 +74,7 @@ public class CeTasksMBeanImplTest {
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
     assertThat(section.getName()).isEqualTo("Compute Engine Tasks");
-    assertThat(section.getAttributesCount()).isEqualTo(6);
+    assertThat(section.getAttributesCount()).isEqualTo(8);
   }
 
   /**
@@ -119,6 +123,21 @@ public class CeTasksMBeanImplTest {
       return PROCESSING_TIME;
     }
 
+    @Override
+    public void addPeekAttempt(boolean success) {
+      methodNotImplemented();
+    }
+
+    @Override
+    public long getPeekAttemptCount() {
+      return PEEK_ATTEMPT_COUNT;
+    }
+
+    @Override
+    public long getPeekSuccessCount() {
+      return PEEK_SUCCESS_COUNT;
+    }
+
     private long methodNotImplemented() {
       throw new UnsupportedOperationException("Not Implemented");
     }
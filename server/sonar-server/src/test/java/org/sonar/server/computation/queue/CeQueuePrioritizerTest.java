@@ -0,0 +1,110 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeActivityDto;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CeQueuePrioritizerTest {
+
+  private static final long NOW = 1_450_000_000_000L;
+
+  private TestSystem2 system2 = new TestSystem2().setNow(NOW);
+
+  @Rule
+  public DbTester db = DbTester.create(system2);
+
+  private CeQueuePrioritizer underTest = new CeQueuePrioritizer(db.getDbClient(), system2);
+
+  @Test
+  public void keep_order_of_submission_if_tasks_have_never_been_executed() {
+    CeQueueDto task1 = newTask("T1", "PROJECT_1", NOW - 2_000);
+    CeQueueDto task2 = newTask("T2", "PROJECT_2", NOW - 1_000);
+    CeQueueDto task3 = newTask("T3", "PROJECT_3", NOW - 1_000);
+
+    assertThat(underTest.sort(db.getSession(), asList(task1, task2, task3))).containsExactly(task1, task2, task3);
+  }
+
+  @Test
+  public void short_task_is_started_before_older_expensive_tasks() {
+    insertActivity("PROJECT_1", 3_600_000L);
+    insertActivity("PROJECT_2", 3_600_000L);
+    insertActivity("PROJECT_3", 2_000L);
+    CeQueueDto bigTask1 = newTask("T1", "PROJECT_1", NOW - 60_000);
+    CeQueueDto bigTask2 = newTask("T2", "PROJECT_2", NOW - 50_000);
+    CeQueueDto smallTask = newTask("T3", "PROJECT_3", NOW - 10_000);
+
+    assertThat(underTest.sort(db.getSession(), asList(bigTask1, bigTask2, smallTask))).containsExactly(smallTask, bigTask1, bigTask2);
+  }
+
+  @Test
+  public void expensive_task_is_not_postponed_forever() {
+    insertActivity("PROJECT_1", 60_000L);
+    insertActivity("PROJECT_2", 2_000L);
+    CeQueueDto bigTask = newTask("T1", "PROJECT_1", NOW - 3_600_000);
+    CeQueueDto smallTask = newTask("T2", "PROJECT_2", NOW - 10_000);
+
+    assertThat(underTest.sort(db.getSession(), asList(bigTask, smallTask))).containsExactly(bigTask, smallTask);
+  }
+
+  @Test
+  public void expected_duration_depends_on_task_type() {
+    insertActivity("PROJECT_1", 3_600_000L);
+    CeQueueDto reportTask = newTask("T1", "PROJECT_1", NOW - 60_000);
+    CeQueueDto otherTypeTask = newTask("T2", "PROJECT_1", NOW - 60_000).setTaskType("OTHER");
+
+    assertThat(underTest.sort(db.getSession(), asList(reportTask, otherTypeTask))).containsExactly(otherTypeTask, reportTask);
+  }
+
+  @Test
+  public void single_task_is_returned_as_is() {
+    CeQueueDto task = newTask("T1", "PROJECT_1", NOW);
+
+    assertThat(underTest.sort(db.getSession(), singletonList(task))).containsExactly(task);
+  }
+
+  private static CeQueueDto newTask(String uuid, String componentUuid, long createdAt) {
+    CeQueueDto dto = new CeQueueDto();
+    dto.setUuid(uuid);
+    dto.setTaskType(CeTaskTypes.REPORT);
+    dto.setComponentUuid(componentUuid);
+    dto.setStatus(CeQueueDto.Status.PENDING);
+    dto.setCreatedAt(createdAt);
+    return dto;
+  }
+
+  private void insertActivity(String componentUuid, long executionTimeMs) {
+    CeQueueDto queueDto = newTask("A_" + componentUuid, componentUuid, NOW - executionTimeMs);
+    CeActivityDto dto = new CeActivityDto(queueDto);
+    dto.setStatus(CeActivityDto.Status.SUCCESS);
+    dto.setExecutionTimeMs(executionTimeMs);
+    db.getDbClient().ceActivityDao().insert(db.getSession(), dto);
+    db.commit();
+  }
+}
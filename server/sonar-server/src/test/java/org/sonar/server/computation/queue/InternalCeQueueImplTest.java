@@ -241,6 +241,21 @@ public class InternalCeQueueImplTest {
     assertThat(peek.isPresent()).isFalse();
   }
 
+  @Test
+  public void peek_oldest_pending_task_of_each_project() throws Exception {
+    CeTask task1 = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask task3 = submit(CeTaskTypes.REPORT, "PROJECT_2");
+
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task1.getUuid());
+    // second task of PROJECT_1 can't be started as long as the first one is in progress
+    assertThat(underTest.peek().get().getUuid()).isEqualTo(task3.getUuid());
+    assertThat(underTest.peek().isPresent()).isFalse();
+
+    assertThat(queueStatus.getPeekAttemptCount()).isEqualTo(2);
+    assertThat(queueStatus.getPeekSuccessCount()).isEqualTo(2);
+  }
+
   @Test
   public void peek_nothing_if_paused() throws Exception {
     submit(CeTaskTypes.REPORT, "PROJECT_1");
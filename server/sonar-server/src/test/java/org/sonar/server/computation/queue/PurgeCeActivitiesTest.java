@@ -26,6 +26,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskStepDto;
 import org.sonar.db.ce.CeTaskTypes;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -52,6 +53,8 @@ public class PurgeCeActivitiesTest {
 
     assertThat(dbTester.getDbClient().ceActivityDao().selectByUuid(dbTester.getSession(), "VERY_OLD").isPresent()).isFalse();
     assertThat(dbTester.getDbClient().ceActivityDao().selectByUuid(dbTester.getSession(), "RECENT").isPresent()).isTrue();
+    assertThat(dbTester.getDbClient().ceTaskStepDao().selectByTaskUuid(dbTester.getSession(), "VERY_OLD")).isEmpty();
+    assertThat(dbTester.getDbClient().ceTaskStepDao().selectByTaskUuid(dbTester.getSession(), "RECENT")).hasSize(1);
   }
 
   private void insertWithDate(String uuid, long date) {
@@ -63,6 +66,13 @@ public class PurgeCeActivitiesTest {
     dto.setStatus(CeActivityDto.Status.SUCCESS);
     when(system2.now()).thenReturn(date);
     dbTester.getDbClient().ceActivityDao().insert(dbTester.getSession(), dto);
+    dbTester.getDbClient().ceTaskStepDao().insert(dbTester.getSession(), new CeTaskStepDto()
+      .setTaskUuid(uuid)
+      .setStepIndex(0)
+      .setName("Step")
+      .setWallTimeMs(10L)
+      .setSqlStatements(1L)
+      .setSqlRows(1L));
     dbTester.getSession().commit();
   }
 }
@@ -0,0 +1,149 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.base.Optional;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.DbTester;
+import org.sonar.db.source.FileSourceDto;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
+
+import static com.google.common.collect.ImmutableMap.of;
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class BaseInputPrefetcherTest {
+
+  private static final ReportComponent FILE_1 = ReportComponent.builder(Component.Type.FILE, 3).setUuid("FILE_1").build();
+  private static final ReportComponent FILE_2 = ReportComponent.builder(Component.Type.FILE, 4).setUuid("FILE_2").build();
+  private static final ReportComponent FILE_3 = ReportComponent.builder(Component.Type.FILE, 5).setUuid("FILE_3").build();
+  private static final ReportComponent DIRECTORY = ReportComponent.builder(Component.Type.DIRECTORY, 2).setUuid("DIR")
+    .addChildren(FILE_1, FILE_2, FILE_3).build();
+  private static final ReportComponent PROJECT = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid("PRJ")
+    .addChildren(DIRECTORY).build();
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
+
+  private ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues = new ComponentsWithUnprocessedIssues();
+  private MovedFilesRepository movedFilesRepository = mock(MovedFilesRepository.class);
+  private BaseIssuesLoader baseIssuesLoader = mock(BaseIssuesLoader.class);
+
+  private BaseInputPrefetcher underTest = new BaseInputPrefetcher(treeRootHolder, componentsWithUnprocessedIssues, movedFilesRepository, baseIssuesLoader,
+    dbTester.getDbClient(), 2);
+
+  @Before
+  public void setUp() {
+    treeRootHolder.setRoot(PROJECT);
+    when(movedFilesRepository.getOriginalFile(any(Component.class))).thenReturn(Optional.absent());
+  }
+
+  @Test
+  public void components_without_open_issues_do_not_require_queries() {
+    componentsWithUnprocessedIssues.setUuids(newHashSet("FILE_3"));
+    insertLineHashes("FILE_1", "a\nb");
+
+    assertThat(underTest.getIssues("FILE_1")).isEmpty();
+    assertThat(underTest.getLineHashes("FILE_1")).isEmpty();
+    assertThat(underTest.getIssues("DIR")).isEmpty();
+
+    verify(baseIssuesLoader, never()).loadForComponentUuids(anyCollectionOf(String.class));
+  }
+
+  @Test
+  public void load_issues_and_line_hashes_of_next_components_in_crawler_order() {
+    componentsWithUnprocessedIssues.setUuids(newHashSet("PRJ", "FILE_3", "FILE_1"));
+    insertLineHashes("FILE_1", "a\nb");
+    insertLineHashes("FILE_3", "c");
+    DefaultIssue issueOnFile1 = new DefaultIssue().setKey("I1").setComponentUuid("FILE_1");
+    DefaultIssue issueOnFile3 = new DefaultIssue().setKey("I3").setComponentUuid("FILE_3");
+    DefaultIssue issueOnProject = new DefaultIssue().setKey("IP").setComponentUuid("PRJ");
+    when(baseIssuesLoader.loadForComponentUuids(asList("FILE_1", "FILE_3"))).thenReturn(of("FILE_1", singletonList(issueOnFile1), "FILE_3", singletonList(issueOnFile3)));
+    when(baseIssuesLoader.loadForComponentUuids(singletonList("PRJ"))).thenReturn(of("PRJ", singletonList(issueOnProject)));
+
+    assertThat(underTest.getIssues("FILE_1")).containsExactly(issueOnFile1);
+    assertThat(underTest.getLineHashes("FILE_1")).containsExactly("a", "b");
+    assertThat(underTest.getIssues("FILE_2")).isEmpty();
+    assertThat(underTest.getLineHashes("FILE_3")).containsExactly("c");
+    assertThat(underTest.getIssues("FILE_3")).containsExactly(issueOnFile3);
+    assertThat(underTest.getIssues("DIR")).isEmpty();
+    assertThat(underTest.getIssues("PRJ")).containsExactly(issueOnProject);
+
+    verify(baseIssuesLoader).loadForComponentUuids(asList("FILE_1", "FILE_3"));
+    verify(baseIssuesLoader).loadForComponentUuids(singletonList("PRJ"));
+    verifyNoMoreInteractions(baseIssuesLoader);
+  }
+
+  @Test
+  public void reload_batch_when_component_is_requested_out_of_order() {
+    componentsWithUnprocessedIssues.setUuids(newHashSet("FILE_1", "FILE_2", "FILE_3"));
+    DefaultIssue issueOnFile1 = new DefaultIssue().setKey("I1").setComponentUuid("FILE_1");
+    when(baseIssuesLoader.loadForComponentUuids(singletonList("FILE_3"))).thenReturn(of());
+    when(baseIssuesLoader.loadForComponentUuids(asList("FILE_1", "FILE_2"))).thenReturn(of("FILE_1", singletonList(issueOnFile1)));
+
+    assertThat(underTest.getIssues("FILE_3")).isEmpty();
+    assertThat(underTest.getIssues("FILE_1")).containsExactly(issueOnFile1);
+  }
+
+  @Test
+  public void use_uuid_of_original_file_when_file_has_been_moved() {
+    componentsWithUnprocessedIssues.setUuids(newHashSet("ORIGINAL"));
+    when(movedFilesRepository.getOriginalFile(FILE_2)).thenReturn(Optional.of(new MovedFilesRepository.OriginalFile(12, "ORIGINAL", "original key")));
+    insertLineHashes("ORIGINAL", "a");
+    DefaultIssue issue = new DefaultIssue().setKey("I1").setComponentUuid("ORIGINAL");
+    when(baseIssuesLoader.loadForComponentUuids(singletonList("ORIGINAL"))).thenReturn(of("ORIGINAL", singletonList(issue)));
+
+    List<DefaultIssue> issues = underTest.getIssues("ORIGINAL");
+
+    assertThat(issues).containsExactly(issue);
+    assertThat(underTest.getLineHashes("ORIGINAL")).containsExactly("a");
+  }
+
+  private void insertLineHashes(String fileUuid, String lineHashes) {
+    dbTester.getDbClient().fileSourceDao().insert(dbTester.getSession(), new FileSourceDto()
+      .setProjectUuid("PRJ")
+      .setFileUuid(fileUuid)
+      .setBinaryData(new byte[0])
+      .setDataType("SOURCE")
+      .setLineHashes(lineHashes)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000000L));
+    dbTester.getSession().commit();
+  }
+}
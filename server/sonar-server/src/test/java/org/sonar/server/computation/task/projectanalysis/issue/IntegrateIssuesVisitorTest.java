@@ -105,7 +105,10 @@ public class IntegrateIssuesVisitorTest {
 
   BaseIssuesLoader baseIssuesLoader = new BaseIssuesLoader(treeRootHolder, dbTester.getDbClient(), ruleRepositoryRule, activeRulesHolderRule);
   MovedFilesRepository movedFilesRepository = mock(MovedFilesRepository.class);
-  TrackerExecution tracker = new TrackerExecution(new TrackerBaseInputFactory(baseIssuesLoader, dbTester.getDbClient(), movedFilesRepository),
+  ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues = new ComponentsWithUnprocessedIssues();
+  BaseInputPrefetcher baseInputPrefetcher = new BaseInputPrefetcher(treeRootHolder, componentsWithUnprocessedIssues, movedFilesRepository, baseIssuesLoader,
+    dbTester.getDbClient());
+  TrackerExecution tracker = new TrackerExecution(new TrackerBaseInputFactory(baseInputPrefetcher, movedFilesRepository),
     new TrackerRawInputFactory(treeRootHolder, reportReader,
       fileSourceRepository, new CommonRuleEngineImpl(), issueFilter),
     new Tracker<>());
@@ -114,7 +117,6 @@ public class IntegrateIssuesVisitorTest {
   IssueLifecycle issueLifecycle = mock(IssueLifecycle.class);
   IssueVisitor issueVisitor = mock(IssueVisitor.class);
   IssueVisitors issueVisitors = new IssueVisitors(new IssueVisitor[] {issueVisitor});
-  ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues = new ComponentsWithUnprocessedIssues();
 
   TypeAwareVisitor underTest;
 
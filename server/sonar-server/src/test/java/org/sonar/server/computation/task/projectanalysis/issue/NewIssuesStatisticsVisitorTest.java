@@ -0,0 +1,81 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import org.junit.Test;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.issue.notification.NewIssuesStatistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
+
+public class NewIssuesStatisticsVisitorTest {
+
+  private static final Component FILE_1 = ReportComponent.builder(FILE, 1).build();
+
+  private NewIssuesStatisticsVisitor underTest = new NewIssuesStatisticsVisitor();
+
+  @Test
+  public void no_statistics_when_no_issues() {
+    assertThat(underTest.getStatistics().hasIssues()).isFalse();
+    assertThat(underTest.hasIssueChangesToNotify()).isFalse();
+  }
+
+  @Test
+  public void add_new_open_issues_to_statistics() {
+    underTest.onIssue(FILE_1, newIssue().setAssignee("john").setEffort(Duration.create(10L)));
+    underTest.onIssue(FILE_1, newIssue().setAssignee("john").setEffort(Duration.create(5L)));
+    underTest.onIssue(FILE_1, newIssue().setEffort(Duration.create(1L)));
+
+    NewIssuesStatistics statistics = underTest.getStatistics();
+    assertThat(statistics.hasIssues()).isTrue();
+    assertThat(statistics.globalStatistics().debt()).isEqualTo(Duration.create(16L));
+    assertThat(statistics.assigneesStatistics()).containsOnlyKeys("john");
+    assertThat(statistics.assigneesStatistics().get("john").debt()).isEqualTo(Duration.create(15L));
+    assertThat(underTest.hasIssueChangesToNotify()).isFalse();
+  }
+
+  @Test
+  public void ignore_new_resolved_issues() {
+    underTest.onIssue(FILE_1, newIssue().setResolution(Issue.RESOLUTION_FIXED));
+
+    assertThat(underTest.getStatistics().hasIssues()).isFalse();
+  }
+
+  @Test
+  public void detect_changes_of_existing_issues_to_notify() {
+    underTest.onIssue(FILE_1, newIssue().setNew(false).setChanged(true));
+    assertThat(underTest.hasIssueChangesToNotify()).isFalse();
+
+    underTest.onIssue(FILE_1, newIssue().setNew(false).setChanged(true).setSendNotifications(true));
+    assertThat(underTest.hasIssueChangesToNotify()).isTrue();
+    assertThat(underTest.getStatistics().hasIssues()).isFalse();
+  }
+
+  private static DefaultIssue newIssue() {
+    return new DefaultIssue().setRuleKey(RuleKey.of("java", "S001")).setSeverity(Severity.MAJOR);
+  }
+}
@@ -20,17 +20,19 @@
 package org.sonar.server.computation.task.projectanalysis.issue;
 
 import com.google.common.base.Optional;
+import java.util.Collections;
 import org.junit.Before;
 import org.junit.Test;
-import org.sonar.db.DbClient;
-import org.sonar.db.DbSession;
-import org.sonar.db.source.FileSourceDao;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
 
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -38,29 +40,28 @@ import static org.mockito.Mockito.when;
 public class TrackerBaseInputFactoryTest {
   private static final String FILE_UUID = "uuid";
   private static final ReportComponent FILE = ReportComponent.builder(Component.Type.FILE, 1).setUuid(FILE_UUID).build();
+  private static final ReportComponent DIRECTORY = ReportComponent.builder(Component.Type.DIRECTORY, 2).setUuid("dir uuid").build();
 
-  private BaseIssuesLoader baseIssuesLoader = mock(BaseIssuesLoader.class);
-  private DbClient dbClient = mock(DbClient.class);
-  private DbSession dbSession = mock(DbSession.class);
-  private FileSourceDao fileSourceDao = mock(FileSourceDao.class);
+  private BaseInputPrefetcher baseInputPrefetcher = mock(BaseInputPrefetcher.class);
 
   private MovedFilesRepository movedFilesRepository = mock(MovedFilesRepository.class);
 
-  private TrackerBaseInputFactory underTest = new TrackerBaseInputFactory(baseIssuesLoader, dbClient, movedFilesRepository);
+  private TrackerBaseInputFactory underTest = new TrackerBaseInputFactory(baseInputPrefetcher, movedFilesRepository);
 
   @Before
   public void setUp() throws Exception {
-    when(dbClient.openSession(false)).thenReturn(dbSession);
-    when(dbClient.fileSourceDao()).thenReturn(fileSourceDao);
+    when(baseInputPrefetcher.getLineHashes(anyString())).thenReturn(Collections.emptyList());
     when(movedFilesRepository.getOriginalFile(any(Component.class)))
       .thenReturn(Optional.<MovedFilesRepository.OriginalFile>absent());
   }
 
   @Test
   public void create_returns_Input_which_retrieves_lines_hashes_of_specified_file_component_when_it_has_no_original_file() {
-    underTest.create(FILE).getLineHashSequence();
+    when(baseInputPrefetcher.getLineHashes(FILE_UUID)).thenReturn(asList("h1", "h2"));
+
+    assertThat(underTest.create(FILE).getLineHashSequence().length()).isEqualTo(2);
 
-    verify(fileSourceDao).selectLineHashes(dbSession, FILE_UUID);
+    verify(baseInputPrefetcher).getLineHashes(FILE_UUID);
   }
 
   @Test
@@ -73,15 +74,22 @@ public class TrackerBaseInputFactoryTest {
 
     underTest.create(FILE).getLineHashSequence();
 
-    verify(fileSourceDao).selectLineHashes(dbSession, originalUuid);
-    verify(fileSourceDao, times(0)).selectLineHashes(dbSession, FILE_UUID);
+    verify(baseInputPrefetcher).getLineHashes(originalUuid);
+    verify(baseInputPrefetcher, times(0)).getLineHashes(FILE_UUID);
+  }
+
+  @Test
+  public void create_returns_Input_with_empty_lines_hashes_when_component_is_not_a_file() {
+    assertThat(underTest.create(DIRECTORY).getLineHashSequence().length()).isEqualTo(0);
+
+    verify(baseInputPrefetcher, never()).getLineHashes(anyString());
   }
 
   @Test
   public void create_returns_Input_which_retrieves_issues_of_specified_file_component_when_it_has_no_original_file() {
     underTest.create(FILE).getIssues();
 
-    verify(baseIssuesLoader).loadForComponentUuid(FILE_UUID);
+    verify(baseInputPrefetcher).getIssues(FILE_UUID);
   }
 
   @Test
@@ -94,7 +102,7 @@ public class TrackerBaseInputFactoryTest {
 
     underTest.create(FILE).getIssues();
 
-    verify(baseIssuesLoader).loadForComponentUuid(originalUuid);
-    verify(baseIssuesLoader, times(0)).loadForComponentUuid(FILE_UUID);
+    verify(baseInputPrefetcher).getIssues(originalUuid);
+    verify(baseInputPrefetcher, times(0)).getIssues(FILE_UUID);
   }
 }
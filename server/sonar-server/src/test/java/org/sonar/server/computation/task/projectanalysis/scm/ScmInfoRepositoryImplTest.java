@@ -46,6 +46,8 @@ import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.ViewsComponent;
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SourceHashRepositoryImpl;
@@ -54,7 +56,9 @@ import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepos
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.guava.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 import static org.sonar.api.utils.log.LoggerLevel.TRACE;
 import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
 
@@ -63,6 +67,9 @@ public class ScmInfoRepositoryImplTest {
 
   static final int FILE_REF = 1;
   static final Component FILE = builder(Component.Type.FILE, FILE_REF).setKey("FILE_KEY").setUuid("FILE_UUID").build();
+  static final Component FILE_2 = builder(Component.Type.FILE, 2).setKey("FILE_2_KEY").setUuid("FILE_2_UUID").build();
+  static final Component FILE_NOT_IN_TREE = builder(Component.Type.FILE, 3).setKey("FILE_3_KEY").setUuid("FILE_3_UUID").build();
+  static final Component PROJECT = builder(Component.Type.PROJECT, 10).setKey("PROJECT_KEY").setUuid("PROJECT_UUID").addChildren(FILE, FILE_2).build();
   static final long DATE_1 = 123456789L;
   static final long DATE_2 = 1234567810L;
 
@@ -77,6 +84,8 @@ public class ScmInfoRepositoryImplTest {
   @Rule
   public LogTester logTester = new LogTester();
   @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule().setRoot(PROJECT);
+  @Rule
   public BatchReportReaderRule reportReader = new BatchReportReaderRule();
   @Rule
   public AnalysisMetadataHolderRule analysisMetadataHolder = new AnalysisMetadataHolderRule();
@@ -85,7 +94,7 @@ public class ScmInfoRepositoryImplTest {
 
   DbClient dbClient = dbTester.getDbClient();
 
-  ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(reportReader, analysisMetadataHolder, dbClient,
+  ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(treeRootHolder, reportReader, analysisMetadataHolder, dbClient,
     new SourceHashRepositoryImpl(new SourceLinesRepositoryImpl(reportReader)));
 
   @Test
@@ -96,7 +105,8 @@ public class ScmInfoRepositoryImplTest {
     ScmInfo scmInfo = underTest.getScmInfo(FILE).get();
     assertThat(scmInfo.getAllChangesets()).hasSize(1);
 
-    assertThat(logTester.logs(TRACE)).containsOnly("Reading SCM info from report for file 'FILE_KEY'");
+    // FILE_2 is read in the same batch
+    assertThat(logTester.logs(TRACE)).containsOnly("Reading SCM info from report for file 'FILE_KEY'", "No SCM info for file 'FILE_2_KEY'");
   }
 
   @Test
@@ -119,7 +129,7 @@ public class ScmInfoRepositoryImplTest {
     ScmInfo scmInfo = underTest.getScmInfo(FILE).get();
     assertThat(scmInfo.getAllChangesets()).hasSize(1);
 
-    assertThat(logTester.logs(TRACE)).containsOnly("Reading SCM info from db for file 'FILE_KEY'");
+    assertThat(logTester.logs(TRACE)).containsOnly("Reading SCM info from db for file 'FILE_KEY'", "No SCM info for file 'FILE_2_KEY'");
   }
 
   @Test
@@ -131,7 +141,77 @@ public class ScmInfoRepositoryImplTest {
 
     assertThat(underTest.getScmInfo(FILE)).isAbsent();
 
+    assertThat(logTester.logs(TRACE)).containsOnly("Reading SCM info from db for file 'FILE_KEY'", "No SCM info for file 'FILE_2_KEY'");
+  }
+
+  @Test
+  public void load_in_bulk_ScmInfo_from_DB_of_all_files_with_CopyFromPrevious_true() throws Exception {
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    addFileSourceInDb(FILE, "henry", DATE_1, "rev-1", computeSourceHash(1));
+    addFileSourceInReport(FILE, 1);
+    addCopyFromPreviousChangesetInReport(FILE);
+    addFileSourceInDb(FILE_2, "john", DATE_2, "rev-2", computeSourceHash(1));
+    addFileSourceInReport(FILE_2, 1);
+    addCopyFromPreviousChangesetInReport(FILE_2);
+
+    assertThat(underTest.getScmInfo(FILE).get().getLatestChangeset().getAuthor()).isEqualTo("henry");
+
+    // data of FILE_2 has already been loaded
+    dbTester.executeUpdateSql("delete from file_sources");
+    assertThat(underTest.getScmInfo(FILE_2).get().getLatestChangeset().getAuthor()).isEqualTo("john");
+  }
+
+  @Test
+  public void load_ScmInfo_from_DB_by_batches_of_files_in_tree_order() throws Exception {
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    addFileSourceInDb(FILE, "henry", DATE_1, "rev-1", computeSourceHash(1));
+    addFileSourceInReport(FILE, 1);
+    addCopyFromPreviousChangesetInReport(FILE);
+    addFileSourceInDb(FILE_2, "john", DATE_2, "rev-2", computeSourceHash(1));
+    addFileSourceInReport(FILE_2, 1);
+    addCopyFromPreviousChangesetInReport(FILE_2);
+    underTest = new ScmInfoRepositoryImpl(treeRootHolder, reportReader, analysisMetadataHolder, dbClient,
+      new SourceHashRepositoryImpl(new SourceLinesRepositoryImpl(reportReader)), 1);
+
+    assertThat(underTest.getScmInfo(FILE).get().getLatestChangeset().getAuthor()).isEqualTo("henry");
     assertThat(logTester.logs(TRACE)).containsOnly("Reading SCM info from db for file 'FILE_KEY'");
+
+    // FILE_2 is part of the next batch
+    assertThat(underTest.getScmInfo(FILE_2).get().getLatestChangeset().getAuthor()).isEqualTo("john");
+  }
+
+  @Test
+  public void read_changesets_of_report_once_per_file() {
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    BatchReportReader batchReportReader = mock(BatchReportReader.class);
+    when(batchReportReader.readChangesets(FILE_REF)).thenReturn(ScannerReport.Changesets.newBuilder()
+      .setComponentRef(FILE_REF)
+      .setCopyFromPrevious(true)
+      .build());
+    SourceHashRepository sourceHashRepository = mock(SourceHashRepository.class);
+    ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(treeRootHolder, batchReportReader, analysisMetadataHolder, dbClient, sourceHashRepository);
+
+    assertThat(underTest.getScmInfo(FILE)).isAbsent();
+    assertThat(underTest.getScmInfo(FILE_2)).isAbsent();
+    assertThat(underTest.getScmInfo(FILE)).isAbsent();
+
+    verify(batchReportReader).readChangesets(FILE_REF);
+    verify(batchReportReader).readChangesets(FILE_2.getReportAttributes().getRef());
+    verifyNoMoreInteractions(batchReportReader);
+  }
+
+  @Test
+  public void load_ScmInfo_from_DB_of_file_which_is_not_in_tree() throws Exception {
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    addFileSourceInDb(FILE, "henry", DATE_1, "rev-1", computeSourceHash(1));
+    addFileSourceInReport(FILE, 1);
+    addCopyFromPreviousChangesetInReport(FILE);
+    addFileSourceInDb(FILE_NOT_IN_TREE, "john", DATE_2, "rev-2", computeSourceHash(1));
+    addFileSourceInReport(FILE_NOT_IN_TREE, 1);
+    addCopyFromPreviousChangesetInReport(FILE_NOT_IN_TREE);
+
+    assertThat(underTest.getScmInfo(FILE).get().getLatestChangeset().getAuthor()).isEqualTo("henry");
+    assertThat(underTest.getScmInfo(FILE_NOT_IN_TREE).get().getLatestChangeset().getAuthor()).isEqualTo("john");
   }
 
   @Test
@@ -206,15 +286,16 @@ public class ScmInfoRepositoryImplTest {
   @Test
   @UseDataProvider("allTypeComponentButFile")
   public void do_not_query_db_nor_report_if_component_type_is_not_FILE(Component component) {
+    TreeRootHolder treeRootHolder = mock(TreeRootHolder.class);
     BatchReportReader batchReportReader = mock(BatchReportReader.class);
     AnalysisMetadataHolder analysisMetadataHolder = mock(AnalysisMetadataHolder.class);
     DbClient dbClient = mock(DbClient.class);
     SourceHashRepository sourceHashRepository = mock(SourceHashRepository.class);
-    ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(batchReportReader, analysisMetadataHolder, dbClient, sourceHashRepository);
+    ScmInfoRepositoryImpl underTest = new ScmInfoRepositoryImpl(treeRootHolder, batchReportReader, analysisMetadataHolder, dbClient, sourceHashRepository);
 
     assertThat(underTest.getScmInfo(component)).isAbsent();
 
-    verifyNoMoreInteractions(batchReportReader, analysisMetadataHolder, dbClient, sourceHashRepository);
+    verifyNoMoreInteractions(treeRootHolder, batchReportReader, analysisMetadataHolder, dbClient, sourceHashRepository);
   }
 
   @Test
@@ -224,7 +305,7 @@ public class ScmInfoRepositoryImplTest {
     ScmInfo scmInfo = underTest.getScmInfo(FILE).get();
     assertThat(scmInfo.getAllChangesets()).hasSize(1);
 
-    assertThat(logTester.logs(TRACE)).hasSize(1);
+    assertThat(logTester.logs(TRACE)).hasSize(2);
     logTester.clear();
 
     underTest.getScmInfo(FILE);
@@ -239,10 +320,14 @@ public class ScmInfoRepositoryImplTest {
     addCopyFromPreviousChangesetInReport();
 
     assertThat(underTest.getScmInfo(FILE)).isAbsent();
-    assertThat(logTester.logs(TRACE)).isEmpty();
+    assertThat(logTester.logs(TRACE)).containsOnly("No SCM info for file 'FILE_2_KEY'");
   }
 
   private void addFileSourceInDb(@Nullable String author, @Nullable Long date, @Nullable String revision, String srcHash) {
+    addFileSourceInDb(FILE, author, date, revision, srcHash);
+  }
+
+  private void addFileSourceInDb(Component file, @Nullable String author, @Nullable Long date, @Nullable String revision, String srcHash) {
     DbFileSources.Data.Builder fileDataBuilder = DbFileSources.Data.newBuilder();
     DbFileSources.Line.Builder builder = fileDataBuilder.addLinesBuilder()
       .setLine(1);
@@ -256,7 +341,7 @@ public class ScmInfoRepositoryImplTest {
       builder.setScmRevision(revision);
     }
     dbTester.getDbClient().fileSourceDao().insert(dbTester.getSession(), new FileSourceDto()
-      .setFileUuid(FILE.getUuid())
+      .setFileUuid(file.getUuid())
       .setProjectUuid("PROJECT_UUID")
       .setSourceData(fileDataBuilder.build())
       .setSrcHash(srcHash));
@@ -264,8 +349,12 @@ public class ScmInfoRepositoryImplTest {
   }
 
   private void addCopyFromPreviousChangesetInReport() {
+    addCopyFromPreviousChangesetInReport(FILE);
+  }
+
+  private void addCopyFromPreviousChangesetInReport(Component file) {
     reportReader.putChangesets(ScannerReport.Changesets.newBuilder()
-      .setComponentRef(FILE_REF)
+      .setComponentRef(file.getReportAttributes().getRef())
       .setCopyFromPrevious(true)
       .build());
   }
@@ -288,9 +377,13 @@ public class ScmInfoRepositoryImplTest {
   }
 
   private void addFileSourceInReport(int lineCount) {
-    reportReader.putFileSourceLines(FILE_REF, generateLines(lineCount));
+    addFileSourceInReport(FILE, lineCount);
+  }
+
+  private void addFileSourceInReport(Component file, int lineCount) {
+    reportReader.putFileSourceLines(file.getReportAttributes().getRef(), generateLines(lineCount));
     reportReader.putComponent(ScannerReport.Component.newBuilder()
-      .setRef(FILE_REF)
+      .setRef(file.getReportAttributes().getRef())
       .setLines(lineCount)
       .build());
   }
@@ -19,12 +19,15 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
 import java.util.Date;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.notifications.Notification;
+import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.Severity;
 import org.sonar.api.utils.Duration;
 import org.sonar.api.utils.System2;
@@ -33,7 +36,9 @@ import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetada
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.Component.Type;
+import org.sonar.server.computation.task.projectanalysis.issue.ComponentsWithUnprocessedIssues;
 import org.sonar.server.computation.task.projectanalysis.issue.IssueCache;
+import org.sonar.server.computation.task.projectanalysis.issue.NewIssuesStatisticsVisitor;
 import org.sonar.server.computation.task.projectanalysis.issue.RuleRepository;
 import org.sonar.server.computation.task.step.ComputationStep;
 import org.sonar.server.issue.notification.IssueChangeNotification;
@@ -63,6 +68,7 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
 
   static final Duration ISSUE_DURATION = Duration.create(100L);
   static final String ISSUE_ASSIGNEE = "John";
+  static final RuleKey RULE_KEY = RuleKey.of("java", "S001");
 
   static final Component PROJECT = builder(Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).setName(PROJECT_NAME).build();
 
@@ -82,15 +88,20 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
   NewIssuesNotification newIssuesNotificationMock = createNewIssuesNotificationMock();
   MyNewIssuesNotification myNewIssuesNotificationMock = createMyNewIssuesNotificationMock();
 
+  RuleRepository ruleRepository = mock(RuleRepository.class);
+  NewIssuesStatisticsVisitor newIssuesStatisticsVisitor = new NewIssuesStatisticsVisitor();
+  ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues = new ComponentsWithUnprocessedIssues();
   IssueCache issueCache;
   SendIssueNotificationsStep underTest;
 
   @Before
   public void setUp() throws Exception {
     issueCache = new IssueCache(temp.newFile(), System2.INSTANCE);
-    underTest = new SendIssueNotificationsStep(issueCache, mock(RuleRepository.class), treeRootHolder, notificationService, analysisMetadataHolder,
-      newIssuesNotificationFactory);
+    componentsWithUnprocessedIssues.setUuids(Collections.emptySet());
+    underTest = new SendIssueNotificationsStep(issueCache, newIssuesStatisticsVisitor, componentsWithUnprocessedIssues, ruleRepository, treeRootHolder,
+      notificationService, analysisMetadataHolder, newIssuesNotificationFactory);
 
+    when(ruleRepository.getByKey(any(RuleKey.class))).thenReturn(mock(org.sonar.server.computation.task.projectanalysis.issue.Rule.class));
     when(newIssuesNotificationFactory.newNewIssuesNotication()).thenReturn(newIssuesNotificationMock);
     when(newIssuesNotificationFactory.newMyNewIssuesNotification()).thenReturn(myNewIssuesNotificationMock);
   }
@@ -106,9 +117,7 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
 
   @Test
   public void send_global_new_issues_notification() throws Exception {
-    issueCache.newAppender().append(
-      new DefaultIssue().setSeverity(Severity.BLOCKER).setEffort(ISSUE_DURATION)
-      ).close();
+    integrate(new DefaultIssue().setSeverity(Severity.BLOCKER).setEffort(ISSUE_DURATION));
 
     when(notificationService.hasProjectSubscribersForTypes(PROJECT_UUID, SendIssueNotificationsStep.NOTIF_TYPES)).thenReturn(true);
 
@@ -123,9 +132,7 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
 
   @Test
   public void send_new_issues_notification_to_user() throws Exception {
-    issueCache.newAppender().append(
-      new DefaultIssue().setSeverity(Severity.BLOCKER).setEffort(ISSUE_DURATION).setAssignee(ISSUE_ASSIGNEE)
-      ).close();
+    integrate(new DefaultIssue().setSeverity(Severity.BLOCKER).setEffort(ISSUE_DURATION).setAssignee(ISSUE_ASSIGNEE));
 
     when(notificationService.hasProjectSubscribersForTypes(PROJECT_UUID, SendIssueNotificationsStep.NOTIF_TYPES)).thenReturn(true);
 
@@ -141,8 +148,25 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
 
   @Test
   public void send_issues_change_notification() throws Exception {
-    DefaultIssue issue = new DefaultIssue().setSeverity(Severity.BLOCKER).setEffort(ISSUE_DURATION).setChanged(true).setSendNotifications(true);
+    DefaultIssue issue = new DefaultIssue().setRuleKey(RULE_KEY).setSeverity(Severity.BLOCKER).setEffort(ISSUE_DURATION).setNew(false).setChanged(true).setSendNotifications(true);
+    integrate(issue);
+
+    when(notificationService.hasProjectSubscribersForTypes(PROJECT_UUID, SendIssueNotificationsStep.NOTIF_TYPES)).thenReturn(true);
+
+    underTest.execute();
+
+    verify(notificationService).deliver(any(IssueChangeNotification.class));
+  }
+
+  @Test
+  public void send_issues_change_notification_of_issues_closed_on_removed_components() throws Exception {
+    // issues of removed components are not visited
+    DefaultIssue issue = new DefaultIssue().setRuleKey(RULE_KEY).setSeverity(Severity.BLOCKER).setNew(false).setChanged(true).setSendNotifications(true);
     issueCache.newAppender().append(issue).close();
+    componentsWithUnprocessedIssues = new ComponentsWithUnprocessedIssues();
+    componentsWithUnprocessedIssues.setUuids(ImmutableSet.of("REMOVED_FILE_UUID"));
+    underTest = new SendIssueNotificationsStep(issueCache, newIssuesStatisticsVisitor, componentsWithUnprocessedIssues, ruleRepository, treeRootHolder,
+      notificationService, analysisMetadataHolder, newIssuesNotificationFactory);
 
     when(notificationService.hasProjectSubscribersForTypes(PROJECT_UUID, SendIssueNotificationsStep.NOTIF_TYPES)).thenReturn(true);
 
@@ -151,6 +175,23 @@ public class SendIssueNotificationsStepTest extends BaseStepTest {
     verify(notificationService).deliver(any(IssueChangeNotification.class));
   }
 
+  @Test
+  public void do_not_read_issues_when_no_issue_change_to_notify() throws Exception {
+    // not visited, so ignored
+    issueCache.newAppender().append(new DefaultIssue().setRuleKey(RULE_KEY).setSeverity(Severity.BLOCKER).setNew(false).setChanged(true).setSendNotifications(true)).close();
+
+    when(notificationService.hasProjectSubscribersForTypes(PROJECT_UUID, SendIssueNotificationsStep.NOTIF_TYPES)).thenReturn(true);
+
+    underTest.execute();
+
+    verify(notificationService, never()).deliver(any(Notification.class));
+  }
+
+  private void integrate(DefaultIssue issue) {
+    newIssuesStatisticsVisitor.onIssue(PROJECT, issue);
+    issueCache.newAppender().append(issue).close();
+  }
+
   private NewIssuesNotification createNewIssuesNotificationMock() {
     NewIssuesNotification notification = mock(NewIssuesNotification.class);
     when(notification.setProject(anyString(), anyString(), anyString())).thenReturn(notification);
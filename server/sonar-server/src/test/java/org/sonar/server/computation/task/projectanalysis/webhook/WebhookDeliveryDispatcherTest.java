@@ -0,0 +1,161 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.webhook;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class WebhookDeliveryDispatcherTest {
+
+  private static final long NOW = 1_500_000_000_000L;
+
+  @Rule
+  public LogTester logTester = new LogTester().setLevel(LoggerLevel.DEBUG);
+
+  private final Webhook webhook = new Webhook("P1_UUID", "TASK_1", "First", "http://url1");
+  private final WebhookPayload payload = new WebhookPayload("P1", "{}");
+  private final TestWebhookCaller caller = new TestWebhookCaller();
+  private final WebhookDeliveryStorage deliveryStorage = mock(WebhookDeliveryStorage.class);
+  private final WebhookDeliveryExecutorService executorService = mock(WebhookDeliveryExecutorService.class);
+  private final List<Runnable> submitted = new ArrayList<>();
+  private final List<Long> retryDelays = new ArrayList<>();
+
+  private WebhookDeliveryDispatcher underTest = new WebhookDeliveryDispatcher(caller, deliveryStorage, executorService);
+
+  @Before
+  public void setUp() {
+    doAnswer(invocation -> submitted.add((Runnable) invocation.getArguments()[0]))
+      .when(executorService).execute(any(Runnable.class));
+    doAnswer(invocation -> {
+      submitted.add((Runnable) invocation.getArguments()[0]);
+      retryDelays.add((Long) invocation.getArguments()[1]);
+      return null;
+    }).when(executorService).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void webhook_is_sent_by_executor_service() {
+    caller.enqueueSuccess(NOW, 200, 1_234);
+
+    underTest.dispatch(webhook, payload);
+
+    assertThat(caller.countSent()).isEqualTo(0);
+    assertThat(underTest.countPendingDeliveries()).isEqualTo(1);
+
+    runSubmitted();
+
+    assertThat(caller.countSent()).isEqualTo(1);
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("Sent webhook 'First' | url=http://url1 | time=1234ms | status=200");
+    verify(deliveryStorage).persist(any(WebhookDelivery.class));
+    assertThat(retryDelays).isEmpty();
+    assertThat(underTest.countPendingDeliveries()).isEqualTo(0);
+  }
+
+  @Test
+  public void failed_delivery_is_retried_with_exponential_backoff() {
+    caller.enqueueFailure(NOW, new IOException("Fail to connect"));
+    caller.enqueueSuccess(NOW, 503, 10);
+    caller.enqueueFailure(NOW, new IOException("Fail to connect"));
+
+    underTest.dispatch(webhook, payload);
+    runSubmitted();
+
+    assertThat(caller.countSent()).isEqualTo(WebhookDeliveryDispatcher.MAX_ATTEMPTS);
+    verify(deliveryStorage, times(WebhookDeliveryDispatcher.MAX_ATTEMPTS)).persist(any(WebhookDelivery.class));
+    assertThat(retryDelays).containsExactly(WebhookDeliveryDispatcher.INITIAL_RETRY_DELAY_MS, 2 * WebhookDeliveryDispatcher.INITIAL_RETRY_DELAY_MS);
+    assertThat(underTest.countPendingDeliveries()).isEqualTo(0);
+  }
+
+  @Test
+  public void client_errors_are_not_retried() {
+    caller.enqueueSuccess(NOW, 404, 10);
+
+    underTest.dispatch(webhook, payload);
+    runSubmitted();
+
+    assertThat(caller.countSent()).isEqualTo(1);
+    assertThat(retryDelays).isEmpty();
+    assertThat(underTest.countPendingDeliveries()).isEqualTo(0);
+  }
+
+  @Test
+  public void failure_to_persist_delivery_is_logged() {
+    caller.enqueueSuccess(NOW, 200, 10);
+    doThrow(new IllegalStateException("DB is down")).when(deliveryStorage).persist(any(WebhookDelivery.class));
+
+    underTest.dispatch(webhook, payload);
+    runSubmitted();
+
+    assertThat(logTester.logs(LoggerLevel.ERROR)).containsExactly("Failed to deliver webhook 'First' | url=http://url1");
+    assertThat(underTest.countPendingDeliveries()).isEqualTo(0);
+  }
+
+  @Test
+  public void webhooks_are_sent_synchronously_when_too_many_deliveries_are_pending() {
+    for (int i = 0; i < WebhookDeliveryDispatcher.MAX_PENDING_DELIVERIES; i++) {
+      underTest.dispatch(webhook, payload);
+    }
+    caller.enqueueSuccess(NOW, 200, 10);
+
+    underTest.dispatch(webhook, payload);
+
+    assertThat(caller.countSent()).isEqualTo(1);
+    assertThat(submitted).hasSize(WebhookDeliveryDispatcher.MAX_PENDING_DELIVERIES);
+    assertThat(underTest.countPendingDeliveries()).isEqualTo(WebhookDeliveryDispatcher.MAX_PENDING_DELIVERIES);
+    verify(executorService, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+  }
+
+  @Test
+  public void webhook_is_sent_synchronously_when_rejected_by_executor_service() {
+    doThrow(new RejectedExecutionException("shutdown")).when(executorService).execute(any(Runnable.class));
+    caller.enqueueSuccess(NOW, 200, 10);
+
+    underTest.dispatch(webhook, payload);
+
+    assertThat(caller.countSent()).isEqualTo(1);
+    verify(deliveryStorage).persist(any(WebhookDelivery.class));
+    assertThat(underTest.countPendingDeliveries()).isEqualTo(0);
+  }
+
+  private void runSubmitted() {
+    while (!submitted.isEmpty()) {
+      submitted.remove(0).run();
+    }
+  }
+}
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.Date;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.ce.posttask.CeTask;
@@ -36,6 +37,7 @@ import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolde
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -60,6 +62,17 @@ public class WebhookPostTaskTest {
   private final TestWebhookCaller caller = new TestWebhookCaller();
   private final WebhookPayloadFactory payloadFactory = new TestWebhookPayloadFactory();
   private final WebhookDeliveryStorage deliveryStorage = mock(WebhookDeliveryStorage.class);
+  private final WebhookDeliveryExecutorService executorService = mock(WebhookDeliveryExecutorService.class);
+  private final WebhookDeliveryDispatcher dispatcher = new WebhookDeliveryDispatcher(caller, deliveryStorage, executorService);
+
+  @Before
+  public void setUp() {
+    // send webhooks in the current thread, retries are ignored
+    doAnswer(invocation -> {
+      ((Runnable) invocation.getArguments()[0]).run();
+      return null;
+    }).when(executorService).execute(any(Runnable.class));
+  }
 
   @Test
   public void do_nothing_if_no_webhooks() {
@@ -131,7 +144,7 @@ public class WebhookPostTaskTest {
 
   private void execute() {
     SettingsRepository settingsRepository = new TestSettingsRepository(settings);
-    WebhookPostTask task = new WebhookPostTask(rootHolder, settingsRepository, payloadFactory, caller, deliveryStorage);
+    WebhookPostTask task = new WebhookPostTask(rootHolder, settingsRepository, payloadFactory, dispatcher, deliveryStorage);
 
     PostProjectAnalysisTaskTester.of(task)
       .at(new Date())
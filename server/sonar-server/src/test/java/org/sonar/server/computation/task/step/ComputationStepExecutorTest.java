@@ -35,6 +35,7 @@ import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -142,6 +143,48 @@ public class ComputationStepExecutorTest {
     }
   }
 
+  @Test
+  public void execute_measures_each_ComputationStep_when_profile_is_available() {
+    ComputationStepsProfile profile = mock(ComputationStepsProfile.class);
+    ComputationStepsProfile.Measure measure1 = mock(ComputationStepsProfile.Measure.class);
+    ComputationStepsProfile.Measure measure2 = mock(ComputationStepsProfile.Measure.class);
+    when(profile.start()).thenReturn(measure1, measure2);
+
+    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), profile, listener)
+      .execute();
+
+    InOrder inOrder = inOrder(computationStep1, computationStep2, measure1, measure2);
+    inOrder.verify(computationStep1).execute();
+    inOrder.verify(measure1).stop("step1");
+    inOrder.verify(computationStep2).execute();
+    inOrder.verify(measure2).stop("step2");
+    verify(listener).finished(true);
+  }
+
+  @Test
+  public void execute_measures_ComputationStep_which_throws_an_exception() {
+    ComputationStepsProfile profile = mock(ComputationStepsProfile.class);
+    ComputationStepsProfile.Measure measure1 = mock(ComputationStepsProfile.Measure.class);
+    when(profile.start()).thenReturn(measure1);
+    RuntimeException toBeThrown = new RuntimeException("simulating failing execute Step method");
+    doThrow(toBeThrown)
+      .when(computationStep1)
+      .execute();
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), profile, listener)
+        .execute();
+      fail("exception toBeThrown should have been raised");
+    } catch (RuntimeException e) {
+      assertThat(e).isSameAs(toBeThrown);
+      verify(measure1).stop("step1");
+      verify(profile).start();
+      verifyNoMoreInteractions(profile);
+      verify(computationStep2, never()).execute();
+      verify(listener).finished(false);
+    }
+  }
+
   @Test
   public void execute_does_not_fail_if_listener_throws_Throwable() {
     ComputationStepExecutor.Listener listener = mock(ComputationStepExecutor.Listener.class);
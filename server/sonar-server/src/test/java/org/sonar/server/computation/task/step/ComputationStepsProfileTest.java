@@ -0,0 +1,87 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.ce.queue.CeTask;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeTaskStepDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ComputationStepsProfileTest {
+
+  private static final String TASK_UUID = "TASK_1";
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  private CeTask ceTask = mock(CeTask.class);
+  private ComputationStepsProfile underTest;
+
+  @Test
+  public void measure_resources_consumed_by_steps() {
+    underTest = newProfile();
+
+    ComputationStepsProfile.Measure measure = underTest.start();
+    dbTester.getDbClient().ceActivityDao().selectByUuid(dbTester.getSession(), "foo");
+    dbTester.getDbClient().ceActivityDao().selectByUuid(dbTester.getSession(), "bar");
+    measure.stop("Step 1");
+    underTest.start().stop("Step 2");
+
+    assertThat(underTest.getSteps()).extracting(ComputationStepsProfile.StepProfile::getName, ComputationStepsProfile.StepProfile::getSqlStatements)
+      .containsExactly(tuple("Step 1", 2L), tuple("Step 2", 0L));
+    ComputationStepsProfile.StepProfile step = underTest.getSteps().get(0);
+    assertThat(step.getWallTimeMs()).isGreaterThanOrEqualTo(0L);
+    assertThat(step.getSqlRows()).isEqualTo(0L);
+    if (step.getCpuTimeMs() != null) {
+      assertThat(step.getCpuTimeMs()).isGreaterThanOrEqualTo(0L);
+    }
+    if (step.getAllocatedBytes() != null) {
+      assertThat(step.getAllocatedBytes()).isGreaterThan(0L);
+    }
+  }
+
+  @Test
+  public void persist_replaces_steps_of_restarted_task() {
+    underTest = newProfile();
+    underTest.start().stop("Step 1");
+    underTest.start().stop("Step 2");
+    underTest.persist();
+
+    underTest = newProfile();
+    underTest.start().stop("Step 3");
+    underTest.persist();
+
+    assertThat(dbTester.getDbClient().ceTaskStepDao().selectByTaskUuid(dbTester.getSession(), TASK_UUID))
+      .extracting(CeTaskStepDto::getStepIndex, CeTaskStepDto::getName)
+      .containsExactly(tuple(0, "Step 3"));
+  }
+
+  private ComputationStepsProfile newProfile() {
+    when(ceTask.getUuid()).thenReturn(TASK_UUID);
+    return new ComputationStepsProfile(dbTester.getDbClient(), ceTask);
+  }
+}
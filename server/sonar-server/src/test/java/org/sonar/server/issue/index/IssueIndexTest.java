@@ -22,7 +22,6 @@ package org.sonar.server.issue.index;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
-import com.google.common.collect.Lists;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -34,7 +33,6 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.config.MapSettings;
 import org.sonar.api.issue.Issue;
-import org.sonar.api.resources.Scopes;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.Severity;
 import org.sonar.api.utils.Duration;
@@ -208,6 +206,40 @@ public class IssueIndexTest {
     assertThat(result.getFacets().get("projectUuids")).containsOnly(entry("ABCD", 2L), entry("EFGH", 1L));
   }
 
+  @Test
+  public void facets_on_projects_include_projects_which_are_not_filtered() {
+    OrganizationDto organizationDto = newOrganizationDto();
+    ComponentDto project = newProjectDto(organizationDto, "ABCD");
+    ComponentDto project2 = newProjectDto(organizationDto, "EFGH");
+
+    indexIssues(
+      newDoc("ISSUE1", newFileDto(project, null)),
+      newDoc("ISSUE2", newFileDto(project, null)),
+      newDoc("ISSUE3", newFileDto(project2, null)));
+
+    SearchResult<IssueDoc> result = underTest.search(IssueQuery.builder().projectUuids(newArrayList("ABCD")).build(),
+      new SearchOptions().addFacets(newArrayList("projectUuids")));
+    assertThat(result.getDocs()).extracting(IssueDoc::key).containsOnly("ISSUE1", "ISSUE2");
+    assertThat(result.getFacets().get("projectUuids")).containsOnly(entry("ABCD", 2L), entry("EFGH", 1L));
+  }
+
+  @Test
+  public void facets_of_issues_of_filtered_projects() {
+    OrganizationDto organizationDto = newOrganizationDto();
+    ComponentDto project = newProjectDto(organizationDto, "ABCD");
+    ComponentDto project2 = newProjectDto(organizationDto, "EFGH");
+
+    indexIssues(
+      newDoc("ISSUE1", newFileDto(project, null)).setSeverity(Severity.INFO),
+      newDoc("ISSUE2", newFileDto(project, null)).setSeverity(Severity.MAJOR),
+      newDoc("ISSUE3", newFileDto(project2, null)).setSeverity(Severity.MAJOR));
+
+    SearchResult<IssueDoc> result = underTest.search(IssueQuery.builder().projectUuids(newArrayList("ABCD")).build(),
+      new SearchOptions().addFacets(newArrayList("severities")));
+    assertThat(result.getDocs()).extracting(IssueDoc::key).containsOnly("ISSUE1", "ISSUE2");
+    assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 1L), entry("MAJOR", 1L));
+  }
+
   @Test
   public void filter_by_modules() {
     ComponentDto project = newProjectDto(newOrganizationDto());
@@ -1236,96 +1268,6 @@ public class IssueIndexTest {
     assertThat(underTest.search(IssueQuery.builder().build(), new SearchOptions()).getDocs()).hasSize(1);
   }
 
-  @Test
-  public void search_issues_for_batch_return_needed_fields() {
-    ComponentDto project = newProjectDto(newOrganizationDto(), "PROJECT");
-    ComponentDto file = newFileDto(project, null).setPath("src/File.xoo");
-
-    IssueDoc issue = newDoc("ISSUE", file)
-      .setRuleKey("squid:S001")
-      .setChecksum("12345")
-      .setAssignee("john")
-      .setLine(11)
-      .setMessage("the message")
-      .setSeverity(Severity.BLOCKER)
-      .setManualSeverity(true)
-      .setStatus(Issue.STATUS_RESOLVED)
-      .setResolution(Issue.RESOLUTION_FIXED)
-      .setFuncCreationDate(new Date());
-    indexIssues(issue);
-
-    List<IssueDoc> issues = Lists.newArrayList(underTest.selectIssuesForBatch(file));
-    assertThat(issues).hasSize(1);
-    IssueDoc result = issues.get(0);
-    assertThat(result.key()).isEqualTo("ISSUE");
-    assertThat(result.moduleUuid()).isEqualTo("PROJECT");
-    assertThat(result.filePath()).isEqualTo("src/File.xoo");
-    assertThat(result.ruleKey()).isEqualTo(RuleKey.of("squid", "S001"));
-    assertThat(result.checksum()).isEqualTo("12345");
-    assertThat(result.assignee()).isEqualTo("john");
-    assertThat(result.line()).isEqualTo(11);
-    assertThat(result.message()).isEqualTo("the message");
-    assertThat(result.severity()).isEqualTo(Severity.BLOCKER);
-    assertThat(result.isManualSeverity()).isTrue();
-    assertThat(result.status()).isEqualTo(Issue.STATUS_RESOLVED);
-    assertThat(result.resolution()).isEqualTo(Issue.RESOLUTION_FIXED);
-    assertThat(result.creationDate()).isNotNull();
-  }
-
-  @Test
-  public void search_issues_for_batch() {
-    ComponentDto project = newProjectDto(newOrganizationDto());
-    ComponentDto module = ComponentTesting.newModuleDto(project);
-    ComponentDto subModule = ComponentTesting.newModuleDto(module);
-    ComponentDto file = newFileDto(subModule, null);
-
-    indexIssues(
-      newDoc("ISSUE3", module),
-      newDoc("ISSUE5", subModule),
-      newDoc("ISSUE2", file),
-      // Close Issue, should never be returned
-      newDoc("CLOSE_ISSUE", file).setStatus(Issue.STATUS_CLOSED).setResolution(Issue.RESOLUTION_FIXED));
-
-    assertThat(Lists.newArrayList(underTest.selectIssuesForBatch(project))).hasSize(3);
-    assertThat(Lists.newArrayList(underTest.selectIssuesForBatch(module))).hasSize(3);
-    assertThat(Lists.newArrayList(underTest.selectIssuesForBatch(subModule))).hasSize(2);
-    assertThat(Lists.newArrayList(underTest.selectIssuesForBatch(file))).hasSize(1);
-    assertThat(Lists.newArrayList(underTest.selectIssuesForBatch(newProjectDto(newOrganizationDto())))).isEmpty();
-  }
-
-  @Test
-  public void fail_to_search_issues_for_batch_on_not_allowed_scope() {
-    try {
-      underTest.selectIssuesForBatch(new ComponentDto().setScope(Scopes.DIRECTORY));
-      failBecauseExceptionWasNotThrown(IllegalStateException.class);
-    } catch (IllegalStateException e) {
-      assertThat(e).hasMessage("Component of scope 'DIR' is not allowed");
-    }
-  }
-
-  @Test
-  public void search_issues_for_batch_return_only_authorized_issues() {
-    OrganizationDto org = newOrganizationDto();
-    ComponentDto project1 = newProjectDto(org);
-    ComponentDto project2 = newProjectDto(org);
-    ComponentDto file1 = newFileDto(project1, null);
-    ComponentDto file2 = newFileDto(project2, null);
-    GroupDto allowedGroup = newGroupDto();
-    GroupDto otherGroup = newGroupDto();
-
-    // project1 can be seen by allowedGroup
-    indexIssue(newDoc("ISSUE1", file1));
-    authorizationIndexerTester.allowOnlyGroup(project1, allowedGroup);
-    // project3 can be seen by nobody
-    indexIssue(newDoc("ISSUE3", file2));
-
-    userSessionRule.logIn().setGroups(allowedGroup);
-    assertThat(Lists.newArrayList(underTest.selectIssuesForBatch(project1))).hasSize(1);
-
-    userSessionRule.logIn().setGroups(otherGroup);
-    assertThat(Lists.newArrayList(underTest.selectIssuesForBatch(project2))).isEmpty();
-  }
-
   @Test
   public void list_tags() {
     indexRules(
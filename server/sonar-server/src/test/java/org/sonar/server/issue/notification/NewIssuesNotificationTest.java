@@ -31,13 +31,20 @@ import org.sonar.api.utils.Durations;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.server.user.index.UserDoc;
 import org.sonar.server.user.index.UserIndex;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.server.issue.notification.NewIssuesStatistics.Metric.ASSIGNEE;
 import static org.sonar.server.issue.notification.NewIssuesStatistics.Metric.COMPONENT;
@@ -76,16 +83,20 @@ public class NewIssuesNotificationTest {
   public void set_statistics() {
     addIssueNTimes(newIssue1(), 5);
     addIssueNTimes(newIssue2(), 3);
-    when(dbClient.componentDao().selectOrFailByUuid(any(DbSession.class), eq("file-uuid")).name()).thenReturn("file-name");
-    when(dbClient.componentDao().selectOrFailByUuid(any(DbSession.class), eq("directory-uuid")).name()).thenReturn("directory-name");
-    when(dbClient.ruleDao().selectOrFailDefinitionByKey(any(DbSession.class), eq(RuleKey.of("SonarQube", "rule-the-world")))).thenReturn(newRule("Rule the World", "Java"));
-    when(dbClient.ruleDao().selectOrFailDefinitionByKey(any(DbSession.class), eq(RuleKey.of("SonarQube", "rule-the-universe")))).thenReturn(newRule("Rule the Universe", "Clojure"));
+    when(dbClient.componentDao().selectByUuids(any(DbSession.class), eq(asList("file-uuid", "directory-uuid")))).thenReturn(asList(
+      new ComponentDto().setUuid("file-uuid").setName("file-name"),
+      new ComponentDto().setUuid("directory-uuid").setName("directory-name")));
+    when(dbClient.ruleDao().selectDefinitionByKeys(any(DbSession.class), eq(asList(RuleKey.of("SonarQube", "rule-the-world"), RuleKey.of("SonarQube", "rule-the-universe")))))
+      .thenReturn(asList(
+        newRule(RuleKey.of("SonarQube", "rule-the-world"), "Rule the World", "Java"),
+        newRule(RuleKey.of("SonarQube", "rule-the-universe"), "Rule the Universe", "Clojure")));
+    when(userIndex.getByLogins(asList("maynard", "keenan"))).thenReturn(singletonList(new UserDoc().setLogin("maynard").setName("Maynard James")));
 
     underTest.setStatistics("project-long-name", stats);
 
     assertThat(underTest.getFieldValue(SEVERITY + ".INFO.count")).isEqualTo("5");
     assertThat(underTest.getFieldValue(SEVERITY + ".BLOCKER.count")).isEqualTo("3");
-    assertThat(underTest.getFieldValue(ASSIGNEE + ".1.label")).isEqualTo("maynard");
+    assertThat(underTest.getFieldValue(ASSIGNEE + ".1.label")).isEqualTo("Maynard James");
     assertThat(underTest.getFieldValue(ASSIGNEE + ".1.count")).isEqualTo("5");
     assertThat(underTest.getFieldValue(ASSIGNEE + ".2.label")).isEqualTo("keenan");
     assertThat(underTest.getFieldValue(ASSIGNEE + ".2.count")).isEqualTo("3");
@@ -104,6 +115,16 @@ public class NewIssuesNotificationTest {
     assertThat(underTest.getDefaultMessage()).startsWith("8 new issues on project-long-name");
   }
 
+  @Test
+  public void set_statistics_does_not_request_names_when_there_are_no_issues() {
+    underTest.setStatistics("project-long-name", stats);
+
+    verify(userIndex, never()).getByLogins(anyListOf(String.class));
+    verify(dbClient.ruleDao(), never()).selectDefinitionByKeys(any(DbSession.class), anyListOf(RuleKey.class));
+    assertThat(underTest.getFieldValue(SEVERITY + ".count")).isEqualTo("0");
+    assertThat(underTest.getFieldValue(RULE + ".1.label")).isNull();
+  }
+
   @Test
   public void set_debt() {
     when(durations.format(any(Duration.class))).thenReturn("55 min");
@@ -139,8 +160,10 @@ public class NewIssuesNotificationTest {
       .setEffort(Duration.create(10L));
   }
 
-  private RuleDefinitionDto newRule(String name, String language) {
+  private RuleDefinitionDto newRule(RuleKey ruleKey, String name, String language) {
     return new RuleDefinitionDto()
+      .setRuleKey(ruleKey.rule())
+      .setRepositoryKey(ruleKey.repository())
       .setName(name)
       .setLanguage(language);
   }
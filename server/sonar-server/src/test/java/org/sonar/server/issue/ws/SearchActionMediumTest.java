@@ -74,6 +74,7 @@ import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_ADDITIONAL_
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_COMPONENTS;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_CREATED_AFTER;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_HIDE_COMMENTS;
+import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_INDEXED_FIELDS_ONLY;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_PAGE_INDEX;
 import static org.sonarqube.ws.client.issue.IssuesWsParameters.PARAM_PAGE_SIZE;
 
@@ -126,7 +127,7 @@ public class SearchActionMediumTest {
     assertThat(search.isPost()).isFalse();
     assertThat(search.isInternal()).isFalse();
     assertThat(search.responseExampleAsString()).isNotEmpty();
-    assertThat(search.params()).hasSize(39);
+    assertThat(search.params()).hasSize(40);
   }
 
   @Test
@@ -262,6 +263,38 @@ public class SearchActionMediumTest {
     result.assertJson(this.getClass(), "load_additional_fields.json");
   }
 
+  @Test
+  public void load_fields_from_index() throws Exception {
+    db.userDao().insert(session, new UserDto().setLogin("simon").setName("Simon").setEmail("simon@email.com"));
+    db.userDao().insert(session, new UserDto().setLogin("fabrice").setName("Fabrice").setEmail("fabrice@email.com"));
+    ComponentDto project = insertComponent(ComponentTesting.newProjectDto(otherOrganization2, "PROJECT_ID").setKey("PROJECT_KEY"));
+    setDefaultProjectPermission(project);
+    ComponentDto file = insertComponent(ComponentTesting.newFileDto(project, null, "FILE_ID").setKey("FILE_KEY"));
+    IssueDto issue = IssueTesting.newDto(newRule(), file, project)
+      .setKee("82fd47d4-b650-4037-80bc-7b112bd4eac2")
+      .setEffort(10L)
+      .setMessage("the message")
+      .setStatus(Issue.STATUS_RESOLVED)
+      .setResolution(Issue.RESOLUTION_FIXED)
+      .setSeverity("MAJOR")
+      .setAuthorLogin("John")
+      .setAssignee("simon")
+      .setTags(asList("bug", "owasp"))
+      .setIssueCreationDate(DateUtils.parseDateTime("2014-09-04T00:00:00+0100"))
+      .setIssueUpdateDate(DateUtils.parseDateTime("2017-12-04T00:00:00+0100"));
+    db.issueDao().insert(session, issue);
+    session.commit();
+    IssueIndexer r = tester.get(IssueIndexer.class);
+    r.indexOnStartup(r.getIndexTypes());
+
+    WsTester.Result result = wsTester.newGetRequest(CONTROLLER_ISSUES, ACTION_SEARCH)
+      .setParam(PARAM_INDEXED_FIELDS_ONLY, "true")
+      .setParam(PARAM_ADDITIONAL_FIELDS, "_all")
+      .execute();
+    result.assertJson(this.getClass(), "response_contains_all_fields_except_additional_fields.json");
+    assertThat(result.outputAsString()).doesNotContain("textRange");
+  }
+
   @Test
   public void load_additional_fields_with_issue_admin_permission() throws Exception {
     db.userDao().insert(session, new UserDto().setLogin("simon").setName("Simon").setEmail("simon@email.com"));
@@ -0,0 +1,84 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.ws;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.user.UserDto;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.rule.RuleTesting.newRuleDto;
+
+public class SearchReferenceCacheTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private DbSession dbSession = db.getSession();
+  private SearchReferenceCache underTest = new SearchReferenceCache(db.getDbClient());
+
+  @Test
+  public void load_values_from_db_then_from_cache() {
+    UserDto user = db.users().insertUser(u -> u.setName("Simon"));
+
+    assertThat(underTest.getUsers(dbSession, singletonList(user.getLogin()))).extracting(UserDto::getName).containsExactly("Simon");
+
+    db.getDbClient().userDao().update(dbSession, user.setName("Simon Brandhof"));
+    dbSession.commit();
+    assertThat(underTest.getUsers(dbSession, singletonList(user.getLogin()))).extracting(UserDto::getName).containsExactly("Simon");
+  }
+
+  @Test
+  public void reload_expired_values() {
+    underTest = new SearchReferenceCache(db.getDbClient(), 0, TimeUnit.SECONDS);
+    UserDto user = db.users().insertUser(u -> u.setName("Simon"));
+    underTest.getUsers(dbSession, singletonList(user.getLogin()));
+
+    db.getDbClient().userDao().update(dbSession, user.setName("Simon Brandhof"));
+    dbSession.commit();
+    assertThat(underTest.getUsers(dbSession, singletonList(user.getLogin()))).extracting(UserDto::getName).containsExactly("Simon Brandhof");
+  }
+
+  @Test
+  public void do_not_cache_unknown_keys() {
+    assertThat(underTest.getUsers(dbSession, singletonList("simon"))).isEmpty();
+
+    db.users().insertUser("simon");
+    assertThat(underTest.getUsers(dbSession, singletonList("simon"))).extracting(UserDto::getLogin).containsExactly("simon");
+  }
+
+  @Test
+  public void load_rules_components_and_organizations() {
+    RuleDefinitionDto rule = db.rules().insertRule(newRuleDto()).getDefinition();
+    ComponentDto project = db.components().insertProject();
+
+    assertThat(underTest.getRules(dbSession, singletonList(rule.getKey()))).extracting(RuleDefinitionDto::getKey).containsExactly(rule.getKey());
+    assertThat(underTest.getComponents(dbSession, singletonList(project.uuid()))).extracting(ComponentDto::uuid).containsExactly(project.uuid());
+    assertThat(underTest.getOrganizations(dbSession, singletonList(project.getOrganizationUuid()))).extracting(o -> o.getUuid())
+      .containsExactly(project.getOrganizationUuid());
+  }
+}
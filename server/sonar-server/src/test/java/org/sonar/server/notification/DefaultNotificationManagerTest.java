@@ -24,6 +24,7 @@ import com.google.common.collect.Multimap;
 import java.io.InvalidClassException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.junit.Before;
@@ -41,6 +42,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.only;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -121,6 +123,43 @@ public class DefaultNotificationManagerTest {
     verify(manager, times(1)).logDeserializationIssue();
   }
 
+  @Test
+  public void getFromQueue_returns_batch_of_notifications_and_ignores_unreadable_ones() throws Exception {
+    NotificationQueueDto dto1 = NotificationQueueDto.toNotificationQueueDto(new Notification("first"));
+    NotificationQueueDto dto2 = mock(NotificationQueueDto.class);
+    when(dto2.toNotification()).thenThrow(new InvalidClassException("Pouet"));
+    NotificationQueueDto dto3 = NotificationQueueDto.toNotificationQueueDto(new Notification("third"));
+    List<NotificationQueueDto> dtos = Arrays.asList(dto1, dto2, dto3);
+    when(notificationQueueDao.selectOldest(10)).thenReturn(dtos);
+
+    assertThat(manager.getFromQueue(10)).extracting(Notification::getType).containsExactly("first", "third");
+
+    verify(notificationQueueDao).delete(dtos);
+  }
+
+  @Test
+  public void getFromQueue_returns_empty_list_if_queue_is_empty() {
+    when(notificationQueueDao.selectOldest(10)).thenReturn(Collections.emptyList());
+
+    assertThat(manager.getFromQueue(10)).isEmpty();
+
+    verify(notificationQueueDao, never()).delete(any(List.class));
+  }
+
+  @Test
+  public void recipients_are_requested_once_while_caching() {
+    when(propertiesDao.selectNotificationSubscribers("NewViolations", "Email", "struts")).thenReturn(Lists.newArrayList("user1"));
+
+    manager.startCachingRecipients();
+    assertThat(manager.findNotificationSubscribers(dispatcher, "struts").keySet()).containsOnly("user1");
+    assertThat(manager.findNotificationSubscribers(dispatcher, "struts").keySet()).containsOnly("user1");
+    verify(propertiesDao, times(1)).selectNotificationSubscribers("NewViolations", "Email", "struts");
+
+    manager.stopCachingRecipients();
+    manager.findNotificationSubscribers(dispatcher, "struts");
+    verify(propertiesDao, times(2)).selectNotificationSubscribers("NewViolations", "Email", "struts");
+  }
+
   @Test
   public void shouldFindNoRecipient() {
     assertThat(manager.findSubscribedRecipientsForDispatcher(dispatcher, "uuid_45").asMap().entrySet()).hasSize(0);
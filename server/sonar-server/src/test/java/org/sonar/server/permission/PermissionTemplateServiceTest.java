@@ -35,13 +35,23 @@ import org.sonar.db.permission.template.PermissionTemplateDbTester;
 import org.sonar.db.permission.template.PermissionTemplateDto;
 import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.es.ProjectIndexer;
+import org.sonar.server.permission.index.AuthorizationTypeSupport;
+import org.sonar.server.permission.index.FooIndex;
+import org.sonar.server.permission.index.FooIndexDefinition;
+import org.sonar.server.permission.index.FooIndexer;
 import org.sonar.server.permission.index.PermissionIndexer;
+import org.sonar.server.permission.index.PermissionIndexingQueue;
 import org.sonar.server.permission.ws.template.DefaultTemplatesResolverRule;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.ProjectPermissionsCache;
 
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.sonar.core.permission.GlobalPermissions.SCAN_EXECUTION;
 
 public class PermissionTemplateServiceTest {
@@ -52,12 +62,20 @@ public class PermissionTemplateServiceTest {
   public DbTester dbTester = DbTester.create(new AlwaysIncreasingSystem2());
   @Rule
   public DefaultTemplatesResolverRule defaultTemplatesResolver = DefaultTemplatesResolverRule.withGovernance();
+  @Rule
+  public EsTester esTester = new EsTester(new FooIndexDefinition());
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
 
-  private UserSessionRule userSession = UserSessionRule.standalone();
   private PermissionTemplateDbTester templateDb = dbTester.permissionTemplates();
   private DbSession session = dbTester.getSession();
-  private PermissionIndexer permissionIndexer = mock(PermissionIndexer.class);
-  private PermissionTemplateService underTest = new PermissionTemplateService(dbTester.getDbClient(), permissionIndexer, userSession, defaultTemplatesResolver);
+  private PermissionIndexingQueue permissionIndexingQueue = mock(PermissionIndexingQueue.class);
+  private ProjectPermissionsCache projectPermissionsCache = mock(ProjectPermissionsCache.class);
+  private FooIndexer fooIndexer = new FooIndexer(esTester.client());
+  private FooIndex fooIndex = new FooIndex(esTester.client(), new AuthorizationTypeSupport(userSession));
+  private PermissionIndexer permissionIndexer = new PermissionIndexer(dbTester.getDbClient(), esTester.client(), fooIndexer);
+  private PermissionTemplateService underTest = new PermissionTemplateService(dbTester.getDbClient(), permissionIndexingQueue, permissionIndexer, userSession,
+    defaultTemplatesResolver, projectPermissionsCache);
 
   @Test
   public void apply_permission_template() {
@@ -91,6 +109,29 @@ public class PermissionTemplateServiceTest {
     assertThat(selectProjectPermissionsOfUser(user, project)).containsOnly("admin");
 
     checkAuthorizationUpdatedAtIsUpdated(project);
+    verify(projectPermissionsCache).invalidateProjects(singletonList(project.uuid()));
+    verify(permissionIndexingQueue).add(session, singletonList(project.uuid()));
+  }
+
+  @Test
+  public void apply_default_permission_template_indexes_permissions_of_created_project_immediately() {
+    OrganizationDto organization = dbTester.organizations().insert();
+    ComponentDto project = dbTester.components().insertProject(organization);
+    fooIndexer.indexProject(project.uuid(), ProjectIndexer.Cause.PROJECT_CREATION);
+    UserDto user = dbTester.users().insertUser();
+    GroupDto group = dbTester.users().insertGroup(organization);
+    dbTester.users().insertMember(group, user);
+    PermissionTemplateDto template = templateDb.insertTemplate(organization);
+    dbTester.organizations().setDefaultTemplates(template, null);
+    templateDb.addGroupToTemplate(template.getId(), group.getId(), UserRole.USER);
+
+    underTest.applyDefault(session, organization.getUuid(), project, null);
+
+    userSession.logIn(user.getLogin()).setUserId(user.getId()).setGroups(group);
+    assertThat(fooIndex.hasAccessToProject(project.uuid())).isTrue();
+    userSession.anonymous();
+    assertThat(fooIndex.hasAccessToProject(project.uuid())).isFalse();
+    verifyZeroInteractions(permissionIndexingQueue);
   }
 
   private List<String> selectProjectPermissionsOfGroup(OrganizationDto organizationDto, @Nullable GroupDto groupDto, ComponentDto project) {
@@ -0,0 +1,105 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.permission.index;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PermissionIndexingQueueTest {
+
+  private System2 system = mock(System2.class);
+
+  @Rule
+  public DbTester db = DbTester.create(system);
+
+  private DbSession dbSession = db.getSession();
+  private PermissionIndexer permissionIndexer = mock(PermissionIndexer.class);
+  private PermissionIndexingQueue underTest = new PermissionIndexingQueue(db.getDbClient(), permissionIndexer, system);
+
+  @Test
+  public void index_each_project_once() {
+    underTest.add(dbSession, asList("P1", "P2"));
+    underTest.add(dbSession, asList("P2", "P1", "P3"));
+    db.commit();
+    assertThat(underTest.countPending()).isEqualTo(5);
+
+    underTest.indexPending();
+
+    verify(permissionIndexer).indexProjectsByUuids(any(DbSession.class), eq(asList("P1", "P2", "P3")));
+    assertThat(underTest.countPending()).isEqualTo(0);
+  }
+
+  @Test
+  public void do_nothing_if_queue_is_empty() {
+    underTest.add(dbSession, emptyList());
+    db.commit();
+
+    underTest.indexPending();
+
+    verify(permissionIndexer, never()).indexProjectsByUuids(any(DbSession.class), anyListOf(String.class));
+  }
+
+  @Test
+  public void keep_projects_in_queue_if_indexing_fails() {
+    underTest.add(dbSession, singletonList("P1"));
+    db.commit();
+    doThrow(new IllegalStateException("ES is down")).when(permissionIndexer).indexProjectsByUuids(any(DbSession.class), anyListOf(String.class));
+
+    try {
+      underTest.indexPending();
+      fail("indexing should fail");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("ES is down");
+    }
+
+    assertThat(underTest.countPending()).isEqualTo(1);
+  }
+
+  @Test
+  public void lag_is_the_age_of_the_oldest_pending_change() {
+    when(system.now()).thenReturn(1_000L);
+    assertThat(underTest.getLagMs()).isEqualTo(0L);
+
+    underTest.add(dbSession, singletonList("P1"));
+    when(system.now()).thenReturn(3_000L);
+    underTest.add(dbSession, singletonList("P2"));
+    db.commit();
+    when(system.now()).thenReturn(5_000L);
+
+    assertThat(underTest.getLagMs()).isEqualTo(4_000L);
+  }
+}
@@ -35,7 +35,9 @@ import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.i18n.I18nRule;
 import org.sonar.server.permission.PermissionTemplateService;
 import org.sonar.server.permission.index.PermissionIndexer;
+import org.sonar.server.permission.index.PermissionIndexingQueue;
 import org.sonar.server.permission.ws.BasePermissionWsTest;
+import org.sonar.server.user.ProjectPermissionsCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -58,12 +60,12 @@ public class BulkApplyTemplateActionTest extends BasePermissionWsTest<BulkApplyT
   private OrganizationDto organization;
   private PermissionTemplateDto template1;
   private PermissionTemplateDto template2;
-  private PermissionIndexer issuePermissionIndexer = mock(PermissionIndexer.class);
+  private PermissionIndexingQueue permissionIndexingQueue = mock(PermissionIndexingQueue.class);
 
   @Override
   protected BulkApplyTemplateAction buildWsAction() {
     PermissionTemplateService permissionTemplateService = new PermissionTemplateService(db.getDbClient(),
-      issuePermissionIndexer, userSession, defaultTemplatesResolver);
+      permissionIndexingQueue, mock(PermissionIndexer.class), userSession, defaultTemplatesResolver, mock(ProjectPermissionsCache.class));
     return new BulkApplyTemplateAction(db.getDbClient(), userSession, permissionTemplateService, newPermissionWsSupport(), new I18nRule(), newRootResourceTypes());
   }
 
@@ -63,4 +63,16 @@ public class DatabaseMonitorTest {
     Map<String, Object> attributes = underTest.attributes();
     assertThat((int) attributes.get("Pool Max Connections")).isGreaterThan(0);
   }
+
+  @Test
+  public void statistics_of_sql_statements() {
+    dbTester.organizations().insert();
+
+    Map<String, Object> attributes = underTest.attributes();
+    assertThat(attributes.entrySet())
+      .filteredOn(attribute -> attribute.getKey().startsWith("Statement "))
+      .isNotEmpty()
+      .hasSize(Math.min(DatabaseMonitor.MAX_REPORTED_STATEMENTS, dbTester.getDbClient().getMyBatis().getStatementStatistics().getAll().size()))
+      .allMatch(attribute -> ((String) attribute.getValue()).contains(" calls, total "));
+  }
 }
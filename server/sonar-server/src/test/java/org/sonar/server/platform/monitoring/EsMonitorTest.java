@@ -28,6 +28,7 @@ import org.sonar.api.config.MapSettings;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.issue.index.IssueIndexDefinition;
+import org.sonar.server.permission.index.PermissionIndexingQueue;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -38,7 +39,8 @@ public class EsMonitorTest {
   @Rule
   public EsTester esTester = new EsTester(new IssueIndexDefinition(new MapSettings()));
 
-  private EsMonitor underTest = new EsMonitor(esTester.client());
+  private PermissionIndexingQueue permissionIndexingQueue = mock(PermissionIndexingQueue.class);
+  private EsMonitor underTest = new EsMonitor(esTester.client(), permissionIndexingQueue);
 
   @Test
   public void name() {
@@ -78,10 +80,23 @@ public class EsMonitorTest {
     assertThat(indexAttributes.get("Store Size")).isNotNull();
   }
 
+  @Test
+  public void permission_indexing_attributes() {
+    when(permissionIndexingQueue.countPending()).thenReturn(12L);
+    when(permissionIndexingQueue.getLagMs()).thenReturn(3_000L);
+
+    Map<String, Object> attributes = underTest.attributes();
+
+    assertThat(attributes.get("Pending Permission Changes")).isEqualTo(12L);
+    assertThat(attributes.get("Permission Indexing Lag (ms)")).isEqualTo(3_000L);
+    assertThat(underTest.getPendingPermissionChanges()).isEqualTo(12L);
+    assertThat(underTest.getPermissionIndexingLagMs()).isEqualTo(3_000L);
+  }
+
   @Test
   public void attributes_displays_exception_message_when_cause_null_when_client_fails() {
     EsClient esClientMock = mock(EsClient.class);
-    EsMonitor underTest = new EsMonitor(esClientMock);
+    EsMonitor underTest = new EsMonitor(esClientMock, permissionIndexingQueue);
     when(esClientMock.prepareClusterStats()).thenThrow(new RuntimeException("RuntimeException with no cause"));
 
     Map<String, Object> attributes = underTest.attributes();
@@ -92,7 +107,7 @@ public class EsMonitorTest {
   @Test
   public void attributes_displays_exception_message_when_cause_is_not_ElasticSearchException_when_client_fails() {
     EsClient esClientMock = mock(EsClient.class);
-    EsMonitor underTest = new EsMonitor(esClientMock);
+    EsMonitor underTest = new EsMonitor(esClientMock, permissionIndexingQueue);
     when(esClientMock.prepareClusterStats()).thenThrow(new RuntimeException("RuntimeException with cause not ES", new IllegalArgumentException("some cause message")));
 
     Map<String, Object> attributes = underTest.attributes();
@@ -103,7 +118,7 @@ public class EsMonitorTest {
   @Test
   public void attributes_displays_cause_message_when_cause_is_ElasticSearchException_when_client_fails() {
     EsClient esClientMock = mock(EsClient.class);
-    EsMonitor underTest = new EsMonitor(esClientMock);
+    EsMonitor underTest = new EsMonitor(esClientMock, permissionIndexingQueue);
     when(esClientMock.prepareClusterStats()).thenThrow(new RuntimeException("RuntimeException with ES cause", new ElasticsearchException("some cause message")));
 
     Map<String, Object> attributes = underTest.attributes();
@@ -391,6 +391,24 @@ public class QProfileBackuperMediumTest {
     assertThat(profiles.get(0).getName()).isEqualTo("P1");
   }
 
+  @Test
+  public void restore_reports_rules_that_can_not_be_activated() throws Exception {
+    QProfileRestoreSummary summary = tester.get(QProfileBackuper.class).restore(dbSession, new StringReader("<?xml version='1.0' encoding='UTF-8'?>" +
+      "<profile><name>P1</name><language>xoo</language><rules>" +
+      "<rule><repositoryKey>xoo</repositoryKey><key>x1</key><priority>BLOCKER</priority></rule>" +
+      "<rule><repositoryKey>xoo</repositoryKey><key>unknown</key><priority>MAJOR</priority></rule>" +
+      "<rule><repositoryKey>xoo</repositoryKey><key>x2</key><priority>MINOR</priority></rule>" +
+      "</rules></profile>"),
+      organization, null);
+
+    assertThat(summary.getRuleChanges().countSucceeded()).isEqualTo(2);
+    assertThat(summary.getRuleChanges().countFailed()).isEqualTo(1);
+    dbSession.clearCache();
+    assertThat(db.activeRuleDao().selectByProfileKey(dbSession, summary.getProfile().getKey()))
+      .extracting(activeRule -> activeRule.getKey().ruleKey())
+      .containsOnly(XOO_X1, XOO_X2);
+  }
+
   private QualityProfileDto get(QProfileName profileName) {
     return db.qualityProfileDao().selectByNameAndLanguage(organization, profileName.getName(), profileName.getLanguage(), dbSession);
   }
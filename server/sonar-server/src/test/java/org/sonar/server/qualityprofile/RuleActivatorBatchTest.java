@@ -0,0 +1,117 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.qualityprofile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.RuleStatus;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.qualityprofile.ActiveRuleDto;
+import org.sonar.db.qualityprofile.ActiveRuleKey;
+import org.sonar.db.qualityprofile.QualityProfileDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.server.exceptions.BadRequestException;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RuleActivatorBatchTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private RuleActivatorBatch underTest = new RuleActivatorBatch(db.getDbClient(), db.getSession());
+
+  @Test
+  public void create_context_from_active_rules_of_profile_and_parent() {
+    OrganizationDto organization = db.organizations().insert();
+    RuleDefinitionDto rule = db.rules().insertRule(r -> r.setStatus(RuleStatus.READY)).getDefinition();
+    QualityProfileDto parent = db.qualityProfiles().insert(organization);
+    QualityProfileDto child = db.qualityProfiles().insert(organization, p -> p.setParentKee(parent.getKey()));
+    db.qualityProfiles().activateRule(parent, rule, a -> a.setSeverity("BLOCKER"));
+
+    RuleActivatorContext context = underTest.createContext(child.getKey(), rule.getKey());
+
+    assertThat(context.profile().getKey()).isEqualTo(child.getKey());
+    assertThat(context.rule().getKey()).isEqualTo(rule.getKey());
+    assertThat(context.activeRule()).isNull();
+    assertThat(context.parentActiveRule().getSeverityString()).isEqualTo("BLOCKER");
+    assertThat(underTest.getChildren(parent.getKey())).extracting(QualityProfileDto::getKey).containsOnly(child.getKey());
+  }
+
+  @Test
+  public void context_reflects_changes_of_active_rules() {
+    OrganizationDto organization = db.organizations().insert();
+    RuleDefinitionDto rule = db.rules().insertRule(r -> r.setStatus(RuleStatus.READY)).getDefinition();
+    QualityProfileDto profile = db.qualityProfiles().insert(organization);
+    ActiveRuleKey key = ActiveRuleKey.of(profile.getKey(), rule.getKey());
+    assertThat(underTest.getActiveRules(profile.getKey())).isEmpty();
+
+    ActiveRuleDto activeRule = ActiveRuleDto.createFor(profile, rule).setSeverity("MAJOR").setId(12);
+    underTest.onActivated(key, activeRule, emptyList());
+    assertThat(underTest.createContext(profile.getKey(), rule.getKey()).activeRule()).isSameAs(activeRule);
+    assertThat(underTest.getActiveRules(profile.getKey())).containsOnly(activeRule);
+
+    underTest.onDeactivated(key);
+    assertThat(underTest.createContext(profile.getKey(), rule.getKey()).activeRule()).isNull();
+  }
+
+  @Test
+  public void fail_to_create_context_if_rule_does_not_exist() {
+    QualityProfileDto profile = db.qualityProfiles().insert(db.organizations().insert());
+    RuleKey ruleKey = RuleKey.of("xoo", "unknown");
+    underTest.loadRules(asList(ruleKey));
+
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Rule not found: xoo:unknown");
+
+    underTest.createContext(profile.getKey(), ruleKey);
+  }
+
+  @Test
+  public void fail_to_create_context_if_profile_does_not_exist() {
+    RuleDefinitionDto rule = db.rules().insertRule().getDefinition();
+
+    expectedException.expect(BadRequestException.class);
+    expectedException.expectMessage("Quality profile not found: unknown");
+
+    underTest.createContext("unknown", rule.getKey());
+  }
+
+  @Test
+  public void collect_updated_profiles() {
+    OrganizationDto organization = db.organizations().insert();
+    QualityProfileDto profile1 = db.qualityProfiles().insert(organization);
+    QualityProfileDto profile2 = db.qualityProfiles().insert(organization);
+
+    underTest.onProfileUpdated(profile1);
+    underTest.onProfileUpdated(profile2);
+    underTest.onProfileUpdated(profile1);
+
+    assertThat(underTest.getUpdatedProfiles()).containsExactly(profile1, profile2);
+  }
+}
@@ -53,6 +53,7 @@ import org.sonar.server.tester.UserSessionRule;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 import static org.sonar.api.rule.Severity.BLOCKER;
@@ -933,6 +934,25 @@ public class RuleActivatorMediumTest {
     assertThat(result.countFailed()).isGreaterThan(0);
   }
 
+  @Test
+  public void bulk_activation_cascades_to_descendants() {
+    createChildProfiles();
+    // x1 is already activated on child profile P2 (and propagated to P3)
+    activate(new RuleActivation(XOO_X1).setSeverity(MAJOR), XOO_P2_KEY);
+
+    BulkChangeResult result = ruleActivator.bulkActivate(new RuleQuery().setRepositories(singletonList("xoo")), XOO_P1_KEY, INFO);
+
+    assertThat(result.countSucceeded()).isGreaterThanOrEqualTo(2);
+    dbSession.clearCache();
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P1_KEY, XOO_X1), INFO, null, ImmutableMap.of("max", "10"));
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P1_KEY, XOO_X2), INFO, null, Collections.emptyMap());
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P2_KEY, XOO_X1), MAJOR, OVERRIDES, ImmutableMap.of("max", "10"));
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P2_KEY, XOO_X2), INFO, INHERITED, Collections.emptyMap());
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P3_KEY, XOO_X1), MAJOR, INHERITED, ImmutableMap.of("max", "10"));
+    verifyHasActiveRuleInDbAndIndex(ActiveRuleKey.of(XOO_P3_KEY, XOO_X2), INFO, INHERITED, Collections.emptyMap());
+    assertThat(db.qualityProfileDao().selectByKey(dbSession, XOO_P3_KEY).getRulesUpdatedAt()).isNotNull();
+  }
+
   @Test
   public void set_and_unset_parent_profile() {
     // x1 is activated on the "future parent" P1
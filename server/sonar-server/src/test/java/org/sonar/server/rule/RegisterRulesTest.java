@@ -334,6 +334,51 @@ public class RegisterRulesTest {
     assertThat(rule1.getUpdatedAt()).isEqualTo(DATE1.getTime());
   }
 
+  @Test
+  public void store_fingerprint_of_registered_repositories() {
+    execute(new FakeRepositoryV1(), new CobolRepository());
+
+    assertThat(dbClient.ruleRepositoryDao().selectByKey(dbTester.getSession(), "fake").get().getFingerprint()).isNotEmpty();
+    // language is not installed, rules are not registered
+    assertThat(dbClient.ruleRepositoryDao().selectByKey(dbTester.getSession(), "cobol-lint").get().getFingerprint()).isNull();
+    assertThat(dbClient.ruleDao().selectAllDefinitions(dbTester.getSession())).extracting(RuleDefinitionDto::getRepositoryKey).containsOnly("fake");
+  }
+
+  @Test
+  public void skip_repositories_whose_definitions_did_not_change() {
+    execute(new FakeRepositoryV1());
+    String organizationUuid = dbTester.getDefaultOrganization().getUuid();
+    RuleDefinitionDto rule1 = dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), organizationUuid, RULE_KEY1).getDefinition();
+    dbClient.ruleDao().update(dbTester.getSession(), rule1.setName("Changed in db"));
+    dbTester.getSession().commit();
+
+    when(system.now()).thenReturn(DATE2.getTime());
+    execute(new FakeRepositoryV1());
+
+    // rules are not merged again, and not removed
+    RuleDto rule = dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), organizationUuid, RULE_KEY1);
+    assertThat(rule.getName()).isEqualTo("Changed in db");
+    assertThat(rule.getStatus()).isEqualTo(RuleStatus.BETA);
+    assertThat(dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), organizationUuid, RULE_KEY2).getStatus()).isEqualTo(RuleStatus.READY);
+    assertThat(ruleIndex.search(new RuleQuery(), new SearchOptions()).getIds()).containsOnly(RULE_KEY1, RULE_KEY2);
+
+    execute(new FakeRepositoryV2());
+
+    rule = dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), organizationUuid, RULE_KEY1);
+    assertThat(rule.getName()).isEqualTo("One v2");
+  }
+
+  @Test
+  public void register_repository_again_when_one_of_its_extensions_changes() {
+    execute(new FindbugsRepository());
+    String fingerprint = dbClient.ruleRepositoryDao().selectByKey(dbTester.getSession(), "findbugs").get().getFingerprint();
+
+    execute(new FindbugsRepository(), new FbContribRepository());
+
+    assertThat(dbClient.ruleRepositoryDao().selectByKey(dbTester.getSession(), "findbugs").get().getFingerprint()).isNotEqualTo(fingerprint);
+    assertThat(dbClient.ruleDao().selectAllDefinitions(dbTester.getSession())).extracting(RuleDefinitionDto::getRuleKey).containsOnly("rule1", "rule2");
+  }
+
   @Test
   public void do_not_update_already_removed_rules() {
     execute(new FakeRepositoryV1());
@@ -515,6 +560,17 @@ public class RegisterRulesTest {
     }
   }
 
+  static class CobolRepository implements RulesDefinition {
+    @Override
+    public void define(Context context) {
+      NewRepository repo = context.createRepository("cobol-lint", "cobol");
+      repo.createRule("rule1")
+        .setName("Cobol One")
+        .setHtmlDescription("Description of Cobol One");
+      repo.done();
+    }
+  }
+
   static class FbContribRepository implements RulesDefinition {
     @Override
     public void define(Context context) {
@@ -0,0 +1,72 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import java.util.function.Consumer;
+import org.junit.Test;
+import org.sonar.api.server.rule.RulesDefinition;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RuleRepositoryFingerprintTest {
+
+  @Test
+  public void fingerprint_is_stable() {
+    String fingerprint = fingerprint(repo -> {
+      repo.createRule("rule1").setName("One").setHtmlDescription("Desc").setTags("tag1", "tag2");
+      repo.createRule("rule2").setName("Two").setHtmlDescription("Desc");
+    });
+
+    assertThat(fingerprint).hasSize(40);
+    // declaration order of rules and tags does not matter
+    assertThat(fingerprint(repo -> {
+      repo.createRule("rule2").setName("Two").setHtmlDescription("Desc");
+      repo.createRule("rule1").setName("One").setHtmlDescription("Desc").setTags("tag2", "tag1");
+    })).isEqualTo(fingerprint);
+  }
+
+  @Test
+  public void fingerprint_changes_when_a_rule_attribute_changes() {
+    String fingerprint = fingerprint(repo -> repo.createRule("rule1").setName("One").setHtmlDescription("Desc"));
+
+    assertThat(fingerprint(repo -> repo.createRule("rule1").setName("One v2").setHtmlDescription("Desc"))).isNotEqualTo(fingerprint);
+    assertThat(fingerprint(repo -> repo.createRule("rule1").setName("One").setMarkdownDescription("Desc"))).isNotEqualTo(fingerprint);
+    assertThat(fingerprint(repo -> repo.createRule("rule1").setName("One").setHtmlDescription("Desc").setTemplate(true))).isNotEqualTo(fingerprint);
+    assertThat(fingerprint(repo -> repo.createRule("rule1").setName("One").setHtmlDescription("Desc").setTags("tag"))).isNotEqualTo(fingerprint);
+  }
+
+  @Test
+  public void fingerprint_changes_when_a_param_changes() {
+    String fingerprint = fingerprint(repo -> repo.createRule("rule1").setName("One").setHtmlDescription("Desc")
+      .createParam("param").setDefaultValue("1"));
+
+    assertThat(fingerprint(repo -> repo.createRule("rule1").setName("One").setHtmlDescription("Desc")
+      .createParam("param").setDefaultValue("2"))).isNotEqualTo(fingerprint);
+  }
+
+  private static String fingerprint(Consumer<RulesDefinition.NewRepository> populate) {
+    RulesDefinition.Context context = new RulesDefinition.Context();
+    RulesDefinition.NewRepository newRepository = context.createRepository("fake", "java");
+    populate.accept(newRepository);
+    newRepository.done();
+    return RuleRepositoryFingerprint.compute(singletonList(context.repository("fake")));
+  }
+}
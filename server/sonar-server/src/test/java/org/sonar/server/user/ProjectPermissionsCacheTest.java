@@ -0,0 +1,127 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.api.web.UserRole;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.user.UserDto;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class ProjectPermissionsCacheTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private ProjectPermissionsCache underTest = new ProjectPermissionsCache(db.getDbClient());
+  private UserDto user;
+  private ComponentDto project;
+
+  @Before
+  public void setUp() {
+    user = db.users().insertUser();
+    project = db.components().insertProject();
+  }
+
+  @Test
+  public void load_permissions_of_several_projects() {
+    ComponentDto otherProject = db.components().insertProject();
+    db.users().insertProjectPermissionOnUser(user, UserRole.USER, project);
+    db.users().insertProjectPermissionOnAnyone(UserRole.CODEVIEWER, project);
+    db.users().insertProjectPermissionOnAnyone(UserRole.USER, otherProject);
+
+    assertThat(underTest.getPermissions(user.getId(), asList(project.uuid(), otherProject.uuid(), "unknown"))).containsOnly(
+      entry(project.uuid(), newHashSet(UserRole.USER, UserRole.CODEVIEWER)),
+      entry(otherProject.uuid(), newHashSet(UserRole.USER)),
+      entry("unknown", newHashSet()));
+    assertThat(underTest.getPermissions(null, asList(project.uuid(), otherProject.uuid()))).containsOnly(
+      entry(project.uuid(), newHashSet(UserRole.CODEVIEWER)),
+      entry(otherProject.uuid(), newHashSet(UserRole.USER)));
+  }
+
+  @Test
+  public void load_permissions_from_db_then_from_cache() {
+    db.users().insertProjectPermissionOnUser(user, UserRole.USER, project);
+    assertThat(underTest.getPermissions(user.getId(), singletonList(project.uuid())).get(project.uuid())).containsOnly(UserRole.USER);
+
+    db.users().insertProjectPermissionOnUser(user, UserRole.ADMIN, project);
+    assertThat(underTest.getPermissions(user.getId(), singletonList(project.uuid())).get(project.uuid())).containsOnly(UserRole.USER);
+  }
+
+  @Test
+  public void reload_expired_permissions() {
+    underTest = new ProjectPermissionsCache(db.getDbClient(), 0, TimeUnit.SECONDS);
+    underTest.getPermissions(user.getId(), singletonList(project.uuid()));
+
+    db.users().insertProjectPermissionOnUser(user, UserRole.ADMIN, project);
+    assertThat(underTest.getPermissions(user.getId(), singletonList(project.uuid())).get(project.uuid())).containsOnly(UserRole.ADMIN);
+  }
+
+  @Test
+  public void invalidateProjects_reloads_permissions_of_specified_projects_only() {
+    ComponentDto otherProject = db.components().insertProject();
+    underTest.getPermissions(user.getId(), asList(project.uuid(), otherProject.uuid()));
+
+    db.users().insertProjectPermissionOnUser(user, UserRole.ADMIN, project);
+    db.users().insertProjectPermissionOnUser(user, UserRole.ADMIN, otherProject);
+    underTest.invalidateProjects(singletonList(project.uuid()));
+
+    assertThat(underTest.getPermissions(user.getId(), asList(project.uuid(), otherProject.uuid()))).containsOnly(
+      entry(project.uuid(), newHashSet(UserRole.ADMIN)),
+      entry(otherProject.uuid(), newHashSet()));
+  }
+
+  @Test
+  public void invalidateUser_reloads_permissions_of_specified_user_only() {
+    UserDto otherUser = db.users().insertUser();
+    underTest.getPermissions(user.getId(), singletonList(project.uuid()));
+    underTest.getPermissions(otherUser.getId(), singletonList(project.uuid()));
+
+    db.users().insertProjectPermissionOnUser(user, UserRole.ADMIN, project);
+    db.users().insertProjectPermissionOnUser(otherUser, UserRole.ADMIN, project);
+    underTest.invalidateUser(user.getId());
+
+    assertThat(underTest.getPermissions(user.getId(), singletonList(project.uuid())).get(project.uuid())).containsOnly(UserRole.ADMIN);
+    assertThat(underTest.getPermissions(otherUser.getId(), singletonList(project.uuid())).get(project.uuid())).isEmpty();
+  }
+
+  @Test
+  public void invalidateAll_reloads_all_permissions() {
+    underTest.getPermissions(user.getId(), singletonList(project.uuid()));
+    underTest.getPermissions(null, singletonList(project.uuid()));
+
+    db.users().insertProjectPermissionOnUser(user, UserRole.ADMIN, project);
+    db.users().insertProjectPermissionOnAnyone(UserRole.USER, project);
+    underTest.invalidateAll();
+
+    assertThat(underTest.getPermissions(user.getId(), singletonList(project.uuid())).get(project.uuid())).containsOnly(UserRole.ADMIN, UserRole.USER);
+    assertThat(underTest.getPermissions(null, singletonList(project.uuid())).get(project.uuid())).containsOnly(UserRole.USER);
+  }
+}
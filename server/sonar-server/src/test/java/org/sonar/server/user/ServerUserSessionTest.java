@@ -38,6 +38,8 @@ import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.organization.TestOrganizationFlags;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.core.permission.GlobalPermissions.PROVISIONING;
 import static org.sonar.core.permission.GlobalPermissions.SYSTEM_ADMIN;
@@ -72,6 +74,7 @@ public class ServerUserSessionTest {
   private UserDto userDto = newUserDto().setLogin(LOGIN);
   private TestOrganizationFlags organizationFlags = TestOrganizationFlags.standalone();
   private TestDefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
+  private ProjectPermissionsCache projectPermissionsCache = new ProjectPermissionsCache(dbClient);
   private OrganizationDto organization;
   private ComponentDto project;
 
@@ -320,6 +323,58 @@ public class ServerUserSessionTest {
     assertThat(session.hasComponentPermission(UserRole.ADMIN, project)).isFalse();
   }
 
+  @Test
+  public void hasComponentPermission_shares_permissions_of_logged_in_user_between_sessions_until_invalidation() {
+    ComponentDto project = db.components().insertProject();
+    db.users().insertProjectPermissionOnUser(userDto, UserRole.USER, project);
+    assertThat(newUserSession(userDto).hasComponentPermission(UserRole.USER, project)).isTrue();
+
+    db.users().deletePermissionFromUser(project, userDto, UserRole.USER);
+    assertThat(newUserSession(userDto).hasComponentPermission(UserRole.USER, project)).isTrue();
+
+    projectPermissionsCache.invalidateProjects(singletonList(project.uuid()));
+    assertThat(newUserSession(userDto).hasComponentPermission(UserRole.USER, project)).isFalse();
+  }
+
+  @Test
+  public void keepAuthorizedComponents_returns_components_of_authorized_projects() {
+    ComponentDto project1 = db.components().insertProject(organization);
+    ComponentDto file1 = db.components().insertComponent(ComponentTesting.newFileDto(project1, null));
+    ComponentDto project2 = db.components().insertProject(organization);
+    ComponentDto file2 = db.components().insertComponent(ComponentTesting.newFileDto(project2, null));
+    ComponentDto project3 = db.components().insertProject(organization);
+    db.users().insertProjectPermissionOnUser(userDto, UserRole.USER, project1);
+    db.users().insertProjectPermissionOnAnyone(UserRole.USER, project3);
+    db.users().insertProjectPermissionOnUser(userDto, UserRole.ADMIN, project2);
+
+    ServerUserSession underTest = newUserSession(userDto);
+
+    assertThat(underTest.keepAuthorizedComponents(UserRole.USER, asList(file2, project3, file1, project2, project1)))
+      .containsExactly(project3, file1, project1);
+    assertThat(underTest.keepAuthorizedComponents(UserRole.ADMIN, asList(file2, project3, file1, project2, project1)))
+      .containsExactly(file2, project2);
+    assertThat(underTest.hasComponentPermission(UserRole.USER, project1)).isTrue();
+    assertThat(underTest.hasComponentPermission(UserRole.USER, project2)).isFalse();
+  }
+
+  @Test
+  public void keepAuthorizedComponents_of_anonymous_returns_components_of_projects_with_anyone_permission() {
+    ComponentDto project1 = db.components().insertProject(organization);
+    ComponentDto project2 = db.components().insertProject(organization);
+    db.users().insertProjectPermissionOnAnyone(UserRole.USER, project1);
+    db.users().insertProjectPermissionOnUser(userDto, UserRole.USER, project2);
+
+    assertThat(newAnonymousSession().keepAuthorizedComponents(UserRole.USER, asList(project1, project2))).containsExactly(project1);
+  }
+
+  @Test
+  public void keepAuthorizedComponents_returns_all_components_if_user_is_root() {
+    ComponentDto project1 = db.components().insertProject(organization);
+    ComponentDto project2 = db.components().insertProject(organization);
+
+    assertThat(newUserSession(ROOT_USER_DTO).keepAuthorizedComponents(UserRole.USER, asList(project1, project2))).containsExactly(project1, project2);
+  }
+
   @Test
   public void isSystemAdministrator_returns_true_if_org_feature_is_enabled_and_user_is_root() {
     organizationFlags.setEnabled(true);
@@ -406,7 +461,7 @@ public class ServerUserSessionTest {
   }
 
   private ServerUserSession newUserSession(@Nullable UserDto userDto) {
-    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, userDto);
+    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, projectPermissionsCache, userDto);
   }
 
   private ServerUserSession newAnonymousSession() {
@@ -33,6 +33,7 @@ import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.server.user.index.UserIndexDefinition.INDEX_TYPE_USER;
 
 public class UserIndexTest {
@@ -83,6 +84,17 @@ public class UserIndexTest {
     assertThat(underTest.getNullableByLogin("UsEr1")).isNull();
   }
 
+  @Test
+  public void get_by_logins() {
+    esTester.putDocuments(INDEX_TYPE_USER.getIndex(), INDEX_TYPE_USER.getType(), newUser(USER1_LOGIN, emptyList()));
+    esTester.putDocuments(INDEX_TYPE_USER.getIndex(), INDEX_TYPE_USER.getType(), newUser(USER2_LOGIN, emptyList()));
+
+    List<UserDoc> users = underTest.getByLogins(asList(USER1_LOGIN, "unknown"));
+
+    assertThat(users).extracting(UserDoc::login, UserDoc::name).containsOnly(tuple(USER1_LOGIN, "USER1"));
+    assertThat(underTest.getByLogins(emptyList())).isEmpty();
+  }
+
   @Test
   public void getAtMostThreeActiveUsersForScmAccount() throws Exception {
     UserDoc user1 = newUser("user1", asList("user_1", "u1"));
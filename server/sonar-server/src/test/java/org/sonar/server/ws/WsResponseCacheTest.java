@@ -0,0 +1,271 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import com.google.common.net.HttpHeaders;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.utils.System2;
+import org.sonar.api.web.UserRole;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.SnapshotDto;
+import org.sonar.server.tester.UserSessionRule;
+import org.sonarqube.ws.MediaTypes;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+
+public class WsResponseCacheTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+
+  private FakeAction handler = new FakeAction();
+  private WebService.Action action;
+  private ComponentDto project;
+
+  private WsResponseCache underTest = new WsResponseCache(db.getDbClient(), userSession);
+
+  @Before
+  public void setUp() {
+    WebService.Context context = new WebService.Context();
+    WebService.NewController controller = context.createController("api/fake");
+    handler.define(controller);
+    controller.done();
+    action = context.controller("api/fake").action("show");
+
+    project = db.components().insertProject();
+    db.components().insertSnapshot(project);
+    userSession.logIn("john").addProjectUuidPermissions(UserRole.USER, project.uuid());
+  }
+
+  @Test
+  public void response_is_served_from_cache_until_a_new_analysis_is_available() throws Exception {
+    assertThat(call(project.getKey(), null).body()).isEqualTo("{\"key\":\"" + project.getKey() + "\"}");
+    assertThat(call(project.getKey(), null).body()).isEqualTo("{\"key\":\"" + project.getKey() + "\"}");
+    assertThat(handler.calls).isEqualTo(1);
+    assertThat(underTest.size()).isEqualTo(1);
+
+    SnapshotDto newAnalysis = db.components().insertSnapshot(project, s -> s.setLast(false));
+    db.getDbClient().snapshotDao().switchIsLastFlagAndSetProcessedStatus(db.getSession(), project.uuid(), newAnalysis.getUuid());
+    db.commit();
+
+    call(project.getKey(), null);
+    assertThat(handler.calls).isEqualTo(2);
+  }
+
+  @Test
+  public void response_is_not_served_from_cache_when_tags_of_component_are_changed() throws Exception {
+    call(project.getKey(), null);
+    call(project.getKey(), null);
+    assertThat(handler.calls).isEqualTo(1);
+
+    project.setTags(singletonList("security"));
+    db.getDbClient().componentDao().updateTags(db.getSession(), project);
+    db.commit();
+
+    call(project.getKey(), null);
+    assertThat(handler.calls).isEqualTo(2);
+  }
+
+  @Test
+  public void response_about_a_file_is_not_served_from_cache_when_tags_of_project_are_changed() throws Exception {
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    call(file.getKey(), null);
+    call(file.getKey(), null);
+    assertThat(handler.calls).isEqualTo(1);
+
+    project.setTags(singletonList("security"));
+    db.getDbClient().componentDao().updateTags(db.getSession(), project);
+    db.commit();
+
+    call(file.getKey(), null);
+    assertThat(handler.calls).isEqualTo(2);
+  }
+
+  @Test
+  public void cache_is_scoped_by_user_and_permissions() throws Exception {
+    call(project.getKey(), null);
+
+    userSession.logIn("jane").addProjectUuidPermissions(UserRole.USER, project.uuid());
+    call(project.getKey(), null);
+    assertThat(handler.calls).isEqualTo(2);
+
+    userSession.addProjectUuidPermissions(UserRole.ADMIN, project.uuid());
+    call(project.getKey(), null);
+    assertThat(handler.calls).isEqualTo(3);
+  }
+
+  @Test
+  public void return_304_when_etag_matches() throws Exception {
+    CapturedResponse first = call(project.getKey(), null);
+    String etag = first.header(HttpHeaders.ETAG);
+    assertThat(etag).isNotEmpty();
+    verify(first.source).setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+
+    CapturedResponse second = call(project.getKey(), etag);
+
+    verify(second.source).setStatus(304);
+    assertThat(second.body()).isEmpty();
+  }
+
+  @Test
+  public void do_not_cache_when_action_does_not_return_component() throws Exception {
+    call("unknown", null);
+    call("unknown", null);
+
+    assertThat(handler.calls).isEqualTo(2);
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void do_not_cache_failed_responses() throws Exception {
+    handler.status = 204;
+
+    call(project.getKey(), null);
+    CapturedResponse response = call(project.getKey(), null);
+
+    assertThat(handler.calls).isEqualTo(2);
+    assertThat(underTest.size()).isZero();
+    verify(response.source).setStatus(204);
+  }
+
+  @Test
+  public void do_not_cache_post_requests() throws Exception {
+    CapturedResponse response = new CapturedResponse();
+    underTest.handle(action, handler, newRequest("POST", project.getKey(), null), response.response);
+    underTest.handle(action, handler, newRequest("POST", project.getKey(), null), response.response);
+
+    assertThat(handler.calls).isEqualTo(2);
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void select_component_by_uuid_or_key() {
+    DbSession dbSession = db.getSession();
+
+    assertThat(WsResponseCache.selectByUuidOrKey(db.getDbClient(), dbSession, project.uuid(), null)).contains(project);
+    assertThat(WsResponseCache.selectByUuidOrKey(db.getDbClient(), dbSession, null, project.getKey())).contains(project);
+    assertThat(WsResponseCache.selectByUuidOrKey(db.getDbClient(), dbSession, project.uuid(), project.getKey())).isEmpty();
+    assertThat(WsResponseCache.selectByUuidOrKey(db.getDbClient(), dbSession, null, null)).isEmpty();
+    assertThat(WsResponseCache.selectByUuidOrKey(db.getDbClient(), dbSession, "unknown", null)).isEmpty();
+  }
+
+  private CapturedResponse call(String key, String ifNoneMatch) throws Exception {
+    CapturedResponse response = new CapturedResponse();
+    underTest.handle(action, handler, newRequest("GET", key, ifNoneMatch), response.response);
+    return response;
+  }
+
+  private ServletRequest newRequest(String method, String key, String ifNoneMatch) {
+    HttpServletRequest source = mock(HttpServletRequest.class);
+    when(source.getMethod()).thenReturn(method);
+    when(source.getRequestURI()).thenReturn("/api/fake/show");
+    when(source.getContextPath()).thenReturn("");
+    when(source.getParameter("key")).thenReturn(key);
+    when(source.getParameterValues("key")).thenReturn(new String[] {key});
+    when(source.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn(ifNoneMatch);
+    ServletRequest request = new ServletRequest(source);
+    request.setAction(action);
+    return request;
+  }
+
+  private static class CapturedResponse {
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final HttpServletResponse source = mock(HttpServletResponse.class);
+    private final ServletResponse response;
+
+    private CapturedResponse() throws IOException {
+      when(source.getOutputStream()).thenReturn(new ServletOutputStream() {
+        @Override
+        public boolean isReady() {
+          return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+          // not needed
+        }
+
+        @Override
+        public void write(int b) {
+          output.write(b);
+        }
+      });
+      this.response = new ServletResponse(source);
+    }
+
+    private String body() {
+      return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private String header(String name) {
+      ArgumentCaptor<String> value = ArgumentCaptor.forClass(String.class);
+      verify(source).setHeader(eq(name), value.capture());
+      return value.getValue();
+    }
+  }
+
+  private class FakeAction implements CacheableWsAction {
+    private int calls = 0;
+    private int status = 200;
+
+    @Override
+    public void define(WebService.NewController controller) {
+      WebService.NewAction action = controller.createAction("show").setHandler(this);
+      action.createParam("key");
+    }
+
+    @Override
+    public void handle(Request request, Response response) throws Exception {
+      calls++;
+      response.stream().setStatus(status);
+      response.stream().setMediaType(MediaTypes.JSON);
+      response.stream().output().write(("{\"key\":\"" + request.param("key") + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Optional<ComponentDto> selectCachedComponent(DbSession dbSession, Request request) {
+      return WsResponseCache.selectByUuidOrKey(db.getDbClient(), dbSession, null, request.param("key"));
+    }
+  }
+}
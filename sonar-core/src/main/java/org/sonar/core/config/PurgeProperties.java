@@ -100,6 +100,27 @@ public final class PurgeProperties {
         .category(CoreProperties.CATEGORY_GENERAL)
         .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
         .index(6)
+        .build(),
+
+      PropertyDefinition.builder(PurgeConstants.MAX_ROWS_PER_SECOND)
+        .defaultValue("0")
+        .name("Maximum purge rate")
+        .description("Maximum number of database rows deleted per second by the purge of the Compute Engine, "
+          + "in order to limit its load on the database. The next analysis of a project being purged waits for the end "
+          + "of the purge, so a low limit can delay it. Set to 0 for no limit.")
+        .type(PropertyType.INTEGER)
+        .category(CoreProperties.CATEGORY_GENERAL)
+        .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
+        .index(7)
+        .build(),
+
+      PropertyDefinition.builder(PurgeConstants.TIME_WINDOW)
+        .name("Purge time window")
+        .description("Time window during which the Compute Engine purges the history of the analyzed projects, "
+          + "for example \"22:00-06:00\". Purges are postponed until the start of the window. Leave empty to purge right after analyses.")
+        .category(CoreProperties.CATEGORY_GENERAL)
+        .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
+        .index(8)
         .build()
       );
   }
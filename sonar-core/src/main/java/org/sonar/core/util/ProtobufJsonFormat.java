@@ -20,12 +20,19 @@
 package org.sonar.core.util;
 
 import com.google.protobuf.Descriptors;
-import com.google.protobuf.MapEntry;
+import com.google.protobuf.GeneratedMessage;
 import com.google.protobuf.Message;
 import java.io.StringWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonar.api.utils.text.JsonWriter;
 
 /**
@@ -124,6 +131,15 @@ import org.sonar.api.utils.text.JsonWriter;
  *     }
  *   }
  * </pre>
+ *
+ * <h3>Implementation</h3>
+ * <p>
+ * For each class of generated message, a writer is prepared once and then reused. It calls the generated
+ * accessors (for example {@code hasName()} and {@code getColorsList()}) through {@link MethodHandle}s, instead
+ * of walking the descriptors of fields and reading values through {@link Message#getField(Descriptors.FieldDescriptor)},
+ * which copies maps into lists of entries and converts enums to descriptors. Messages that are not
+ * generated (for example {@link com.google.protobuf.DynamicMessage}) are written by walking descriptors.
+ * </p>
  */
 public class ProtobufJsonFormat {
 
@@ -132,23 +148,31 @@ public class ProtobufJsonFormat {
   }
 
   static class MessageType {
-    private static final Map<Class<? extends Message>, MessageType> TYPES_BY_CLASS = new HashMap<>();
+    private static final Map<Class<? extends Message>, MessageType> TYPES_BY_CLASS = new ConcurrentHashMap<>();
+    // all the dynamic messages share the same class
+    private static final Map<Descriptors.Descriptor, MessageType> DYNAMIC_TYPES_BY_DESCRIPTOR = new ConcurrentHashMap<>();
 
     private final Descriptors.FieldDescriptor[] fieldDescriptors;
     private final boolean doesWrapRepeated;
+    // null if fields must be read through descriptors
+    @CheckForNull
+    private final FieldWriter[] fieldWriters;
 
-    private MessageType(Descriptors.Descriptor descriptor) {
+    private MessageType(@Nullable Class<? extends Message> generatedClass, Descriptors.Descriptor descriptor) {
       this.fieldDescriptors = descriptor.getFields().toArray(new Descriptors.FieldDescriptor[descriptor.getFields().size()]);
       this.doesWrapRepeated = fieldDescriptors.length == 1 && fieldDescriptors[0].isRepeated() && descriptor.getName().equalsIgnoreCase(fieldDescriptors[0].getName());
+      this.fieldWriters = generatedClass == null ? null : FieldWriter.createAll(generatedClass, fieldDescriptors);
     }
 
     static MessageType of(Message message) {
-      MessageType type = TYPES_BY_CLASS.get(message.getClass());
-      if (type == null) {
-        type = new MessageType(message.getDescriptorForType());
-        TYPES_BY_CLASS.put(message.getClass(), type);
+      if (message instanceof GeneratedMessage) {
+        return TYPES_BY_CLASS.computeIfAbsent(message.getClass(), c -> new MessageType(c, message.getDescriptorForType()));
       }
-      return type;
+      return DYNAMIC_TYPES_BY_DESCRIPTOR.computeIfAbsent(message.getDescriptorForType(), d -> new MessageType(null, d));
+    }
+
+    boolean isGenerated() {
+      return fieldWriters != null;
     }
   }
 
@@ -169,11 +193,17 @@ public class ProtobufJsonFormat {
 
   private static void writeMessage(Message message, JsonWriter writer) {
     MessageType type = MessageType.of(message);
+    if (type.fieldWriters != null) {
+      for (FieldWriter fieldWriter : type.fieldWriters) {
+        fieldWriter.write(message, writer);
+      }
+      return;
+    }
     for (Descriptors.FieldDescriptor fieldDescriptor : type.fieldDescriptors) {
       if (fieldDescriptor.isRepeated()) {
         writer.name(fieldDescriptor.getName());
         if (fieldDescriptor.isMapField()) {
-          writeMap((Collection<MapEntry>) message.getField(fieldDescriptor), writer);
+          writeMap((Collection<Message>) message.getField(fieldDescriptor), writer);
         } else {
           writeArray(writer, fieldDescriptor, (Collection) message.getField(fieldDescriptor));
         }
@@ -193,13 +223,15 @@ public class ProtobufJsonFormat {
     writer.endArray();
   }
 
-  private static void writeMap(Collection<MapEntry> mapEntries, JsonWriter writer) {
+  private static void writeMap(Collection<Message> mapEntries, JsonWriter writer) {
     writer.beginObject();
-    for (MapEntry mapEntry : mapEntries) {
+    for (Message mapEntry : mapEntries) {
+      // entries are MapEntry for generated messages and DynamicMessage for dynamic messages
+      Descriptors.Descriptor entryDescriptor = mapEntry.getDescriptorForType();
       // Key fields are always double-quoted in json
-      writer.name(mapEntry.getKey().toString());
-      Descriptors.FieldDescriptor valueDescriptor = mapEntry.getDescriptorForType().findFieldByName("value");
-      writeFieldValue(valueDescriptor, mapEntry.getValue(), writer);
+      writer.name(mapEntry.getField(entryDescriptor.findFieldByName("key")).toString());
+      Descriptors.FieldDescriptor valueDescriptor = entryDescriptor.findFieldByName("value");
+      writeFieldValue(valueDescriptor, mapEntry.getField(valueDescriptor), writer);
     }
     writer.endObject();
   }
@@ -228,16 +260,20 @@ public class ProtobufJsonFormat {
         writeMessageValue((Message) value, writer);
         break;
       default:
-        throw new IllegalStateException(String.format("JSON format does not support type '%s' of field '%s'", fieldDescriptor.getJavaType(), fieldDescriptor.getName()));
+        throw unsupportedType(fieldDescriptor);
     }
   }
 
   private static void writeMessageValue(Message message, JsonWriter writer) {
     MessageType messageType = MessageType.of(message);
     if (messageType.doesWrapRepeated) {
+      if (messageType.fieldWriters != null) {
+        messageType.fieldWriters[0].writeValue(message, writer);
+        return;
+      }
       Descriptors.FieldDescriptor repeatedDescriptor = messageType.fieldDescriptors[0];
       if (repeatedDescriptor.isMapField()) {
-        writeMap((Collection<MapEntry>) message.getField(repeatedDescriptor), writer);
+        writeMap((Collection<Message>) message.getField(repeatedDescriptor), writer);
       } else {
         writeArray(writer, repeatedDescriptor, (Collection) message.getField(repeatedDescriptor));
       }
@@ -247,4 +283,145 @@ public class ProtobufJsonFormat {
       writer.endObject();
     }
   }
+
+  private static IllegalStateException unsupportedType(Descriptors.FieldDescriptor fieldDescriptor) {
+    return new IllegalStateException(String.format("JSON format does not support type '%s' of field '%s'", fieldDescriptor.getJavaType(), fieldDescriptor.getName()));
+  }
+
+  @FunctionalInterface
+  private interface ValueWriter {
+    void write(Object value, JsonWriter writer);
+  }
+
+  /**
+   * Writes a field of a generated message by calling its generated accessors
+   */
+  private static final class FieldWriter {
+    private static final MethodType HAS_TYPE = MethodType.methodType(boolean.class, Message.class);
+    private static final MethodType GET_TYPE = MethodType.methodType(Object.class, Message.class);
+
+    private final String name;
+    // null for repeated fields, which are always written
+    @CheckForNull
+    private final MethodHandle hasHandle;
+    private final MethodHandle getHandle;
+    private final ValueWriter valueWriter;
+
+    private FieldWriter(String name, @Nullable MethodHandle hasHandle, MethodHandle getHandle, ValueWriter valueWriter) {
+      this.name = name;
+      this.hasHandle = hasHandle;
+      this.getHandle = getHandle;
+      this.valueWriter = valueWriter;
+    }
+
+    /**
+     * @return null if at least one of the accessors can't be found, for example if the message has been
+     * generated by an unsupported version of protoc.
+     */
+    @CheckForNull
+    static FieldWriter[] createAll(Class<?> messageClass, Descriptors.FieldDescriptor[] fieldDescriptors) {
+      FieldWriter[] writers = new FieldWriter[fieldDescriptors.length];
+      try {
+        for (int i = 0; i < fieldDescriptors.length; i++) {
+          writers[i] = create(messageClass, fieldDescriptors[i]);
+        }
+        return writers;
+      } catch (NoSuchMethodException | IllegalAccessException e) {
+        return null;
+      }
+    }
+
+    private static FieldWriter create(Class<?> messageClass, Descriptors.FieldDescriptor fieldDescriptor) throws NoSuchMethodException, IllegalAccessException {
+      String accessorSuffix = Character.toUpperCase(fieldDescriptor.getJsonName().charAt(0)) + fieldDescriptor.getJsonName().substring(1);
+      if (fieldDescriptor.isMapField()) {
+        Descriptors.FieldDescriptor valueDescriptor = fieldDescriptor.getMessageType().findFieldByName("value");
+        return new FieldWriter(fieldDescriptor.getName(), null, getter(messageClass, "get" + accessorSuffix, Map.class), mapWriter(valueWriter(valueDescriptor)));
+      }
+      if (fieldDescriptor.isRepeated()) {
+        return new FieldWriter(fieldDescriptor.getName(), null, getter(messageClass, "get" + accessorSuffix + "List", List.class), arrayWriter(valueWriter(fieldDescriptor)));
+      }
+      MethodHandle hasHandle = MethodHandles.publicLookup().unreflect(messageClass.getMethod("has" + accessorSuffix)).asType(HAS_TYPE);
+      return new FieldWriter(fieldDescriptor.getName(), hasHandle, getter(messageClass, "get" + accessorSuffix, Object.class), valueWriter(fieldDescriptor));
+    }
+
+    private static MethodHandle getter(Class<?> messageClass, String methodName, Class<?> expectedReturnType) throws NoSuchMethodException, IllegalAccessException {
+      Method method = messageClass.getMethod(methodName);
+      if (!expectedReturnType.isAssignableFrom(method.getReturnType())) {
+        throw new NoSuchMethodException(String.format("%s.%s() does not return %s", messageClass.getName(), methodName, expectedReturnType.getName()));
+      }
+      return MethodHandles.publicLookup().unreflect(method).asType(GET_TYPE);
+    }
+
+    private static ValueWriter valueWriter(Descriptors.FieldDescriptor fieldDescriptor) {
+      switch (fieldDescriptor.getJavaType()) {
+        case INT:
+          return (value, writer) -> writer.value((Integer) value);
+        case LONG:
+          return (value, writer) -> writer.value((Long) value);
+        case DOUBLE:
+          return (value, writer) -> writer.value((Double) value);
+        case BOOLEAN:
+          return (value, writer) -> writer.value((Boolean) value);
+        case STRING:
+          return (value, writer) -> writer.value((String) value);
+        case ENUM:
+          // names of constants of generated enums are the names of protobuf values
+          return (value, writer) -> writer.value(((Enum) value).name());
+        case MESSAGE:
+          return (value, writer) -> writeMessageValue((Message) value, writer);
+        default:
+          return (value, writer) -> {
+            throw unsupportedType(fieldDescriptor);
+          };
+      }
+    }
+
+    private static ValueWriter arrayWriter(ValueWriter itemWriter) {
+      return (value, writer) -> {
+        List<?> items = (List<?>) value;
+        writer.beginArray();
+        for (int i = 0; i < items.size(); i++) {
+          itemWriter.write(items.get(i), writer);
+        }
+        writer.endArray();
+      };
+    }
+
+    private static ValueWriter mapWriter(ValueWriter entryValueWriter) {
+      return (value, writer) -> {
+        writer.beginObject();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          // Key fields are always double-quoted in json
+          writer.name(entry.getKey().toString());
+          entryValueWriter.write(entry.getValue(), writer);
+        }
+        writer.endObject();
+      };
+    }
+
+    void write(Message message, JsonWriter writer) {
+      if (hasHandle == null || has(message)) {
+        writer.name(name);
+        writeValue(message, writer);
+      }
+    }
+
+    void writeValue(Message message, JsonWriter writer) {
+      Object value;
+      try {
+        value = (Object) getHandle.invokeExact(message);
+      } catch (Throwable e) {
+        throw new IllegalStateException(String.format("Fail to read field '%s' of %s", name, message.getClass().getName()), e);
+      }
+      valueWriter.write(value, writer);
+    }
+
+    private boolean has(Message message) {
+      try {
+        return (boolean) hasHandle.invokeExact(message);
+      } catch (Throwable e) {
+        throw new IllegalStateException(String.format("Fail to read field '%s' of %s", name, message.getClass().getName()), e);
+      }
+    }
+  }
 }
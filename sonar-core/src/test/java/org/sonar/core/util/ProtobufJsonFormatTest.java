@@ -20,6 +20,8 @@
 package org.sonar.core.util;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.Message;
 import java.io.StringWriter;
 import org.junit.Rule;
 import org.junit.Test;
@@ -210,6 +212,35 @@ public class ProtobufJsonFormatTest {
     assertThat(toJson(msg.build())).isEqualTo("{\"catalogs\":{\"numbers\":{\"one\":\"un\",\"two\":\"deux\"}}}");
   }
 
+  @Test
+  public void generated_messages_are_written_through_accessors() {
+    assertThat(ProtobufJsonFormat.MessageType.of(TestMapOfMap.getDefaultInstance()).isGenerated()).isTrue();
+  }
+
+  @Test
+  public void dynamic_messages_are_written_like_generated_messages() throws Exception {
+    TestMapOfArray.Builder mapOfArray = TestMapOfArray.newBuilder();
+    mapOfArray.getMutableMoneys().put("eur", Countries.newBuilder()
+      .addCountries(Country.newBuilder().setContinent("Europe").setName("France"))
+      .addCountries(Country.newBuilder().setName("Germany"))
+      .build());
+    mapOfArray.getMutableMoneys().put("dkk", Countries.newBuilder().build());
+    PrimitiveTypeMsg primitives = PrimitiveTypeMsg.newBuilder()
+      .setStringField("foo")
+      .setLongField(100L)
+      .setBooleanField(false)
+      .setEnumField(org.sonar.core.test.Test.FakeEnum.RED)
+      .setNested(NestedMsg.newBuilder().setLabel("bar"))
+      .build();
+
+    for (Message generated : new Message[] {mapOfArray.build(), primitives}) {
+      DynamicMessage dynamic = DynamicMessage.parseFrom(generated.getDescriptorForType(), generated.toByteString());
+
+      assertThat(ProtobufJsonFormat.MessageType.of(dynamic).isGenerated()).isFalse();
+      assertThat(toJson(dynamic)).isEqualTo(toJson(generated));
+    }
+  }
+
   @Test
   public void constructor_is_private() throws Exception {
     assertThat(TestUtils.hasOnlyPrivateConstructors(ProtobufJsonFormat.class)).isTrue();
@@ -20,10 +20,10 @@
 package org.sonar.duplications.block;
 
 import java.util.ArrayList;
-import org.sonar.duplications.statement.Statement;
-
 import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
+import org.sonar.duplications.statement.Statement;
 
 /**
  * Creates blocks from statements, each block will contain specified number of statements (<code>blockSize</code>) and 64-bits (8-bytes) hash value.
@@ -55,49 +55,65 @@ public class BlockChunker {
   }
 
   public List<Block> chunk(String resourceId, List<Statement> statements) {
-    List<Statement> filtered = new ArrayList<>();
+    PackedBlocks packedBlocks = chunkPacked(resourceId, statements);
+    if (packedBlocks.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return new ArrayList<>(packedBlocks.asList());
+  }
+
+  /**
+   * Same as {@link #chunk(String, List)}, but hashes and positions of blocks are written into primitive arrays
+   * instead of creating a {@link Block} for each of them.
+   *
+   * @since 6.4
+   */
+  public PackedBlocks chunkPacked(String resourceId, List<Statement> statements) {
+    List<Statement> input = statements instanceof RandomAccess ? statements : new ArrayList<>(statements);
+    // in a sequence of statements with the same value, only the first and the last ones are kept
+    int[] kept = new int[input.size()];
+    int keptCount = 0;
     int i = 0;
-    while (i < statements.size()) {
-      Statement first = statements.get(i);
+    while (i < input.size()) {
+      String value = input.get(i).getValue();
       int j = i + 1;
-      while (j < statements.size() && statements.get(j).getValue().equals(first.getValue())) {
+      while (j < input.size() && input.get(j).getValue().equals(value)) {
         j++;
       }
-      filtered.add(statements.get(i));
+      kept[keptCount++] = i;
       if (i < j - 1) {
-        filtered.add(statements.get(j - 1));
+        kept[keptCount++] = j - 1;
       }
       i = j;
     }
-    statements = filtered;
 
-    if (statements.size() < blockSize) {
-      return Collections.emptyList();
+    if (keptCount < blockSize) {
+      return new PackedBlocks(resourceId, new long[0], new int[0], 0);
     }
-    Statement[] statementsArr = statements.toArray(new Statement[statements.size()]);
-    List<Block> blocks = new ArrayList<>(statementsArr.length - blockSize + 1);
+    int size = keptCount - blockSize + 1;
+    long[] hashes = new long[size];
+    int[] records = new int[size * PackedBlocks.RECORD_INTS];
     long hash = 0;
     int first = 0;
     int last = 0;
     for (; last < blockSize - 1; last++) {
-      hash = hash * PRIME_BASE + statementsArr[last].getValue().hashCode();
+      hash = hash * PRIME_BASE + input.get(kept[last]).getValue().hashCode();
     }
-    Block.Builder blockBuilder = Block.builder().setResourceId(resourceId);
-    for (; last < statementsArr.length; last++, first++) {
-      Statement firstStatement = statementsArr[first];
-      Statement lastStatement = statementsArr[last];
+    for (; last < keptCount; last++, first++) {
+      Statement firstStatement = input.get(kept[first]);
+      Statement lastStatement = input.get(kept[last]);
       // add last statement to hash
       hash = hash * PRIME_BASE + lastStatement.getValue().hashCode();
-      // create block
-      Block block = blockBuilder.setBlockHash(new ByteArray(hash))
-          .setIndexInFile(first)
-          .setLines(firstStatement.getStartLine(), lastStatement.getEndLine())
-          .build();
-      blocks.add(block);
+      // record block
+      hashes[first] = hash;
+      int offset = first * PackedBlocks.RECORD_INTS;
+      records[offset] = first;
+      records[offset + 1] = firstStatement.getStartLine();
+      records[offset + 2] = lastStatement.getEndLine();
       // remove first statement from hash
       hash -= power * firstStatement.getValue().hashCode();
     }
-    return blocks;
+    return new PackedBlocks(resourceId, hashes, records, size);
   }
 
   public int getBlockSize() {
@@ -0,0 +1,125 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.block;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Blocks of a file stored in flat primitive arrays, as produced by {@link BlockChunker#chunkPacked(String, List)}.
+ * No object is allocated per block, unless {@link Block} views are requested with {@link #block(int)} or {@link #asList()}.
+ *
+ * @since 6.4
+ */
+public final class PackedBlocks {
+
+  /**
+   * Number of ints of a record: index in file, start line and end line.
+   */
+  static final int RECORD_INTS = 3;
+
+  private final String resourceId;
+  private final long[] hashes;
+  private final int[] records;
+  private final int size;
+
+  PackedBlocks(String resourceId, long[] hashes, int[] records, int size) {
+    this.resourceId = resourceId;
+    this.hashes = hashes;
+    this.records = records;
+    this.size = size;
+  }
+
+  public String resourceId() {
+    return resourceId;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public long hash(int i) {
+    return hashes[i];
+  }
+
+  public int indexInFile(int i) {
+    return records[i * RECORD_INTS];
+  }
+
+  public int startLine(int i) {
+    return records[i * RECORD_INTS + 1];
+  }
+
+  public int endLine(int i) {
+    return records[i * RECORD_INTS + 2];
+  }
+
+  /**
+   * Same value as {@link ByteArray#toHexString()} of the hash of {@link #block(int)}, without creating the {@link ByteArray}.
+   */
+  public String hashHex(int i) {
+    char[] hex = new char[16];
+    long hash = hashes[i];
+    for (int j = 15; j >= 0; j--) {
+      hex[j] = Character.forDigit((int) (hash & 0xF), 16);
+      hash >>>= 4;
+    }
+    return new String(hex);
+  }
+
+  /**
+   * Creates a new {@link Block} representing the block at the given position.
+   */
+  public Block block(int i) {
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(new ByteArray(hashes[i]))
+      .setIndexInFile(indexInFile(i))
+      .setLines(startLine(i), endLine(i))
+      .build();
+  }
+
+  /**
+   * Read-only view of blocks as {@link Block}. Each call to {@link List#get(int)} creates a new {@link Block}.
+   */
+  public List<Block> asList() {
+    return new BlockList();
+  }
+
+  private class BlockList extends AbstractList<Block> implements RandomAccess {
+    @Override
+    public Block get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return block(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
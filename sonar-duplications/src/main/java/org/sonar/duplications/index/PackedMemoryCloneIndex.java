@@ -27,6 +27,7 @@ import java.util.NoSuchElementException;
 
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.block.PackedBlocks;
 import org.sonar.duplications.utils.FastStringComparator;
 
 import javax.annotation.Nullable;
@@ -269,6 +270,37 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     size++;
   }
 
+  /**
+   * Inserts all the blocks of a file, without creating a {@link Block} for each of them.
+   * Requires hashes of 8 bytes, as produced by {@link org.sonar.duplications.block.BlockChunker}.
+   *
+   * @since 6.4
+   */
+  public void insert(PackedBlocks blocks) {
+    if (hashInts != 2) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got 2");
+    }
+    sorted = false;
+    String resourceId = blocks.resourceId();
+    for (int i = 0; i < blocks.size(); i++) {
+      ensureCapacity();
+
+      resourceIds[size] = resourceId;
+
+      long hash = blocks.hash(i);
+      int offset = size * blockInts;
+      blockData[offset++] = (int) (hash >>> 32);
+      blockData[offset++] = (int) hash;
+      blockData[offset++] = blocks.indexInFile(i);
+      blockData[offset++] = blocks.startLine(i);
+      blockData[offset++] = blocks.endLine(i);
+      blockData[offset++] = 0;
+      blockData[offset] = 0;
+
+      size++;
+    }
+  }
+
   /**
    * Increases the capacity, if necessary.
    */
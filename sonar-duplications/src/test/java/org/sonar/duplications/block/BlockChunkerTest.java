@@ -23,6 +23,7 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.junit.Test;
@@ -52,6 +53,35 @@ public class BlockChunkerTest extends BlockChunkerTestCase {
     assertThat(blocks.get(2).getBlockHash().toString(), is("fffffec45c0aad80"));
   }
 
+  @Test
+  public void packed_blocks_should_be_the_same_as_blocks() {
+    List<Statement> statements = createStatementsFromStrings("a", "b", "b", "b", "c", "d", "e", "a", "b");
+    BlockChunker blockChunker = createChunkerWithBlockSize(3);
+
+    List<Block> blocks = blockChunker.chunk("resource", statements);
+    PackedBlocks packedBlocks = blockChunker.chunkPacked("resource", statements);
+
+    assertThat(packedBlocks.resourceId(), is("resource"));
+    assertThat(packedBlocks.size(), is(blocks.size()));
+    assertThat(packedBlocks.asList(), equalTo(blocks));
+    for (int i = 0; i < blocks.size(); i++) {
+      Block block = blocks.get(i);
+      assertThat(packedBlocks.hash(i), is(ByteBuffer.wrap(block.getBlockHash().getBytes()).getLong()));
+      assertThat(packedBlocks.hashHex(i), is(block.getHashHex()));
+      assertThat(packedBlocks.indexInFile(i), is(block.getIndexInFile()));
+      assertThat(packedBlocks.startLine(i), is(block.getStartLine()));
+      assertThat(packedBlocks.endLine(i), is(block.getEndLine()));
+    }
+  }
+
+  @Test
+  public void packed_blocks_should_be_empty_when_not_enough_statements() {
+    PackedBlocks packedBlocks = createChunkerWithBlockSize(3).chunkPacked("resource", createStatementsFromStrings("a", "b"));
+
+    assertThat(packedBlocks.isEmpty(), is(true));
+    assertThat(packedBlocks.asList().isEmpty(), is(true));
+  }
+
   private ByteArray hash(String... statements) {
     long hash = 0;
     for (String statement : statements) {
@@ -22,12 +22,15 @@ package org.sonar.duplications.index;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.BlockChunker;
 import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+import org.sonar.duplications.statement.Statement;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -65,6 +68,24 @@ public class PackedMemoryCloneIndexTest {
     assertThat(index.getByResourceId("does not exist").size(), is(0));
   }
 
+  @Test
+  public void should_insert_packed_blocks() {
+    List<Statement> statements = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      statements.add(new Statement(i, i, "statement" + i));
+    }
+    BlockChunker blockChunker = new BlockChunker(3);
+    List<Block> blocks = blockChunker.chunk("a", statements);
+
+    index.insert(blockChunker.chunkPacked("a", statements));
+    index.insert(Block.builder().setResourceId("b").setBlockHash(blocks.get(0).getBlockHash()).setIndexInFile(0).setLines(1, 3).build());
+
+    assertThat(index.noResources()).isEqualTo(2);
+    assertThat(index.getByResourceId("a")).containsOnlyElementsOf(blocks);
+    assertThat(index.getBySequenceHash(blocks.get(0).getBlockHash())).extracting("resourceId").containsOnly("a", "b");
+    assertThat(index.getBySequenceHash(blocks.get(1).getBlockHash())).containsOnly(blocks.get(1));
+  }
+
   /**
    * When: query by a hash value.
    * Expected: all blocks should have same hash, which presented in the form of the same object.
@@ -35,7 +35,6 @@ import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
-import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.BlockChunker;
 import org.sonar.duplications.java.JavaStatementBuilder;
 import org.sonar.duplications.java.JavaTokenProducer;
@@ -100,8 +99,7 @@ public class JavaCpdBlockIndexer extends CpdBlockIndexer {
         throw new IllegalStateException("Exception handling file: " + inputFile.file(), e);
       }
 
-      List<Block> blocks = blockChunker.chunk(resourceEffectiveKey, statements);
-      index.insert(inputFile, blocks);
+      index.insert(inputFile, blockChunker.chunkPacked(resourceEffectiveKey, statements));
     }
   }
 }
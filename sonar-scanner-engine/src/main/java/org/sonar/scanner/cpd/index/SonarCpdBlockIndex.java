@@ -19,9 +19,11 @@
  */
 package org.sonar.scanner.cpd.index;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.commons.lang.StringUtils;
@@ -31,8 +33,8 @@ import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.config.Settings;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.block.PackedBlocks;
 import org.sonar.duplications.index.AbstractCloneIndex;
-import org.sonar.duplications.index.CloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex;
 import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
 import org.sonar.scanner.protocol.output.FileStructure;
@@ -41,7 +43,7 @@ import org.sonar.scanner.report.ReportPublisher;
 
 public class SonarCpdBlockIndex extends AbstractCloneIndex {
 
-  private final CloneIndex mem = new PackedMemoryCloneIndex();
+  private final PackedMemoryCloneIndex mem = new PackedMemoryCloneIndex();
   private final ReportPublisher publisher;
   private final Settings settings;
   // Files already tokenized
@@ -54,10 +56,7 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
 
   public void insert(InputFile inputFile, Collection<Block> blocks) {
     if (isCrossProjectDuplicationEnabled(settings)) {
-      int id = ((DefaultInputFile) inputFile).batchId();
-      if (publisher.getWriter().hasComponentData(FileStructure.Domain.CPD_TEXT_BLOCKS, id)) {
-        throw new UnsupportedOperationException("Trying to save CPD tokens twice for the same file is not supported: " + inputFile.absolutePath());
-      }
+      int id = checkNotSavedYet(inputFile);
       final ScannerReport.CpdTextBlock.Builder builder = ScannerReport.CpdTextBlock.newBuilder();
       publisher.getWriter().writeCpdTextBlocks(id, blocks.stream().map(block -> {
         builder.clear();
@@ -75,6 +74,36 @@ public class SonarCpdBlockIndex extends AbstractCloneIndex {
     indexedFiles.add(inputFile);
   }
 
+  /**
+   * Same as {@link #insert(InputFile, Collection)} for blocks without start and end units, as produced by
+   * {@link org.sonar.duplications.block.BlockChunker#chunkPacked(String, java.util.List)}.
+   */
+  public void insert(InputFile inputFile, PackedBlocks blocks) {
+    if (isCrossProjectDuplicationEnabled(settings)) {
+      int id = checkNotSavedYet(inputFile);
+      List<ScannerReport.CpdTextBlock> textBlocks = new ArrayList<>(blocks.size());
+      ScannerReport.CpdTextBlock.Builder builder = ScannerReport.CpdTextBlock.newBuilder();
+      for (int i = 0; i < blocks.size(); i++) {
+        builder.clear();
+        builder.setStartLine(blocks.startLine(i));
+        builder.setEndLine(blocks.endLine(i));
+        builder.setHash(blocks.hashHex(i));
+        textBlocks.add(builder.build());
+      }
+      publisher.getWriter().writeCpdTextBlocks(id, textBlocks);
+    }
+    mem.insert(blocks);
+    indexedFiles.add(inputFile);
+  }
+
+  private int checkNotSavedYet(InputFile inputFile) {
+    int id = ((DefaultInputFile) inputFile).batchId();
+    if (publisher.getWriter().hasComponentData(FileStructure.Domain.CPD_TEXT_BLOCKS, id)) {
+      throw new UnsupportedOperationException("Trying to save CPD tokens twice for the same file is not supported: " + inputFile.absolutePath());
+    }
+    return id;
+  }
+
   public boolean isIndexed(InputFile inputFile) {
     return indexedFiles.contains(inputFile);
   }
@@ -19,6 +19,7 @@
  */
 package org.sonar.scanner.issue.tracking;
 
+import java.util.Objects;
 import java.util.function.Function;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.InstantiationStrategy;
@@ -59,8 +60,7 @@ public class ServerIssueRepository {
 
   public void load() {
     Profiler profiler = Profiler.create(LOG).startInfo(LOG_MSG);
-    this.issuesCache = caches.createCache("previousIssues");
-    caches.registerValueCoder(ServerIssue.class, new ServerIssueValueCoder());
+    this.issuesCache = caches.createCache("previousIssues", new ServerIssueValueCoder());
     previousIssuesLoader.load(reactor.getRoot().getKeyWithBranch(), new SaveIssueConsumer());
     profiler.stopInfo();
   }
@@ -69,7 +69,14 @@ public class ServerIssueRepository {
     return issuesCache.values(((DefaultInputComponent) component).batchId());
   }
 
+  /**
+   * Issues are sent by the server grouped by component, so the component of the previous issue is kept to avoid
+   * resolving it again for each issue.
+   */
   private class SaveIssueConsumer implements Function<ServerIssue, Void> {
+    private String lastModuleKey;
+    private String lastPath;
+    private int lastBatchId;
 
     @Override
     public Void apply(@Nullable ServerIssue issue) {
@@ -77,18 +84,27 @@ public class ServerIssueRepository {
         return null;
       }
       String moduleKeyWithBranch = issue.getModuleKey();
+      String path = issue.hasPath() ? issue.getPath() : null;
+      if (!moduleKeyWithBranch.equals(lastModuleKey) || !Objects.equals(path, lastPath)) {
+        lastModuleKey = moduleKeyWithBranch;
+        lastPath = path;
+        lastBatchId = batchId(moduleKeyWithBranch, path);
+      }
+      issuesCache.put(lastBatchId, issue.getKey(), issue);
+      return null;
+    }
+
+    private int batchId(String moduleKeyWithBranch, @Nullable String path) {
       ProjectDefinition projectDefinition = reactor.getProjectDefinition(moduleKeyWithBranch);
       if (projectDefinition != null) {
-        String componentKeyWithoutBranch = ComponentKeys.createEffectiveKey(projectDefinition.getKey(), issue.hasPath() ? issue.getPath() : null);
+        String componentKeyWithoutBranch = ComponentKeys.createEffectiveKey(projectDefinition.getKey(), path);
         DefaultInputComponent r = (DefaultInputComponent) resourceCache.getByKey(componentKeyWithoutBranch);
         if (r != null) {
-          issuesCache.put(r.batchId(), issue.getKey(), issue);
-          return null;
+          return r.batchId();
         }
       }
       // Deleted resource
-      issuesCache.put(0, issue.getKey(), issue);
-      return null;
+      return 0;
     }
   }
 
@@ -19,14 +19,31 @@
  */
 package org.sonar.scanner.scan.measure;
 
-import com.persistit.Value;
-import com.persistit.encoding.CoderContext;
-import com.persistit.encoding.ValueCoder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import org.sonar.api.batch.measure.MetricFinder;
 import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
+import org.sonar.scanner.storage.ValueCoder;
 
-class MeasureValueCoder implements ValueCoder {
+/**
+ * Encodes the metric key and the value of measures. Values of usual types are written without the overhead
+ * of Java serialization.
+ */
+class MeasureValueCoder implements ValueCoder<DefaultMeasure<?>> {
+
+  private static final byte INTEGER = 1;
+  private static final byte LONG = 2;
+  private static final byte DOUBLE = 3;
+  private static final byte BOOLEAN = 4;
+  private static final byte STRING = 5;
+  private static final byte SERIALIZABLE = 6;
 
   private final MetricFinder metricFinder;
 
@@ -35,22 +52,82 @@ class MeasureValueCoder implements ValueCoder {
   }
 
   @Override
-  public void put(Value value, Object object, CoderContext context) {
-    DefaultMeasure<?> m = (DefaultMeasure<?>) object;
-    org.sonar.api.batch.measure.Metric<?> metric = m.metric();
-    value.putString(metric.key());
-    value.put(m.value());
+  public byte[] encode(DefaultMeasure<?> measure) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeUTF(measure.metric().key());
+      writeValue(output, measure.value());
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to encode measure " + measure, e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeValue(DataOutputStream output, Serializable value) throws IOException {
+    if (value instanceof Integer) {
+      output.writeByte(INTEGER);
+      output.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      output.writeByte(LONG);
+      output.writeLong((Long) value);
+    } else if (value instanceof Double) {
+      output.writeByte(DOUBLE);
+      output.writeDouble((Double) value);
+    } else if (value instanceof Boolean) {
+      output.writeByte(BOOLEAN);
+      output.writeBoolean((Boolean) value);
+    } else if (value instanceof String) {
+      output.writeByte(STRING);
+      byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+      output.writeInt(utf8.length);
+      output.write(utf8);
+    } else {
+      output.writeByte(SERIALIZABLE);
+      ObjectOutputStream objectOutput = new ObjectOutputStream(output);
+      objectOutput.writeObject(value);
+      objectOutput.flush();
+    }
   }
 
   @Override
-  public Object get(Value value, Class clazz, CoderContext context) {
-    String metricKey = value.getString();
-    org.sonar.api.batch.measure.Metric<?> metric = metricFinder.findByKey(metricKey);
-    if (metric == null) {
-      throw new IllegalStateException("Unknow metric with key " + metricKey);
+  public DefaultMeasure<?> decode(byte[] bytes) {
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      String metricKey = input.readUTF();
+      org.sonar.api.batch.measure.Metric<?> metric = metricFinder.findByKey(metricKey);
+      if (metric == null) {
+        throw new IllegalStateException("Unknow metric with key " + metricKey);
+      }
+      return new DefaultMeasure()
+        .forMetric(metric)
+        .withValue(readValue(input));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to decode measure", e);
+    }
+  }
+
+  private static Serializable readValue(DataInputStream input) throws IOException {
+    byte type = input.readByte();
+    switch (type) {
+      case INTEGER:
+        return input.readInt();
+      case LONG:
+        return input.readLong();
+      case DOUBLE:
+        return input.readDouble();
+      case BOOLEAN:
+        return input.readBoolean();
+      case STRING:
+        byte[] utf8 = new byte[input.readInt()];
+        input.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+      case SERIALIZABLE:
+        try {
+          return (Serializable) new ObjectInputStream(input).readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IllegalStateException("Fail to decode measure value", e);
+        }
+      default:
+        throw new IllegalStateException("Unsupported type of measure value: " + type);
     }
-    return new DefaultMeasure()
-      .forMetric(metric)
-      .withValue((Serializable) value.get());
   }
 }
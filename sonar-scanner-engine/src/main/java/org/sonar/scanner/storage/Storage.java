@@ -19,56 +19,102 @@
  */
 package org.sonar.scanner.storage;
 
-import com.google.common.collect.Sets;
-import com.persistit.Exchange;
-import com.persistit.Key;
-import com.persistit.KeyFilter;
-import com.persistit.exception.PersistitException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.apache.commons.lang.builder.ToStringBuilder;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
+ * Sorted storage of values identified by composite keys. Keys are kept in memory while values are kept encoded by
+ * a {@link ValueCoder}. Encoded values are moved to a temporary file as soon as their size exceeds a given threshold,
+ * so that the memory used by values is bounded. Keys and the location of the values moved to the file are still kept
+ * in memory, so memory consumption still grows with the number of stored values, but much more slowly.
+ * <p>
+ * Space of the file taken by values which are later overridden or removed is reclaimed by compacting the file once
+ * it makes more than half of its size.
+ * </p>
+ * <p>
+ * Keys are ordered part by part. Parts of same type are compared by their natural ordering, parts of different types
+ * by the name of their class. A key is ordered before all the keys it is prefix of.
+ * </p>
  * <p>
- * This storage is not thread-safe, due to direct usage of {@link com.persistit.Exchange}
+ * This storage is not thread-safe. Lazy iterables can be iterated while the storage is being modified.
  * </p>
  */
 public class Storage<V> {
 
+  private static final Object AFTER = new Object();
+
   private final String name;
-  private final Exchange exchange;
+  private final ValueCoder<V> valueCoder;
+  private final File spillFile;
+  private final long maxMemoryBytes;
+  /**
+   * Values are either {@code byte[]} when still in memory or {@link SpilledValue} when moved to {@link #spillFile}.
+   */
+  private final ConcurrentSkipListMap<Object[], Object> map = new ConcurrentSkipListMap<>(Storage::compareKeys);
+  private long memoryBytes = 0L;
+  private FileChannel spillChannel;
+  private long spillFileSize = 0L;
+  /**
+   * Size of the values of {@link #spillFile} which have been overridden or removed since they were spilled
+   */
+  private long deadSpillBytes = 0L;
+  /**
+   * Incremented each time the values of {@link #spillFile} are moved, so that the {@link SpilledValue} read
+   * before by lazy iterators are known to be stale.
+   */
+  private int spillGeneration = 0;
 
-  Storage(String name, Exchange exchange) {
+  Storage(String name, ValueCoder<V> valueCoder, File spillFile, long maxMemoryBytes) {
     this.name = name;
-    this.exchange = exchange;
+    this.valueCoder = valueCoder;
+    this.spillFile = spillFile;
+    this.maxMemoryBytes = maxMemoryBytes;
   }
 
   public Storage<V> put(Object key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return doPut(toKey(key), value);
   }
 
   public Storage<V> put(Object firstKey, Object secondKey, V value) {
-    resetKey(firstKey, secondKey);
-    return doPut(value);
+    return doPut(toKey(firstKey, secondKey), value);
   }
 
   public Storage<V> put(Object firstKey, Object secondKey, Object thirdKey, V value) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doPut(value);
+    return doPut(toKey(firstKey, secondKey, thirdKey), value);
   }
 
   public Storage<V> put(Object[] key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return doPut(toKey(key), value);
   }
 
-  private Storage<V> doPut(V value) {
+  private Storage<V> doPut(Object[] key, V value) {
     try {
-      exchange.getValue().put(value);
-      exchange.store();
+      byte[] bytes = valueCoder.encode(value);
+      release(map.put(key, bytes));
+      memoryBytes += bytes.length;
+      if (memoryBytes > maxMemoryBytes) {
+        spill();
+      }
       return this;
     } catch (Exception e) {
       throw new IllegalStateException("Fail to put element in the storage '" + name + "'", e);
@@ -79,8 +125,7 @@ public class Storage<V> {
    * Returns the value object associated with keys, or null if not found.
    */
   public V get(Object key) {
-    resetKey(key);
-    return doGet();
+    return doGet(toKey(key));
   }
 
   /**
@@ -88,8 +133,7 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doGet();
+    return doGet(toKey(firstKey, secondKey));
   }
 
   /**
@@ -97,8 +141,7 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doGet();
+    return doGet(toKey(firstKey, secondKey, thirdKey));
   }
 
   /**
@@ -106,81 +149,68 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object[] key) {
-    resetKey(key);
-    return doGet();
+    return doGet(toKey(key));
   }
 
-  @SuppressWarnings("unchecked")
   @CheckForNull
-  private V doGet() {
+  private V doGet(Object[] key) {
     try {
-      exchange.fetch();
-      if (!exchange.getValue().isDefined()) {
+      Object storedValue = map.get(key);
+      if (storedValue == null) {
         return null;
       }
-      return (V) exchange.getValue().get();
+      return decode(storedValue);
     } catch (Exception e) {
-      // TODO add parameters to message
       throw new IllegalStateException("Fail to get element from cache " + name, e);
     }
   }
 
   public boolean containsKey(Object key) {
-    resetKey(key);
-    return doContainsKey();
+    return map.containsKey(toKey(key));
   }
 
   public boolean containsKey(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doContainsKey();
+    return map.containsKey(toKey(firstKey, secondKey));
   }
 
   public boolean containsKey(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doContainsKey();
+    return map.containsKey(toKey(firstKey, secondKey, thirdKey));
   }
 
   public boolean containsKey(Object[] key) {
-    resetKey(key);
-    return doContainsKey();
-  }
-
-  private boolean doContainsKey() {
-    try {
-      exchange.fetch();
-      return exchange.isValueDefined();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to check if element is in cache " + name, e);
-    }
+    return map.containsKey(toKey(key));
   }
 
   public boolean remove(Object key) {
-    resetKey(key);
-    return doRemove();
+    return doRemove(toKey(key));
   }
 
   public boolean remove(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doRemove();
+    return doRemove(toKey(firstKey, secondKey));
   }
 
   public boolean remove(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doRemove();
+    return doRemove(toKey(firstKey, secondKey, thirdKey));
   }
 
   public boolean remove(Object[] key) {
-    resetKey(key);
-    return doRemove();
+    return doRemove(toKey(key));
   }
 
-  private boolean doRemove() {
-    try {
-      return exchange.remove();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to get element from cache " + name, e);
+  private boolean doRemove(Object[] key) {
+    Object removed = map.remove(key);
+    release(removed);
+    return removed != null;
+  }
+
+  /**
+   * Updates the accounting of memory and of the file when a stored value is overridden or removed
+   */
+  private void release(@Nullable Object storedValue) {
+    if (storedValue instanceof byte[]) {
+      memoryBytes -= ((byte[]) storedValue).length;
+    } else if (storedValue instanceof SpilledValue) {
+      deadSpillBytes += ((SpilledValue) storedValue).length;
     }
   }
 
@@ -190,88 +220,60 @@ public class Storage<V> {
    * @param group The group name.
    */
   public Storage<V> clear(Object key) {
-    resetKey(key);
-    return doClear();
+    return doClear(toKey(key));
   }
 
   public Storage<V> clear(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doClear();
+    return doClear(toKey(firstKey, secondKey));
   }
 
   public Storage<V> clear(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doClear();
+    return doClear(toKey(firstKey, secondKey, thirdKey));
   }
 
   public Storage<V> clear(Object[] key) {
-    resetKey(key);
-    return doClear();
+    return doClear(toKey(key));
   }
 
-  private Storage<V> doClear() {
-    try {
-      Key to = new Key(exchange.getKey());
-      to.append(Key.AFTER);
-      exchange.removeKeyRange(exchange.getKey(), to);
-      return this;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to clear values from cache " + name, e);
+  private Storage<V> doClear(Object[] key) {
+    for (Object[] subKey : map.subMap(key, true, after(key), false).keySet()) {
+      doRemove(subKey);
     }
+    return this;
   }
 
   /**
    * Clears the default as well as all group caches.
    */
   public void clear() {
-    try {
-      exchange.clear();
-      exchange.removeAll();
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to clear cache", e);
+    map.clear();
+    memoryBytes = 0L;
+    if (spillChannel != null) {
+      try {
+        spillChannel.truncate(0L);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to clear storage " + name, e);
+      }
+      spillFileSize = 0L;
+      deadSpillBytes = 0L;
+      spillGeneration++;
     }
   }
 
   /**
    * Returns the set of cache keys associated with this group.
-   * TODO implement a lazy-loading equivalent with Iterator/Iterable
    *
    * @param group The group.
    * @return The set of cache keys for this group.
    */
   @SuppressWarnings("rawtypes")
   public Set keySet(Object key) {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(key);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return doKeySet(toKey(key));
   }
 
   @SuppressWarnings("rawtypes")
   public Set keySet(Object firstKey, Object secondKey) {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(firstKey);
-      iteratorExchange.append(secondKey);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return doKeySet(toKey(firstKey, secondKey));
   }
 
   /**
@@ -280,68 +282,232 @@ public class Storage<V> {
    * @return The set containing the keys for this cache.
    */
   public Set<Object> keySet() {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
+    return doKeySet(new Object[0]);
+  }
+
+  /**
+   * Distinct parts following the specified prefix, in order. Keys sharing the same next part are skipped at once.
+   */
+  private Set<Object> doKeySet(Object[] prefix) {
+    Set<Object> keys = new LinkedHashSet<>();
+    Object[] afterPrefix = after(prefix);
+    Object[] current = map.higherKey(prefix);
+    while (current != null && compareKeys(current, afterPrefix) < 0) {
+      Object[] child = Arrays.copyOf(current, prefix.length + 1);
+      keys.add(child[prefix.length]);
+      current = map.higherKey(after(child));
     }
+    return keys;
   }
 
   /**
    * Lazy-loading values for given keys
    */
   public Iterable<V> values(Object firstKey, Object secondKey) {
-    return new ValueIterable<>(exchange, firstKey, secondKey);
+    return new ValueIterable<>(this, toKey(firstKey, secondKey));
   }
 
   /**
    * Lazy-loading values for a given key
    */
   public Iterable<V> values(Object firstKey) {
-    return new ValueIterable<>(exchange, firstKey);
+    return new ValueIterable<>(this, toKey(firstKey));
   }
 
   /**
    * Lazy-loading values
    */
   public Iterable<V> values() {
-    return new ValueIterable<>(exchange);
+    return new ValueIterable<>(this, new Object[0]);
   }
 
   public Iterable<Entry<V>> entries() {
-    return new EntryIterable<>(exchange);
+    return new EntryIterable<>(this, new Object[0]);
   }
 
   public Iterable<Entry<V>> entries(Object firstKey) {
-    return new EntryIterable<>(exchange, firstKey);
+    return new EntryIterable<>(this, toKey(firstKey));
   }
 
-  private void resetKey(Object key) {
-    exchange.clear();
-    exchange.append(key);
+  /**
+   * Entries whose key strictly starts with the specified prefix
+   */
+  private NavigableMap<Object[], Object> subMap(Object[] prefix) {
+    return map.subMap(prefix, false, after(prefix), false);
   }
 
-  private void resetKey(Object first, Object second) {
-    exchange.clear();
-    exchange.append(first).append(second);
+  /**
+   * Releases resources. The storage must not be used anymore.
+   */
+  void close() {
+    map.clear();
+    memoryBytes = 0L;
+    if (spillChannel != null) {
+      try {
+        spillChannel.close();
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to close storage " + name, e);
+      } finally {
+        spillChannel = null;
+      }
+    }
+  }
+
+  long memoryBytes() {
+    return memoryBytes;
+  }
+
+  long spillFileSize() {
+    return spillFileSize;
   }
 
-  private void resetKey(Object first, Object second, Object third) {
-    exchange.clear();
-    exchange.append(first).append(second).append(third);
+  long deadSpillBytes() {
+    return deadSpillBytes;
   }
 
-  private void resetKey(Object[] keys) {
-    exchange.clear();
-    for (Object o : keys) {
-      exchange.append(o);
+  /**
+   * Appends all the values still in memory to {@link #spillFile}. The file is compacted before if more than half of
+   * it is made of values which have been overridden or removed.
+   */
+  private void spill() throws IOException {
+    if (spillChannel == null) {
+      spillChannel = FileChannel.open(spillFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    if (deadSpillBytes > spillFileSize / 2) {
+      compact();
+    }
+    for (Map.Entry<Object[], Object> entry : map.entrySet()) {
+      Object storedValue = entry.getValue();
+      if (storedValue instanceof byte[]) {
+        byte[] bytes = (byte[]) storedValue;
+        long offset = spillFileSize;
+        write(bytes, offset);
+        spillFileSize += bytes.length;
+        map.replace(entry.getKey(), storedValue, new SpilledValue(offset, bytes.length, spillGeneration));
+      }
+    }
+    memoryBytes = 0L;
+  }
+
+  /**
+   * Moves the values of {@link #spillFile} which are still referenced to the beginning of the file, in the order of
+   * their offsets, so that a value never overwrites another value still to be moved. The file is then truncated.
+   */
+  private void compact() throws IOException {
+    List<Map.Entry<Object[], SpilledValue>> spilledEntries = new ArrayList<>();
+    for (Map.Entry<Object[], Object> entry : map.entrySet()) {
+      if (entry.getValue() instanceof SpilledValue) {
+        spilledEntries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), (SpilledValue) entry.getValue()));
+      }
+    }
+    spilledEntries.sort(Comparator.comparingLong(entry -> entry.getValue().offset));
+
+    spillGeneration++;
+    long position = 0L;
+    for (Map.Entry<Object[], SpilledValue> entry : spilledEntries) {
+      SpilledValue spilledValue = entry.getValue();
+      if (spilledValue.offset != position) {
+        write(read(spilledValue), position);
+      }
+      map.replace(entry.getKey(), spilledValue, new SpilledValue(position, spilledValue.length, spillGeneration));
+      position += spilledValue.length;
+    }
+    spillChannel.truncate(position);
+    spillFileSize = position;
+    deadSpillBytes = 0L;
+  }
+
+  private void write(byte[] bytes, long position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      spillChannel.write(buffer, position + buffer.position());
+    }
+  }
+
+  private byte[] read(SpilledValue spilledValue) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(spilledValue.length);
+    while (buffer.hasRemaining()) {
+      int read = spillChannel.read(buffer, spilledValue.offset + buffer.position());
+      if (read < 0) {
+        throw new IllegalStateException("Unexpected end of file " + spillFile);
+      }
+    }
+    return buffer.array();
+  }
+
+  private V decode(Object storedValue) throws IOException {
+    if (storedValue instanceof SpilledValue) {
+      return valueCoder.decode(read((SpilledValue) storedValue));
+    }
+    return valueCoder.decode((byte[]) storedValue);
+  }
+
+  /**
+   * Value stored for the key of an entry read by a lazy iterator, or {@code null} if the entry has been removed since.
+   * The value read by the iterator is used unless the file has been compacted or cleared since it was read.
+   */
+  @CheckForNull
+  private Object storedValueOf(Map.Entry<Object[], Object> entry) {
+    Object storedValue = entry.getValue();
+    if (storedValue instanceof SpilledValue && ((SpilledValue) storedValue).generation != spillGeneration) {
+      return map.get(entry.getKey());
+    }
+    return storedValue;
+  }
+
+  private static Object[] toKey(Object... parts) {
+    for (Object part : parts) {
+      checkArgument(part instanceof Comparable, "Key must be made of non-null comparable parts: %s", Arrays.toString(parts));
+    }
+    return parts.clone();
+  }
+
+  /**
+   * Key greater than the specified key and all the keys it is prefix of
+   */
+  private static Object[] after(Object[] key) {
+    Object[] after = Arrays.copyOf(key, key.length + 1);
+    after[key.length] = AFTER;
+    return after;
+  }
+
+  private static int compareKeys(Object[] key1, Object[] key2) {
+    int length = Math.min(key1.length, key2.length);
+    for (int i = 0; i < length; i++) {
+      int comparison = compareParts(key1[i], key2[i]);
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+    return Integer.compare(key1.length, key2.length);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compareParts(Object part1, Object part2) {
+    if (part1 == part2) {
+      return 0;
+    }
+    if (part1 == AFTER) {
+      return 1;
+    }
+    if (part2 == AFTER) {
+      return -1;
+    }
+    if (part1.getClass() == part2.getClass()) {
+      return ((Comparable) part1).compareTo(part2);
+    }
+    return part1.getClass().getName().compareTo(part2.getClass().getName());
+  }
+
+  private static final class SpilledValue {
+    private final long offset;
+    private final int length;
+    private final int generation;
+
+    private SpilledValue(long offset, int length, int generation) {
+      this.offset = offset;
+      this.length = length;
+      this.generation = generation;
     }
   }
 
@@ -350,130 +516,105 @@ public class Storage<V> {
   //
 
   private static class ValueIterable<T> implements Iterable<T> {
-    private final Exchange originExchange;
-    private final Object[] keys;
+    private final Storage<T> storage;
+    private final Object[] prefix;
 
-    private ValueIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
-      this.keys = keys;
+    private ValueIterable(Storage<T> storage, Object[] prefix) {
+      this.storage = storage;
+      this.prefix = prefix;
     }
 
     @Override
     public Iterator<T> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
-      }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new ValueIterator<>(iteratorExchange, filter);
+      return new ValueIterator<>(storage, storage.subMap(prefix).entrySet().iterator());
     }
   }
 
-  private static class ValueIterator<T> implements Iterator<T> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
-
-    private ValueIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
+  /**
+   * Iterates the entries of the storage and decodes their values. Entries removed from the storage after being read
+   * by the underlying iterator, but before being returned, are skipped.
+   */
+  private abstract static class LazyIterator<T, R> implements Iterator<R> {
+    private final Storage<T> storage;
+    private final Iterator<Map.Entry<Object[], Object>> delegate;
+    private R next;
+    private boolean hasNext = false;
+
+    private LazyIterator(Storage<T> storage, Iterator<Map.Entry<Object[], Object>> delegate) {
+      this.storage = storage;
+      this.delegate = delegate;
     }
 
     @Override
     public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
+      while (!hasNext && delegate.hasNext()) {
+        Map.Entry<Object[], Object> entry = delegate.next();
+        Object storedValue = storage.storedValueOf(entry);
+        if (storedValue != null) {
+          try {
+            next = toNext(entry.getKey(), storage.decode(storedValue));
+          } catch (IOException e) {
+            throw new IllegalStateException(e);
+          }
+          hasNext = true;
+        }
       }
+      return hasNext;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
-    public T next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
+    public R next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
       }
-      if (exchange.getValue().isDefined()) {
-        return (T) exchange.getValue().get();
-      }
-      throw new NoSuchElementException();
+      R result = next;
+      next = null;
+      hasNext = false;
+      return result;
     }
 
+    abstract R toNext(Object[] key, T value);
+
     @Override
     public void remove() {
       throw new UnsupportedOperationException("Removing an item is not supported");
     }
   }
 
-  private static class EntryIterable<T> implements Iterable<Entry<T>> {
-    private final Exchange originExchange;
-    private final Object[] keys;
-
-    private EntryIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
-      this.keys = keys;
+  private static class ValueIterator<T> extends LazyIterator<T, T> {
+    private ValueIterator(Storage<T> storage, Iterator<Map.Entry<Object[], Object>> delegate) {
+      super(storage, delegate);
     }
 
     @Override
-    public Iterator<Entry<T>> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
-      }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new EntryIterator<>(iteratorExchange, filter);
+    T toNext(Object[] key, T value) {
+      return value;
     }
   }
 
-  private static class EntryIterator<T> implements Iterator<Entry<T>> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
+  private static class EntryIterable<T> implements Iterable<Entry<T>> {
+    private final Storage<T> storage;
+    private final Object[] prefix;
 
-    private EntryIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
+    private EntryIterable(Storage<T> storage, Object[] prefix) {
+      this.storage = storage;
+      this.prefix = prefix;
     }
 
     @Override
-    public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
+    public Iterator<Entry<T>> iterator() {
+      return new EntryIterator<>(storage, storage.subMap(prefix).entrySet().iterator());
     }
+  }
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public Entry<T> next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-      if (exchange.getValue().isDefined()) {
-        T value = (T) exchange.getValue().get();
-        Key key = exchange.getKey();
-        Object[] array = new Object[key.getDepth()];
-        for (int i = 0; i < key.getDepth(); i++) {
-          array[i] = key.indexTo(i - key.getDepth()).decode();
-        }
-        return new Entry<>(array, value);
-      }
-      throw new NoSuchElementException();
+  private static class EntryIterator<T> extends LazyIterator<T, Entry<T>> {
+    private EntryIterator(Storage<T> storage, Iterator<Map.Entry<Object[], Object>> delegate) {
+      super(storage, delegate);
     }
 
     @Override
-    public void remove() {
-      throw new UnsupportedOperationException("Removing an item is not supported");
+    Entry<T> toNext(Object[] key, T value) {
+      return new Entry<>(key.clone(), value);
     }
   }
 
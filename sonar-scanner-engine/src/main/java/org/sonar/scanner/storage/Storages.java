@@ -19,81 +19,75 @@
  */
 package org.sonar.scanner.storage;
 
-import com.google.common.base.Preconditions;
-import com.persistit.Exchange;
-import com.persistit.Persistit;
-import com.persistit.Value;
-import com.persistit.Volume;
-import com.persistit.encoding.CoderManager;
-import com.persistit.encoding.ValueCoder;
-import com.persistit.exception.PersistitException;
-
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.ScannerSide;
 
+import static com.google.common.base.Preconditions.checkState;
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
 @ScannerSide
 public class Storages implements Startable {
-  private final Map<String, Exchange> cacheMap = new HashMap<>();
-  private Persistit persistit;
-  private Volume volume;
+  /**
+   * Size of the values kept in memory by each storage before being moved to disk
+   */
+  private static final long MAX_MEMORY_BYTES_PER_STORAGE = 16L * 1024 * 1024;
 
-  public Storages(StoragesManager storagesManager) {
-    persistit = storagesManager.persistit();
-    doStart();
-  }
+  private final Map<String, Storage<?>> cacheMap = new HashMap<>();
+  private final long maxMemoryBytesPerStorage;
+  private File dir;
 
-  @Override
-  public void start() {
-    // done in constructor
+  public Storages(StoragesManager storagesManager) {
+    this(storagesManager, MAX_MEMORY_BYTES_PER_STORAGE);
   }
 
-  private void doStart() {
+  Storages(StoragesManager storagesManager, long maxMemoryBytesPerStorage) {
+    this.maxMemoryBytesPerStorage = maxMemoryBytesPerStorage;
     try {
-      persistit.flush();
-      volume = persistit.createTemporaryVolume();
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to create a cache volume", e);
+      dir = Files.createTempDirectory(storagesManager.tempDir().toPath(), "storages").toFile();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create a cache directory", e);
     }
   }
 
-  public void registerValueCoder(Class<?> clazz, ValueCoder coder) {
-    CoderManager cm = persistit.getCoderManager();
-    cm.registerValueCoder(clazz, coder);
+  @Override
+  public void start() {
+    // done in constructor
   }
 
+  /**
+   * Creates a storage which values are encoded with Java serialization.
+   */
   public <V> Storage<V> createCache(String cacheName) {
-    Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
-    Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: %s", cacheName);
-    try {
-      Exchange exchange = persistit.getExchange(volume, cacheName, true);
-      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Storage<V> cache = new Storage<>(cacheName, exchange);
-      cacheMap.put(cacheName, exchange);
-      return cache;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to create cache: " + cacheName, e);
-    }
+    return createCache(cacheName, new SerializableValueCoder<>());
+  }
+
+  public <V> Storage<V> createCache(String cacheName, ValueCoder<V> valueCoder) {
+    checkState(dir != null, "Caches are not initialized");
+    checkState(!cacheMap.containsKey(cacheName), "Cache is already created: %s", cacheName);
+    Storage<V> cache = new Storage<>(cacheName, valueCoder, new File(dir, "cache" + cacheMap.size()), maxMemoryBytesPerStorage);
+    cacheMap.put(cacheName, cache);
+    return cache;
   }
 
   @Override
   public void stop() {
-    for (Entry<String, Exchange> e : cacheMap.entrySet()) {
-      persistit.releaseExchange(e.getValue());
+    for (Storage<?> cache : cacheMap.values()) {
+      cache.close();
     }
-
     cacheMap.clear();
 
-    if (volume != null) {
-      try {
-        volume.close();
-        volume.delete();
-      } catch (PersistitException e) {
-        throw new IllegalStateException("Fail to close caches", e);
-      }
-      volume = null;
+    if (dir != null) {
+      deleteQuietly(dir);
+      dir = null;
     }
   }
+
+  File dir() {
+    return dir;
+  }
 }
@@ -21,7 +21,6 @@ package org.sonar.scanner.cpd.deprecated;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
@@ -38,7 +37,7 @@ import org.sonar.api.batch.fs.internal.DefaultFileSystem;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.config.Settings;
 import org.sonar.api.config.MapSettings;
-import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.PackedBlocks;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -54,7 +53,7 @@ public class JavaCpdBlockIndexerTest {
   private SonarCpdBlockIndex index;
 
   @Captor
-  private ArgumentCaptor<List<Block>> blockCaptor;
+  private ArgumentCaptor<PackedBlocks> blockCaptor;
 
   private Settings settings;
   private JavaCpdBlockIndexer engine;
@@ -99,8 +98,8 @@ public class JavaCpdBlockIndexerTest {
     engine.index(JAVA);
 
     verify(index).insert(eq(file), blockCaptor.capture());
-    List<Block> blockList = blockCaptor.getValue();
+    PackedBlocks blocks = blockCaptor.getValue();
 
-    assertThat(blockList).hasSize(26);
+    assertThat(blocks.size()).isEqualTo(26);
   }
 }
@@ -74,11 +74,8 @@ public class MeasureCacheTest extends AbstractCachesTest {
     assertThat(measureCache.byComponentKey(COMPONENT_KEY).iterator().next()).isEqualTo(m);
   }
 
-  /**
-   * This test fails with stock PersisitIt.
-   */
   @Test
-  public void should_add_measure_with_too_big_data_for_persistit_pre_patch() {
+  public void should_add_measure_with_big_data() {
     assertThat(measureCache.entries()).hasSize(0);
     assertThat(measureCache.byComponentKey(COMPONENT_KEY)).hasSize(0);
 
@@ -103,21 +100,14 @@ public class MeasureCacheTest extends AbstractCachesTest {
   }
 
   @Test
-  public void should_add_measure_with_too_big_data_for_persistit() {
-    assertThat(measureCache.entries()).hasSize(0);
-    assertThat(measureCache.byComponentKey(COMPONENT_KEY)).hasSize(0);
-
-    // Limit is 64Mo
-    StringBuilder data = new StringBuilder(64 * 1024 * 1024 + 1);
-    for (int i = 0; i < 64 * 1024 * 1024 + 1; i++) {
-      data.append('a');
-    }
-    DefaultMeasure<?> m = new DefaultMeasure().forMetric(CoreMetrics.COVERAGE_LINE_HITS_DATA).withValue(data.toString());
+  public void should_fail_to_read_measure_of_unknown_metric() {
+    DefaultMeasure<?> m = new DefaultMeasure().forMetric(CoreMetrics.LINES).withValue(1);
+    measureCache.put(COMPONENT_KEY, CoreMetrics.LINES_KEY, m);
 
     thrown.expect(IllegalStateException.class);
-    thrown.expectMessage("Fail to put element in the storage 'measures'");
+    thrown.expectMessage("Fail to get element from cache measures");
 
-    measureCache.put(COMPONENT_KEY, CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY, m);
+    measureCache.byMetric(COMPONENT_KEY, CoreMetrics.LINES_KEY);
   }
 
   @Test
@@ -225,6 +225,42 @@ public class StorageTest extends AbstractCachesTest {
     assertThat(cache.values()).isEmpty();
   }
 
+  @Test
+  public void integer_keys() {
+    Storage<String> cache = caches.createCache("issues");
+    cache.put(10, "b", "issue 10b");
+    cache.put(2, "a", "issue 2a");
+    cache.put(10, "a", "issue 10a");
+    cache.put(0, "c", "issue 0c");
+
+    assertThat(cache.keySet()).containsExactly(0, 2, 10);
+    assertThat(cache.values(10)).containsExactly("issue 10a", "issue 10b");
+    assertThat(cache.values()).containsExactly("issue 0c", "issue 2a", "issue 10a", "issue 10b");
+  }
+
+  @Test
+  public void modify_while_iterating() {
+    Storage<String> cache = caches.createCache("capitals");
+    cache.put("europe", "france", "paris");
+    cache.put("europe", "italy", "rome");
+
+    for (String value : cache.values("europe")) {
+      cache.put("asia", value, value);
+    }
+
+    assertThat(cache.values("asia")).containsOnly("paris", "rome");
+  }
+
+  @Test
+  public void returned_values_are_copies() {
+    Storage<StringBuilder> cache = caches.createCache("builders");
+    cache.put("foo", new StringBuilder("bar"));
+
+    cache.get("foo").append("baz");
+
+    assertThat(cache.get("foo").toString()).isEqualTo("bar");
+  }
+
   @Test
   public void empty_cache() {
     Storage<String> cache = caches.createCache("empty");
@@ -19,9 +19,10 @@
  */
 package org.sonar.scanner.storage;
 
+import java.io.File;
 import java.io.Serializable;
-
-import com.persistit.exception.PersistitException;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
 import org.sonar.scanner.index.AbstractCachesTest;
 import org.sonar.scanner.storage.Storage;
@@ -55,10 +56,12 @@ public class StoragesTest extends AbstractCachesTest {
       c.put("a" + i, "a" + i);
     }
 
+    File dir = caches.dir();
     caches.stop();
 
+    assertThat(dir).doesNotExist();
     // manager continues up
-    assertThat(cachesManager.persistit().isInitialized()).isTrue();
+    assertThat(cachesManager.tempDir()).isDirectory();
 
     caches = new Storages(cachesManager);
     caches.start();
@@ -66,7 +69,7 @@ public class StoragesTest extends AbstractCachesTest {
   }
 
   @Test
-  public void leak_test() throws PersistitException {
+  public void leak_test() {
     caches.stop();
 
     int len = 1 * 1024 * 1024;
@@ -80,12 +83,103 @@ public class StoragesTest extends AbstractCachesTest {
       caches.start();
       Storage<String> c = caches.<String>createCache("test" + i);
       c.put("key" + i, sb.toString());
-      cachesManager.persistit().flush();
 
       caches.stop();
     }
   }
 
+  @Test
+  public void values_bigger_than_memory_limit_are_moved_to_disk() {
+    caches.stop();
+    caches = new Storages(cachesManager, 10L);
+
+    Storage<String> c = caches.createCache("test");
+    c.put("key1", "value1");
+    c.put("key2", "value2");
+
+    assertThat(caches.dir().listFiles()).hasSize(1);
+    assertThat(c.get("key1")).isEqualTo("value1");
+    assertThat(c.get("key2")).isEqualTo("value2");
+  }
+
+  @Test
+  public void overridden_and_removed_values_are_not_counted_in_memory() {
+    Storage<String> c = caches.createCache("test");
+    c.put("key1", "value1");
+    long memoryBytes = c.memoryBytes();
+
+    c.put("key1", "value2");
+    assertThat(c.memoryBytes()).isEqualTo(memoryBytes);
+
+    c.put("key2", "value2");
+    c.remove("key1");
+    assertThat(c.memoryBytes()).isEqualTo(memoryBytes);
+
+    c.clear("key2");
+    assertThat(c.memoryBytes()).isZero();
+  }
+
+  @Test
+  public void spill_file_is_compacted_when_values_are_overridden() {
+    caches.stop();
+    caches = new Storages(cachesManager, 10L);
+    Storage<String> c = caches.createCache("test");
+
+    c.put("key1", "value0");
+    long valueSize = c.spillFileSize();
+    for (int i = 0; i < 1_000; i++) {
+      c.put("key1", "value" + i);
+      c.put("key2", "other" + i);
+    }
+
+    // without compaction, the file would contain the 2000 spilled values
+    assertThat(c.spillFileSize()).isLessThan(10 * valueSize);
+    assertThat(c.get("key1")).isEqualTo("value999");
+    assertThat(c.get("key2")).isEqualTo("other999");
+  }
+
+  @Test
+  public void spill_file_is_truncated_when_storage_is_cleared() {
+    caches.stop();
+    caches = new Storages(cachesManager, 10L);
+    Storage<String> c = caches.createCache("test");
+    c.put("key1", "value1");
+    c.put("key2", "value2");
+    assertThat(c.spillFileSize()).isPositive();
+
+    c.clear();
+
+    assertThat(c.spillFileSize()).isZero();
+    assertThat(c.deadSpillBytes()).isZero();
+    c.put("key3", "value3");
+    c.put("key4", "value4");
+    assertThat(c.get("key3")).isEqualTo("value3");
+    assertThat(c.get("key4")).isEqualTo("value4");
+  }
+
+  @Test
+  public void iteration_is_not_affected_by_compaction_of_spill_file() {
+    caches.stop();
+    caches = new Storages(cachesManager, 10L);
+    Storage<String> c = caches.createCache("test");
+    for (int i = 0; i < 10; i++) {
+      c.put("key" + i, "value" + i);
+    }
+
+    List<String> values = new ArrayList<>();
+    for (String value : c.values()) {
+      values.add(value);
+      // overrides the other values many times, so that the file is compacted and values are moved
+      for (int i = 0; i < 10; i++) {
+        c.put("key0", "value0");
+        c.put("key9", "value9");
+      }
+      c.remove("key5");
+    }
+
+    assertThat(values).containsExactly("value0", "value1", "value2", "value3", "value4", "value6", "value7", "value8", "value9");
+  }
+
   private static class Element implements Serializable {
     private static final long serialVersionUID = 1L;
 
@@ -114,6 +114,7 @@ public class IssuesWsParameters {
   public static final String PARAM_SORT = "sort";
   public static final String PARAM_ASC = "asc";
   public static final String PARAM_ADDITIONAL_FIELDS = "additionalFields";
+  public static final String PARAM_INDEXED_FIELDS_ONLY = "indexedFieldsOnly";
 
   public static final String FACET_MODE = "facetMode";
   public static final String FACET_MODE_COUNT = "count";
@@ -0,0 +1,126 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarqube.benchmark.duplications;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files in JSON format, as generated by
+ * {@code java -jar target/benchmarks.jar -rf json -rff current.json}, and fails when the score of a
+ * benchmark is worse than the baseline by more than the given percentage (10% by default).
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar org.sonarsource.sonarqube.benchmark.duplications.BaselineComparison baseline.json current.json [maxRegressionPercent]}
+ * </p>
+ * Baselines must be generated on the same hardware and JVM as the results they are compared with.
+ */
+public class BaselineComparison {
+
+  private static final double DEFAULT_MAX_REGRESSION_PERCENT = 10.0;
+
+  private BaselineComparison() {
+    // only statics
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: BaselineComparison <baseline.json> <current.json> [maxRegressionPercent]");
+      System.exit(2);
+    }
+    double maxRegressionPercent = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_MAX_REGRESSION_PERCENT;
+    Map<String, Score> baseline = load(args[0]);
+    Map<String, Score> current = load(args[1]);
+
+    int regressions = 0;
+    for (Map.Entry<String, Score> entry : current.entrySet()) {
+      Score base = baseline.get(entry.getKey());
+      if (base == null) {
+        System.out.println(String.format("%-100s %12s -> %12.3f %s (new)", entry.getKey(), "", entry.getValue().value, entry.getValue().unit));
+        continue;
+      }
+      double regressionPercent = entry.getValue().regressionPercentFrom(base);
+      boolean regression = regressionPercent > maxRegressionPercent;
+      if (regression) {
+        regressions++;
+      }
+      System.out.println(String.format("%-100s %12.3f -> %12.3f %s (%+.1f%%)%s", entry.getKey(), base.value, entry.getValue().value, entry.getValue().unit,
+        0.0 - regressionPercent, regression ? " REGRESSION" : ""));
+    }
+    if (regressions > 0) {
+      System.out.println(String.format("%d benchmark(s) regressed by more than %.1f%%", regressions, maxRegressionPercent));
+      System.exit(1);
+    }
+  }
+
+  static Map<String, Score> load(String path) throws IOException {
+    try (Reader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+      JsonArray results = new JsonParser().parse(reader).getAsJsonArray();
+      Map<String, Score> scores = new LinkedHashMap<>();
+      for (JsonElement element : results) {
+        JsonObject result = element.getAsJsonObject();
+        JsonObject metric = result.getAsJsonObject("primaryMetric");
+        Score score = new Score(metric.get("score").getAsDouble(), metric.get("scoreUnit").getAsString(), "thrpt".equals(result.get("mode").getAsString()));
+        scores.put(key(result), score);
+      }
+      return scores;
+    }
+  }
+
+  private static String key(JsonObject result) {
+    StringBuilder key = new StringBuilder(result.get("benchmark").getAsString());
+    JsonObject params = result.getAsJsonObject("params");
+    if (params != null) {
+      Map<String, String> sortedParams = new TreeMap<>();
+      params.entrySet().forEach(param -> sortedParams.put(param.getKey(), param.getValue().getAsString()));
+      key.append(sortedParams);
+    }
+    return key.toString();
+  }
+
+  static class Score {
+    private final double value;
+    private final String unit;
+    private final boolean higherIsBetter;
+
+    Score(double value, String unit, boolean higherIsBetter) {
+      this.value = value;
+      this.unit = unit;
+      this.higherIsBetter = higherIsBetter;
+    }
+
+    /**
+     * Positive when this score is worse than the baseline.
+     */
+    double regressionPercentFrom(Score baseline) {
+      double delta = higherIsBetter ? (baseline.value - value) : (value - baseline.value);
+      return delta * 100.0 / baseline.value;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarqube.benchmark.duplications;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.duplications.block.BlockChunker;
+import org.sonar.duplications.java.JavaStatementBuilder;
+import org.sonar.duplications.java.JavaTokenProducer;
+import org.sonar.duplications.statement.Statement;
+import org.sonar.duplications.statement.StatementChunker;
+import org.sonar.duplications.token.TokenChunker;
+
+/**
+ * Throughput of each chunking step of the Java CPD indexing, on the whole corpus.
+ * Each step gets the output of the previous one, computed once during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ChunkingBenchmark {
+
+  @Param({Corpus.SYNTHETIC})
+  public String corpus;
+
+  private TokenChunker tokenChunker;
+  private StatementChunker statementChunker;
+  private BlockChunker blockChunker;
+
+  private Map<String, String> sources;
+  private List<String> resourceIds;
+  private List<List<Statement>> statements;
+
+  @Setup
+  public void setUp() {
+    tokenChunker = JavaTokenProducer.build();
+    statementChunker = JavaStatementBuilder.build();
+    blockChunker = new BlockChunker(Corpus.BLOCK_SIZE);
+    sources = Corpus.load(corpus, 0.0).sourcesByResourceId();
+
+    resourceIds = new ArrayList<>(sources.keySet());
+    statements = new ArrayList<>();
+    for (String source : sources.values()) {
+      statements.add(statementChunker.chunk(tokenChunker.chunk(source)));
+    }
+  }
+
+  @Benchmark
+  public void tokens(Blackhole blackhole) {
+    for (String source : sources.values()) {
+      blackhole.consume(tokenChunker.chunk(source));
+    }
+  }
+
+  /**
+   * {@link StatementChunker} consumes the queue of tokens, so they are computed again for each invocation. The cost
+   * of tokenization is given by {@link #tokens(Blackhole)}.
+   */
+  @Benchmark
+  public void tokensAndStatements(Blackhole blackhole) {
+    for (String source : sources.values()) {
+      blackhole.consume(statementChunker.chunk(tokenChunker.chunk(source)));
+    }
+  }
+
+  @Benchmark
+  public void blocks(Blackhole blackhole) {
+    for (int i = 0; i < statements.size(); i++) {
+      blackhole.consume(blockChunker.chunk(resourceIds.get(i), statements.get(i)));
+    }
+  }
+
+  @Benchmark
+  public void packedBlocks(Blackhole blackhole) {
+    for (int i = 0; i < statements.size(); i++) {
+      blackhole.consume(blockChunker.chunkPacked(resourceIds.get(i), statements.get(i)));
+    }
+  }
+}
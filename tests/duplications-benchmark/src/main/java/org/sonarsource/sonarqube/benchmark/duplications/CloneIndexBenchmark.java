@@ -0,0 +1,109 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarqube.benchmark.duplications;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.MemoryCloneIndex;
+import org.sonar.duplications.index.PackedMemoryCloneIndex;
+
+/**
+ * Build and query of the two implementations of {@link CloneIndex}, with all the blocks of the corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CloneIndexBenchmark {
+
+  @Param({Corpus.SYNTHETIC})
+  public String corpus;
+
+  @Param({"0.1", "0.5"})
+  public double duplicationDensity;
+
+  @Param({"memory", "packed"})
+  public String index;
+
+  private List<Block> blocks;
+  private List<String> resourceIds;
+  private List<ByteArray> hashes;
+  private CloneIndex builtIndex;
+
+  @Setup
+  public void setUp() {
+    Map<String, List<Block>> blocksByResourceId = Corpus.load(corpus, duplicationDensity).blocksByResourceId();
+    blocks = new ArrayList<>();
+    Set<ByteArray> distinctHashes = new LinkedHashSet<>();
+    for (List<Block> fileBlocks : blocksByResourceId.values()) {
+      blocks.addAll(fileBlocks);
+      fileBlocks.forEach(block -> distinctHashes.add(block.getBlockHash()));
+    }
+    resourceIds = new ArrayList<>(blocksByResourceId.keySet());
+    hashes = new ArrayList<>(distinctHashes);
+    builtIndex = build();
+    // packed index sorts its data on first query
+    builtIndex.getByResourceId(resourceIds.get(0));
+  }
+
+  @Benchmark
+  public CloneIndex build() {
+    CloneIndex cloneIndex = "packed".equals(index) ? new PackedMemoryCloneIndex() : new MemoryCloneIndex();
+    for (Block block : blocks) {
+      cloneIndex.insert(block);
+    }
+    return cloneIndex;
+  }
+
+  @Benchmark
+  public void queryByResourceId(Blackhole blackhole) {
+    for (String resourceId : resourceIds) {
+      blackhole.consume(builtIndex.getByResourceId(resourceId));
+    }
+  }
+
+  @Benchmark
+  public void queryBySequenceHash(Blackhole blackhole) {
+    for (ByteArray hash : hashes) {
+      blackhole.consume(builtIndex.getBySequenceHash(hash));
+    }
+  }
+}
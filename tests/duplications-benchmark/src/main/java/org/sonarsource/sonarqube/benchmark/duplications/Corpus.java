@@ -0,0 +1,177 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarqube.benchmark.duplications;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.BlockChunker;
+import org.sonar.duplications.java.JavaStatementBuilder;
+import org.sonar.duplications.java.JavaTokenProducer;
+import org.sonar.duplications.statement.Statement;
+import org.sonar.duplications.statement.StatementChunker;
+import org.sonar.duplications.token.TokenChunker;
+
+/**
+ * Source files used as input of the benchmarks, by resource id.
+ * <p>
+ * The synthetic corpus is generated from a fixed seed, so that two runs on the same parameters get the same input.
+ * A real corpus is any directory containing Java files, for example {@code sonar-duplications/src/main/java}.
+ * </p>
+ */
+final class Corpus {
+
+  static final String SYNTHETIC = "synthetic";
+  static final int BLOCK_SIZE = 10;
+
+  private static final long SEED = 42L;
+  private static final int SYNTHETIC_FILES = 200;
+  private static final int METHODS_PER_FILE = 20;
+  private static final int STATEMENTS_PER_METHOD = 12;
+  private static final int SHARED_METHODS = 50;
+
+  private final Map<String, String> sourcesByResourceId;
+
+  private Corpus(Map<String, String> sourcesByResourceId) {
+    this.sourcesByResourceId = sourcesByResourceId;
+  }
+
+  /**
+   * @param name either {@link #SYNTHETIC} or the path to a directory containing Java files
+   * @param duplicationDensity ratio, between 0 and 1, of the methods of the synthetic corpus that are copied from
+   * a pool of methods shared by all files. Ignored for real corpus.
+   */
+  static Corpus load(String name, double duplicationDensity) {
+    if (SYNTHETIC.equals(name)) {
+      return synthetic(SYNTHETIC_FILES, METHODS_PER_FILE, duplicationDensity);
+    }
+    return fromDirectory(new File(name));
+  }
+
+  static Corpus synthetic(int files, int methodsPerFile, double duplicationDensity) {
+    Random random = new Random(SEED);
+    List<String> sharedMethods = new ArrayList<>();
+    for (int i = 0; i < SHARED_METHODS; i++) {
+      sharedMethods.add(method(random, "shared" + i));
+    }
+    Map<String, String> sources = new LinkedHashMap<>();
+    for (int file = 0; file < files; file++) {
+      StringBuilder source = new StringBuilder();
+      source.append("package org.sample;\n\npublic class Sample").append(file).append(" {\n");
+      for (int m = 0; m < methodsPerFile; m++) {
+        if (random.nextDouble() < duplicationDensity) {
+          source.append(sharedMethods.get(random.nextInt(SHARED_METHODS)));
+        } else {
+          source.append(method(random, "method" + m));
+        }
+      }
+      source.append("}\n");
+      sources.put("org/sample/Sample" + file + ".java", source.toString());
+    }
+    return new Corpus(sources);
+  }
+
+  static Corpus fromDirectory(File dir) {
+    if (!dir.isDirectory()) {
+      throw new IllegalArgumentException("Corpus directory does not exist: " + dir.getAbsolutePath());
+    }
+    Map<String, String> sources = new LinkedHashMap<>();
+    Path root = dir.toPath();
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths
+        .filter(p -> p.toString().endsWith(".java"))
+        .sorted()
+        .forEach(p -> sources.put(root.relativize(p).toString(), read(p)));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read corpus " + dir.getAbsolutePath(), e);
+    }
+    if (sources.isEmpty()) {
+      throw new IllegalArgumentException("Corpus directory does not contain Java files: " + dir.getAbsolutePath());
+    }
+    return new Corpus(sources);
+  }
+
+  Map<String, String> sourcesByResourceId() {
+    return sourcesByResourceId;
+  }
+
+  /**
+   * Chunks the corpus the same way the Java CPD indexer of the scanner does.
+   */
+  Map<String, List<Block>> blocksByResourceId() {
+    TokenChunker tokenChunker = JavaTokenProducer.build();
+    StatementChunker statementChunker = JavaStatementBuilder.build();
+    BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
+    Map<String, List<Block>> blocks = new LinkedHashMap<>();
+    for (Map.Entry<String, String> source : sourcesByResourceId.entrySet()) {
+      List<Statement> statements = statementChunker.chunk(tokenChunker.chunk(source.getValue()));
+      blocks.put(source.getKey(), blockChunker.chunk(source.getKey(), statements));
+    }
+    return blocks;
+  }
+
+  private static String read(Path path) {
+    try {
+      return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read " + path, e);
+    }
+  }
+
+  private static String method(Random random, String name) {
+    StringBuilder method = new StringBuilder();
+    method.append("  public int ").append(name).append("(int a, int b) {\n");
+    method.append("    int ").append(identifier(random)).append(" = a;\n");
+    for (int i = 0; i < STATEMENTS_PER_METHOD; i++) {
+      String variable = identifier(random);
+      switch (random.nextInt(4)) {
+        case 0:
+          method.append("    int ").append(variable).append(" = a * ").append(random.nextInt(100)).append(" + b;\n");
+          break;
+        case 1:
+          method.append("    if (a > ").append(random.nextInt(100)).append(") {\n      ")
+            .append(identifier(random)).append("(a, ").append(identifier(random)).append(");\n    }\n");
+          break;
+        case 2:
+          method.append("    for (int ").append(variable).append(" = 0; ").append(variable).append(" < b; ").append(variable).append("++) {\n      a += ")
+            .append(variable).append(";\n    }\n");
+          break;
+        default:
+          method.append("    String ").append(variable).append(" = \"").append(identifier(random)).append("\".trim();\n");
+          break;
+      }
+    }
+    method.append("    return a + b;\n  }\n\n");
+    return method.toString();
+  }
+
+  private static String identifier(Random random) {
+    return "v" + Integer.toString(random.nextInt(1_000_000), 36);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarqube.benchmark.duplications;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.detector.original.OriginalCloneDetectionAlgorithm;
+import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
+import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.PackedMemoryCloneIndex;
+
+/**
+ * Detection of the clones of every file of the corpus against an index containing all the files, as done
+ * at the end of the CPD analysis of a project. The duplication density only applies to the synthetic corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DetectionBenchmark {
+
+  @Param({Corpus.SYNTHETIC})
+  public String corpus;
+
+  @Param({"0.0", "0.1", "0.5", "0.9"})
+  public double duplicationDensity;
+
+  private Map<String, List<Block>> blocksByResourceId;
+  private CloneIndex cloneIndex;
+
+  @Setup
+  public void setUp() {
+    blocksByResourceId = Corpus.load(corpus, duplicationDensity).blocksByResourceId();
+    cloneIndex = new PackedMemoryCloneIndex();
+    blocksByResourceId.values().forEach(blocks -> blocks.forEach(cloneIndex::insert));
+  }
+
+  @Benchmark
+  public void suffixTree(Blackhole blackhole) {
+    for (List<Block> fileBlocks : blocksByResourceId.values()) {
+      blackhole.consume(SuffixTreeCloneDetectionAlgorithm.detect(cloneIndex, fileBlocks));
+    }
+  }
+
+  @Benchmark
+  public void original(Blackhole blackhole) {
+    for (List<Block> fileBlocks : blocksByResourceId.values()) {
+      blackhole.consume(OriginalCloneDetectionAlgorithm.detect(cloneIndex, fileBlocks));
+    }
+  }
+}
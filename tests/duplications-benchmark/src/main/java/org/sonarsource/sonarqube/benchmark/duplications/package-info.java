@@ -0,0 +1,29 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+/**
+ * JMH microbenchmarks of sonar-duplications. Build with {@code mvn package} in this module, then run
+ * {@code java -jar target/benchmarks.jar}. A real corpus can be used instead of the generated one with
+ * {@code -p corpus=/path/to/java/sources}. See {@link org.sonarsource.sonarqube.benchmark.duplications.BaselineComparison}
+ * to check results against a baseline.
+ */
+@ParametersAreNonnullByDefault
+package org.sonarsource.sonarqube.benchmark.duplications;
+
+import javax.annotation.ParametersAreNonnullByDefault;
@@ -0,0 +1,142 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarqube.benchmark.protobuf;
+
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.MapEntry;
+import com.google.protobuf.Message;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.sonar.api.utils.text.JsonWriter;
+
+/**
+ * Copy of the implementation of {@link org.sonar.core.util.ProtobufJsonFormat} of SonarQube 6.3, which walks
+ * the descriptors of fields for each message. It is the baseline of {@link ProtobufJsonFormatBenchmark}.
+ */
+class LegacyProtobufJsonFormat {
+
+  private static final Map<Class<? extends Message>, MessageType> TYPES_BY_CLASS = new HashMap<>();
+
+  private LegacyProtobufJsonFormat() {
+    // only statics
+  }
+
+  private static class MessageType {
+    private final Descriptors.FieldDescriptor[] fieldDescriptors;
+    private final boolean doesWrapRepeated;
+
+    private MessageType(Descriptors.Descriptor descriptor) {
+      this.fieldDescriptors = descriptor.getFields().toArray(new Descriptors.FieldDescriptor[descriptor.getFields().size()]);
+      this.doesWrapRepeated = fieldDescriptors.length == 1 && fieldDescriptors[0].isRepeated() && descriptor.getName().equalsIgnoreCase(fieldDescriptors[0].getName());
+    }
+
+    static MessageType of(Message message) {
+      return TYPES_BY_CLASS.computeIfAbsent(message.getClass(), c -> new MessageType(message.getDescriptorForType()));
+    }
+  }
+
+  static void write(Message message, JsonWriter writer) {
+    writer.setSerializeNulls(false).setSerializeEmptys(true);
+    writer.beginObject();
+    writeMessage(message, writer);
+    writer.endObject();
+  }
+
+  private static void writeMessage(Message message, JsonWriter writer) {
+    MessageType type = MessageType.of(message);
+    for (Descriptors.FieldDescriptor fieldDescriptor : type.fieldDescriptors) {
+      if (fieldDescriptor.isRepeated()) {
+        writer.name(fieldDescriptor.getName());
+        if (fieldDescriptor.isMapField()) {
+          writeMap((Collection<MapEntry>) message.getField(fieldDescriptor), writer);
+        } else {
+          writeArray(writer, fieldDescriptor, (Collection) message.getField(fieldDescriptor));
+        }
+      } else if (message.hasField(fieldDescriptor)) {
+        writer.name(fieldDescriptor.getName());
+        Object fieldValue = message.getField(fieldDescriptor);
+        writeFieldValue(fieldDescriptor, fieldValue, writer);
+      }
+    }
+  }
+
+  private static void writeArray(JsonWriter writer, Descriptors.FieldDescriptor fieldDescriptor, Collection array) {
+    writer.beginArray();
+    for (Object o : array) {
+      writeFieldValue(fieldDescriptor, o, writer);
+    }
+    writer.endArray();
+  }
+
+  private static void writeMap(Collection<MapEntry> mapEntries, JsonWriter writer) {
+    writer.beginObject();
+    for (MapEntry mapEntry : mapEntries) {
+      writer.name(mapEntry.getKey().toString());
+      Descriptors.FieldDescriptor valueDescriptor = mapEntry.getDescriptorForType().findFieldByName("value");
+      writeFieldValue(valueDescriptor, mapEntry.getValue(), writer);
+    }
+    writer.endObject();
+  }
+
+  private static void writeFieldValue(Descriptors.FieldDescriptor fieldDescriptor, Object value, JsonWriter writer) {
+    switch (fieldDescriptor.getJavaType()) {
+      case INT:
+        writer.value((Integer) value);
+        break;
+      case LONG:
+        writer.value((Long) value);
+        break;
+      case DOUBLE:
+        writer.value((Double) value);
+        break;
+      case BOOLEAN:
+        writer.value((Boolean) value);
+        break;
+      case STRING:
+        writer.value((String) value);
+        break;
+      case ENUM:
+        writer.value(((Descriptors.EnumValueDescriptor) value).getName());
+        break;
+      case MESSAGE:
+        writeMessageValue((Message) value, writer);
+        break;
+      default:
+        throw new IllegalStateException(String.format("JSON format does not support type '%s' of field '%s'", fieldDescriptor.getJavaType(), fieldDescriptor.getName()));
+    }
+  }
+
+  private static void writeMessageValue(Message message, JsonWriter writer) {
+    MessageType messageType = MessageType.of(message);
+    if (messageType.doesWrapRepeated) {
+      Descriptors.FieldDescriptor repeatedDescriptor = messageType.fieldDescriptors[0];
+      if (repeatedDescriptor.isMapField()) {
+        writeMap((Collection<MapEntry>) message.getField(repeatedDescriptor), writer);
+      } else {
+        writeArray(writer, repeatedDescriptor, (Collection) message.getField(repeatedDescriptor));
+      }
+    } else {
+      writer.beginObject();
+      writeMessage(message, writer);
+      writer.endObject();
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.sonarqube.benchmark.protobuf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.core.util.ProtobufJsonFormat;
+import org.sonarqube.ws.Common;
+import org.sonarqube.ws.Issues;
+import org.sonarqube.ws.Issues.SearchWsResponse;
+
+/**
+ * Time to write a page of api/issues/search as JSON, with its components, rules and users, into
+ * an in-memory UTF-8 stream. {@code legacy} is the previous implementation walking field descriptors,
+ * {@code current} is {@link ProtobufJsonFormat}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ProtobufJsonFormatBenchmark {
+
+  @Param({"100", "500"})
+  public int pageSize;
+
+  private SearchWsResponse response;
+  private final ByteArrayOutputStream output = new ByteArrayOutputStream(1024 * 1024);
+
+  @Setup
+  public void setUp() {
+    response = newSearchResponse(pageSize);
+
+    byte[] legacyJson = legacy();
+    byte[] currentJson = current();
+    if (!Arrays.equals(legacyJson, currentJson)) {
+      throw new IllegalStateException("Legacy and current implementations do not generate the same JSON");
+    }
+  }
+
+  @Benchmark
+  public byte[] legacy() {
+    output.reset();
+    try (JsonWriter writer = JsonWriter.of(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+      LegacyProtobufJsonFormat.write(response, writer);
+    }
+    return output.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] current() {
+    output.reset();
+    try (JsonWriter writer = JsonWriter.of(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+      ProtobufJsonFormat.write(response, writer);
+    }
+    return output.toByteArray();
+  }
+
+  private static SearchWsResponse newSearchResponse(int pageSize) {
+    SearchWsResponse.Builder response = SearchWsResponse.newBuilder()
+      .setTotal(10_000L)
+      .setP(1)
+      .setPs(pageSize)
+      .setPaging(Common.Paging.newBuilder().setPageIndex(1).setPageSize(pageSize).setTotal(10_000))
+      .setEffortTotal(123_456L)
+      .setDebtTotal(123_456L);
+
+    int componentCount = Math.max(1, pageSize / 5);
+    int ruleCount = Math.max(1, pageSize / 10);
+    int userCount = Math.max(1, pageSize / 20);
+    for (int i = 0; i < pageSize; i++) {
+      String component = "org.sonarsource:project:src/main/java/Foo" + (i % componentCount) + ".java";
+      response.addIssues(Issues.Issue.newBuilder()
+        .setOrganization("default-organization")
+        .setKey("AVq8Jkd2a3f-issue-" + i)
+        .setRule("squid:S" + (i % ruleCount))
+        .setSeverity(Common.Severity.values()[i % Common.Severity.values().length])
+        .setComponent(component)
+        .setComponentId(i % componentCount)
+        .setProject("org.sonarsource:project")
+        .setLine(i + 1)
+        .setTextRange(Common.TextRange.newBuilder().setStartLine(i + 1).setEndLine(i + 1).setStartOffset(4).setEndOffset(42))
+        .addFlows(Issues.Flow.newBuilder()
+          .addLocations(Issues.Location.newBuilder().setComponentId(component).setMsg("secondary location")
+            .setTextRange(Common.TextRange.newBuilder().setStartLine(i + 2).setEndLine(i + 2))))
+        .setStatus("OPEN")
+        .setMessage("Remove this unused \"field\" private field, number " + i + ".")
+        .setEffort("5min")
+        .setDebt("5min")
+        .setAssignee("user" + (i % userCount))
+        .setAuthor("user" + (i % userCount) + "@sonarsource.com")
+        .addTags("unused")
+        .addTags("pitfall")
+        .setTransitions(Issues.Transitions.newBuilder().addTransitions("confirm").addTransitions("resolve").addTransitions("falsepositive"))
+        .setActions(Issues.Actions.newBuilder().addActions("comment").addActions("assign").addActions("set_tags"))
+        .setComments(Issues.Comments.newBuilder())
+        .setCreationDate("2017-03-01T10:15:30+0100")
+        .setUpdateDate("2017-03-02T10:15:30+0100")
+        .setType(Common.RuleType.CODE_SMELL));
+    }
+    for (int i = 0; i < componentCount; i++) {
+      response.addComponents(Issues.Component.newBuilder()
+        .setOrganization("default-organization")
+        .setId(i)
+        .setKey("org.sonarsource:project:src/main/java/Foo" + i + ".java")
+        .setUuid("AVq8Jkd2a3f-component-" + i)
+        .setEnabled(true)
+        .setQualifier("FIL")
+        .setName("Foo" + i + ".java")
+        .setLongName("src/main/java/Foo" + i + ".java")
+        .setPath("src/main/java/Foo" + i + ".java")
+        .setProjectId(0L));
+    }
+    Common.Rules.Builder rules = Common.Rules.newBuilder();
+    for (int i = 0; i < ruleCount; i++) {
+      rules.addRules(Common.Rule.newBuilder().setKey("squid:S" + i).setName("Rule " + i).setLang("java").setStatus(Common.RuleStatus.READY).setLangName("Java"));
+    }
+    response.setRules(rules);
+    Issues.Users.Builder users = Issues.Users.newBuilder();
+    for (int i = 0; i < userCount; i++) {
+      users.addUsers(Issues.Users.User.newBuilder().setLogin("user" + i).setName("User " + i).setAvatar("a1b2c3d4e5f6").setActive(true));
+    }
+    response.setUsers(users);
+    return response.build();
+  }
+}